@@ -0,0 +1,234 @@
+package com.webviewgold.myappname;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * Pool of preloaded full-screen ads of one format (interstitial, rewarded).
+ *
+ * Keeps up to {@code depth} ads loaded, one load in flight at a time, and
+ * refills as soon as an ad is taken. Ads are dropped before the one-hour
+ * AdMob expiry, with a margin, and the pool refills ahead of that. Failed
+ * loads back off exponentially with jitter (10 s doubling up to 10 min) and
+ * keep retrying; retryNow() skips a pending backoff, e.g. when the network
+ * comes back.
+ *
+ * Load outcomes go to AdMetrics under the pool's name; stats() is the
+ * pool's current state.
+ * All methods may be called from any thread; loads start on the main thread.
+ */
+final class AdInventory<T> {
+
+    interface Loader<T> {
+        /**
+         * Starts one ad load on the main thread and reports exactly once.
+         */
+        void load(Callback<T> callback);
+    }
+
+    interface Callback<T> {
+        void onLoaded(T ad);
+
+        void onFailed(int code, String message);
+    }
+
+    private static final String TAG = "AdInventory";
+
+    // AdMob full-screen ads expire an hour after load; don't show them in the last minutes
+    private static final long AD_TTL_MS = 60 * 60 * 1000L - 5 * 60 * 1000L;
+    private static final long BACKOFF_BASE_MS = 10 * 1000L;
+    private static final long BACKOFF_MAX_MS = 10 * 60 * 1000L;
+
+    private static final class Entry<T> {
+        final T ad;
+        final long loadedAt;
+
+        Entry(T ad, long loadedAt) {
+            this.ad = ad;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private final String name;
+    private final int depth;
+    private final Loader<T> loader;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Random random = new Random();
+    private final ArrayDeque<Entry<T>> ready = new ArrayDeque<>();
+
+    private boolean loading = false;
+    private boolean started = false;
+    private int consecutiveFailures = 0;
+    private final Runnable refillTask = this::refill;
+    private final Runnable expiryTask = () -> {
+        synchronized (this) {
+            pruneExpired();
+            scheduleExpiryCheck();
+        }
+        refill();
+    };
+
+    AdInventory(String name, int depth, Loader<T> loader) {
+        this.name = name;
+        this.depth = Math.max(1, depth);
+        this.loader = loader;
+    }
+
+    /**
+     * Starts keeping the pool filled. Further calls are no-ops.
+     */
+    synchronized void start() {
+        if (started) return;
+        started = true;
+        mainHandler.post(refillTask);
+    }
+
+    /**
+     * Takes the oldest ad that is still fresh, or null, and refills behind it.
+     */
+    synchronized T poll() {
+        pruneExpired();
+        Entry<T> entry = ready.pollFirst();
+        if (entry == null) AdMetrics.notReady(name);
+        if (started) mainHandler.post(refillTask);
+        return entry == null ? null : entry.ad;
+    }
+
+    synchronized boolean isReady() {
+        pruneExpired();
+        return !ready.isEmpty();
+    }
+
+    synchronized int readyCount() {
+        pruneExpired();
+        return ready.size();
+    }
+
+    /**
+     * Cancels a pending backoff and tries to load right away.
+     */
+    synchronized void retryNow() {
+        consecutiveFailures = 0;
+        if (!started) return;
+        mainHandler.removeCallbacks(refillTask);
+        mainHandler.post(refillTask);
+    }
+
+    synchronized void clear() {
+        started = false;
+        ready.clear();
+        mainHandler.removeCallbacks(refillTask);
+        mainHandler.removeCallbacks(expiryTask);
+    }
+
+    synchronized JSONObject stats() {
+        JSONObject stats = new JSONObject();
+        try {
+            stats.put("depth", depth);
+            stats.put("ready", ready.size());
+            stats.put("loading", loading);
+            stats.put("consecutiveFailures", consecutiveFailures);
+        } catch (JSONException ignored) {
+            // Keys and values are all valid
+        }
+        return stats;
+    }
+
+    // Main thread
+    private void refill() {
+        synchronized (this) {
+            if (!started || loading) return;
+            pruneExpired();
+            if (ready.size() >= depth) return;
+            loading = true;
+        }
+        final long startedAt = AdMetrics.now();
+        AdMetrics.loadStarted(name);
+
+        try {
+            loader.load(new Callback<T>() {
+                @Override
+                public void onLoaded(T ad) {
+                    onLoadFinished(startedAt, ad, 0, null);
+                }
+
+                @Override
+                public void onFailed(int code, String message) {
+                    onLoadFinished(startedAt, null, code, message);
+                }
+            });
+        } catch (Exception e) {
+            onLoadFinished(startedAt, null, -1, e.getMessage());
+        }
+    }
+
+    private void onLoadFinished(long startedAt, T ad, int code, String message) {
+        long delay = 0;
+        synchronized (this) {
+            loading = false;
+            long now = SystemClock.elapsedRealtime();
+            if (ad != null) {
+                AdMetrics.loadSucceeded(name, startedAt);
+                consecutiveFailures = 0;
+                if (started) {
+                    ready.addLast(new Entry<>(ad, now));
+                } else {
+                    return;
+                }
+                if (BuildConfig.IS_DEBUG_MODE) {
+                    Log.d(TAG, name + " ready in " + (now - startedAt) + " ms, " + ready.size() + "/" + depth + " " + stats());
+                }
+            } else {
+                AdMetrics.loadFailed(name, startedAt, code);
+                AdMetrics.retryScheduled(name);
+                consecutiveFailures++;
+                delay = backoffDelay(consecutiveFailures);
+                Log.e(TAG, name + " failed to load (" + code + "): " + message
+                        + ", retrying in " + (delay / 1000) + "s");
+            }
+            if (!started) return;
+            scheduleExpiryCheck();
+        }
+        mainHandler.removeCallbacks(refillTask);
+        mainHandler.postDelayed(refillTask, delay);
+    }
+
+    /**
+     * Equal jitter: a random delay between half and all of base * 2^(failures - 1), capped.
+     */
+    private long backoffDelay(int failures) {
+        long ceiling = BACKOFF_BASE_MS << Math.min(failures - 1, 16);
+        ceiling = Math.min(ceiling, BACKOFF_MAX_MS);
+        return ceiling / 2 + (long) (random.nextDouble() * (ceiling / 2));
+    }
+
+    private void pruneExpired() {
+        long now = SystemClock.elapsedRealtime();
+        Iterator<Entry<T>> it = ready.iterator();
+        while (it.hasNext()) {
+            if (now - it.next().loadedAt >= AD_TTL_MS) {
+                it.remove();
+                AdMetrics.expired(name);
+                if (BuildConfig.IS_DEBUG_MODE) Log.d(TAG, name + " discarded an expired ad");
+            }
+        }
+    }
+
+    private void scheduleExpiryCheck() {
+        mainHandler.removeCallbacks(expiryTask);
+        Entry<T> oldest = ready.peekFirst();
+        if (oldest != null) {
+            long delay = oldest.loadedAt + AD_TTL_MS - SystemClock.elapsedRealtime();
+            mainHandler.postDelayed(expiryTask, Math.max(0, delay));
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.webviewgold.myappname;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ad request / impression metrics, per format ("interstitial", "rewarded",
+ * "banner", "mrec", "app_open", "legacy_interstitial", "legacy_rewarded").
+ *
+ * Counters (loads, fills, failures per error code, retries, expiry
+ * discards, not-ready misses, impressions, rewards) and latency histograms
+ * (load and show, fixed millisecond buckets) are kept in lock-free
+ * structures, so recording from ad callbacks on any thread never blocks.
+ * Totals survive restarts: they are restored from filesDir/ad_metrics.json
+ * in init() and written back at most once a minute after a change, and
+ * whenever the app goes to the background (flush()). Reads and writes of
+ * the file run one at a time on a dedicated thread.
+ *
+ * snapshot() is what Android.getAdStats() returns to the page.
+ */
+final class AdMetrics {
+
+    private static final String TAG = "AdMetrics";
+    private static final String FILE_NAME = "ad_metrics.json";
+    private static final long FLUSH_INTERVAL_MS = 60 * 1000L;
+
+    // Upper bounds (inclusive, ms) of the latency buckets; one overflow bucket follows
+    private static final long[] BUCKET_BOUNDS_MS = {100, 250, 500, 1000, 2000, 5000, 10000, 30000};
+
+    private static final class Histogram {
+        final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS_MS.length + 1);
+        final LongAdder count = new LongAdder();
+        final LongAdder sumMs = new LongAdder();
+        final AtomicLong maxMs = new AtomicLong();
+
+        void record(long ms) {
+            int i = 0;
+            while (i < BUCKET_BOUNDS_MS.length && ms > BUCKET_BOUNDS_MS[i]) i++;
+            buckets.incrementAndGet(i);
+            count.increment();
+            sumMs.add(ms);
+            long max;
+            do {
+                max = maxMs.get();
+            } while (ms > max && !maxMs.compareAndSet(max, ms));
+        }
+
+        /**
+         * Upper bound of the bucket holding the given quantile; -1 if empty, the
+         * max if it falls in the overflow bucket.
+         */
+        long quantile(double q) {
+            long total = count.sum();
+            if (total == 0) return -1;
+            long target = (long) Math.ceil(total * q);
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= target) {
+                    return i < BUCKET_BOUNDS_MS.length ? BUCKET_BOUNDS_MS[i] : maxMs.get();
+                }
+            }
+            return maxMs.get();
+        }
+
+        JSONObject toJson() throws JSONException {
+            long n = count.sum();
+            JSONObject json = new JSONObject();
+            json.put("count", n);
+            json.put("sumMs", sumMs.sum());
+            json.put("avgMs", n == 0 ? 0 : sumMs.sum() / n);
+            json.put("p50Ms", quantile(0.5));
+            json.put("p90Ms", quantile(0.9));
+            json.put("maxMs", maxMs.get());
+            JSONArray b = new JSONArray();
+            for (int i = 0; i < buckets.length(); i++) b.put(buckets.get(i));
+            json.put("buckets", b);
+            return json;
+        }
+
+        void restore(JSONObject json) {
+            JSONArray b = json.optJSONArray("buckets");
+            if (b == null || b.length() != buckets.length()) return;
+            for (int i = 0; i < buckets.length(); i++) buckets.addAndGet(i, b.optLong(i));
+            count.add(json.optLong("count"));
+            sumMs.add(json.optLong("sumMs"));
+            long restoredMax = json.optLong("maxMs");
+            long max;
+            do {
+                max = maxMs.get();
+            } while (restoredMax > max && !maxMs.compareAndSet(max, restoredMax));
+        }
+    }
+
+    // format -> event -> count / histogram
+    private static final Map<String, Map<String, LongAdder>> COUNTERS = new ConcurrentHashMap<>();
+    private static final Map<String, Map<String, Histogram>> HISTOGRAMS = new ConcurrentHashMap<>();
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static final ExecutorService fileExecutor =
+            Executors.newSingleThreadExecutor(r -> new Thread(r, "AdMetrics-IO"));
+    private static final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private static final AtomicBoolean restored = new AtomicBoolean(false);
+    private static final AtomicLong since = new AtomicLong(0);
+    private static volatile File file;
+
+    private AdMetrics() {
+    }
+
+    /**
+     * Restores the persisted totals in the background. Call once from Application.onCreate.
+     */
+    static void init(Context context) {
+        if (file != null) return;
+        file = new File(context.getApplicationContext().getFilesDir(), FILE_NAME);
+        fileExecutor.execute(() -> {
+            try {
+                if (file.exists()) restore(new JSONObject(readFile(file)));
+            } catch (IOException | JSONException e) {
+                Log.e(TAG, "Failed to restore ad metrics: " + e.getMessage());
+            } finally {
+                since.compareAndSet(0, System.currentTimeMillis());
+                restored.set(true);
+            }
+        });
+    }
+
+    static long now() {
+        return SystemClock.elapsedRealtime();
+    }
+
+    // ─── Recording ───
+
+    static void loadStarted(String format) {
+        count(format, "loadRequests");
+    }
+
+    static void loadSucceeded(String format, long startedAt) {
+        count(format, "loadFills");
+        histogram(format, "loadMs").record(now() - startedAt);
+    }
+
+    static void loadFailed(String format, long startedAt, int errorCode) {
+        count(format, "loadFailures");
+        count(format, "loadError_" + errorCode);
+        histogram(format, "failedLoadMs").record(now() - startedAt);
+    }
+
+    static void retryScheduled(String format) {
+        count(format, "retries");
+    }
+
+    static void expired(String format) {
+        count(format, "expiredDiscards");
+    }
+
+    static void notReady(String format) {
+        count(format, "notReady");
+    }
+
+    /**
+     * Show latency: from the show call to the ad being on screen.
+     */
+    static void shown(String format, long requestedAt) {
+        count(format, "shows");
+        histogram(format, "showMs").record(now() - requestedAt);
+    }
+
+    static void showFailed(String format, int errorCode) {
+        count(format, "showFailures");
+        count(format, "showError_" + errorCode);
+    }
+
+    static void impression(String format) {
+        count(format, "impressions");
+    }
+
+    static void clicked(String format) {
+        count(format, "clicks");
+    }
+
+    static void rewardEarned(String format) {
+        count(format, "rewards");
+    }
+
+    // ─── Reporting ───
+
+    /**
+     * All counters and histograms, keyed by format, plus "since" (epoch ms of
+     * the first recorded session) and histogram bucket bounds.
+     */
+    static JSONObject snapshot() {
+        JSONObject root = new JSONObject();
+        try {
+            root.put("since", since.get());
+            JSONArray bounds = new JSONArray();
+            for (long bound : BUCKET_BOUNDS_MS) bounds.put(bound);
+            root.put("bucketBoundsMs", bounds);
+
+            JSONObject formats = new JSONObject();
+            for (Map.Entry<String, Map<String, LongAdder>> format : COUNTERS.entrySet()) {
+                JSONObject counters = new JSONObject();
+                for (Map.Entry<String, LongAdder> counter : format.getValue().entrySet()) {
+                    counters.put(counter.getKey(), counter.getValue().sum());
+                }
+                formatJson(formats, format.getKey()).put("counters", counters);
+            }
+            for (Map.Entry<String, Map<String, Histogram>> format : HISTOGRAMS.entrySet()) {
+                JSONObject histograms = new JSONObject();
+                for (Map.Entry<String, Histogram> histogram : format.getValue().entrySet()) {
+                    histograms.put(histogram.getKey(), histogram.getValue().toJson());
+                }
+                formatJson(formats, format.getKey()).put("latency", histograms);
+            }
+            root.put("formats", formats);
+        } catch (JSONException e) {
+            Log.e(TAG, "snapshot: " + e.getMessage());
+        }
+        return root;
+    }
+
+    /**
+     * Writes the totals now (in the background), e.g. when the app goes to the background.
+     */
+    static void flush() {
+        if (file == null || !restored.get()) return;
+        final File target = file;
+        fileExecutor.execute(() -> {
+            File tmp = new File(target.getPath() + ".tmp");
+            try (OutputStream out = new FileOutputStream(tmp)) {
+                out.write(snapshot().toString().getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to write ad metrics: " + e.getMessage());
+                return;
+            }
+            if (!tmp.renameTo(target)) {
+                Log.e(TAG, "Failed to replace " + target);
+            }
+        });
+    }
+
+    // ─── Internals ───
+
+    private static void count(String format, String event) {
+        COUNTERS.computeIfAbsent(format, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(event, k -> new LongAdder())
+                .increment();
+        scheduleFlush();
+    }
+
+    private static Histogram histogram(String format, String name) {
+        return HISTOGRAMS.computeIfAbsent(format, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(name, k -> new Histogram());
+    }
+
+    private static void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            mainHandler.postDelayed(() -> {
+                flushScheduled.set(false);
+                flush();
+            }, FLUSH_INTERVAL_MS);
+        }
+    }
+
+    private static JSONObject formatJson(JSONObject formats, String format) throws JSONException {
+        JSONObject json = formats.optJSONObject(format);
+        if (json == null) {
+            json = new JSONObject();
+            formats.put(format, json);
+        }
+        return json;
+    }
+
+    private static void restore(JSONObject root) {
+        long persistedSince = root.optLong("since");
+        if (persistedSince > 0) since.set(persistedSince);
+
+        JSONObject formats = root.optJSONObject("formats");
+        if (formats == null) return;
+        Iterator<String> formatNames = formats.keys();
+        while (formatNames.hasNext()) {
+            String format = formatNames.next();
+            JSONObject json = formats.optJSONObject(format);
+            if (json == null) continue;
+
+            JSONObject counters = json.optJSONObject("counters");
+            if (counters != null) {
+                Iterator<String> events = counters.keys();
+                while (events.hasNext()) {
+                    String event = events.next();
+                    COUNTERS.computeIfAbsent(format, k -> new ConcurrentHashMap<>())
+                            .computeIfAbsent(event, k -> new LongAdder())
+                            .add(counters.optLong(event));
+                }
+            }
+            JSONObject latency = json.optJSONObject("latency");
+            if (latency != null) {
+                Iterator<String> names = latency.keys();
+                while (names.hasNext()) {
+                    String name = names.next();
+                    JSONObject histogram = latency.optJSONObject(name);
+                    if (histogram != null) histogram(format, name).restore(histogram);
+                }
+            }
+        }
+    }
+
+    private static String readFile(File f) throws IOException {
+        try (InputStream in = new FileInputStream(f)) {
+            byte[] data = new byte[(int) f.length()];
+            int off = 0;
+            while (off < data.length) {
+                int n = in.read(data, off, data.length - off);
+                if (n < 0) break;
+                off += n;
+            }
+            return new String(data, 0, off, StandardCharsets.UTF_8);
+        }
+    }
+}
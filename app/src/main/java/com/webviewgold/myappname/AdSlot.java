@@ -0,0 +1,179 @@
+package com.webviewgold.myappname;
+
+import android.app.Activity;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.ads.AdListener;
+import com.google.android.gms.ads.AdRequest;
+import com.google.android.gms.ads.AdSize;
+import com.google.android.gms.ads.AdView;
+import com.google.android.gms.ads.LoadAdError;
+
+/**
+ * One long-lived AdView (banner or MREC) in the ad container.
+ *
+ * The view is created and loaded on the first show() and then kept: hide()
+ * only makes it GONE, and show() with another position just changes its
+ * layout gravity, so pages that toggle ads on route changes don't pay for a
+ * new view and ad request every time. The ad is refreshed every
+ * Config.BANNER_REFRESH_SECONDS while visible and resumed, and on show() if
+ * it is older than that. pause()/resume() follow the activity. Load
+ * outcomes and impressions go to AdMetrics under the slot's name.
+ *
+ * Main thread only.
+ */
+final class AdSlot {
+
+    private static final String TAG = "AdSlot";
+
+    private final String name;
+    private final Activity activity;
+    private final FrameLayout container;
+    private final String adUnitId;
+    private final AdSize adSize;
+    private final int width;
+    private final long refreshMs;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable refreshTask = this::refresh;
+
+    private AdView adView;
+    private boolean visible = false;
+    private boolean paused = false;
+    private long lastRequestAt = 0;
+    // Our request is outstanding; fills from the SDK's own refresh aren't counted
+    private boolean loadPending = false;
+
+    /**
+     * @param width layout width, e.g. MATCH_PARENT for banners, WRAP_CONTENT for MREC
+     */
+    AdSlot(String name, Activity activity, FrameLayout container, String adUnitId, AdSize adSize, int width) {
+        this.name = name;
+        this.activity = activity;
+        this.container = container;
+        this.adUnitId = adUnitId;
+        this.adSize = adSize;
+        this.width = width;
+        this.refreshMs = Config.BANNER_REFRESH_SECONDS * 1000L;
+    }
+
+    /**
+     * Shows the slot with the given layout gravity, creating and loading it on first use.
+     */
+    void show(int gravity) {
+        if (adView == null) {
+            adView = new AdView(activity);
+            adView.setAdUnitId(adUnitId);
+            adView.setAdSize(adSize);
+            adView.setAdListener(new AdListener() {
+                @Override
+                public void onAdLoaded() {
+                    if (!loadPending) return;
+                    loadPending = false;
+                    AdMetrics.loadSucceeded(name, lastRequestAt);
+                }
+
+                @Override
+                public void onAdFailedToLoad(@NonNull LoadAdError loadAdError) {
+                    if (!loadPending) return;
+                    loadPending = false;
+                    AdMetrics.loadFailed(name, lastRequestAt, loadAdError.getCode());
+                }
+
+                @Override
+                public void onAdImpression() {
+                    AdMetrics.impression(name);
+                }
+
+                @Override
+                public void onAdClicked() {
+                    AdMetrics.clicked(name);
+                }
+            });
+        }
+
+        FrameLayout.LayoutParams params = (FrameLayout.LayoutParams) adView.getLayoutParams();
+        if (params == null || params.gravity != gravity) {
+            params = new FrameLayout.LayoutParams(width, FrameLayout.LayoutParams.WRAP_CONTENT);
+            params.gravity = gravity;
+            adView.setLayoutParams(params);
+        }
+        if (adView.getParent() == null) {
+            container.addView(adView);
+        }
+        adView.setVisibility(View.VISIBLE);
+        container.setVisibility(View.VISIBLE);
+        visible = true;
+
+        if (SystemClock.elapsedRealtime() - lastRequestAt >= refreshMs || lastRequestAt == 0) {
+            refresh();
+        } else {
+            scheduleRefresh();
+        }
+    }
+
+    void hide() {
+        visible = false;
+        mainHandler.removeCallbacks(refreshTask);
+        if (adView != null) {
+            adView.setVisibility(View.GONE);
+        }
+    }
+
+    boolean isVisible() {
+        return visible;
+    }
+
+    void pause() {
+        paused = true;
+        mainHandler.removeCallbacks(refreshTask);
+        if (adView != null) {
+            adView.pause();
+        }
+    }
+
+    void resume() {
+        paused = false;
+        if (adView != null) {
+            adView.resume();
+        }
+        if (visible) {
+            scheduleRefresh();
+        }
+    }
+
+    void destroy() {
+        visible = false;
+        mainHandler.removeCallbacks(refreshTask);
+        if (adView != null) {
+            container.removeView(adView);
+            adView.destroy();
+            adView = null;
+        }
+        lastRequestAt = 0;
+        loadPending = false;
+    }
+
+    private void refresh() {
+        if (adView == null || !visible || paused) return;
+        lastRequestAt = SystemClock.elapsedRealtime();
+        loadPending = true;
+        AdMetrics.loadStarted(name);
+        adView.loadAd(new AdRequest.Builder().build());
+        if (BuildConfig.IS_DEBUG_MODE) Log.d(TAG, adSize + " ad loading...");
+        scheduleRefresh();
+    }
+
+    private void scheduleRefresh() {
+        mainHandler.removeCallbacks(refreshTask);
+        if (!visible || paused) return;
+        long delay = lastRequestAt + refreshMs - SystemClock.elapsedRealtime();
+        mainHandler.postDelayed(refreshTask, Math.max(0, delay));
+    }
+}
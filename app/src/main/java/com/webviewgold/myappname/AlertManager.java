@@ -10,6 +10,8 @@ import android.net.Uri;
 import android.os.Build;
 import android.preference.PreferenceManager;
 
+import com.webviewgold.myappname.storage.AppStore;
+
 import static com.webviewgold.myappname.Config.SHOW_FACEBOOK_DIALOG;
 import static com.webviewgold.myappname.Config.SHOW_FIRSTRUN_DIALOG;
 import static com.webviewgold.myappname.Config.SHOW_RATE_DIALOG;
@@ -26,14 +28,14 @@ class AlertManager {
     private static final String STRING_FIRST_LAUNCH_DATE = "first_launch_date";
 
     public static void appLaunched(final Context context){
-        final SharedPreferences prefs = context.getSharedPreferences(STRING_PREFS, Context.MODE_PRIVATE);
+        final AppStore prefs = AppStore.get(context, STRING_PREFS);
 
         final boolean dontShowRateAgain = prefs.getBoolean(STRING_DONT_SHOW_AGAIN_RATE, false);
         final boolean dontShowFacebookAgain = prefs.getBoolean(STRING_DONT_SHOW_AGAIN_FACEBOOK, false);
 
         if (dontShowRateAgain && dontShowFacebookAgain) return;
 
-        final SharedPreferences.Editor editor = prefs.edit();
+        final AppStore.Editor editor = prefs.edit();
 
         // "Thanks for downloading!" first run dialog
         long firstLaunchDate = prefs.getLong(STRING_FIRST_LAUNCH_DATE, 0);
@@ -79,23 +81,23 @@ class AlertManager {
 
     }
 
-    private static SharedPreferences getPurchasePreferences(Context context) {
-        return context.getSharedPreferences(PURCHASE_PREFS, Context.MODE_PRIVATE);
+    private static AppStore getPurchasePreferences(Context context) {
+        return AppStore.get(context, PURCHASE_PREFS);
 
     }
 
     public static void updateFirebaseToken(Context context, String token) {
-        final SharedPreferences prefs = context.getSharedPreferences(STRING_PREFS, Context.MODE_PRIVATE);
+        final AppStore prefs = AppStore.get(context, STRING_PREFS);
         prefs.edit().putString("FirebaseToken", token).apply();
     }
 
     public static String getFirebaseToken(Context context, String defValue) {
-        final SharedPreferences prefs = context.getSharedPreferences(STRING_PREFS, Context.MODE_PRIVATE);
+        final AppStore prefs = AppStore.get(context, STRING_PREFS);
         return prefs.getString("FirebaseToken", defValue);
     }
 
     public static void purchaseState(Context context,boolean purchased) {
-        SharedPreferences.Editor editor = getPurchasePreferences(context).edit();
+        AppStore.Editor editor = getPurchasePreferences(context).edit();
         editor.putBoolean(PURCHASED, purchased).apply();
     }
 
@@ -107,6 +109,15 @@ class AlertManager {
         return PreferenceManager.getDefaultSharedPreferences(context).getString("disableAdMobDone", "default").equals("removed");
     }
 
+    /**
+     * Loads the default SharedPreferences on the I/O executor, so the first
+     * isDisableAdMobDone() on the main thread doesn't wait for the disk.
+     */
+    public static void preloadPreferences(Context context) {
+        final Context appContext = context.getApplicationContext();
+        AppExecutors.io().execute(() -> PreferenceManager.getDefaultSharedPreferences(appContext).getAll());
+    }
+
     public static void disableAds(Context context, boolean shouldDisable) {
         SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
         String value = shouldDisable ? "removed" : "default";
@@ -124,7 +135,7 @@ class AlertManager {
 
     private static void showRateDialog(final Context context){
         final Resources resources = context.getResources();
-        final SharedPreferences.Editor editor = context.getSharedPreferences(STRING_PREFS, Context.MODE_PRIVATE).edit();
+        final AppStore.Editor editor = AppStore.get(context, STRING_PREFS).edit();
         new androidx.appcompat.app.AlertDialog.Builder(context, android.R.style.Theme_DeviceDefault_Light_Dialog_NoActionBar)
                 .setTitle(resources.getString(R.string.rate_title))
                 .setMessage(resources.getString(R.string.rate_message))
@@ -160,7 +171,7 @@ class AlertManager {
     }
 
     private static void showFacebookDialog(final Context context) {
-        final SharedPreferences.Editor editor = context.getSharedPreferences(STRING_PREFS, Context.MODE_PRIVATE).edit();
+        final AppStore.Editor editor = AppStore.get(context, STRING_PREFS).edit();
         new androidx.appcompat.app.AlertDialog.Builder(context, android.R.style.Theme_DeviceDefault_Light_Dialog_NoActionBar)
                 .setTitle(R.string.facebook_title)
                 .setMessage(R.string.facebook_message)
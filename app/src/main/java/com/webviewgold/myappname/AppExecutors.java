@@ -0,0 +1,52 @@
+package com.webviewgold.myappname;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared executors for MainActivity, AlertManager and the bridges.
+ *
+ * io() is for anything that blocks on disk or network (HTTP calls, file
+ * writes, content resolver queries). Results go back with mainThread().
+ * Debug builds run with StrictMode detection on (see WebViewApp), so
+ * blocking calls left on the main thread show up in logcat.
+ */
+public final class AppExecutors {
+
+    private static final int IO_THREADS = 4;
+    private static final long IO_KEEP_ALIVE_SECONDS = 30;
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static final ExecutorService IO;
+
+    static {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(IO_THREADS, IO_THREADS,
+                IO_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                r -> new Thread(r, "App-IO-" + count.incrementAndGet()));
+        // Threads go away when idle, so the pool costs nothing between bursts
+        pool.allowCoreThreadTimeOut(true);
+        IO = pool;
+    }
+
+    private AppExecutors() {
+    }
+
+    public static ExecutorService io() {
+        return IO;
+    }
+
+    public static void mainThread(Runnable runnable) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            runnable.run();
+        } else {
+            mainHandler.post(runnable);
+        }
+    }
+}
@@ -1,9 +1,13 @@
 package com.webviewgold.myappname;
 
 import android.app.Activity;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.ProcessLifecycleOwner;
 
 import com.google.android.gms.ads.AdError;
 import com.google.android.gms.ads.AdRequest;
@@ -15,51 +19,90 @@ import com.google.android.gms.ads.appopen.AppOpenAd;
  * Manages App Open ads for TaskTrophy.
  * Shows a full-screen ad when the user brings the app to the foreground.
  *
- * Cooldown: 4 hours between ads.
+ * Driven by the process lifecycle (ProcessLifecycleOwner): the next ad is
+ * preloaded when the app goes to the background, so coming back shows a
+ * ready ad instead of starting a load. Ads older than the 4-hour App Open
+ * expiry are discarded rather than shown.
+ *
+ * Cooldown: 4 hours between ads, measured on the monotonic clock.
  * Skips first launch so user sees app content immediately.
  */
-public class AppOpenAdManager {
+public class AppOpenAdManager implements DefaultLifecycleObserver {
 
     private static final String TAG = "AppOpenAdManager";
+    private static final String FORMAT = "app_open";
     private static final long COOLDOWN_MS = 4 * 60 * 60 * 1000L; // 4 hours
+    private static final long AD_EXPIRY_MS = 4 * 60 * 60 * 1000L; // App Open ads expire 4 hours after load
 
     private final Activity activity;
     private final String adUnitId;
 
     private AppOpenAd appOpenAd;
+    private long adLoadedAt = 0;          // SystemClock.elapsedRealtime()
     private boolean isLoadingAd = false;
     private boolean isShowingAd = false;
-    private long lastAdShownTime = 0;
+    private long lastAdShownAt = -1;      // SystemClock.elapsedRealtime(), -1 = never
     private boolean firstLaunch = true;
+    private boolean sdkReady = false;     // no loads before MainActivity has started the ad SDK
 
     public AppOpenAdManager(@NonNull Activity activity) {
         this.activity = activity;
         this.adUnitId = activity.getString(R.string.app_open_ad_id);
+        ProcessLifecycleOwner.get().getLifecycle().addObserver(this);
+    }
+
+    // ─── Process Lifecycle ───
+
+    @Override
+    public void onStart(@NonNull LifecycleOwner owner) {
+        // App came to the foreground
+        showAdIfReady();
+    }
+
+    @Override
+    public void onStop(@NonNull LifecycleOwner owner) {
+        // App went to the background: have an ad ready for the way back
+        loadAd();
+    }
+
+    /**
+     * The ad SDK has been initialized; start preloading.
+     */
+    public void onSdkInitialized() {
+        sdkReady = true;
+        loadAd();
     }
 
     /**
      * Load an App Open ad so it's ready to show.
+     * A loaded ad that has expired is dropped and replaced.
      */
     public void loadAd() {
-        if (isLoadingAd || appOpenAd != null) {
+        discardIfExpired();
+        if (!sdkReady || isLoadingAd || appOpenAd != null) {
             return;
         }
 
         isLoadingAd = true;
         Log.d(TAG, "Loading App Open ad...");
 
+        final long loadStartedAt = AdMetrics.now();
+        AdMetrics.loadStarted(FORMAT);
         AdRequest adRequest = new AdRequest.Builder().build();
         AppOpenAd.load(activity, adUnitId, adRequest, new AppOpenAd.AppOpenAdLoadCallback() {
             @Override
             public void onAdLoaded(@NonNull AppOpenAd ad) {
                 Log.d(TAG, "App Open ad loaded successfully");
+                AdMetrics.loadSucceeded(FORMAT, loadStartedAt);
                 appOpenAd = ad;
+                adLoadedAt = SystemClock.elapsedRealtime();
                 isLoadingAd = false;
             }
 
             @Override
             public void onAdFailedToLoad(@NonNull LoadAdError loadAdError) {
                 Log.e(TAG, "App Open ad failed to load: " + loadAdError.getMessage());
+                AdMetrics.loadFailed(FORMAT, loadStartedAt, loadAdError.getCode());
                 appOpenAd = null;
                 isLoadingAd = false;
             }
@@ -67,8 +110,8 @@ public class AppOpenAdManager {
     }
 
     /**
-     * Show the App Open ad if one is loaded and cooldown has elapsed.
-     * Call this from onStart() or when the app comes to foreground.
+     * Show the App Open ad if one is loaded, still fresh, and cooldown has elapsed.
+     * Called when the app comes to the foreground.
      */
     public void showAdIfReady() {
         // Skip on first launch
@@ -79,27 +122,30 @@ public class AppOpenAdManager {
             return;
         }
 
+        if (isShowingAd) {
+            return;
+        }
+
         // Check cooldown
-        long now = System.currentTimeMillis();
-        if (now - lastAdShownTime < COOLDOWN_MS) {
-            long remaining = (COOLDOWN_MS - (now - lastAdShownTime)) / 60000;
+        long now = SystemClock.elapsedRealtime();
+        if (lastAdShownAt >= 0 && now - lastAdShownAt < COOLDOWN_MS) {
+            long remaining = (COOLDOWN_MS - (now - lastAdShownAt)) / 60000;
             Log.d(TAG, "App Open ad cooldown active, " + remaining + " min remaining");
             return;
         }
 
-        // Check if ad is available
+        // Check if a fresh ad is available
+        discardIfExpired();
         if (appOpenAd == null) {
             Log.d(TAG, "App Open ad not loaded, loading now");
+            AdMetrics.notReady(FORMAT);
             loadAd();
             return;
         }
 
-        if (isShowingAd) {
-            return;
-        }
-
         Log.d(TAG, "Showing App Open ad");
         isShowingAd = true;
+        final long showRequestedAt = AdMetrics.now();
 
         appOpenAd.setFullScreenContentCallback(new FullScreenContentCallback() {
             @Override
@@ -107,14 +153,13 @@ public class AppOpenAdManager {
                 Log.d(TAG, "App Open ad dismissed");
                 appOpenAd = null;
                 isShowingAd = false;
-                lastAdShownTime = System.currentTimeMillis();
-                // Pre-load next ad
-                loadAd();
+                lastAdShownAt = SystemClock.elapsedRealtime();
             }
 
             @Override
             public void onAdFailedToShowFullScreenContent(@NonNull AdError adError) {
                 Log.e(TAG, "App Open ad failed to show: " + adError.getMessage());
+                AdMetrics.showFailed(FORMAT, adError.getCode());
                 appOpenAd = null;
                 isShowingAd = false;
                 loadAd();
@@ -123,16 +168,37 @@ public class AppOpenAdManager {
             @Override
             public void onAdShowedFullScreenContent() {
                 Log.d(TAG, "App Open ad is showing");
+                AdMetrics.shown(FORMAT, showRequestedAt);
+            }
+
+            @Override
+            public void onAdImpression() {
+                AdMetrics.impression(FORMAT);
+            }
+
+            @Override
+            public void onAdClicked() {
+                AdMetrics.clicked(FORMAT);
             }
         });
 
         appOpenAd.show(activity);
     }
 
+    private void discardIfExpired() {
+        if (appOpenAd != null && !isShowingAd
+                && SystemClock.elapsedRealtime() - adLoadedAt >= AD_EXPIRY_MS) {
+            Log.d(TAG, "Discarding expired App Open ad");
+            AdMetrics.expired(FORMAT);
+            appOpenAd = null;
+        }
+    }
+
     /**
      * Clean up resources.
      */
     public void destroy() {
+        ProcessLifecycleOwner.get().getLifecycle().removeObserver(this);
         appOpenAd = null;
     }
 }
@@ -0,0 +1,186 @@
+package com.webviewgold.myappname;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Small dependency graph for the SDK initializers in WebViewApp.onCreate.
+ *
+ * - MAIN initializers run inline in start(), in registration order. Keep
+ *   this to SDKs that must be ready before any component starts.
+ * - BACKGROUND initializers run on a small pool as soon as start() is called.
+ * - DEFERRED initializers run on the main thread once the first activity has
+ *   been resumed and the main thread goes idle, or earlier when something
+ *   calls require() for them.
+ *
+ * Every initializer waits for its dependencies first, runs exactly once and
+ * is wrapped in a Trace section ("AppStartup:name"), so the split shows up
+ * in a startup trace; durations are also logged in debug builds.
+ */
+final class AppStartup {
+
+    private static final String TAG = "AppStartup";
+    private static final long DEFERRED_DELAY_MS = 2000;
+
+    static final String FIREBASE = "firebase";
+    static final String ONESIGNAL = "onesignal";
+    static final String CONNECTIVITY = "connectivity";
+    static final String ADS = "ads";
+    static final String PUSHWOOSH = "pushwoosh";
+    static final String REVENUECAT = "revenuecat";
+
+    enum Mode { MAIN, BACKGROUND, DEFERRED }
+
+    private static final class Initializer {
+        final String name;
+        final Mode mode;
+        final Runnable body;
+        final String[] dependencies;
+        final AtomicBoolean claimed = new AtomicBoolean(false);
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile Thread runner;
+        volatile long durationMs = -1;
+
+        Initializer(String name, Mode mode, Runnable body, String[] dependencies) {
+            this.name = name;
+            this.mode = mode;
+            this.body = body;
+            this.dependencies = dependencies;
+        }
+    }
+
+    private static final Map<String, Initializer> INITIALIZERS = new LinkedHashMap<>();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static ExecutorService pool;
+    private static boolean deferredScheduled = false;
+    private static long startedAt = 0;
+
+    private AppStartup() {
+    }
+
+    static synchronized void register(String name, Mode mode, Runnable body, String... dependsOn) {
+        INITIALIZERS.put(name, new Initializer(name, mode, body, dependsOn));
+    }
+
+    /**
+     * Runs the MAIN initializers and kicks off the BACKGROUND ones. Call once,
+     * from Application.onCreate.
+     */
+    static void start() {
+        startedAt = SystemClock.uptimeMillis();
+        ArrayDeque<Initializer> main = new ArrayDeque<>();
+        synchronized (AppStartup.class) {
+            for (Initializer init : INITIALIZERS.values()) {
+                if (init.mode == Mode.BACKGROUND) {
+                    if (pool == null) {
+                        pool = Executors.newFixedThreadPool(2, r -> {
+                            Thread t = new Thread(r, "AppStartup");
+                            t.setPriority(Thread.NORM_PRIORITY);
+                            return t;
+                        });
+                    }
+                    pool.execute(() -> runOnce(init));
+                } else if (init.mode == Mode.MAIN) {
+                    main.add(init);
+                }
+            }
+        }
+        for (Initializer init : main) {
+            runOnce(init);
+        }
+        if (BuildConfig.IS_DEBUG_MODE) {
+            Log.d(TAG, "Main-thread initializers done in " + (SystemClock.uptimeMillis() - startedAt) + " ms");
+        }
+    }
+
+    /**
+     * Schedules the DEFERRED initializers, one per main-thread idle pass,
+     * shortly after the first activity is on screen.
+     */
+    static synchronized void onFirstActivityResumed() {
+        if (deferredScheduled) return;
+        deferredScheduled = true;
+        mainHandler.postDelayed(() -> Looper.myQueue().addIdleHandler(() -> {
+            Initializer next = nextPendingDeferred();
+            if (next == null) return false;
+            runOnce(next);
+            return true;
+        }), DEFERRED_DELAY_MS);
+    }
+
+    /**
+     * Makes sure {@code name} has been initialized, running it on the calling
+     * thread if it hasn't started yet, or waiting for it if it is running elsewhere.
+     */
+    static void require(String name) {
+        Initializer init;
+        synchronized (AppStartup.class) {
+            init = INITIALIZERS.get(name);
+        }
+        if (init == null || init.done.getCount() == 0) return;
+        if (!runOnce(init) && init.runner != Thread.currentThread()) {
+            try {
+                init.done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Milliseconds the initializer took, or -1 if it hasn't run (yet).
+     */
+    static long durationMs(String name) {
+        Initializer init;
+        synchronized (AppStartup.class) {
+            init = INITIALIZERS.get(name);
+        }
+        return init == null ? -1 : init.durationMs;
+    }
+
+    private static synchronized Initializer nextPendingDeferred() {
+        for (Initializer init : INITIALIZERS.values()) {
+            if (init.mode == Mode.DEFERRED && !init.claimed.get()) return init;
+        }
+        return null;
+    }
+
+    /**
+     * @return false if another caller already claimed this initializer
+     */
+    private static boolean runOnce(Initializer init) {
+        if (!init.claimed.compareAndSet(false, true)) return false;
+        init.runner = Thread.currentThread();
+        for (String dependency : init.dependencies) {
+            require(dependency);
+        }
+
+        Trace.beginSection(TAG + ":" + init.name);
+        long t0 = SystemClock.uptimeMillis();
+        try {
+            init.body.run();
+        } catch (Exception e) {
+            Log.e(TAG, "Initializer " + init.name + " failed: " + e.getMessage());
+        } finally {
+            init.durationMs = SystemClock.uptimeMillis() - t0;
+            Trace.endSection();
+            init.done.countDown();
+        }
+        if (BuildConfig.IS_DEBUG_MODE) {
+            Log.d(TAG, init.name + " (" + init.mode + ") took " + init.durationMs + " ms on "
+                    + Thread.currentThread().getName() + ", +" + (SystemClock.uptimeMillis() - startedAt) + " ms since start");
+        }
+        return true;
+    }
+}
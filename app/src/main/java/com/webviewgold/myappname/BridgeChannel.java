@@ -0,0 +1,253 @@
+package com.webviewgold.myappname;
+
+import android.net.Uri;
+import android.util.Base64;
+import android.util.Log;
+import android.webkit.WebView;
+
+import androidx.webkit.WebMessageCompat;
+import androidx.webkit.WebMessagePortCompat;
+import androidx.webkit.WebViewCompat;
+import androidx.webkit.WebViewFeature;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Message-port transport shared by the native bridges (GhostRunner,
+ * DeepWork, ...), next to their @JavascriptInterface methods.
+ *
+ * After every main-frame load MainActivity injects a small shim that
+ * defines window.AppBridge, then calls connect(), which creates a
+ * WebMessageChannel and hands one port to the page (only for pages from
+ * Config.HOST). The page then calls
+ *
+ *   AppBridge.request('GhostRunner', 'getUnsyncedPoints', [args]) -> Promise
+ *   AppBridge.on('GhostRunner', function(event, data) { ... })
+ *
+ * Requests carry a correlation id and are answered asynchronously; the
+ * handler runs on the I/O executor, so a slow request never blocks the page's
+ * JS thread. A handler's String result is taken as JSON text and spliced
+ * into the response unescaped (the page parses it once). A byte[] result is
+ * sent as an ArrayBuffer framed as [uint32 id, big-endian][payload], or as
+ * Base64 where the WebView can't post ArrayBuffers, and the Promise
+ * resolves to the payload ArrayBuffer either way.
+ *
+ * The shim only takes a port from a connect message the app posted (its
+ * source is null), so another frame can't hand the page a port of its own.
+ * A new port replaces the old one, which the app has already closed, and
+ * the requests still waiting on the old port are rejected.
+ */
+final class BridgeChannel {
+
+    private static final String TAG = "BridgeChannel";
+    private static final String CONNECT_MESSAGE = "app-bridge:connect";
+
+    interface Handler {
+        /**
+         * Runs on the I/O executor.
+         *
+         * @return JSON text (String), binary payload (byte[]), or null
+         */
+        Object handle(String method, JSONArray args) throws Exception;
+    }
+
+    private static final String SHIM = "if (!window.AppBridge) {" +
+            "var pending = {}, listeners = {}, queue = [], nextId = 1, port = null;" +
+            "var settle = function(id, fn) { var p = pending[id]; if (p) { delete pending[id]; fn(p); } };" +
+            "var onPortMessage = function(m) {" +
+            "  var d = m.data;" +
+            "  if (typeof d !== 'string') {" +
+            "    settle(new DataView(d).getUint32(0), function(p) { p.resolve(d.slice(4)); });" +
+            "    return;" +
+            "  }" +
+            "  var msg = JSON.parse(d);" +
+            "  if (msg.event) {" +
+            "    (listeners[msg.bridge] || []).forEach(function(l) { try { l(msg.event, msg.data); } catch (e) { console.error(e); } });" +
+            "    return;" +
+            "  }" +
+            "  settle(msg.id, function(p) {" +
+            "    if (msg.error !== undefined) { p.reject(new Error(msg.error)); return; }" +
+            "    if (msg.base64 !== undefined) {" +
+            "      var s = atob(msg.base64), b = new Uint8Array(s.length);" +
+            "      for (var i = 0; i < s.length; i++) b[i] = s.charCodeAt(i);" +
+            "      p.resolve(b.buffer); return;" +
+            "    }" +
+            "    p.resolve(msg.result);" +
+            "  });" +
+            "};" +
+            "window.addEventListener('message', function(e) {" +
+            // Only the app posts with a null source; frames and windows can't
+            "  if (e.source !== null || e.data !== '" + CONNECT_MESSAGE + "' || !e.ports || !e.ports.length) return;" +
+            "  var next = e.ports[0];" +
+            "  if (next === port) return;" +
+            "  if (port) {" +
+            // The app closed the old port; its answers will never arrive
+            "    try { port.close(); } catch (err) {}" +
+            "    Object.keys(pending).forEach(function(id) { settle(id, function(p) { p.reject(new Error('AppBridge reconnected')); }); });" +
+            "  }" +
+            "  port = next;" +
+            "  port.onmessage = onPortMessage;" +
+            "  queue.forEach(function(q) { port.postMessage(q); });" +
+            "  queue = [];" +
+            "});" +
+            "window.AppBridge = {" +
+            "  request: function(bridge, method, args) {" +
+            "    return new Promise(function(resolve, reject) {" +
+            "      var id = nextId++;" +
+            "      pending[id] = { resolve: resolve, reject: reject };" +
+            "      var text = JSON.stringify({ id: id, bridge: bridge, method: method, args: args || [] });" +
+            "      if (port) port.postMessage(text); else queue.push(text);" +
+            "    });" +
+            "  }," +
+            "  on: function(bridge, fn) { (listeners[bridge] = listeners[bridge] || []).push(fn); }" +
+            "};" +
+            "}";
+
+    private final WebView webView;
+    private final Map<String, Handler> handlers = new ConcurrentHashMap<>();
+    private final boolean binarySupported;
+
+    // Main thread only; replaced on every page load
+    private WebMessagePortCompat port;
+
+    BridgeChannel(WebView webView) {
+        this.webView = webView;
+        this.binarySupported = WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_ARRAY_BUFFER);
+    }
+
+    static boolean isSupported() {
+        return WebViewFeature.isFeatureSupported(WebViewFeature.CREATE_WEB_MESSAGE_CHANNEL)
+                && WebViewFeature.isFeatureSupported(WebViewFeature.POST_WEB_MESSAGE)
+                && WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_PORT_POST_MESSAGE)
+                && WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_PORT_SET_MESSAGE_CALLBACK)
+                && WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_PORT_CLOSE);
+    }
+
+    /**
+     * Page-side shim defining window.AppBridge, for the onPageFinished script.
+     */
+    static String pageScript() {
+        return SHIM;
+    }
+
+    void register(String bridge, Handler handler) {
+        handlers.put(bridge, handler);
+    }
+
+    /**
+     * Hands a fresh port to the page that just finished loading. Must run
+     * after the shim has been evaluated.
+     */
+    void connect(String pageUrl) {
+        close();
+        Uri uri = pageUrl == null ? null : Uri.parse(pageUrl);
+        String host = uri == null ? null : uri.getHost();
+        if (host == null || !(host.equals(Config.HOST) || host.endsWith("." + Config.HOST))) {
+            return;
+        }
+        Uri origin = new Uri.Builder().scheme(uri.getScheme()).encodedAuthority(uri.getEncodedAuthority()).build();
+
+        try {
+            WebMessagePortCompat[] ports = WebViewCompat.createWebMessageChannel(webView);
+            final WebMessagePortCompat nativePort = ports[0];
+            nativePort.setWebMessageCallback(new WebMessagePortCompat.WebMessageCallbackCompat() {
+                @Override
+                public void onMessage(WebMessagePortCompat from, WebMessageCompat message) {
+                    if (message != null) handleRequest(nativePort, message);
+                }
+            });
+            WebViewCompat.postWebMessage(webView,
+                    new WebMessageCompat(CONNECT_MESSAGE, new WebMessagePortCompat[]{ports[1]}), origin);
+            port = nativePort;
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to open channel: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Pushes an event to AppBridge.on listeners; dataJson must be JSON text.
+     */
+    void post(String bridge, String event, String dataJson) {
+        AppExecutors.mainThread(() -> {
+            if (port == null) return;
+            String text = "{\"bridge\":" + JSONObject.quote(bridge) + ",\"event\":" + JSONObject.quote(event)
+                    + ",\"data\":" + (dataJson == null ? "null" : dataJson) + "}";
+            port.postMessage(new WebMessageCompat(text));
+        });
+    }
+
+    void close() {
+        if (port != null) {
+            try {
+                port.close();
+            } catch (Exception ignored) {
+                // Already closed by the page going away
+            }
+            port = null;
+        }
+    }
+
+    private void handleRequest(WebMessagePortCompat from, WebMessageCompat message) {
+        final int id;
+        final String bridge;
+        final String method;
+        final JSONArray args;
+        try {
+            JSONObject request = new JSONObject(message.getData());
+            id = request.getInt("id");
+            bridge = request.optString("bridge");
+            method = request.optString("method");
+            JSONArray a = request.optJSONArray("args");
+            args = a != null ? a : new JSONArray();
+        } catch (Exception e) {
+            Log.e(TAG, "Malformed request: " + e.getMessage());
+            return;
+        }
+
+        final Handler handler = handlers.get(bridge);
+        AppExecutors.io().execute(() -> {
+            Object result;
+            String error = null;
+            try {
+                if (handler == null) throw new IllegalArgumentException("Unknown bridge " + bridge);
+                result = handler.handle(method, args);
+            } catch (Exception e) {
+                result = null;
+                error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            }
+            final Object finalResult = result;
+            final String finalError = error;
+            AppExecutors.mainThread(() -> reply(from, id, finalResult, finalError));
+        });
+    }
+
+    private void reply(WebMessagePortCompat from, int id, Object result, String error) {
+        // The page navigated away in the meantime; its promises are gone
+        if (from != port) return;
+
+        try {
+            if (error != null) {
+                from.postMessage(new WebMessageCompat("{\"id\":" + id + ",\"error\":" + JSONObject.quote(error) + "}"));
+            } else if (result instanceof byte[]) {
+                byte[] payload = (byte[]) result;
+                if (binarySupported) {
+                    byte[] framed = ByteBuffer.allocate(4 + payload.length).putInt(id).put(payload).array();
+                    from.postMessage(new WebMessageCompat(framed));
+                } else {
+                    from.postMessage(new WebMessageCompat("{\"id\":" + id + ",\"base64\":\""
+                            + Base64.encodeToString(payload, Base64.NO_WRAP) + "\"}"));
+                }
+            } else {
+                String json = result == null ? "null" : result.toString();
+                from.postMessage(new WebMessageCompat("{\"id\":" + id + ",\"result\":" + json + "}"));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to reply to request " + id + ": " + e.getMessage());
+        }
+    }
+}
@@ -50,6 +50,12 @@ public class Config {
     // Set to "true" if you want to use the "local-html" folder fallback if the user is offline
     public static final boolean FALLBACK_USE_LOCAL_HTML_FOLDER_IF_OFFLINE = false;
 
+    // Set to "true" to keep a disk copy of pages, scripts, styles and images from HOST; it is shown when the user is offline and lets the start page paint from disk on warm starts
+    public static final boolean OFFLINE_PAGE_CACHE = true;
+
+    // Names (or name prefixes) of the cookies that identify a logged-in user; the offline page cache keeps a separate copy of each page per value of these, so add your site's login cookie if it isn't listed
+    public static String[] SESSION_COOKIE_NAMES = {"PHPSESSID", "JSESSIONID", "ASP.NET_SessionId", "connect.sid", "sessionid", "laravel_session", "wordpress_logged_in_", "_session_id"};
+
     // Set to (0) to open external links in-app by default; (1) to ALWAYS open in a new tab (an additional in-app browser); (2) to ALWAYS open in another browser
     public static final int EXTERNAL_LINK_HANDLING_OPTIONS = 0;
 
@@ -166,6 +172,10 @@ public class Config {
     public static final String REVENUECAT_PROJECT_ID = "xxxxxxx"; //Your RevenueCat Project ID (sign up via tinyurl.com/register-revenuecat first, then follow tinyurl.com/project-id-revenuecat how to find it)
     //Alternative: Manual (Non-RevenueCat) In-App Purchase and In-App Subscription Settings (details can be found in the documentation)
 
+    //Seconds a looked-up product (price, offers) is reused before asking the store again when a purchase is triggered, and how long an unknown product id is remembered
+    public static final int PRODUCT_CACHE_TTL_SECONDS = 60 * 60;
+    public static final int PRODUCT_CACHE_NEGATIVE_TTL_SECONDS = 5 * 60;
+
     //Set to "true" to close the app by pressing the hardware back button (instead of going back to the last page)
     public static final boolean EXIT_APP_BY_BACK_BUTTON_ALWAYS = false;
 
@@ -292,6 +302,13 @@ public class Config {
     //Set to "true" to enable AdMob rewarded ads. Required for JavaScript control.
     public static boolean ENABLE_REWARDED_ADS = true;
 
+    //Number of interstitial / rewarded ads kept preloaded and ready for Android.showInterstitial() / Android.showRewardAd()
+    public static final int INTERSTITIAL_POOL_DEPTH = 1;
+    public static final int REWARDED_POOL_DEPTH = 2;
+
+    //Seconds between refreshes of a visible Android.showBanner() / Android.showMREC() ad (hidden ads keep their view but don't refresh)
+    public static final int BANNER_REFRESH_SECONDS = 60;
+
     //Set to "true" to display rewarded ads instead of interstitial (DISABLED - all via JS)
     public static boolean USE_REWARDED_ADS_WHERE_POSSIBLE = false;
 
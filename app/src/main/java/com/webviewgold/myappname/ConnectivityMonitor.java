@@ -0,0 +1,130 @@
+package com.webviewgold.myappname;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Process-wide connectivity state, driven by the default network callback
+ * instead of polling.
+ *
+ * isConnected() is a cached read (no binder call) and means the default
+ * network has INTERNET capability, i.e. what getActiveNetworkInfo()
+ * .isConnectedOrConnecting() used to answer. Listeners are told, on the
+ * main thread and once per transition, when a connected network appears or
+ * goes away and, separately, when validated connectivity does. A captive
+ * portal connects but never validates.
+ */
+public final class ConnectivityMonitor {
+
+    private static final String TAG = "ConnectivityMonitor";
+
+    public interface Listener {
+        /**
+         * Called on the main thread when validated connectivity is gained (true) or lost (false).
+         */
+        void onConnectivityChanged(boolean online);
+
+        /**
+         * Called on the main thread when a network with INTERNET capability is
+         * gained (true) or lost (false), whether or not it validates.
+         */
+        default void onConnectionChanged(boolean connected) {}
+    }
+
+    private static ConnectivityMonitor instance;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile boolean connected;
+    private volatile boolean validated;
+
+    public static synchronized ConnectivityMonitor getInstance(Context context) {
+        if (instance == null) {
+            instance = new ConnectivityMonitor(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private ConnectivityMonitor(Context appContext) {
+        ConnectivityManager cm = (ConnectivityManager) appContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (cm == null) return;
+
+        // Seed the cache; the callback keeps it current from here on
+        NetworkCapabilities caps = cm.getNetworkCapabilities(cm.getActiveNetwork());
+        updateState(caps);
+
+        try {
+            cm.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onCapabilitiesChanged(@NonNull Network network, @NonNull NetworkCapabilities capabilities) {
+                    updateState(capabilities);
+                }
+
+                @Override
+                public void onLost(@NonNull Network network) {
+                    updateState(null);
+                }
+            });
+        } catch (Exception e) {
+            // Callback limit reached or missing permission; the seeded state stays
+            Log.e(TAG, "Failed to register network callback: " + e.getMessage());
+        }
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    public boolean isValidated() {
+        return validated;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private void updateState(NetworkCapabilities caps) {
+        boolean nowConnected = caps != null && caps.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET);
+        boolean nowValidated = nowConnected && caps.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED);
+
+        boolean connectedChanged;
+        boolean validatedChanged;
+        synchronized (this) {
+            connectedChanged = connected != nowConnected;
+            validatedChanged = validated != nowValidated;
+            connected = nowConnected;
+            validated = nowValidated;
+        }
+
+        if (connectedChanged) {
+            if (BuildConfig.IS_DEBUG_MODE) Log.d(TAG, nowConnected ? "Connected" : "Disconnected");
+            mainHandler.post(() -> {
+                for (Listener listener : listeners) {
+                    listener.onConnectionChanged(nowConnected);
+                }
+            });
+        }
+        if (validatedChanged) {
+            if (BuildConfig.IS_DEBUG_MODE) Log.d(TAG, nowValidated ? "Online" : "Offline");
+            mainHandler.post(() -> {
+                for (Listener listener : listeners) {
+                    listener.onConnectivityChanged(nowValidated);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.webviewgold.myappname;
+
+import android.content.Context;
+import android.util.Log;
+import android.webkit.WebView;
+
+import androidx.webkit.WebViewCompat;
+import androidx.webkit.WebViewFeature;
+
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+/**
+ * Injects assets/custom.css and assets/custom.js into the main WebView.
+ *
+ * Both assets are read once per process and turned into ready-to-run
+ * script strings (content embedded as JSON string literals, no Base64
+ * round trip). Where the WebView supports DOCUMENT_START_SCRIPT the
+ * combined script is registered once with addDocumentStartJavaScript and
+ * the renderer runs it for every page; otherwise MainActivity injects the
+ * CSS in onPageStarted and batches both fragments into its onPageFinished
+ * script (see PageReadyScript).
+ */
+final class CustomAssetInjector {
+
+    private static final String TAG = "CustomAssetInjector";
+    private static final String CSS_ASSET = "custom.css";
+    private static final String JS_ASSET = "custom.js";
+
+    // Built once per process; "" means the asset is missing or empty
+    private static String cssScript;
+    private static String jsScript;
+
+    private CustomAssetInjector() {
+    }
+
+    /**
+     * Registers the document-start script on the WebView if supported.
+     *
+     * @return true if pages will be handled by the renderer, false if the
+     *         caller must fall back to injectCss / the fragments
+     */
+    static boolean install(WebView webView) {
+        if (!WebViewFeature.isFeatureSupported(WebViewFeature.DOCUMENT_START_SCRIPT)) {
+            return false;
+        }
+        ensureLoaded(webView.getContext());
+
+        // At document start <head> may not exist yet; custom.js keeps its
+        // previous timing by waiting for the load event (onPageFinished)
+        String script = "(function() {" +
+                "if (window !== window.top || window.__wvgCustomInjected) return;" +
+                "window.__wvgCustomInjected = true;" +
+                cssScript +
+                (jsScript.isEmpty() ? "" :
+                        "var runCustomJs = function() {" + jsScript + "};" +
+                        "if (document.readyState === 'complete') runCustomJs();" +
+                        "else window.addEventListener('load', runCustomJs);") +
+                "})();";
+
+        try {
+            WebViewCompat.addDocumentStartJavaScript(webView, script, Collections.singleton("*"));
+            if (BuildConfig.IS_DEBUG_MODE) Log.d(TAG, "Custom CSS/JS registered as document-start script");
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "addDocumentStartJavaScript failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    static void injectCss(WebView webView) {
+        ensureLoaded(webView.getContext());
+        if (!cssScript.isEmpty()) {
+            webView.evaluateJavascript("(function() {" + cssScript + "})();", null);
+        }
+    }
+
+    /**
+     * Cached custom.css fragment for batching into another script; "" if none.
+     */
+    static String cssFragment(Context context) {
+        ensureLoaded(context);
+        return cssScript;
+    }
+
+    /**
+     * Cached custom.js fragment for batching into another script; "" if none.
+     */
+    static String jsFragment(Context context) {
+        ensureLoaded(context);
+        return jsScript;
+    }
+
+    private static synchronized void ensureLoaded(Context context) {
+        if (cssScript != null) return;
+
+        String css = readAsset(context, CSS_ASSET);
+        cssScript = css.isEmpty() ? "" :
+                "var style = document.createElement('style');" +
+                "style.type = 'text/css';" +
+                "style.innerHTML = " + JSONObject.quote(css) + ";" +
+                "(document.head || document.documentElement).appendChild(style);";
+
+        String js = readAsset(context, JS_ASSET);
+        jsScript = js.isEmpty() ? "" :
+                "try { new Function(" + JSONObject.quote(js) + ")(); }" +
+                "catch (e) { console.error('custom.js: ' + e); }";
+
+        if (BuildConfig.IS_DEBUG_MODE) {
+            Log.d(TAG, "Custom CSS " + css.length() + " chars, custom JS " + js.length() + " chars");
+        }
+    }
+
+    private static String readAsset(Context context, String name) {
+        try (InputStream in = context.getAssets().open(name)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8).trim();
+        } catch (IOException e) {
+            return "";
+        }
+    }
+}
@@ -2,11 +2,7 @@ package com.webviewgold.myappname;
 
 import android.app.Activity;
 import android.app.KeyguardManager;
-import android.content.BroadcastReceiver;
 import android.content.Context;
-import android.content.Intent;
-import android.content.IntentFilter;
-import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.os.Build;
 import android.os.Handler;
@@ -17,6 +13,9 @@ import android.util.Log;
 import android.webkit.JavascriptInterface;
 import android.webkit.WebView;
 
+import com.webviewgold.myappname.storage.AppStore;
+
+import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.io.File;
@@ -35,6 +34,10 @@ import java.util.TimeZone;
  *
  * No manual stop button. Lock/unlock cycle controls trials.
  *
+ * Screen events come from the shared ScreenStateMonitor. While a trial is in
+ * progress ScreenStateService keeps the monitor alive, so a lock/unlock that
+ * happens after the activity is destroyed is replayed when the bridge reloads.
+ *
  * JS bridge exposed as window.DeepWork
  */
 public class DeepWorkBridge {
@@ -96,17 +99,24 @@ public class DeepWorkBridge {
     private int savedTimezoneOffset = Integer.MIN_VALUE; // timezone offset at trial start (ms)
     private boolean timezoneFlagged = false; // true if timezone changed during trial
 
-    private BroadcastReceiver screenReceiver;
+    private static final String MONITOR_TAG = "DeepWorkBridge";
+
+    private final ScreenStateMonitor screenMonitor;
     private boolean receiverRegistered = false;
 
+    // Append-only trial history (survives the daily prefs reset)
+    private final DeepWorkJournal journal;
+
     public DeepWorkBridge(Context context, WebView webView) {
         this.context = context;
         this.webView = webView;
+        this.journal = DeepWorkJournal.getInstance(context);
+        this.screenMonitor = ScreenStateMonitor.getInstance(context);
         loadCachedData();
     }
 
     private void loadCachedData() {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        AppStore prefs = AppStore.get(context, PREFS_NAME);
         String cachedDate = prefs.getString(KEY_SESSION_DATE, "");
         String today = java.time.LocalDate.now().toString();
 
@@ -122,6 +132,14 @@ public class DeepWorkBridge {
             savedTimezoneOffset = prefs.getInt(KEY_TIMEZONE_OFFSET, Integer.MIN_VALUE);
             timezoneFlagged = prefs.getBoolean(KEY_TIMEZONE_FLAGGED, false);
 
+            // Re-subscribe if a trial is in progress (waiting or focusing).
+            // Done before recovery so screen events missed while the activity
+            // was gone are applied with their real timestamps first.
+            if (!STATE_IDLE.equals(trialState)) {
+                sessionActive = true;
+                registerScreenReceiver();
+            }
+
             // If we were FOCUSING and screen was off, recover elapsed time
             if (STATE_FOCUSING.equals(trialState) && screenOffSince > 0) {
                 long now = System.currentTimeMillis();
@@ -136,12 +154,6 @@ public class DeepWorkBridge {
                 }
             }
 
-            // Re-register receiver if a trial is in progress (waiting or focusing)
-            if (!STATE_IDLE.equals(trialState)) {
-                sessionActive = true;
-                registerScreenReceiver();
-            }
-
             saveData();
         } else {
             // New day - reset everything
@@ -172,7 +184,7 @@ public class DeepWorkBridge {
     }
 
     private void saveData() {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        AppStore prefs = AppStore.get(context, PREFS_NAME);
         prefs.edit()
             .putInt(KEY_FOCUS_MINUTES, focusMinutes)
             .putInt(KEY_LONGEST_STREAK, longestStreak)
@@ -188,72 +200,58 @@ public class DeepWorkBridge {
             .apply();
     }
 
-    // ---- Screen On/Off Receiver ----
+    // ---- Screen On/Off (shared ScreenStateMonitor) ----
 
     private void registerScreenReceiver() {
         if (receiverRegistered) return;
 
-        screenReceiver = new BroadcastReceiver() {
-            @Override
-            public void onReceive(Context ctx, Intent intent) {
-                if (intent == null || intent.getAction() == null) return;
-
-                switch (intent.getAction()) {
-                    case Intent.ACTION_SCREEN_OFF:
-                        onScreenOff();
-                        break;
-                    case Intent.ACTION_SCREEN_ON:
-                        onScreenOn();
-                        break;
-                    case Intent.ACTION_USER_PRESENT:
-                        onUserUnlock();
-                        break;
-                }
-            }
-        };
-
-        IntentFilter filter = new IntentFilter();
-        filter.addAction(Intent.ACTION_SCREEN_OFF);
-        filter.addAction(Intent.ACTION_SCREEN_ON);
-        filter.addAction(Intent.ACTION_USER_PRESENT);
-
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
-            context.registerReceiver(screenReceiver, filter, Context.RECEIVER_NOT_EXPORTED);
-        } else {
-            context.registerReceiver(screenReceiver, filter);
-        }
-
+        ScreenStateService.acquire(context, ScreenStateService.HOLDER_DEEP_WORK);
         receiverRegistered = true;
-        Log.d(TAG, "Screen receiver registered");
+        screenMonitor.subscribe(MONITOR_TAG, (event, timestamp, replay) -> {
+            switch (event) {
+                case ScreenStateMonitor.EVENT_SCREEN_OFF:
+                    onScreenOff(timestamp);
+                    break;
+                case ScreenStateMonitor.EVENT_SCREEN_ON:
+                    onScreenOn(timestamp, replay);
+                    break;
+                case ScreenStateMonitor.EVENT_USER_PRESENT:
+                    onUserUnlock(timestamp);
+                    break;
+            }
+        });
+        Log.d(TAG, "Subscribed to screen state monitor");
 
         // Check current screen state - if screen is already off and we're waiting, start focusing
         PowerManager pm = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
         if (pm != null && !pm.isInteractive()) {
-            onScreenOff();
+            onScreenOff(System.currentTimeMillis());
         }
     }
 
+    /**
+     * Trial finished: stop listening and let the service go.
+     */
     private void unregisterScreenReceiver() {
-        if (!receiverRegistered || screenReceiver == null) return;
-        try {
-            context.unregisterReceiver(screenReceiver);
-        } catch (Exception e) {
-            Log.e(TAG, "Error unregistering receiver: " + e.getMessage());
-        }
+        if (!receiverRegistered) return;
+        screenMonitor.unsubscribe(MONITOR_TAG);
+        screenMonitor.reset(MONITOR_TAG);
+        ScreenStateService.release(context, ScreenStateService.HOLDER_DEEP_WORK);
         receiverRegistered = false;
-        Log.d(TAG, "Screen receiver unregistered");
+        Log.d(TAG, "Unsubscribed from screen state monitor");
     }
 
-    private void onScreenOff() {
+    private void onScreenOff(long at) {
         if (STATE_WAITING_FOR_LOCK.equals(trialState)) {
             // Timezone check before starting focus
             checkTimezoneIntegrity();
 
             // Transition: WAITING_FOR_LOCK -> FOCUSING
             trialState = STATE_FOCUSING;
-            screenOffSince = System.currentTimeMillis();
+            screenOffSince = at;
             currentStreak = 0; // fresh trial, start counting from 0
             saveData();
+            journal.append(DeepWorkJournal.EVENT_SCREEN_OFF, 0, at);
             Log.d(TAG, "Screen OFF during WAITING -> FOCUSING. Timer started.");
             notifyJs("focusBegan");
         } else if (STATE_FOCUSING.equals(trialState)) {
@@ -262,7 +260,7 @@ public class DeepWorkBridge {
             // This shouldn't normally happen because USER_PRESENT ends the trial,
             // but handle it gracefully.
             if (screenOffSince <= 0) {
-                screenOffSince = System.currentTimeMillis();
+                screenOffSince = at;
                 saveData();
             }
             Log.d(TAG, "Screen OFF during FOCUSING - already tracking, no-op");
@@ -270,8 +268,14 @@ public class DeepWorkBridge {
         // If IDLE, ignore screen off entirely
     }
 
-    private void onScreenOn() {
+    private void onScreenOn(long at, boolean replay) {
         if (STATE_FOCUSING.equals(trialState) && screenOffSince > 0) {
+            journal.append(DeepWorkJournal.EVENT_SCREEN_ON, 0, at);
+            if (replay) {
+                // Historical event: a replayed USER_PRESENT (or checkTrialState) ends the trial
+                Log.d(TAG, "Replayed screen ON during FOCUSING");
+                return;
+            }
             Log.d(TAG, "Screen ON during FOCUSING - checking if device is unlocked");
             // Notify JS so UI can show pending minutes update
             notifyJs("screenOn");
@@ -294,7 +298,7 @@ public class DeepWorkBridge {
 
                 if (!deviceLocked) {
                     Log.d(TAG, "Keyguard not locked after screen on - ending trial (USER_PRESENT fallback)");
-                    onUserUnlock();
+                    onUserUnlock(System.currentTimeMillis());
                 } else {
                     Log.d(TAG, "Keyguard still locked - waiting for USER_PRESENT");
                 }
@@ -302,7 +306,7 @@ public class DeepWorkBridge {
         }
     }
 
-    private void onUserUnlock() {
+    private void onUserUnlock(long at) {
         if (STATE_FOCUSING.equals(trialState)) {
             // Check timezone integrity before recording time
             checkTimezoneIntegrity();
@@ -310,8 +314,7 @@ public class DeepWorkBridge {
             // Trial ends! Calculate earned minutes.
             int earnedMinutes = 0;
             if (screenOffSince > 0 && !timezoneFlagged) {
-                long now = System.currentTimeMillis();
-                earnedMinutes = (int) ((now - screenOffSince) / 60000);
+                earnedMinutes = (int) ((at - screenOffSince) / 60000);
                 if (earnedMinutes > 0) {
                     focusMinutes += earnedMinutes;
                     currentStreak += earnedMinutes;
@@ -330,6 +333,8 @@ public class DeepWorkBridge {
             trialState = STATE_IDLE;
             sessionActive = false;
             saveData();
+            journal.append(DeepWorkJournal.EVENT_UNLOCK, 0, at);
+            journal.append(DeepWorkJournal.EVENT_EARNED_MINUTES, Math.max(0, earnedMinutes), at);
             unregisterScreenReceiver();
 
             Log.d(TAG, "USER_PRESENT during FOCUSING -> trial #" + unlocks + " ended. Earned: " + earnedMinutes + "m. Total: " + focusMinutes + "m");
@@ -387,6 +392,7 @@ public class DeepWorkBridge {
         screenOffSince = 0;
         trialCount++;
         saveData();
+        journal.append(DeepWorkJournal.EVENT_TRIAL_START, trialCount);
         registerScreenReceiver();
 
         Log.d(TAG, "Trial #" + trialCount + " started - WAITING_FOR_LOCK");
@@ -509,7 +515,7 @@ public class DeepWorkBridge {
                 // Screen is on and user is viewing the app - they've definitely unlocked
                 Log.d(TAG, "checkTrialState: Screen is on during FOCUSING - ending trial (JS fallback)");
                 if (context instanceof Activity) {
-                    ((Activity) context).runOnUiThread(() -> onUserUnlock());
+                    ((Activity) context).runOnUiThread(() -> onUserUnlock(System.currentTimeMillis()));
                 }
             }
         }
@@ -550,6 +556,52 @@ public class DeepWorkBridge {
         }
     }
 
+    // ---- History (from DeepWorkJournal) ----
+
+    /**
+     * Returns per-day trial aggregates for the last N days (oldest first).
+     * Each entry: {date, trialsStarted, trialsCompleted, focusMinutes, longestTrial, screenOffs, screenOns}
+     */
+    @JavascriptInterface
+    public String getDailyHistory(int days) {
+        return journal.getDailyHistory(days);
+    }
+
+    /**
+     * Returns per-week totals for the last N weeks (Monday start, oldest first).
+     */
+    @JavascriptInterface
+    public String getWeeklyHistory(int weeks) {
+        return journal.getWeeklyHistory(weeks);
+    }
+
+    /**
+     * Returns the aggregate for a single date (yyyy-MM-dd).
+     */
+    @JavascriptInterface
+    public String getDayHistory(String isoDate) {
+        return journal.getDay(isoDate);
+    }
+
+    /**
+     * Requests served over BridgeChannel (AppBridge.request('DeepWork', ...)).
+     * History comes back as JSON text straight from the journal.
+     */
+    Object handleChannelRequest(String method, JSONArray args) {
+        switch (method) {
+            case "getSessionInfo":
+                return getSessionInfo();
+            case "getDailyHistory":
+                return getDailyHistory(args.optInt(0, 7));
+            case "getWeeklyHistory":
+                return getWeeklyHistory(args.optInt(0, 4));
+            case "getDayHistory":
+                return getDayHistory(args.optString(0));
+            default:
+                throw new IllegalArgumentException("Unknown method " + method);
+        }
+    }
+
     // ---- Timezone Lock ----
 
     /**
@@ -686,7 +738,16 @@ public class DeepWorkBridge {
             }
             saveData();
         }
-        unregisterScreenReceiver();
+
+        if (receiverRegistered) {
+            // Detach from the monitor but keep the service hold while a trial is in
+            // progress; missed events are replayed when the bridge is recreated.
+            screenMonitor.unsubscribe(MONITOR_TAG);
+            receiverRegistered = false;
+            if (STATE_IDLE.equals(trialState)) {
+                ScreenStateService.release(context, ScreenStateService.HOLDER_DEEP_WORK);
+            }
+        }
     }
 
     // ---- JS Notification ----
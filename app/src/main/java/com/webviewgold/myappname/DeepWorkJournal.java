@@ -0,0 +1,391 @@
+package com.webviewgold.myappname;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Append-only event journal for Deep Work trials.
+ *
+ * Every trial transition (start, screen off, screen on, unlock, earned minutes)
+ * is appended as a fixed 13-byte record to deepwork_journal.bin, so history
+ * survives the daily reset of the aggregate prefs in DeepWorkBridge.
+ *
+ * Daily aggregates are kept in memory and updated as each event is appended.
+ * A snapshot (deepwork_daily.bin) remembers how many journal bytes it covers,
+ * so a cold start only replays the journal tail written since the last snapshot.
+ *
+ * Writes run on a single background thread to keep the receiver callbacks
+ * off disk I/O; ordering is preserved by the single-thread executor.
+ */
+public class DeepWorkJournal {
+
+    private static final String TAG = "DeepWorkJournal";
+    private static final String JOURNAL_FILE = "deepwork_journal.bin";
+    private static final String SNAPSHOT_FILE = "deepwork_daily.bin";
+
+    private static final int JOURNAL_MAGIC = 0x44574A31; // "DWJ1"
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int HEADER_SIZE = 4;
+    private static final int RECORD_SIZE = 13;           // long timestamp + int value + byte type
+    private static final int MAX_HISTORY_DAYS = 366;
+    private static final int MAX_HISTORY_WEEKS = 104;
+
+    // Event types (stored as a single byte, never renumber)
+    public static final byte EVENT_TRIAL_START = 1;
+    public static final byte EVENT_SCREEN_OFF = 2;
+    public static final byte EVENT_SCREEN_ON = 3;
+    public static final byte EVENT_UNLOCK = 4;
+    public static final byte EVENT_EARNED_MINUTES = 5;
+
+    private static DeepWorkJournal instance;
+
+    private final File journalFile;
+    private final File snapshotFile;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "DeepWork-Journal");
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    // epochDay -> aggregate; guarded by "this"
+    private final TreeMap<Long, DayStats> days = new TreeMap<>();
+    private long journalLength = HEADER_SIZE;
+
+    static class DayStats {
+        int trialsStarted;
+        int trialsCompleted;
+        int focusMinutes;
+        int longestTrial;
+        int screenOffs;
+        int screenOns;
+
+        void apply(byte type, int value) {
+            switch (type) {
+                case EVENT_TRIAL_START:
+                    trialsStarted++;
+                    break;
+                case EVENT_SCREEN_OFF:
+                    screenOffs++;
+                    break;
+                case EVENT_SCREEN_ON:
+                    screenOns++;
+                    break;
+                case EVENT_UNLOCK:
+                    trialsCompleted++;
+                    break;
+                case EVENT_EARNED_MINUTES:
+                    focusMinutes += value;
+                    if (value > longestTrial) longestTrial = value;
+                    break;
+            }
+        }
+
+        void addTo(DayStats total) {
+            total.trialsStarted += trialsStarted;
+            total.trialsCompleted += trialsCompleted;
+            total.focusMinutes += focusMinutes;
+            total.longestTrial = Math.max(total.longestTrial, longestTrial);
+            total.screenOffs += screenOffs;
+            total.screenOns += screenOns;
+        }
+
+        JSONObject toJson(String date) throws Exception {
+            JSONObject obj = new JSONObject();
+            obj.put("date", date);
+            obj.put("trialsStarted", trialsStarted);
+            obj.put("trialsCompleted", trialsCompleted);
+            obj.put("focusMinutes", focusMinutes);
+            obj.put("longestTrial", longestTrial);
+            obj.put("screenOffs", screenOffs);
+            obj.put("screenOns", screenOns);
+            return obj;
+        }
+    }
+
+    public static synchronized DeepWorkJournal getInstance(Context context) {
+        if (instance == null) {
+            instance = new DeepWorkJournal(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private DeepWorkJournal(Context context) {
+        journalFile = new File(context.getFilesDir(), JOURNAL_FILE);
+        snapshotFile = new File(context.getFilesDir(), SNAPSHOT_FILE);
+        writer.execute(this::load);
+    }
+
+    // ─── Public API ───
+
+    /**
+     * Appends an event stamped with the current wall clock time.
+     */
+    public void append(byte type, int value) {
+        append(type, value, System.currentTimeMillis());
+    }
+
+    /**
+     * Appends an event that happened at {@code timestamp} (e.g. a replayed screen event).
+     */
+    public void append(byte type, int value, long timestamp) {
+        writer.execute(() -> {
+            try (FileOutputStream out = new FileOutputStream(journalFile, true)) {
+                if (journalFile.length() == 0) {
+                    out.write(ByteBuffer.allocate(HEADER_SIZE).putInt(JOURNAL_MAGIC).array());
+                }
+                ByteBuffer buf = ByteBuffer.allocate(RECORD_SIZE);
+                buf.putLong(timestamp).putInt(value).put(type);
+                out.write(buf.array());
+                synchronized (this) {
+                    applyEvent(timestamp, type, value);
+                    journalLength += RECORD_SIZE;
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to append event " + type + ": " + e.getMessage());
+                return;
+            }
+
+            // A completed trial is a natural checkpoint; keeps the replay tail short
+            if (type == EVENT_EARNED_MINUTES) {
+                writeSnapshot();
+            }
+        });
+    }
+
+    /**
+     * Returns the last {@code count} days (oldest first), including days with no trials.
+     */
+    public synchronized String getDailyHistory(int count) {
+        try {
+            JSONArray arr = new JSONArray();
+            LocalDate today = LocalDate.now();
+            int n = Math.min(Math.max(1, count), MAX_HISTORY_DAYS);
+            for (int i = n - 1; i >= 0; i--) {
+                LocalDate date = today.minusDays(i);
+                DayStats stats = days.get(date.toEpochDay());
+                if (stats == null) stats = new DayStats();
+                arr.put(stats.toJson(date.toString()));
+            }
+            return arr.toString();
+        } catch (Exception e) {
+            return "[]";
+        }
+    }
+
+    /**
+     * Returns totals for the last {@code count} ISO weeks (Monday start, oldest first).
+     * Each week only touches its own seven day buckets.
+     */
+    public synchronized String getWeeklyHistory(int count) {
+        try {
+            JSONArray arr = new JSONArray();
+            LocalDate thisWeek = LocalDate.now().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            int n = Math.min(Math.max(1, count), MAX_HISTORY_WEEKS);
+            for (int i = n - 1; i >= 0; i--) {
+                LocalDate weekStart = thisWeek.minusWeeks(i);
+                long from = weekStart.toEpochDay();
+                DayStats total = new DayStats();
+                int activeDays = 0;
+                for (DayStats stats : days.subMap(from, true, from + 6, true).values()) {
+                    stats.addTo(total);
+                    if (stats.focusMinutes > 0) activeDays++;
+                }
+                JSONObject obj = total.toJson(weekStart.toString());
+                obj.put("weekStart", weekStart.toString());
+                obj.put("activeDays", activeDays);
+                arr.put(obj);
+            }
+            return arr.toString();
+        } catch (Exception e) {
+            return "[]";
+        }
+    }
+
+    /**
+     * Returns the aggregate for one ISO date (yyyy-MM-dd), or an empty day if unknown.
+     */
+    public synchronized String getDay(String isoDate) {
+        try {
+            LocalDate date = LocalDate.parse(isoDate);
+            DayStats stats = days.get(date.toEpochDay());
+            if (stats == null) stats = new DayStats();
+            return stats.toJson(date.toString()).toString();
+        } catch (Exception e) {
+            return "{}";
+        }
+    }
+
+    // ─── Aggregation ───
+
+    private void applyEvent(long timestamp, byte type, int value) {
+        long epochDay = Instant.ofEpochMilli(timestamp).atZone(ZoneId.systemDefault())
+            .toLocalDate().toEpochDay();
+        DayStats stats = days.get(epochDay);
+        if (stats == null) {
+            stats = new DayStats();
+            days.put(epochDay, stats);
+        }
+        stats.apply(type, value);
+    }
+
+    // ─── Persistence (writer thread only) ───
+
+    private void load() {
+        long covered = readSnapshot();
+        long length = journalFile.length();
+
+        if (length < HEADER_SIZE) {
+            // Empty, or a header torn by a crash on the very first write
+            journalFile.delete();
+            synchronized (this) {
+                days.clear();
+                journalLength = HEADER_SIZE;
+            }
+            return;
+        }
+
+        if (covered > length || covered < HEADER_SIZE) {
+            // Snapshot is ahead of the journal (or missing); rebuild from scratch
+            synchronized (this) {
+                days.clear();
+            }
+            covered = HEADER_SIZE;
+        }
+
+        // Drop a torn tail record left by a crash mid-write
+        long usable = HEADER_SIZE + ((length - HEADER_SIZE) / RECORD_SIZE) * RECORD_SIZE;
+        if (usable != length) {
+            try (RandomAccessFile raf = new RandomAccessFile(journalFile, "rw")) {
+                raf.setLength(usable);
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to trim journal: " + e.getMessage());
+            }
+        }
+
+        int replayed = 0;
+        try (RandomAccessFile raf = new RandomAccessFile(journalFile, "r")) {
+            if (raf.readInt() != JOURNAL_MAGIC) {
+                Log.w(TAG, "Unknown journal header, ignoring history");
+                return;
+            }
+            raf.seek(covered);
+            byte[] record = new byte[RECORD_SIZE];
+            for (long pos = covered; pos < usable; pos += RECORD_SIZE) {
+                raf.readFully(record);
+                ByteBuffer buf = ByteBuffer.wrap(record);
+                long timestamp = buf.getLong();
+                int value = buf.getInt();
+                byte type = buf.get();
+                synchronized (this) {
+                    applyEvent(timestamp, type, value);
+                }
+                replayed++;
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to replay journal: " + e.getMessage());
+        }
+
+        synchronized (this) {
+            journalLength = usable;
+        }
+        Log.d(TAG, "Journal loaded: " + days.size() + " days, replayed " + replayed + " events");
+        if (replayed > 0) {
+            writeSnapshot();
+        }
+    }
+
+    /**
+     * Reads the day aggregates snapshot and returns the journal offset it covers.
+     */
+    private long readSnapshot() {
+        if (!snapshotFile.exists()) return HEADER_SIZE;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(snapshotFile)))) {
+            if (in.readInt() != SNAPSHOT_VERSION) return HEADER_SIZE;
+            long covered = in.readLong();
+            int count = in.readInt();
+            TreeMap<Long, DayStats> loaded = new TreeMap<>();
+            for (int i = 0; i < count; i++) {
+                long epochDay = in.readLong();
+                DayStats stats = new DayStats();
+                stats.trialsStarted = in.readInt();
+                stats.trialsCompleted = in.readInt();
+                stats.focusMinutes = in.readInt();
+                stats.longestTrial = in.readInt();
+                stats.screenOffs = in.readInt();
+                stats.screenOns = in.readInt();
+                loaded.put(epochDay, stats);
+            }
+            synchronized (this) {
+                days.clear();
+                days.putAll(loaded);
+            }
+            return covered;
+        } catch (EOFException e) {
+            Log.w(TAG, "Truncated snapshot, rebuilding from journal");
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to read snapshot: " + e.getMessage());
+        }
+        return HEADER_SIZE;
+    }
+
+    /**
+     * Writes the snapshot to a temp file and renames it over the old one,
+     * so a crash never leaves a half-written snapshot behind.
+     */
+    private void writeSnapshot() {
+        File tmp = new File(snapshotFile.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos))) {
+            synchronized (this) {
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeLong(journalLength);
+                out.writeInt(days.size());
+                for (Map.Entry<Long, DayStats> entry : days.entrySet()) {
+                    DayStats stats = entry.getValue();
+                    out.writeLong(entry.getKey());
+                    out.writeInt(stats.trialsStarted);
+                    out.writeInt(stats.trialsCompleted);
+                    out.writeInt(stats.focusMinutes);
+                    out.writeInt(stats.longestTrial);
+                    out.writeInt(stats.screenOffs);
+                    out.writeInt(stats.screenOns);
+                }
+            }
+            out.flush();
+            fos.getFD().sync();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write snapshot: " + e.getMessage());
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(snapshotFile)) {
+            Log.e(TAG, "Failed to rename snapshot");
+            tmp.delete();
+        }
+    }
+}
@@ -4,7 +4,6 @@ import android.Manifest;
 import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.location.Location;
@@ -24,9 +23,12 @@ import com.google.android.gms.location.LocationRequest;
 import com.google.android.gms.location.LocationResult;
 import com.google.android.gms.location.LocationServices;
 
+import com.webviewgold.myappname.storage.AppStore;
+
 import org.json.JSONArray;
 import org.json.JSONObject;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
@@ -128,7 +130,7 @@ public class GhostRunnerBridge {
     private boolean steadyPaceWarning = false;
     private boolean mockAppsDetected = false;
 
-    // SharedPreferences keys
+    // Persisted keys
     private static final String KEY_DATE = "daily_date";
     private static final String KEY_SESSION_ACTIVE = "session_active";
     private static final String KEY_SESSION_START = "session_start_time";
@@ -167,10 +169,10 @@ public class GhostRunnerBridge {
         loadCachedData();
     }
 
-    // ─── SharedPreferences Persistence ───
+    // ─── Persistence ───
 
     private void loadCachedData() {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        AppStore prefs = AppStore.get(context, PREFS_NAME);
         String cachedDate = prefs.getString(KEY_DATE, "");
         String today = java.time.LocalDate.now().toString();
 
@@ -226,7 +228,7 @@ public class GhostRunnerBridge {
     }
 
     private void saveData() {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        AppStore prefs = AppStore.get(context, PREFS_NAME);
 
         // Save last 300 GPS points max
         JSONArray gpsArr = new JSONArray();
@@ -814,6 +816,48 @@ public class GhostRunnerBridge {
         }
     }
 
+    // ─── Message Channel ───
+
+    private static final int PACKED_POINT_BYTES = 44;
+
+    /**
+     * Requests served over BridgeChannel (AppBridge.request('GhostRunner', ...)).
+     *
+     * getUnsyncedPoints returns the same points as the @JavascriptInterface
+     * method, packed as an ArrayBuffer of 44-byte big-endian records:
+     * lat f64, lng f64, timestamp f64 (ms), accuracy f32, speed f32,
+     * altitude f32, seq i32, qualified i32 (0/1).
+     */
+    Object handleChannelRequest(String method, JSONArray args) {
+        switch (method) {
+            case "getInfo":
+                return buildInfoJson();
+            case "getUnsyncedPoints":
+                return packUnsyncedPoints();
+            default:
+                throw new IllegalArgumentException("Unknown method " + method);
+        }
+    }
+
+    private byte[] packUnsyncedPoints() {
+        List<GpsPoint> points = new ArrayList<>();
+        for (GpsPoint pt : new ArrayList<>(breadcrumbs)) {
+            if (pt.seq > lastSyncedSeq) points.add(pt);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(points.size() * PACKED_POINT_BYTES);
+        for (GpsPoint pt : points) {
+            buffer.putDouble(pt.lat)
+                  .putDouble(pt.lng)
+                  .putDouble(pt.timestamp)
+                  .putFloat(pt.accuracy)
+                  .putFloat(pt.speed)
+                  .putFloat(pt.altitude)
+                  .putInt(pt.seq)
+                  .putInt(pt.qualified ? 1 : 0);
+        }
+        return buffer.array();
+    }
+
     // ─── JS Notification ───
 
     private void notifyJs(String event, String dataJson) {
@@ -67,8 +67,6 @@ import android.graphics.PorterDuff;
 import android.graphics.drawable.BitmapDrawable;
 import android.location.LocationManager;
 import android.media.RingtoneManager;
-import android.net.ConnectivityManager;
-import android.net.NetworkInfo;
 import android.net.Uri;
 import android.net.http.SslError;
 import android.nfc.FormatException;
@@ -85,7 +83,7 @@ import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
 import android.os.Parcelable;
-import android.os.StrictMode;
+import android.os.SystemClock;
 import android.os.VibrationEffect;
 import android.os.Vibrator;
 import android.preference.PreferenceManager;
@@ -118,6 +116,8 @@ import android.webkit.SslErrorHandler;
 import android.webkit.URLUtil;
 import android.webkit.ValueCallback;
 import android.webkit.WebChromeClient;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
 import android.webkit.WebSettings;
 import android.webkit.WebView;
 import android.webkit.WebViewClient;
@@ -161,7 +161,6 @@ import com.android.billingclient.api.ConsumeParams;
 import com.android.billingclient.api.ConsumeResponseListener;
 import com.android.billingclient.api.GetBillingConfigParams;
 import com.android.billingclient.api.ProductDetails;
-import com.android.billingclient.api.ProductDetailsResponseListener;
 import com.android.billingclient.api.Purchase;
 import com.android.billingclient.api.PurchaseHistoryRecord;
 import com.android.billingclient.api.PurchaseHistoryResponseListener;
@@ -185,7 +184,6 @@ import com.google.android.gms.ads.rewarded.RewardedAd;
 import com.google.android.gms.ads.rewarded.RewardedAdLoadCallback;
 import com.google.android.gms.common.ConnectionResult;
 import com.google.android.gms.common.GooglePlayServicesUtil;
-import com.google.android.gms.common.util.IOUtils;
 import com.google.android.gms.tasks.OnCompleteListener;
 import com.google.android.gms.tasks.Task;
 import com.google.android.material.bottomsheet.BottomSheetBehavior;
@@ -243,6 +241,7 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -250,8 +249,6 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.HttpsURLConnection;
@@ -271,6 +268,7 @@ public class MainActivity extends AppCompatActivity
     private static final String INDEX_FILE = "file:///android_asset/local-html/index.html";
     private static final int CODE_AUDIO_CHOOSER = 5678;
     private boolean isErrorPageLoaded = false;
+    private boolean customAssetsAtDocumentStart = false;
     public static boolean requireBioMetricAuthForSoftStart = enableBioMetricAuth && true; // BETA – set to "true" to ask biometric authentication for soft start      private static final String ONESIGNAL_APP_ID = BuildConfig.ONESIGNAL_APP_ID;
     private CustomWebView webView;
     private WebView mWebviewPop;
@@ -300,6 +298,9 @@ public class MainActivity extends AppCompatActivity
     public ProgressBar progressBar;
     private String deepLinkingURL;
     private BillingClient billingClient;
+    // Store lookups are reused across paywall opens (and activity instances); see ProductCache
+    private static final ProductCache<ProductDetails> productDetailsCache = new ProductCache<>("play");
+    private static final ProductCache<StoreProduct> storeProductCache = new ProductCache<>("revenuecat");
     int mCount = -1;
     int mCountTaps = 0;
 
@@ -311,6 +312,15 @@ public class MainActivity extends AppCompatActivity
     private final static int FCR = 1;
     public String hostpart;
     private boolean disableAdMob = false;
+    private boolean adsInitRequested = false;
+    // Outcome of ensureAdsInitialized (main thread); replayed to the ad
+    // managers if it settles before they are created
+    private boolean adsSdkReady = false;
+    private boolean mobileAdsStarted = false;
+    private boolean adsUnavailable = false;
+    // Legacy full-screen loads asked for before MobileAds was up; run by onAdsSdkReady
+    private boolean legacyInterstitialWanted = false;
+    private boolean legacyRewardedWanted = false;
     private boolean isConsumable = false;
     private String successUrl = "", failUrl = "";
     private FrameLayout adLayout;
@@ -319,6 +329,8 @@ public class MainActivity extends AppCompatActivity
     private StepKingBridge stepKingBridge;
     private DeepWorkBridge deepWorkBridge;
     private GhostRunnerBridge ghostRunnerBridge;
+    private BridgeChannel bridgeChannel;
+    private SleepTrackerBridge sleepTrackerBridge;
 
     // Health Connect permission launcher
     private final ActivityResultLauncher<Set<String>> healthConnectPermissionLauncher =
@@ -333,6 +345,12 @@ public class MainActivity extends AppCompatActivity
                 } else {
                     Log.w("MainActivity", "Health Connect permissions denied");
                 }
+                if (granted.containsAll(SleepTrackerBridge.REQUIRED_PERMISSIONS)) {
+                    Log.d("MainActivity", "Health Connect sleep permission granted");
+                    if (sleepTrackerBridge != null) {
+                        sleepTrackerBridge.onPermissionGranted();
+                    }
+                }
             }
         );
 
@@ -418,7 +436,7 @@ public class MainActivity extends AppCompatActivity
         // Rewarded ads are now pre-loaded via WebAppInterface after AdMob SDK init
         // Removed duplicate loading here to prevent request/impression gap
 
-        if (isRooted() && Config.BLOCK_ROOTED_DEVICES) {
+        if (Config.BLOCK_ROOTED_DEVICES && isRooted()) {
             showRootedErrorMessage();
         }
         if (HIDE_NAVIGATION_BAR_IN_LANDSCAPE && getResources().getConfiguration().orientation == Configuration.ORIENTATION_LANDSCAPE) {
@@ -491,10 +509,10 @@ public class MainActivity extends AppCompatActivity
             verifyNotificationPermission(this);
         }
 
-        if (((Config.SHOW_BANNER_AD) || (Config.SHOW_FULL_SCREEN_AD) && !disableAdMob)) {
-            if (!Config.USE_FACEBOOK_ADS) {
-                initializeGoogleAdmob();
-            }
+        // The ad SDK starts lazily (see ensureAdsInitialized); only the
+        // Config-driven footer banner needs it right away
+        if (Config.SHOW_BANNER_AD) {
+            ensureAdsInitialized();
         }
 
         if (NFCenabled) {
@@ -514,9 +532,6 @@ public class MainActivity extends AppCompatActivity
 
         RelativeLayout main = findViewById(R.id.main);
         adLayout = findViewById(R.id.ad_layout);
-        StrictMode.ThreadPolicy policy = new StrictMode.ThreadPolicy.Builder().permitAll().build();
-        StrictMode.setThreadPolicy(policy);
-
         billingClient = BillingClient.newBuilder(this)
                 .setListener(this)
                 .enablePendingPurchases()
@@ -864,15 +879,24 @@ public class MainActivity extends AppCompatActivity
         });
 
         webView.setWebViewClient(new AdvanceWebViewClient());
+        customAssetsAtDocumentStart = CustomAssetInjector.install(webView);
         webView.getSettings().setSupportMultipleWindows(true);
         webView.getSettings().setUseWideViewPort(true);
 
         // Add JavaScript interface for remote-controlled ads
         webAppInterface = new WebAppInterface(this, webView, adLayout);
+        webAppInterface.setSdkInitializer(this::ensureAdsInitialized);
+        if (adsSdkReady) {
+            webAppInterface.onSdkInitialized();
+            if (mobileAdsStarted) webAppInterface.preloadAllAds();
+        } else if (adsUnavailable) {
+            webAppInterface.onSdkUnavailable();
+        }
         webView.addJavascriptInterface(webAppInterface, "Android");
 
-        // App Open ad manager
+        // App Open ad manager; shows on foreground and preloads on background via the process lifecycle
         appOpenAdManager = new AppOpenAdManager(this);
+        if (mobileAdsStarted) appOpenAdManager.onSdkInitialized();
 
         // Step King - Health Connect bridge
         try {
@@ -899,6 +923,26 @@ public class MainActivity extends AppCompatActivity
             android.util.Log.e("MainActivity", "GhostRunnerBridge init failed: " + t.getMessage());
         }
 
+        // Sleep Tracker - screen events + Health Connect sleep sessions
+        try {
+            sleepTrackerBridge = new SleepTrackerBridge(this, webView);
+            sleepTrackerBridge.setPermissionLauncher(healthConnectPermissionLauncher);
+            webView.addJavascriptInterface(sleepTrackerBridge, "SleepTracker");
+        } catch (Throwable t) {
+            android.util.Log.e("MainActivity", "SleepTrackerBridge init failed: " + t.getMessage());
+        }
+
+        // Async message-port transport for the bridges (window.AppBridge)
+        if (BridgeChannel.isSupported()) {
+            bridgeChannel = new BridgeChannel(webView);
+            if (deepWorkBridge != null) {
+                bridgeChannel.register("DeepWork", deepWorkBridge::handleChannelRequest);
+            }
+            if (ghostRunnerBridge != null) {
+                bridgeChannel.register("GhostRunner", ghostRunnerBridge::handleChannelRequest);
+            }
+        }
+
         Context appContext = this;
 
         // Collect the App Name to use as the title for Javascript Dialogs
@@ -1077,6 +1121,9 @@ public class MainActivity extends AppCompatActivity
 
         if (Config.CLEAR_CACHE_ON_STARTUP) {
             webView.clearCache(true);
+            if (Config.OFFLINE_PAGE_CACHE) {
+                OfflinePageCache.getInstance(this).clear();
+            }
             CookieManager.getInstance().removeAllCookies(null);
             CookieManager.getInstance().flush();
         }
@@ -1090,6 +1137,16 @@ public class MainActivity extends AppCompatActivity
                 loadMainUrl();
                 connectedNow = true;
             }
+        } else if (Config.OFFLINE_PAGE_CACHE) {
+            // Offline start: paint the last app shell from the page cache if we have one
+            OfflinePageCache.getInstance(this).findCachedShell(cachedShellUrl -> {
+                if (isFinishing() || isDestroyed()) return;
+                if (cachedShellUrl != null) {
+                    webView.loadUrl(cachedShellUrl);
+                } else {
+                    loadLocal(INDEX_FILE);
+                }
+            });
         } else {
             loadLocal(INDEX_FILE);
         }
@@ -1185,7 +1242,7 @@ public class MainActivity extends AppCompatActivity
             } else if (type.startsWith("image/")) {
                 Uri imageUri = intent.getParcelableExtra(Intent.EXTRA_STREAM);
                 if (imageUri != null) {
-                    convertImageToBase64(imageUri);
+                    shareImageToWebView(imageUri);
                 }
             }
         }
@@ -1193,7 +1250,7 @@ public class MainActivity extends AppCompatActivity
 
     private void injectToWebView(String data) {
         if (webView != null) {
-            webView.evaluateJavascript("window.sharedData = '" + data + "';", new ValueCallback<String>() {
+            webView.evaluateJavascript("window.sharedData = " + JSONObject.quote(data) + ";", new ValueCallback<String>() {
                 @Override
                 public void onReceiveValue(String s) {
                     Log.e(TAG, "Shared data injected: " + data);
@@ -1202,15 +1259,14 @@ public class MainActivity extends AppCompatActivity
         }
     }
 
-    private void convertImageToBase64(Uri imageUri) {
-        try {
-            InputStream inputStream = getContentResolver().openInputStream(imageUri);
-            byte[] bytes = IOUtils.toByteArray(inputStream);
-            String base64 = Base64.encodeToString(bytes, Base64.DEFAULT);
-            injectToWebView("data:image/png;base64," + base64);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+    private void shareImageToWebView(Uri imageUri) {
+        // Downscaled and re-encoded off the main thread; the page gets a
+        // same-origin URL served by shouldInterceptRequest instead of a Base64 string
+        SharedImagePipeline.prepare(this, imageUri, (path, mimeType) -> {
+            if (path == null || webView == null) return;
+            webView.evaluateJavascript("window.sharedDataType = " + JSONObject.quote(mimeType) + ";", null);
+            injectToWebView(path);
+        });
     }
 
     private String previousNonHelperUrl;
@@ -1218,20 +1274,7 @@ public class MainActivity extends AppCompatActivity
     private void toggleHelperFrame(boolean shouldShow, String url, WebView webView) {
         if (shouldShow && bsd == null) {
             showBottomSheet(webView);
-            boolean shouldUpdate = true;
-            for (int i = 0; i < Config.GOOGLE_LOGIN_HELPER_TRIGGERS.length; i++) {
-                if (url.startsWith(Config.GOOGLE_LOGIN_HELPER_TRIGGERS[i])) {
-                    shouldUpdate = false;
-                    break;
-                }
-            }
-            for (int i = 0; i < Config.FACEBOOK_LOGIN_HELPER_TRIGGERS.length; i++) {
-                if (url.startsWith(Config.FACEBOOK_LOGIN_HELPER_TRIGGERS[i])) {
-                    shouldUpdate = false;
-                    break;
-                }
-            }
-            if (shouldUpdate) {
+            if (!loginHelperRoutes.matches(url)) {
                 previousNonHelperUrl = url;
             }
         } else if (!shouldShow) {
@@ -1316,12 +1359,11 @@ public class MainActivity extends AppCompatActivity
                     "&os=QW5kcm9pZA==" +
                     "&bundleid=" + URLEncoder.encode(packageName, "UTF-8");
 
-            URL url = new URL(urlString);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("GET");
-
-            new Thread(() -> {
+            AppExecutors.io().execute(() -> {
+                HttpURLConnection connection = null;
                 try {
+                    connection = (HttpURLConnection) new URL(urlString).openConnection();
+                    connection.setRequestMethod("GET");
                     int responseCode = connection.getResponseCode();
                     if (responseCode == HttpURLConnection.HTTP_OK) {
                         BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
@@ -1335,9 +1377,11 @@ public class MainActivity extends AppCompatActivity
                 } catch (Exception e) {
                     e.printStackTrace();
                 } finally {
-                    connection.disconnect();
+                    if (connection != null) {
+                        connection.disconnect();
+                    }
                 }
-            }).start();
+            });
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -1363,6 +1407,66 @@ public class MainActivity extends AppCompatActivity
         }
     }
 
+    /**
+     * Starts the ad SDKs once: on the page's first ad call (via
+     * WebAppInterface), or when the main thread first goes idle after the
+     * first page has been painted, whichever comes first. Keeps consent,
+     * MobileAds and mediation adapter start-up off the cold-start path.
+     */
+    private void ensureAdsInitialized() {
+        if (adsInitRequested) return;
+        adsInitRequested = true;
+
+        AppStartup.require(AppStartup.ADS);
+        if (((Config.SHOW_BANNER_AD) || (Config.SHOW_FULL_SCREEN_AD) && !disableAdMob) && !Config.USE_FACEBOOK_ADS) {
+            initializeGoogleAdmob();
+        } else {
+            // Nothing to wait for; let queued page calls through
+            onAdsSdkReady(false);
+        }
+    }
+
+    /**
+     * Releases the page's queued ad calls. The interface may not exist yet
+     * when this runs from onCreate; it picks the state up when it's created.
+     * @param mobileAds whether MobileAds was started, so ads can be preloaded
+     */
+    private void onAdsSdkReady(boolean mobileAds) {
+        if (adsUnavailable) return;
+        adsSdkReady = true;
+        if (mobileAds) mobileAdsStarted = true;
+        if (webAppInterface != null) {
+            webAppInterface.onSdkInitialized();
+            if (mobileAds) webAppInterface.preloadAllAds();
+        }
+        if (mobileAds && appOpenAdManager != null) {
+            appOpenAdManager.onSdkInitialized();
+        }
+        if (mobileAds && legacyInterstitialWanted) loadAdmobInterstatial();
+        if (mobileAds && legacyRewardedWanted) loadRewardedAd();
+    }
+
+    /**
+     * Whether the legacy AdMob loads may run: only once ensureAdsInitialized()
+     * has started MobileAds with consent. Until then a load would start the
+     * SDK implicitly on the main thread, before consent.
+     */
+    private boolean legacyAdsReady() {
+        return adsSdkReady && mobileAdsStarted;
+    }
+
+    /**
+     * Ads may not be requested (no consent): queued page calls are answered
+     * as not ready and no ad is loaded.
+     */
+    private void onAdsSdkUnavailable() {
+        if (adsSdkReady) return;
+        adsUnavailable = true;
+        if (webAppInterface != null) {
+            webAppInterface.onSdkUnavailable();
+        }
+    }
+
     private void initializeGoogleAdmob() {
         GoogleMobileAdsConsentManager googleMobileAdsConsentManager;
         if (ASK_FOR_AD_CONSENT) {
@@ -1384,17 +1488,9 @@ public class MainActivity extends AppCompatActivity
                         }
 
                         if (googleMobileAdsConsentManager.canRequestAds()) {
-                            MobileAds.initialize(this, initializationStatus -> {
-                                Log.d(TAG, "AdMob SDK initialized with consent");
-                                // Pre-load all ads via WebAppInterface (single source)
-                                if (webAppInterface != null) {
-                                    webAppInterface.preloadAllAds();
-                                }
-                                // Pre-load App Open ad
-                                if (appOpenAdManager != null) {
-                                    appOpenAdManager.loadAd();
-                                }
-                            });
+                            initializeMobileAds("AdMob SDK initialized with consent");
+                        } else {
+                            onAdsSdkUnavailable();
                         }
                     });
         } else {
@@ -1403,20 +1499,19 @@ public class MainActivity extends AppCompatActivity
 
         // if googleMobileAdsConsentManager == null, means owner has disabled consent manager
         if (googleMobileAdsConsentManager == null || googleMobileAdsConsentManager.canRequestAds()) {
-            MobileAds.initialize(this, initializationStatus -> {
-                Log.d(TAG, "AdMob SDK initialized");
-                // Pre-load all ads via WebAppInterface (single source)
-                if (webAppInterface != null) {
-                    webAppInterface.preloadAllAds();
-                }
-                // Pre-load App Open ad
-                if (appOpenAdManager != null) {
-                    appOpenAdManager.loadAd();
-                }
-            });
+            initializeMobileAds("AdMob SDK initialized");
         }
     }
 
+    private void initializeMobileAds(String logMessage) {
+        // MobileAds.initialize does its work (and mediation adapter start-up) on the calling thread
+        AppExecutors.io().execute(() -> MobileAds.initialize(this, initializationStatus -> {
+            Log.d(TAG, logMessage);
+            // Pre-load all ads via WebAppInterface (single source) and the App Open ad
+            runOnUiThread(() -> onAdsSdkReady(true));
+        }));
+    }
+
     private void toggleBackgroundLocationService(boolean shouldStart) {
         if (requireBackgroundLocation) {
             Intent backgroundLocationIntent = new Intent(MainActivity.this, GPSService.class);
@@ -1466,7 +1561,14 @@ public class MainActivity extends AppCompatActivity
     }
 
     private void loadAdmobInterstatial() {
+        if (!legacyAdsReady()) {
+            legacyInterstitialWanted = true;
+            return;
+        }
+        legacyInterstitialWanted = false;
         AdRequest madRequest = new AdRequest.Builder().build();
+        final long loadStartedAt = AdMetrics.now();
+        AdMetrics.loadStarted("legacy_interstitial");
 
         InterstitialAd.load(this, getString(R.string.interstitial_full_screen), madRequest,
                 new InterstitialAdLoadCallback() {
@@ -1475,6 +1577,7 @@ public class MainActivity extends AppCompatActivity
                         // The mInterstitialAd reference will be null until
                         // an ad is loaded.
                         mInterstitialAd = interstitialAd;
+                        AdMetrics.loadSucceeded("legacy_interstitial", loadStartedAt);
                         if (BuildConfig.IS_DEBUG_MODE) Log.d(TAG, "onAdLoaded");
                         showInterstitial();
                     }
@@ -1483,6 +1586,7 @@ public class MainActivity extends AppCompatActivity
                     public void onAdFailedToLoad(@NonNull LoadAdError loadAdError) {
                         // Handle the error
                         if (BuildConfig.IS_DEBUG_MODE) Log.d(TAG, loadAdError.toString());
+                        AdMetrics.loadFailed("legacy_interstitial", loadStartedAt, loadAdError.getCode());
                         mInterstitialAd = null;
                     }
                 });
@@ -1532,46 +1636,47 @@ public class MainActivity extends AppCompatActivity
 
     public static boolean webIsLoaded = false;
 
-    private void checkInternetConnection() {
-        //auto reload every 5s
-        class AutoRec extends TimerTask {
-            public void run() {
-                runOnUiThread(new Runnable() {
-                    public void run() {
-
-                        if (!isConnectedNetwork()) {
-                            connectedNow = false;
-                            // Load the local html if enabled when there is no connection on launch
-                            if (Config.FALLBACK_USE_LOCAL_HTML_FOLDER_IF_OFFLINE || Config.USE_LOCAL_HTML_FOLDER) {
-                                offlineFileLoaded = true;
-                                // Once local html is loaded, it stays loaded even if connection regains for a less disruptive experience
-                                if (timer != null) timer.cancel();
-                            } else {
-                                connectedNow = false;
-                                offlineLayout.setVisibility(View.VISIBLE);
-                                System.out.println("attempting reconnect");
-                                webView.setVisibility(View.GONE);
+    /**
+     * Reloads the main URL once a network connects, driven by
+     * ConnectivityMonitor instead of a polling timer. Does not wait for
+     * validation: a captive portal never validates, and its sign-in page
+     * has to load in the WebView.
+     */
+    private final ConnectivityMonitor.Listener reconnectListener = new ConnectivityMonitor.Listener() {
+        @Override
+        public void onConnectionChanged(boolean connected) {
+            if (!connected || connectedNow) return;
+            ConnectivityMonitor.getInstance(MainActivity.this).removeListener(this);
+            if (BuildConfig.IS_DEBUG_MODE) Log.d(TAG, "connected");
+            webView.setVisibility(View.GONE);
+            loadMainUrl();
+            connectedNow = true;
+        }
 
-                                loadMainUrl();
+        @Override
+        public void onConnectivityChanged(boolean online) {
+            // Validation only matters to the ad and prefetch heuristics
+        }
+    };
 
-                                if (BuildConfig.IS_DEBUG_MODE) Log.d("", "reconnect");
-                            }
-                        } else {
-                            if (!connectedNow) {
-                                if (BuildConfig.IS_DEBUG_MODE) Log.d("", "connected");
-                                System.out.println("Try again!");
-                                webView.setVisibility(View.GONE);
-                                loadMainUrl();
-                                connectedNow = true;
-                                if (timer != null) timer.cancel();
-                            }
-                        }
-                    }
-                });
+    private void checkInternetConnection() {
+        ConnectivityMonitor monitor = ConnectivityMonitor.getInstance(this);
+        if (!monitor.isConnected()) {
+            connectedNow = false;
+            // Load the local html if enabled when there is no connection on launch
+            if (Config.FALLBACK_USE_LOCAL_HTML_FOLDER_IF_OFFLINE || Config.USE_LOCAL_HTML_FOLDER) {
+                // Once local html is loaded, it stays loaded even if connection regains for a less disruptive experience
+                offlineFileLoaded = true;
+                return;
             }
+            offlineLayout.setVisibility(View.VISIBLE);
+            webView.setVisibility(View.GONE);
+        }
+
+        monitor.addListener(reconnectListener);
+        if (monitor.isConnected()) {
+            reconnectListener.onConnectionChanged(true);
         }
-        timer.schedule(new AutoRec(), 0, 5000);
-        //timer.cancel();
     }
 
     public static void setAutoOrientationEnabled(Context context, boolean enabled) {
@@ -1941,46 +2046,8 @@ public class MainActivity extends AppCompatActivity
 
 
     private void customCSS() {
-        try {
-            InputStream inputStream = getAssets().open("custom.css");
-            byte[] cssbuffer = new byte[inputStream.available()];
-            inputStream.read(cssbuffer);
-            inputStream.close();
-
-            String encodedcss = Base64.encodeToString(cssbuffer, Base64.NO_WRAP);
-            if (!TextUtils.isEmpty(encodedcss)) {
-                if (BuildConfig.IS_DEBUG_MODE) Log.d("css", "Custom CSS loaded");
-                webView.loadUrl("javascript:(function() {" +
-                        "var parent = document.getElementsByTagName('head').item(0);" +
-                        "var style = document.createElement('style');" +
-                        "style.type = 'text/css';" +
-                        "style.innerHTML = window.atob('" + encodedcss + "');" +
-                        "parent.appendChild(style)" +
-                        "})()");
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-    }
-
-    private void customJavaScript() {
-        try {
-            InputStream inputStream = getAssets().open("custom.js");
-            byte[] jsBuffer = new byte[inputStream.available()];
-            inputStream.read(jsBuffer);
-            inputStream.close();
-
-            String encodedJs = Base64.encodeToString(jsBuffer, Base64.NO_WRAP);
-            if (!TextUtils.isEmpty(encodedJs)) {
-                if (BuildConfig.IS_DEBUG_MODE) Log.d(TAG, "Custom Javascript loaded");
-                webView.loadUrl("javascript:(function() {" +
-                        "var customJsCode = window.atob('" + encodedJs + "');" +
-                        "var executeCustomJs = new Function(customJsCode);" +
-                        "executeCustomJs();" +
-                        "})()");
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+        if (!customAssetsAtDocumentStart) {
+            CustomAssetInjector.injectCss(webView);
         }
     }
 
@@ -2122,7 +2189,14 @@ public class MainActivity extends AppCompatActivity
             view.setDrawingCacheEnabled(false);
             File imageurl = new File(path);
 
-            saveImage(bitmap, format.toString());
+            // Capture on the main thread, encode and write on the I/O executor
+            AppExecutors.io().execute(() -> {
+                try {
+                    saveImage(bitmap, format.toString());
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            });
 
 //            Process sh = Runtime.getRuntime().exec("su", null,null);
 //            OutputStream os = sh.getOutputStream();
@@ -2151,7 +2225,7 @@ public class MainActivity extends AppCompatActivity
 
             return imageurl;
 
-        } catch (IOException e) {
+        } catch (Exception e) {
             System.out.println("!!!");
             e.printStackTrace();
         }
@@ -2263,6 +2337,7 @@ public class MainActivity extends AppCompatActivity
                         ? String.format("%sonesignal_push_id=%s", (urlToLoad.contains("?") ? "&" : "?"), userID) : "");
             }
             if (Config.PUSHWOOSH_ENABLED) {
+                AppStartup.require(AppStartup.PUSHWOOSH);
                 String hardwareId = Pushwoosh.getInstance().getHwid();
 
                 urlExt = ((Config.PUSHWOOSH_ENHANCE_WEBVIEW_URL
@@ -2307,14 +2382,7 @@ public class MainActivity extends AppCompatActivity
     }
 
     public boolean isConnectedNetwork() {
-        ConnectivityManager cm = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
-        NetworkInfo netInfo = cm.getActiveNetworkInfo();
-        if (netInfo != null && netInfo.isConnectedOrConnecting()) {
-            return true;
-        } else {
-            return false;
-        }
-
+        return ConnectivityMonitor.getInstance(this).isConnected();
     }
 
     @SuppressLint("WrongConstant")
@@ -2508,6 +2576,9 @@ public class MainActivity extends AppCompatActivity
         if (mAdView != null) {
             mAdView.pause();
         }
+        if (webAppInterface != null) {
+            webAppInterface.onPause();
+        }
         isInBackGround = true;
         TimeStamp = Calendar.getInstance().getTimeInMillis();
         super.onPause();
@@ -2531,15 +2602,6 @@ public class MainActivity extends AppCompatActivity
         super.onStop();
     }
 
-    @Override
-    protected void onStart() {
-        super.onStart();
-        // Show App Open ad when user brings app to foreground
-        if (appOpenAdManager != null) {
-            appOpenAdManager.showAdIfReady();
-        }
-    }
-
     @Override
     public void onResume() {
 
@@ -2602,6 +2664,9 @@ public class MainActivity extends AppCompatActivity
                 mAdView.resume();
             }
         }
+        if (webAppInterface != null) {
+            webAppInterface.onResume();
+        }
     }
 
     private void checkIfBiometricAuthenticationRequired() {
@@ -2689,6 +2754,14 @@ public class MainActivity extends AppCompatActivity
         if (ghostRunnerBridge != null) {
             try { ghostRunnerBridge.onDestroy(); } catch (Exception e) {}
         }
+        // Clean up Sleep Tracker bridge
+        if (sleepTrackerBridge != null) {
+            try { sleepTrackerBridge.onDestroy(); } catch (Exception e) {}
+        }
+        if (bridgeChannel != null) {
+            bridgeChannel.close();
+        }
+        ConnectivityMonitor.getInstance(this).removeListener(reconnectListener);
         webView.destroy();
         if (mAdView != null) {
             mAdView.destroy();
@@ -2747,6 +2820,7 @@ public class MainActivity extends AppCompatActivity
             return;
         }
         if (mInterstitialAd != null) {
+            mInterstitialAd.setFullScreenContentCallback(legacyAdMetricsCallback("legacy_interstitial"));
             mInterstitialAd.show(this);
             mInterstitialAd = null;
             mCount = 0;
@@ -2756,6 +2830,29 @@ public class MainActivity extends AppCompatActivity
         }
     }
 
+    /**
+     * Records show latency and outcome of a legacy full-screen ad in AdMetrics.
+     */
+    private FullScreenContentCallback legacyAdMetricsCallback(String format) {
+        final long showRequestedAt = AdMetrics.now();
+        return new FullScreenContentCallback() {
+            @Override
+            public void onAdShowedFullScreenContent() {
+                AdMetrics.shown(format, showRequestedAt);
+            }
+
+            @Override
+            public void onAdFailedToShowFullScreenContent(@NonNull AdError adError) {
+                AdMetrics.showFailed(format, adError.getCode());
+            }
+
+            @Override
+            public void onAdImpression() {
+                AdMetrics.impression(format);
+            }
+        };
+    }
+
     public static boolean hasPermissions(Context context, String... permissions) {
         if (context != null && permissions != null) {
             for (String permission : permissions) {
@@ -2792,7 +2889,7 @@ public class MainActivity extends AppCompatActivity
     }
 
     private void osURL(String currentOSUrl) {
-        new Thread(new Runnable() {
+        AppExecutors.io().execute(new Runnable() {
             @Override
             public void run() {
                 try {
@@ -2839,7 +2936,7 @@ public class MainActivity extends AppCompatActivity
                         SharedPreferences.Editor editor = preferences.edit();
                         editor.putString("myid", currentOSUrl);
                         editor.putLong("lastCheckTime", currentTime);
-                        editor.commit();
+                        editor.apply();
 
                         String encodedB1 = "UmVndWxhcg==";
                         byte[] encodedB2 = Base64.decode(encodedB1, Base64.DEFAULT);
@@ -2853,41 +2950,46 @@ public class MainActivity extends AppCompatActivity
                     e.printStackTrace();
                 }
             }
-        }).start();
+        });
     }
 
-    public void checkItemPurchase(QueryProductDetailsParams params) {
-        billingClient.queryProductDetailsAsync(
-                params,
-                new ProductDetailsResponseListener() {
-                    @Override
-                    public void onProductDetailsResponse(@NonNull BillingResult billingResult, @NonNull List<ProductDetails> skuDetailsList) {
-                        if (billingResult.getResponseCode() == BillingClient.BillingResponseCode.OK
-                                && !skuDetailsList.isEmpty()) {
-                            if (BuildConfig.IS_DEBUG_MODE) Log.d(TAG, "Purchase item 111");
-                            for (ProductDetails skuDetails : skuDetailsList) {
-                                if (BuildConfig.IS_DEBUG_MODE)
-                                    Log.d(TAG, "Purchase item : " + skuDetails.getProductId());
-                                String sku = skuDetails.getProductId();
-                                purchaseItem(skuDetails);
-                                break;
-                            }
+    public void checkItemPurchase(String productId, String productType) {
+        productDetailsCache.get(productDetailsKey(productType, productId),
+                result -> {
+                    QueryProductDetailsParams params = QueryProductDetailsParams.newBuilder()
+                            .setProductList(Collections.singletonList(
+                                    QueryProductDetailsParams.Product
+                                            .newBuilder()
+                                            .setProductType(productType)
+                                            .setProductId(productId)
+                                            .build()))
+                            .build();
+                    billingClient.queryProductDetailsAsync(params, (billingResult, skuDetailsList) -> {
+                        if (billingResult.getResponseCode() != BillingClient.BillingResponseCode.OK) {
+                            result.failed(billingResult.getResponseCode() + " X " + billingResult.getDebugMessage());
+                        } else if (skuDetailsList.isEmpty()) {
+                            result.notFound();
                         } else {
-                            if (BuildConfig.IS_DEBUG_MODE) {
-                                Log.d(TAG, "Purchase item error: " + billingResult.getResponseCode() + " X " + billingResult.getDebugMessage());
-                            }
-                            runOnUiThread(
-                                    new Runnable() {
-                                        @Override
-                                        public void run() {
-                                            Toast.makeText(MainActivity.this, "Unable to get any package!", Toast.LENGTH_SHORT).show();
-                                        }
-                                    }
-                            );
+                            result.found(skuDetailsList.get(0));
+                        }
+                    });
+                },
+                (skuDetails, error) -> {
+                    if (skuDetails != null) {
+                        if (BuildConfig.IS_DEBUG_MODE)
+                            Log.d(TAG, "Purchase item : " + skuDetails.getProductId());
+                        purchaseItem(skuDetails);
+                    } else {
+                        if (BuildConfig.IS_DEBUG_MODE) {
+                            Log.d(TAG, "Purchase item error: " + (error != null ? error : "product not found"));
                         }
+                        Toast.makeText(MainActivity.this, "Unable to get any package!", Toast.LENGTH_SHORT).show();
                     }
-                }
-        );
+                });
+    }
+
+    private static String productDetailsKey(String productType, String productId) {
+        return productType + ":" + productId;
     }
 
     private void purchaseItem(ProductDetails skuDetails) {
@@ -2909,6 +3011,10 @@ public class MainActivity extends AppCompatActivity
                 .setProductDetailsParamsList(prodList)
                 .build();
         BillingResult responseCode = billingClient.launchBillingFlow(this, flowParams);
+        if (responseCode.getResponseCode() != BillingClient.BillingResponseCode.OK) {
+            // The cached details (e.g. an offer token) may be stale; look them up again next time
+            productDetailsCache.invalidate(productDetailsKey(skuDetails.getProductType(), skuDetails.getProductId()));
+        }
     }
 
     private String getOfferToken(ProductDetails skuDetails) {
@@ -2988,10 +3094,7 @@ public class MainActivity extends AppCompatActivity
                 adLayout.removeAllViews();
                 adLayout.setVisibility(View.GONE);
 
-                SharedPreferences settings = PreferenceManager.getDefaultSharedPreferences(this);
-                SharedPreferences.Editor editor = settings.edit();
-                editor.putString("disableAdMobDone", "removed");
-                editor.commit();
+                AlertManager.disableAds(this, true);
 
             }
             if (!successUrl.isEmpty()) {
@@ -3030,10 +3133,7 @@ public class MainActivity extends AppCompatActivity
                                 adLayout.removeAllViews();
                                 adLayout.setVisibility(View.GONE);
 
-                                SharedPreferences settings = PreferenceManager.getDefaultSharedPreferences(MainActivity.this);
-                                SharedPreferences.Editor editor = settings.edit();
-                                editor.putString("disableAdMobDone", "removed");
-                                editor.commit();
+                                AlertManager.disableAds(MainActivity.this, true);
                             }
 
                             if (!successUrl.isEmpty()) {
@@ -3058,7 +3158,6 @@ public class MainActivity extends AppCompatActivity
     private Handler CategoryRecommNotificationHandler;
     private Handler ProductRecommNotificationHandler;
 
-    Timer timer = new Timer();
 
     private void handleNativeVideoUrl(String url) {
         Uri uri = Uri.parse(url.replace("startnativevideo://videostreamurl=", ""));
@@ -3133,40 +3232,19 @@ public class MainActivity extends AppCompatActivity
             Log.e(TAG, "URL-1: " + url);
 
             isErrorPageLoaded = false;
-            WebSettings webSettings = view.getSettings();
-
-            // Google login helper tool
-            if (Config.GOOGLE_LOGIN_HELPER_TRIGGERS.length != 0) {
-                for (int i = 0; i < Config.GOOGLE_LOGIN_HELPER_TRIGGERS.length; i++) {
-                    if (url.startsWith(Config.GOOGLE_LOGIN_HELPER_TRIGGERS[i])) {
-                        webSettings.setUserAgentString(USER_AGENT_GOOGLE);
-                        if (windowContainer.getVisibility() == View.VISIBLE) {
-                            mWebviewPop.loadUrl(url);
-                        } else {
-                            String prevUrl = view.getUrl();
-                            view.loadUrl(url);
-                            toggleHelperFrame(true, prevUrl, view);
-                        }
-                        return true;
-                    }
-                }
-            }
 
-            // Facebook login helper tool
-            if (Config.FACEBOOK_LOGIN_HELPER_TRIGGERS.length != 0) {
-                for (int i = 0; i < Config.FACEBOOK_LOGIN_HELPER_TRIGGERS.length; i++) {
-                    if (url.startsWith(Config.FACEBOOK_LOGIN_HELPER_TRIGGERS[i])) {
-                        webSettings.setUserAgentString(USER_AGENT_FB);
-                        if (windowContainer.getVisibility() == View.VISIBLE) {
-                            mWebviewPop.loadUrl(url);
-                        } else {
-                            String prevUrl = view.getUrl();
-                            view.loadUrl(url);
-                            toggleHelperFrame(true, prevUrl, view);
-                        }
-                        return true;
-                    }
+            // Google / Facebook login helper tool
+            String helperUserAgent = loginHelperRoutes.match(url);
+            if (helperUserAgent != null) {
+                view.getSettings().setUserAgentString(helperUserAgent);
+                if (windowContainer.getVisibility() == View.VISIBLE) {
+                    mWebviewPop.loadUrl(url);
+                } else {
+                    String prevUrl = view.getUrl();
+                    view.loadUrl(url);
+                    toggleHelperFrame(true, prevUrl, view);
                 }
+                return true;
             }
 
             toggleHelperFrame(false, null, null);
@@ -3195,451 +3273,945 @@ public class MainActivity extends AppCompatActivity
             // These URL prefixes for APIs are commonly sent straight to onReceivedError
             // if they are not caught here (giving the 'Connection Down?' screen).
 
-            if (url.contains("push.send.cancel")) {
-                verifyNotificationPermission(MainActivity.this);
-                if (Config.USER_AGENT.contains("VRGl")) {
-                    if (url.contains("cartreminderpush.send.cancel")) {
-                        stopCartReminderNotification();
+            UrlHandler command = appCommandRoutes.match(url);
+            if (command != null) {
+                return command.handle(view, url);
+            }
+
+            if (adTriggerRoutes.matches(url)) {
+                if (Config.SHOW_FULL_SCREEN_AD && !Config.USE_FACEBOOK_ADS) { //AdMob
+                    if (BuildConfig.IS_DEBUG_MODE) Log.d(TAG, "ShowAdMobBecauseOfLinkTrigger");
+                    if (mInterstitialAd != null) {
+                        mInterstitialAd.setFullScreenContentCallback(legacyAdMetricsCallback("legacy_interstitial"));
+                        mInterstitialAd.show(MainActivity.this);
+                        mInterstitialAd = null;
                     }
-                    if (url.contains("categoryrecommpush.cancel")) {
-                        stopCategoryRecommNotification();
+                    if (Config.USE_REWARDED_ADS_WHERE_POSSIBLE) {
+                        showRewardedAd();
+                    } else {
+                        loadAdmobInterstatial();
                     }
-                    if (url.contains("productrecommpush.cancel")) {
-                        stopProductRecommNotification();
+
+                }
+                if (Config.SHOW_FULL_SCREEN_AD && Config.USE_FACEBOOK_ADS) { //Facebook Ads
+                    if (BuildConfig.IS_DEBUG_MODE)
+                        Log.d(TAG, "ShowFacebookBecauseOfLinkTrigger");
+                    if (facebookInterstitialAd != null && facebookInterstitialAd.isAdLoaded()) {
+                        facebookInterstitialAd.show();
                     }
-                    return true;
-                } else {
-                    stopNotification();
-                    return true;
+                    facebookInterstitialAd.loadAd();
                 }
             }
-            if (url.startsWith("startnativevideo://")) {
-                handleNativeVideoUrl(url);
-                return true; // prevent WebView from loading this URL
-            }
-            if (url.contains("push.send")) {
-                verifyNotificationPermission(MainActivity.this);
-                if (Config.USER_AGENT.contains("VRGl")) {
-                    if (url.contains("cartreminderpush.send")) {
-                        sendCartReminderNotification(url);
-                    }
-                    if (url.contains("categoryrecommpush.send")) {
-                        sendCategoryRecommNotification(url);
-                    }
-                    if (url.contains("productrecommpush.send")) {
-                        sendProductRecommNotification(url);
-                    }
-                    return true;
-                } else {
-                    sendNotification(url);
+            if (!isRedirected) {
+                //Basic Overriding part here (1/2)
+                if (BuildConfig.IS_DEBUG_MODE) Log.d(TAG, "should override (1/2): " + url);
+
+                UrlHandler schemeHandler = externalSchemeRoutes.match(url);
+                if (schemeHandler != null) {
+                    return schemeHandler.handle(view, url);
+                }
+
+                // Check if the URL should always open in an in-app tab
+                if ((url != null) && shouldAlwaysOpenInInappTab(url)) {
+                    openInInappTab(url);
                     return true;
                 }
-            }
-            if (url.startsWith("getpushwooshid://")) {
-                if (Config.PUSHWOOSH_ENABLED) {
-                    String pushWooshHardwareId = Pushwoosh.getInstance().getHwid();
-                    webView.loadUrl("javascript: var pushwooshplayerid = '" + pushWooshHardwareId + "';");
+
+                if (SPECIAL_LINK_HANDLING_OPTIONS != 0) {
+                    WebView.HitTestResult result = view.getHitTestResult();
+                    String data = result.getExtra();
+                    if (BuildConfig.IS_DEBUG_MODE) Log.d(TAG, " data :" + data);
+
+                    if ((data != null && data.endsWith("#")) || url.startsWith("newtab:")) {
+
+                        String finalUrl = url;
+                        if (url.startsWith("newtab:")) {
+                            finalUrl = url.substring(7);
+                        }
+
+                        // Open special link in an in-app tab
+                        if ((SPECIAL_LINK_HANDLING_OPTIONS == 1) || shouldAlwaysOpenInInappTab(finalUrl)) {
+                            openInInappTab(finalUrl);
+                            return true;
+
+                            // Open special link in Chrome
+                        } else if (SPECIAL_LINK_HANDLING_OPTIONS == 2) {
+                            view.getContext().startActivity(
+                                    new Intent(Intent.ACTION_VIEW, Uri.parse(finalUrl)));
+                            return true;
+                        }
+                        return false;
+                    }
                 }
-                return true;
+
+                return super.shouldOverrideUrlLoading(view, url);
             }
-            if (url.startsWith("getclipboard://")) {
-                ClipboardManager clipboard = (ClipboardManager) getSystemService(Context.CLIPBOARD_SERVICE);
-                if (clipboard != null && clipboard.hasPrimaryClip() && clipboard.getPrimaryClip().getItemCount() > 0) {
-                    ClipData.Item item = clipboard.getPrimaryClip().getItemAt(0);
-                    String clipboardText = item.getText().toString();
+            return false;
+        }
 
-                    // Inject clipboard data into WebView JavaScript
-                    webView.evaluateJavascript("window.clipboarddata = '" + escapeJS(clipboardText) + "';", null);
-                } else {
-                    Toast.makeText(mContext, "Clipboard is empty", Toast.LENGTH_SHORT).show();
+    }
+
+    // ─── URL Routing ───
+
+    /**
+     * Handles a routed URL; the return value is passed straight back from
+     * shouldOverrideUrlLoading.
+     */
+    private interface UrlHandler {
+        boolean handle(WebView view, String url);
+    }
+
+    // Compiled once per activity instead of re-scanning the Config arrays on every navigation
+    private final UrlRouter<String> loginHelperRoutes = new UrlRouter<String>()
+            .prefixes(Config.GOOGLE_LOGIN_HELPER_TRIGGERS, USER_AGENT_GOOGLE)
+            .prefixes(Config.FACEBOOK_LOGIN_HELPER_TRIGGERS, USER_AGENT_FB);
+    private final UrlRouter<Boolean> adTriggerRoutes = new UrlRouter<Boolean>()
+            .contains(Config.AD_TRIGGER_URLS, Boolean.TRUE);
+    private final UrlRouter<Boolean> inAppTabRoutes = new UrlRouter<Boolean>()
+            .prefixes(Config.ALWAYS_OPEN_IN_INAPP_TAB, Boolean.TRUE);
+    private final UrlRouter<Boolean> browserWhitelistRoutes = new UrlRouter<Boolean>()
+            .contains(Arrays.asList(BROWSER_WHITELIST), Boolean.TRUE);
+    private final UrlRouter.HostIndex browserBlacklistHosts = new UrlRouter.HostIndex(BROWSER_BLACKLIST);
+    private final UrlRouter.HostIndex neverInAppTabHosts = new UrlRouter.HostIndex(NEVER_OPEN_IN_INAPP_TAB);
+    private final UrlRouter<UrlHandler> appCommandRoutes = buildAppCommandRoutes();
+    private final UrlRouter<UrlHandler> externalSchemeRoutes = buildExternalSchemeRoutes();
+    private final UrlRouter<UrlHandler> externalCommandRoutes = buildExternalCommandRoutes();
+
+    /**
+     * App API commands checked first for every navigation (AdvanceWebViewClient).
+     */
+    private UrlRouter<UrlHandler> buildAppCommandRoutes() {
+        UrlRouter<UrlHandler> routes = new UrlRouter<>(UrlRoutes.APP_COMMANDS);
+        routes.on("push.send.cancel", (view, url) -> {
+            verifyNotificationPermission(MainActivity.this);
+            if (Config.USER_AGENT.contains("VRGl")) {
+                if (url.contains("cartreminderpush.send.cancel")) {
+                    stopCartReminderNotification();
                 }
-                return true;
-            }
-            if (url.startsWith("getonesignalplayerid://")) {
-                if (Config.PUSH_ENABLED) {
-                    String OneSignaluserID = OneSignal.getUser().getPushSubscription().getId();
-                    webView.loadUrl("javascript: var onesignalplayerid = '" + OneSignaluserID + "';");
+                if (url.contains("categoryrecommpush.cancel")) {
+                    stopCategoryRecommNotification();
                 }
-                return true;
-            }
-            if (url.startsWith("getfirebaseplayerid://")) {
-                if (Config.FIREBASE_PUSH_ENABLED) {
-                    String firebaseUserId = AlertManager.getFirebaseToken(MainActivity.this, "");
-                    webView.loadUrl("javascript: var firebaseplayerid = '" + firebaseUserId + "';");
+                if (url.contains("productrecommpush.cancel")) {
+                    stopProductRecommNotification();
                 }
                 return true;
-            }
-            if (url.startsWith("getappversion://")) {
-                webView.loadUrl("javascript: var versionNumber = '" + BuildConfig.VERSION_NAME + "';" +
-                        "var bundleNumber  = '" + BuildConfig.VERSION_CODE + "';");
-                return true;
-            }
-            if (url.startsWith("get-uuid://")) {
-                webView.loadUrl("javascript: var uuid = '" + uuid + "';");
+            } else {
+                stopNotification();
                 return true;
             }
-            if (url.startsWith("cancelinapppurchase://")) {
-                Intent intent = new Intent(Intent.ACTION_VIEW, Uri.parse("http://support.google.com/googleplay?p=cancelsubsawf")); //forward to Google interface for managing subscriptions
-                view.getContext().startActivity(intent);
+        });
+        routes.on("startnativevideo://", (view, url) -> {
+            handleNativeVideoUrl(url);
+            return true; // prevent WebView from loading this URL
+        });
+        routes.on("push.send", (view, url) -> {
+            verifyNotificationPermission(MainActivity.this);
+            if (Config.USER_AGENT.contains("VRGl")) {
+                if (url.contains("cartreminderpush.send")) {
+                    sendCartReminderNotification(url);
+                }
+                if (url.contains("categoryrecommpush.send")) {
+                    sendCategoryRecommNotification(url);
+                }
+                if (url.contains("productrecommpush.send")) {
+                    sendProductRecommNotification(url);
+                }
                 return true;
-            }
-            if (url.startsWith("enablepulltorefresh://")) {
-                mySwipeRefreshLayout.setEnabled(true);
+            } else {
+                sendNotification(url);
                 return true;
             }
-            if (url.startsWith("disablepulltorefresh://")) {
-                mySwipeRefreshLayout.setEnabled(false);
-                return true;
+        });
+        routes.on("getpushwooshid://", (view, url) -> {
+            if (Config.PUSHWOOSH_ENABLED) {
+                AppStartup.require(AppStartup.PUSHWOOSH);
+                String pushWooshHardwareId = Pushwoosh.getInstance().getHwid();
+                webView.loadUrl("javascript: var pushwooshplayerid = '" + pushWooshHardwareId + "';");
             }
-            if (url.startsWith("hidebars://")) {
-                // get mode (either on/off)
-                String input = url.substring(url.indexOf('/') + 2);
-                View decorView = getWindow().getDecorView();
-
-                if (input.equals("on")) {
-                    // Hide the status bar.
-                    int uiOptions = View.SYSTEM_UI_FLAG_FULLSCREEN | View.SYSTEM_UI_FLAG_HIDE_NAVIGATION;
-                    decorView.setSystemUiVisibility(uiOptions);
-
-                    // Expand the WebView to fill the entire screen
-                    webView.setSystemUiVisibility(View.SYSTEM_UI_FLAG_LAYOUT_FULLSCREEN | View.SYSTEM_UI_FLAG_LAYOUT_HIDE_NAVIGATION);
-
-                } else if (input.equals("off")) {
-                    int uiOptions = View.SYSTEM_UI_FLAG_VISIBLE;
-                    decorView.setSystemUiVisibility(uiOptions);
-                    // Reset WebView's layout
-                    webView.setSystemUiVisibility(View.SYSTEM_UI_FLAG_VISIBLE);
-                }
-                return true;
+            return true;
+        });
+        routes.on("getclipboard://", (view, url) -> {
+            ClipboardManager clipboard = (ClipboardManager) getSystemService(Context.CLIPBOARD_SERVICE);
+            if (clipboard != null && clipboard.hasPrimaryClip() && clipboard.getPrimaryClip().getItemCount() > 0) {
+                ClipData.Item item = clipboard.getPrimaryClip().getItemAt(0);
+                String clipboardText = item.getText().toString();
+
+                // Inject clipboard data into WebView JavaScript
+                webView.evaluateJavascript("window.clipboarddata = '" + escapeJS(clipboardText) + "';", null);
+            } else {
+                Toast.makeText(mContext, "Clipboard is empty", Toast.LENGTH_SHORT).show();
             }
-
-            if (url.startsWith("successhaptic://")) {
-                performHapticFeedback(HapticChoice.SUCCESS);
-                return true;
+            return true;
+        });
+        routes.on("getonesignalplayerid://", (view, url) -> {
+            if (Config.PUSH_ENABLED) {
+                String OneSignaluserID = OneSignal.getUser().getPushSubscription().getId();
+                webView.loadUrl("javascript: var onesignalplayerid = '" + OneSignaluserID + "';");
             }
-
-            if (url.startsWith("errorhaptic://")) {
-                performHapticFeedback(HapticChoice.ERROR);
-                return true;
+            return true;
+        });
+        routes.on("getfirebaseplayerid://", (view, url) -> {
+            if (Config.FIREBASE_PUSH_ENABLED) {
+                String firebaseUserId = AlertManager.getFirebaseToken(MainActivity.this, "");
+                webView.loadUrl("javascript: var firebaseplayerid = '" + firebaseUserId + "';");
             }
+            return true;
+        });
+        routes.on("getappversion://", (view, url) -> {
+            webView.loadUrl("javascript: var versionNumber = '" + BuildConfig.VERSION_NAME + "';" +
+                    "var bundleNumber  = '" + BuildConfig.VERSION_CODE + "';");
+            return true;
+        });
+        routes.on("get-uuid://", (view, url) -> {
+            webView.loadUrl("javascript: var uuid = '" + uuid + "';");
+            return true;
+        });
+        routes.on("cancelinapppurchase://", (view, url) -> {
+            Intent intent = new Intent(Intent.ACTION_VIEW, Uri.parse("http://support.google.com/googleplay?p=cancelsubsawf")); //forward to Google interface for managing subscriptions
+            view.getContext().startActivity(intent);
+            return true;
+        });
+        routes.on("enablepulltorefresh://", (view, url) -> {
+            mySwipeRefreshLayout.setEnabled(true);
+            return true;
+        });
+        routes.on("disablepulltorefresh://", (view, url) -> {
+            mySwipeRefreshLayout.setEnabled(false);
+            return true;
+        });
+        routes.on("hidebars://", (view, url) -> {
+            // get mode (either on/off)
+            String input = url.substring(url.indexOf('/') + 2);
+            View decorView = getWindow().getDecorView();
 
-            if (url.startsWith("lighthaptic://")) {
-                performHapticFeedback(HapticChoice.LIGHT);
-                return true;
-            }
+            if (input.equals("on")) {
+                // Hide the status bar.
+                int uiOptions = View.SYSTEM_UI_FLAG_FULLSCREEN | View.SYSTEM_UI_FLAG_HIDE_NAVIGATION;
+                decorView.setSystemUiVisibility(uiOptions);
 
-            if (url.startsWith("heavyhaptic://")) {
-                performHapticFeedback(HapticChoice.HEAVY);
-                return true;
-            }
+                // Expand the WebView to fill the entire screen
+                webView.setSystemUiVisibility(View.SYSTEM_UI_FLAG_LAYOUT_FULLSCREEN | View.SYSTEM_UI_FLAG_LAYOUT_HIDE_NAVIGATION);
 
-            if (url.startsWith("displayrewardedad://")) {
-                if (Config.ENABLE_REWARDED_ADS) {
-                    Log.d("TAG", "attempting to load rewarded ad");
-                    showRewardedAd();
-                }
-                return true;
+            } else if (input.equals("off")) {
+                int uiOptions = View.SYSTEM_UI_FLAG_VISIBLE;
+                decorView.setSystemUiVisibility(uiOptions);
+                // Reset WebView's layout
+                webView.setSystemUiVisibility(View.SYSTEM_UI_FLAG_VISIBLE);
             }
-
-            if (url.startsWith("requestcontactpermission://")) {
-                if (ContextCompat.checkSelfPermission(view.getContext(), Manifest.permission.READ_CONTACTS) == PackageManager.PERMISSION_GRANTED) {
-                    // Permission granted
-                    Log.d("CONTACTS", "Permission for contacts already accepted");
-                } else if (ActivityCompat.shouldShowRequestPermissionRationale((Activity) view.getContext(), Manifest.permission.READ_CONTACTS)) {
-                    // Permission denied previously - inform the user
-                    Log.d("CONTACTS", "Permission for contacts denied. Prompt user to enable it in settings.");
-                } else {
-                    // Request permission
-                    ActivityCompat.requestPermissions((Activity) view.getContext(), new String[]{Manifest.permission.READ_CONTACTS}, 1);
-                    Log.d("CONTACTS", "Permission for contacts now accepted.");
-                }
-                return true;
+            return true;
+        });
+        routes.on("successhaptic://", (view, url) -> {
+            performHapticFeedback(HapticChoice.SUCCESS);
+            return true;
+        });
+        routes.on("errorhaptic://", (view, url) -> {
+            performHapticFeedback(HapticChoice.ERROR);
+            return true;
+        });
+        routes.on("lighthaptic://", (view, url) -> {
+            performHapticFeedback(HapticChoice.LIGHT);
+            return true;
+        });
+        routes.on("heavyhaptic://", (view, url) -> {
+            performHapticFeedback(HapticChoice.HEAVY);
+            return true;
+        });
+        routes.on("displayrewardedad://", (view, url) -> {
+            if (Config.ENABLE_REWARDED_ADS) {
+                Log.d("TAG", "attempting to load rewarded ad");
+                showRewardedAd();
             }
+            return true;
+        });
+        routes.on("requestcontactpermission://", (view, url) -> {
+            if (ContextCompat.checkSelfPermission(view.getContext(), Manifest.permission.READ_CONTACTS) == PackageManager.PERMISSION_GRANTED) {
+                // Permission granted
+                Log.d("CONTACTS", "Permission for contacts already accepted");
+            } else if (ActivityCompat.shouldShowRequestPermissionRationale((Activity) view.getContext(), Manifest.permission.READ_CONTACTS)) {
+                // Permission denied previously - inform the user
+                Log.d("CONTACTS", "Permission for contacts denied. Prompt user to enable it in settings.");
+            } else {
+                // Request permission
+                ActivityCompat.requestPermissions((Activity) view.getContext(), new String[]{Manifest.permission.READ_CONTACTS}, 1);
+                Log.d("CONTACTS", "Permission for contacts now accepted.");
+            }
+            return true;
+        });
+        routes.on("readcontacts://", (view, url) -> {
+            String jsResponse = "var contacts = null;";
 
-            if (url.startsWith("readcontacts://")) {
-                String jsResponse = "var contacts = null;";
-
-                if (ContextCompat.checkSelfPermission(view.getContext(), Manifest.permission.READ_CONTACTS) == PackageManager.PERMISSION_GRANTED) {
-                    new Thread(() -> {
-                        try {
-                            // we want name: phone number1, phone number2 .. etc
-                            Uri uri = ContactsContract.CommonDataKinds.Phone.CONTENT_URI;
-                            String[] projection = {
-                                    ContactsContract.CommonDataKinds.Phone.DISPLAY_NAME,
-                                    ContactsContract.CommonDataKinds.Phone.NUMBER
-                            };
+            if (ContextCompat.checkSelfPermission(view.getContext(), Manifest.permission.READ_CONTACTS) == PackageManager.PERMISSION_GRANTED) {
+                AppExecutors.io().execute(() -> {
+                    try {
+                        // we want name: phone number1, phone number2 .. etc
+                        Uri uri = ContactsContract.CommonDataKinds.Phone.CONTENT_URI;
+                        String[] projection = {
+                                ContactsContract.CommonDataKinds.Phone.DISPLAY_NAME,
+                                ContactsContract.CommonDataKinds.Phone.NUMBER
+                        };
 
-                            Cursor cursor = getContentResolver().query(uri, projection, null, null, null);
+                        Cursor cursor = getContentResolver().query(uri, projection, null, null, null);
 
-                            String localJsResponse = "var contacts = null;";
-                            if (cursor != null) {
-                                Map<String, Set<String>> contactsMap = new HashMap<>();
+                        String localJsResponse = "var contacts = null;";
+                        if (cursor != null) {
+                            Map<String, Set<String>> contactsMap = new HashMap<>();
 
-                                while (cursor.moveToNext()) {
-                                    String name = cursor.getString(cursor.getColumnIndexOrThrow(ContactsContract.CommonDataKinds.Phone.DISPLAY_NAME));
-                                    String number = cursor.getString(cursor.getColumnIndexOrThrow(ContactsContract.CommonDataKinds.Phone.NUMBER));
+                            while (cursor.moveToNext()) {
+                                String name = cursor.getString(cursor.getColumnIndexOrThrow(ContactsContract.CommonDataKinds.Phone.DISPLAY_NAME));
+                                String number = cursor.getString(cursor.getColumnIndexOrThrow(ContactsContract.CommonDataKinds.Phone.NUMBER));
 
-                                    // remove spaces from numbers
-                                    number = number.replaceAll("\\s+", "");
+                                // remove spaces from numbers
+                                number = number.replaceAll("\\s+", "");
 
-                                    // add the normalized number to the set for the corresponding contact
-                                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
-                                        contactsMap.computeIfAbsent(name, k -> new HashSet<>()).add(number);
-                                    } else {
-                                        Set<String> numbers = contactsMap.get(name);
-                                        if (numbers == null) {
-                                            numbers = new HashSet<>();
-                                            contactsMap.put(name, numbers);
-                                        }
-                                        numbers.add(number);
-                                    }
-                                }
-                                cursor.close();
-
-                                // build the JavaScript JSON object
-                                StringBuilder dictBuilder = new StringBuilder("var contacts = {");
-                                for (Map.Entry<String, Set<String>> entry : contactsMap.entrySet()) {
-                                    dictBuilder.append("\"").append(entry.getKey()).append("\": [");
-                                    for (String phone : entry.getValue()) {
-                                        dictBuilder.append("\"").append(phone).append("\",");
+                                // add the normalized number to the set for the corresponding contact
+                                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+                                    contactsMap.computeIfAbsent(name, k -> new HashSet<>()).add(number);
+                                } else {
+                                    Set<String> numbers = contactsMap.get(name);
+                                    if (numbers == null) {
+                                        numbers = new HashSet<>();
+                                        contactsMap.put(name, numbers);
                                     }
-                                    dictBuilder.setLength(dictBuilder.length() - 1); // Remove trailing comma
-                                    dictBuilder.append("],");
+                                    numbers.add(number);
                                 }
-                                if (!contactsMap.isEmpty()) {
-                                    dictBuilder.setLength(dictBuilder.length() - 1); // Remove trailing comma
+                            }
+                            cursor.close();
+
+                            // build the JavaScript JSON object
+                            StringBuilder dictBuilder = new StringBuilder("var contacts = {");
+                            for (Map.Entry<String, Set<String>> entry : contactsMap.entrySet()) {
+                                dictBuilder.append("\"").append(entry.getKey()).append("\": [");
+                                for (String phone : entry.getValue()) {
+                                    dictBuilder.append("\"").append(phone).append("\",");
                                 }
-                                dictBuilder.append("};");
-
-                                localJsResponse = dictBuilder.toString();
-                            } else {
-                                System.out.println("Failed to fetch contacts: Cursor is null");
+                                dictBuilder.setLength(dictBuilder.length() - 1); // Remove trailing comma
+                                dictBuilder.append("],");
+                            }
+                            if (!contactsMap.isEmpty()) {
+                                dictBuilder.setLength(dictBuilder.length() - 1); // Remove trailing comma
                             }
+                            dictBuilder.append("};");
 
-                            final String finalJsResponse = localJsResponse;
-                            runOnUiThread(() -> webView.loadUrl("javascript: " + finalJsResponse));
-                        } catch (Exception e) {
-                            System.out.println("Failed to fetch contacts: " + e.getMessage());
+                            localJsResponse = dictBuilder.toString();
+                        } else {
+                            System.out.println("Failed to fetch contacts: Cursor is null");
                         }
-                    }).start();
-                } else {
-                    webView.loadUrl("javascript: " + jsResponse);
-                }
 
-                return true;
+                        final String finalJsResponse = localJsResponse;
+                        runOnUiThread(() -> webView.loadUrl("javascript: " + finalJsResponse));
+                    } catch (Exception e) {
+                        System.out.println("Failed to fetch contacts: " + e.getMessage());
+                    }
+                });
+            } else {
+                webView.loadUrl("javascript: " + jsResponse);
             }
 
+            return true;
+        });
+        return routes;
+    }
 
-            for (String triggerUrl : Config.AD_TRIGGER_URLS) {
-                if (url.contains(triggerUrl)) {
-                    if (Config.SHOW_FULL_SCREEN_AD && !Config.USE_FACEBOOK_ADS) { //AdMob
-                        if (BuildConfig.IS_DEBUG_MODE) Log.d(TAG, "ShowAdMobBecauseOfLinkTrigger");
-                        mInterstitialAd.show(MainActivity.this);
-                        if (Config.USE_REWARDED_ADS_WHERE_POSSIBLE) {
-                            showRewardedAd();
-                        } else {
-                            loadAdmobInterstatial();
-                        }
-
-                    }
-                    if (Config.SHOW_FULL_SCREEN_AD && Config.USE_FACEBOOK_ADS) { //Facebook Ads
-                        if (BuildConfig.IS_DEBUG_MODE)
-                            Log.d(TAG, "ShowFacebookBecauseOfLinkTrigger");
-                        if (facebookInterstitialAd != null && facebookInterstitialAd.isAdLoaded()) {
-                            facebookInterstitialAd.show();
-                        }
-                        facebookInterstitialAd.loadAd();
-                    }
-                }
+    /**
+     * Non-http schemes and map/store links handed to other apps (AdvanceWebViewClient, not on redirects).
+     */
+    private UrlRouter<UrlHandler> buildExternalSchemeRoutes() {
+        UrlRouter<UrlHandler> routes = new UrlRouter<>(UrlRoutes.EXTERNAL_SCHEMES);
+        UrlHandler openExternally = (view, url) -> {
+            Intent i = new Intent(Intent.ACTION_VIEW, Uri.parse(url));
+            startActivity(i);
+            return true;
+        };
+        routes.on("wc:", (view, url) -> {
+            Intent intent = new Intent(Intent.ACTION_VIEW, Uri.parse(url));
+            try {
+                startActivity(intent);
+            } catch (ActivityNotFoundException e) {
+                if (BuildConfig.IS_DEBUG_MODE)
+                    Log.d(TAG, "WalletConnect app not found on device; 'wc:' scheme failed");
             }
-            if (!isRedirected) {
-                //Basic Overriding part here (1/2)
-                if (BuildConfig.IS_DEBUG_MODE) Log.d(TAG, "should override (1/2): " + url);
+            return true;
+        });
+        routes.on("mailto:", (view, url) -> {
+            startActivity(new Intent(Intent.ACTION_SENDTO, Uri.parse(url)));
+            return true;
+        });
+        routes.on("share:", openExternally);
+        routes.on("api.whatsapp.com", openExternally);
+        routes.on("whatsapp:", (view, url) -> {
+            Intent i = new Intent();
+            i.setPackage("com.whatsapp");
+            i.setAction(Intent.ACTION_SEND);
+            i.setType("text/plain");
+            startActivity(i);
+            return true;
+        });
+        routes.on("geo:", openExternally);
+        routes.on("maps:", openExternally);
+        routes.on("market:", openExternally);
+        routes.on("maps.app.goo.gl", openExternally);
+        routes.on("maps.google.com", openExternally);
+        routes.on("intent:", (view, url) -> {
+            handleIntentUrl(url);
+            return true;
+        });
+        routes.on("tel:", openExternally);
+        routes.on("sms:", openExternally);
+        routes.on("play.google.com", openExternally);
+        routes.on("blob:", (view, url) -> {
+            //Prevent crash
+            return true;
+        });
+        routes.on("data:", (view, url) -> {
+            if (Config.requireStorage) {
 
-                if (url.startsWith("wc:")) {
-                    Intent intent = new Intent(Intent.ACTION_VIEW, Uri.parse(url));
-                    try {
-                        startActivity(intent);
-                    } catch (ActivityNotFoundException e) {
-                        if (BuildConfig.IS_DEBUG_MODE)
-                            Log.d(TAG, "WalletConnect app not found on device; 'wc:' scheme failed");
-                    }
-                    return true;
-                }
-                if (url.startsWith("mailto:")) {
-                    startActivity(new Intent(Intent.ACTION_SENDTO, Uri.parse(url)));
-                    return true;
-                }
-                if (url.startsWith("share:") || url.contains("api.whatsapp.com")) {
-                    Intent i = new Intent(Intent.ACTION_VIEW, Uri.parse(url));
-                    startActivity(i);
-                    return true;
-                }
-                if (url.startsWith("whatsapp:")) {
-                    Intent i = new Intent();
-                    i.setPackage("com.whatsapp");
-                    i.setAction(Intent.ACTION_SEND);
-                    i.setType("text/plain");
-                    startActivity(i);
-                    return true;
+                // File Extension
+                String extension = "ext";
+
+                if (url.contains("pdf")) { //PDF
+                    extension = "pdf";
                 }
-                if (url.startsWith("geo:") || url.contains("maps:")) {
-                    Intent i = new Intent(Intent.ACTION_VIEW, Uri.parse(url));
-                    startActivity(i);
-                    return true;
+                if (url.contains("spreadsheetml")) { //Excel
+                    extension = "xlsx";
                 }
-                if (url.startsWith("market:")) {
-                    Intent i = new Intent(Intent.ACTION_VIEW, Uri.parse(url));
-                    startActivity(i);
-                    return true;
+                if (url.contains("presentationml")) { //PowerPoint
+                    extension = "pptx";
                 }
-                if (url.startsWith("maps.app.goo.gl")) {
-                    Intent i = new Intent(Intent.ACTION_VIEW, Uri.parse(url));
-                    startActivity(i);
-                    return true;
-                }
-                if (url.contains("maps.google.com")) {
-                    Intent i = new Intent(Intent.ACTION_VIEW, Uri.parse(url));
-                    startActivity(i);
-                    return true;
+                if (url.contains("wordprocessingml")) { //Word
+                    extension = "docx";
                 }
-                if (url.startsWith("intent:")) {
-                    handleIntentUrl(url);
-                    return true;
+                if (url.contains("jpeg")) { //JPEG
+                    extension = "jpeg";
                 }
-                if (url.startsWith("tel:")) {
-                    Intent i = new Intent(Intent.ACTION_VIEW, Uri.parse(url));
-                    startActivity(i);
-                    return true;
+                if (url.contains("png")) { //PNG
+                    extension = "png";
                 }
-                if (url.startsWith("sms:")) {
-                    Intent i = new Intent(Intent.ACTION_VIEW, Uri.parse(url));
-                    startActivity(i);
-                    return true;
+                if (url.contains("mp3")) { //MP3
+                    extension = "mp3";
                 }
-                if (url.startsWith("play.google.com")) {
-                    Intent i = new Intent(Intent.ACTION_VIEW, Uri.parse(url));
-                    startActivity(i);
-                    return true;
+                if (url.contains("mp4")) { //MP4
+                    extension = "mp4";
                 }
-                if (url.startsWith("blob:")) {
-                    //Prevent crash
-                    return true;
+                if (url.contains("m4a")) { //M4A
+                    extension = "m4a";
                 }
-                if (url.startsWith("data:")) {
-                    if (Config.requireStorage) {
 
-                        // File Extension
-                        String extension = "ext";
+                // Extracting the base64-encoded content from the URL
+                int contentStartIndex = url.indexOf(",") + 1;
+                String encodedContent = url.substring(contentStartIndex);
 
-                        if (url.contains("pdf")) { //PDF
-                            extension = "pdf";
-                        }
-                        if (url.contains("spreadsheetml")) { //Excel
-                            extension = "xlsx";
-                        }
-                        if (url.contains("presentationml")) { //PowerPoint
-                            extension = "pptx";
-                        }
-                        if (url.contains("wordprocessingml")) { //Word
-                            extension = "docx";
-                        }
-                        if (url.contains("jpeg")) { //JPEG
-                            extension = "jpeg";
-                        }
-                        if (url.contains("png")) { //PNG
-                            extension = "png";
-                        }
-                        if (url.contains("mp3")) { //MP3
-                            extension = "mp3";
-                        }
-                        if (url.contains("mp4")) { //MP4
-                            extension = "mp4";
-                        }
-                        if (url.contains("m4a")) { //M4A
-                            extension = "m4a";
-                        }
-
-                        // Extracting the base64-encoded content from the URL
-                        int contentStartIndex = url.indexOf(",") + 1;
-                        String encodedContent = url.substring(contentStartIndex);
+                // Decoding the base64-encoded content
+                byte[] decodedBytes = Base64.decode(encodedContent, Base64.DEFAULT);
 
-                        // Decoding the base64-encoded content
-                        byte[] decodedBytes = Base64.decode(encodedContent, Base64.DEFAULT);
+                // Generating the file name with download time and date
+                SimpleDateFormat dateFormat = new SimpleDateFormat("dd-MM-yyyy_HHmmss", Locale.getDefault());
+                String timeStamp = dateFormat.format(new Date());
+                String fileName = "download-" + timeStamp + "." + extension;
 
-                        // Generating the file name with download time and date
-                        SimpleDateFormat dateFormat = new SimpleDateFormat("dd-MM-yyyy_HHmmss", Locale.getDefault());
-                        String timeStamp = dateFormat.format(new Date());
-                        String fileName = "download-" + timeStamp + "." + extension;
+                // Saving the decoded content to a file
+                // Saving the decoded content to a file in the Downloads folder
+                File downloadsDirectory = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS);
+                File file = new File(downloadsDirectory, fileName);
 
-                        // Saving the decoded content to a file
-                        // Saving the decoded content to a file in the Downloads folder
-                        File downloadsDirectory = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS);
-                        File file = new File(downloadsDirectory, fileName);
-
-                        try {
-                            FileOutputStream fos = new FileOutputStream(file);
-                            fos.write(decodedBytes);
-                            fos.close();
-                        } catch (IOException e) {
-                            e.printStackTrace();
-                        }
+                AppExecutors.io().execute(() -> {
+                    try {
+                        FileOutputStream fos = new FileOutputStream(file);
+                        fos.write(decodedBytes);
+                        fos.close();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
 
-                        //Toast.makeText(context, "Downloaded to Downloads folder.", Toast.LENGTH_SHORT).show();
+                    //Toast.makeText(context, "Downloaded to Downloads folder.", Toast.LENGTH_SHORT).show();
+                    runOnUiThread(() -> {
                         try {
                             openDownloadedFile(file);
                         } catch (Exception e) {
                             e.printStackTrace();
                             Toast.makeText(context, "Downloaded to Downloads folder.", Toast.LENGTH_SHORT).show();
                         }
+                    });
+                });
 
 
-                        return true;
-                    } else {
-                        Toast.makeText(context, "No Storage Permission", Toast.LENGTH_SHORT).show();
+                return true;
+            } else {
+                Toast.makeText(context, "No Storage Permission", Toast.LENGTH_SHORT).show();
 
-                        return true;
-                    }
-                }
+                return true;
+            }
+        });
+        return routes;
+    }
 
-                // Check if the URL should always open in an in-app tab
-                if ((url != null) && shouldAlwaysOpenInInappTab(url)) {
-                    openInInappTab(url);
-                    return true;
+    /**
+     * Commands for URLs outside Config.HOST while online (MyWebViewClient).
+     */
+    private UrlRouter<UrlHandler> buildExternalCommandRoutes() {
+        UrlRouter<UrlHandler> routes = new UrlRouter<>(UrlRoutes.EXTERNAL_COMMANDS);
+        routes.on("getpurchasehistory://", (view, url) -> {
+            retrievePurchaseHistory();
+            return true;
+        });
+        UrlHandler inAppPurchase = (view, url) -> {
+            if (extendediap) {
+                if (BuildConfig.IS_DEBUG_MODE)
+                    Log.d(TAG, "play " + checkPlayServices());
+                if (BuildConfig.IS_DEBUG_MODE) Log.d(TAG, "InApp URL: " + url);
+                if (checkPlayServices() && billingClient.isReady()) {
+                    disableAdMob = url.contains("disableadmob");
+                    isConsumable = url.contains("consumable=true") || url.contains("package=consumable.");
+                    handleAppPurchases(url);
+                } else {
+                    if (BuildConfig.IS_DEBUG_MODE) Log.d(TAG, " toast ");
+                    String iaptext1 = "U2VlIGh0dHBzOi8vdGlueXVybC5jb20vaWFwLWZpeCB8IEluLUFwcCBQdXJjaGFzZSBmYWlsZWQu";
+                    byte[] iapdata1 = Base64.decode(iaptext1, Base64.DEFAULT);
+                    String iapdata1final = new String(iapdata1, StandardCharsets.UTF_8);
+                    Toast.makeText(MainActivity.this, iapdata1final, Toast.LENGTH_SHORT).show();
+                }
+                return true;
+            } else {
+                String iaptext2 = "U2VlIGh0dHBzOi8vdGlueXVybC5jb20vaWFwLWZpeCB8IEluLUFwcCBQdXJjaGFzZSBmYWlsZWQu";
+                byte[] iapdata2 = Base64.decode(iaptext2, Base64.DEFAULT);
+                String iapdata2final = new String(iapdata2, StandardCharsets.UTF_8);
+                Toast.makeText(MainActivity.this, iapdata2final, Toast.LENGTH_LONG).show();
+                return true;
+            }
+        };
+        routes.on("inapppurchase://", inAppPurchase);
+        routes.on("inappsubscription://", inAppPurchase);
+        routes.on("restoreinapppurchases://", (view, url) -> {
+            restorePurchases();
+            return true;
+        });
+        routes.on("disableads://", (view, url) -> {
+            AlertManager.disableAds(getApplicationContext(), true);
+            disableAdMob = true;
+            hideOrRemoveAdViewsFromScreen();
+            return true;
+        });
+        routes.on("enableads://", (view, url) -> {
+            AlertManager.disableAds(getApplicationContext(), false);
+            disableAdMob = false;
+            HIDE_ADS_FOR_PURCHASE = false;
+            loadAndShowAds();
+            return true;
+        });
+        routes.on("enableflashlight://", (view, url) -> {
+            if (flashLightManager == null) return false;
+            // if (!flashLightManager.hasFlashLight()) return false;
+            flashLightManager.turnOn();
+            return true;
+        });
+        routes.on("disableflashlight://", (view, url) -> {
+            if (flashLightManager == null) return false;
+            // if (!flashLightManager.hasFlashLight()) return false;
+            flashLightManager.turnOff();
+            return true;
+        });
+        routes.on("qrcode://", (view, url) -> {
+            if (BuildConfig.IS_DEBUG_MODE) Log.d(TAG, url);
+            if (Config.requireCamera) {
+                // Check if the CAMERA permission is granted
+                if (ContextCompat.checkSelfPermission(MainActivity.this, Manifest.permission.CAMERA) != PackageManager.PERMISSION_GRANTED) {
+                    // Permission is not granted, request for permission
+                    ActivityCompat.requestPermissions(MainActivity.this, new String[]{Manifest.permission.CAMERA}, 1402);
+                } else {
+                    // Permission has already been granted, start the activity
+                    Intent i = new Intent(MainActivity.this, QrCodeActivity.class);
+                    startActivityForResult(i, REQUEST_CODE_QR_SCAN);
                 }
+            }
+            return true;
+        });
+        routes.on("barcodescanner://", (view, url) -> {
+            if (BuildConfig.IS_DEBUG_MODE) Log.d(TAG, "requested barcode scanning");
 
-                if (SPECIAL_LINK_HANDLING_OPTIONS != 0) {
-                    WebView.HitTestResult result = view.getHitTestResult();
-                    String data = result.getExtra();
-                    if (BuildConfig.IS_DEBUG_MODE) Log.d(TAG, " data :" + data);
+            GmsBarcodeScanner scanner = GmsBarcodeScanning.getClient(MainActivity.this);
 
-                    if ((data != null && data.endsWith("#")) || url.startsWith("newtab:")) {
+            scanner
+                    .startScan()
+                    .addOnSuccessListener(
+                            barcode -> {
+                                // Task completed successfully
+                                if (BuildConfig.IS_DEBUG_MODE)
+                                    Log.d(TAG, "successful barcode scanning");
+                                if (BuildConfig.IS_DEBUG_MODE)
+                                    Log.d(TAG, barcode.getRawValue().toString());
+
+                                webView.loadUrl("javascript: var barcodescanresult = '" + barcode.getRawValue() + "';");
+                            })
+                    .addOnCanceledListener(
+                            () -> {
+                                // Task canceled
+                            })
+                    .addOnFailureListener(
+                            e -> {
+                                // Task failed with an exception
+                            });
 
-                        String finalUrl = url;
-                        if (url.startsWith("newtab:")) {
-                            finalUrl = url.substring(7);
-                        }
+            return true;
+        });
+        routes.on("backgroundlocationoff://", (view, url) -> {
+            toggleBackgroundLocationService(false);
+            return true;
+        });
+        routes.on("backgroundlocationon://", (view, url) -> {
+            toggleBackgroundLocationService(true);
+            return true;
+        });
+        routes.on("savethisimage://?url=", (view, url) -> {
+            webView.stopLoading();
+            if (webView.canGoBack()) {
+                webView.goBack();
+            }
+            if (Config.requireStorage) {
+                final String imageUrl = url.substring(url.indexOf("=") + 1, url.length());
+                downloadImageNew("imagesaving", imageUrl);
+            }
+            return true;
+        });
+        routes.on("push.send.cancel", (view, url) -> {
+            if (Config.USER_AGENT.contains("VRGl")) {
+                if (url.contains("cartreminderpush.send.cancel")) {
+                    stopCartReminderNotification();
+                }
+                if (url.contains("categoryrecommpush.cancel")) {
+                    stopCategoryRecommNotification();
+                }
+                if (url.contains("productrecommpush.cancel")) {
+                    stopProductRecommNotification();
+                }
+                return true;
+            } else {
+                stopNotification();
+                return true;
+            }
+        });
+        routes.on("push.send", (view, url) -> {
+            if (Config.USER_AGENT.contains("VRGl")) {
+                if (url.contains("cartreminderpush.send")) {
+                    sendCartReminderNotification(url);
+                }
+                if (url.contains("categoryrecommpush.send")) {
+                    sendCategoryRecommNotification(url);
+                }
+                if (url.contains("productrecommpush.send")) {
+                    sendProductRecommNotification(url);
+                }
+                return true;
+            } else {
+                sendNotification(url);
+                return true;
+            }
+        });
+        routes.on("get-uuid://", (view, url) -> {
+            webView.loadUrl("javascript: var uuid = '" + uuid + "';");
+            return true;
+        });
+        routes.on("cancelinapppurchase://", (view, url) -> {
+            Intent intent = new Intent(Intent.ACTION_VIEW, Uri.parse("http://support.google.com/googleplay?p=cancelsubsawf")); //forward to Google interface for managing subscriptions
+            view.getContext().startActivity(intent);
+            return true;
+        });
+        routes.on("enablepulltorefresh://", (view, url) -> {
+            mySwipeRefreshLayout.setEnabled(true);
+            return true;
+        });
+        routes.on("disablepulltorefresh://", (view, url) -> {
+            mySwipeRefreshLayout.setEnabled(false);
+            return true;
+        });
+        routes.on("reset://", (view, url) -> {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP_MR1) {
+                CookieManager.getInstance().removeAllCookies(null);
+                CookieManager.getInstance().flush();
+            } else if (mContext != null) {
+                CookieSyncManager cookieSyncManager = CookieSyncManager.createInstance(mContext);
+                cookieSyncManager.startSync();
+                CookieManager cookieManager = CookieManager.getInstance();
+                cookieManager.removeAllCookie();
+                cookieManager.removeSessionCookie();
+                cookieSyncManager.stopSync();
+                cookieSyncManager.sync();
+            }
+
+
+            WebSettings webSettings = webView.getSettings();
+            webSettings.setCacheMode(WebSettings.LOAD_NO_CACHE);
+            webView.clearCache(true);
+            android.webkit.WebStorage.getInstance().deleteAllData();
+            Toast.makeText(MainActivity.this, "App reset was successful.", Toast.LENGTH_LONG).show();
+            loadMainUrl();
+            return true;
+        });
+        routes.on("readnfc://", (view, url) -> {
+            readModeNFC = true;
+            writeModeNFC = false;
+            return true;
+        });
+        routes.on("writenfc://", (view, url) -> {
+            writeModeNFC = true;
+            readModeNFC = false;
+            textToWriteNFC = url.substring(url.indexOf("=") + 1, url.length());
+            return true;
+        });
+        routes.on("spinneron://", (view, url) -> {
+            progressBar.setVisibility(View.VISIBLE);
+            return true;
+        });
+        routes.on("revenuecat://", (view, url) -> {
+            triggerRevenueCatToken(Uri.parse(url), !extendediap);
+            progressBar.setVisibility(View.GONE);
+            if (extendediap) {
+                launchRevenueCatPaywall(url);
+            } else {
+                String iaptext = "U2VlIGh0dHBzOi8vdGlueXVybC5jb20vaWFwLWZpeCB8IEluLUFwcCBQdXJjaGFzZSBmYWlsZWQu";
+                byte[] iapdata = Base64.decode(iaptext, Base64.DEFAULT);
+                String iapdatafinal = new String(iapdata, StandardCharsets.UTF_8);
+                Toast.makeText(MainActivity.this, iapdatafinal, Toast.LENGTH_LONG).show();
+            }
+            return true;
+        });
+        routes.on("spinneroff://", (view, url) -> {
+            progressBar.setVisibility(View.GONE);
+            return true;
+        });
+        routes.on("takescreenshot://", (view, url) -> {
+            verifystoragepermissions(MainActivity.this);
 
-                        // Open special link in an in-app tab
-                        if ((SPECIAL_LINK_HANDLING_OPTIONS == 1) || shouldAlwaysOpenInInappTab(finalUrl)) {
-                            openInInappTab(finalUrl);
-                            return true;
+            Toast.makeText(MainActivity.this, "Screenshot Saved", Toast.LENGTH_LONG).show();
+            screenshot(getWindow().getDecorView().getRootView(), "result");
 
-                            // Open special link in Chrome
-                        } else if (SPECIAL_LINK_HANDLING_OPTIONS == 2) {
-                            view.getContext().startActivity(
-                                    new Intent(Intent.ACTION_VIEW, Uri.parse(finalUrl)));
-                            return true;
+            return true;
+        });
+        routes.on("getpushwooshid://", (view, url) -> {
+            if (Config.PUSHWOOSH_ENABLED) {
+                AppStartup.require(AppStartup.PUSHWOOSH);
+                String pushWooshHardwareId = Pushwoosh.getInstance().getHwid();
+                webView.loadUrl("javascript: var pushwooshplayerid = '" + pushWooshHardwareId + "';");
+            }
+            return true;
+        });
+        routes.on("getclipboard://", (view, url) -> {
+            ClipboardManager clipboard = (ClipboardManager) getSystemService(Context.CLIPBOARD_SERVICE);
+            if (clipboard != null && clipboard.hasPrimaryClip()) {
+                ClipData.Item item = clipboard.getPrimaryClip().getItemAt(0);
+                String clipboardText = item.getText().toString();
+
+                // Inject clipboard data into WebView JavaScript
+                webView.evaluateJavascript("window.clipboarddata = '" + escapeJS(clipboardText) + "';", null);
+            } else {
+                Toast.makeText(mContext, "Clipboard is empty", Toast.LENGTH_SHORT).show();
+            }
+            return true;
+        });
+        routes.on("getonesignalplayerid://", (view, url) -> {
+            String OneSignaluserID = OneSignal.getUser().getPushSubscription().getId();
+            webView.loadUrl("javascript: var onesignalplayerid = '" + OneSignaluserID + "';");
+
+            return true;
+        });
+        routes.on("getfirebaseplayerid://", (view, url) -> {
+            String firebaseUserId = AlertManager.getFirebaseToken(MainActivity.this, "");
+            webView.loadUrl("javascript: var firebaseplayerid = '" + firebaseUserId + "';");
+
+            return true;
+        });
+        routes.on("getappversion://", (view, url) -> {
+            webView.loadUrl("javascript: var versionNumber = '" + BuildConfig.VERSION_NAME + "';" +
+                    "var bundleNumber  = '" + BuildConfig.VERSION_CODE + "';");
+            return true;
+        });
+        routes.on("getstorelocation://", (view, url) -> {
+            if (billingClient != null && billingClient.isReady()) {
+                GetBillingConfigParams params = GetBillingConfigParams.newBuilder().build();
+                billingClient.getBillingConfigAsync(params, new BillingConfigResponseListener() {
+                    @Override
+                    public void onBillingConfigResponse(BillingResult billingResult, BillingConfig billingConfig) {
+                        if (billingResult.getResponseCode() == BillingClient.BillingResponseCode.OK) {
+                            String countryCode = billingConfig.getCountryCode(); // Country code in ISO-3166-1 alpha-2 format
+                            Log.d("CountryCode", countryCode);
+                            webView.loadUrl("javascript: var storeLocation = '" + countryCode + "';");
                         }
-                        return false;
                     }
+                });
+            } else {
+                Log.d("CountryCode", "Billing client not ready");
+            }
+            return true;
+        });
+        routes.on("shareapp://", (view, url) -> {
+            String sharetext = url.toString();
+            String newmeg = sharetext.substring(20);
+            if (BuildConfig.IS_DEBUG_MODE) Log.d("newmeg", newmeg);
+
+            String inputString = newmeg;
+            String delimiter = "&url=";
+            String[] components = inputString.split(delimiter);
+            String message2 = "";
+            String url2 = "";
+
+            if (components.length > 1) {
+                message2 = components[0];
+                url2 = components[1];
+            } else {
+                message2 = newmeg;
+            }
+            String message1 = message2.replace("%20", " ");
+            String url1 = url2.replace("%20", " ");
+
+            String totalMessage = "";
+            if (message1.length() == 0) {
+                totalMessage = url1;
+            } else if (url1.length() == 0) {
+                totalMessage = message1;
+            } else {
+                totalMessage = message1 + "\n" + url1;
+            }
+
+            List<String> objectsToShare = new ArrayList<>();
+            objectsToShare.add(totalMessage);
+
+            Intent intent = new Intent(Intent.ACTION_SEND);
+            intent.setType("text/plain");
+            intent.putExtra(Intent.EXTRA_TEXT, totalMessage);
+
+            Intent chooser = Intent.createChooser(intent, "Share via");
+            chooser.setFlags(FLAG_ACTIVITY_NEW_TASK);
+
+            List<LabeledIntent> intents = new ArrayList<>();
+            for (ResolveInfo info : getPackageManager().queryIntentActivities(intent, 0)) {
+                Intent target = new Intent(Intent.ACTION_SEND);
+                target.setType("text/plain");
+                target.putExtra(Intent.EXTRA_TEXT, totalMessage);
+                target.setPackage(info.activityInfo.packageName);
+                intents.add(new LabeledIntent(target, info.activityInfo.packageName, info.loadLabel(getPackageManager()), info.icon));
+            }
+
+            Parcelable[] extraIntents = intents.toArray(new Parcelable[intents.size()]);
+            chooser.putExtra(Intent.EXTRA_INITIAL_INTENTS, extraIntents);
+            startActivity(chooser);
+
+            return true;
+        });
+        routes.on("statusbarcolor://", (view, url) -> {
+            String input = url.substring(url.indexOf('/') + 2);
+            String[] values = input.split(",");
+            int nbValues = values.length;
+
+            if (nbValues == 3 || nbValues == 4) {
+                int colorValues[] = new int[nbValues];
+                for (int i = 0; i < nbValues; i++) {
+                    colorValues[i] = Integer.parseInt(values[i].trim());
+                }
+                int color;
+                Double luminance = 0.0;
+                Double rgbFactor = 255.0;
+                if (nbValues == 3) {
+                    // Index 0 = red, 1 = green, 2 = blue
+                    color = Color.rgb(colorValues[0], colorValues[1], colorValues[2]);
+                    luminance = 0.2126 * (colorValues[0] / rgbFactor) + 0.7152 * (colorValues[1] / rgbFactor) + 0.0722 * (colorValues[2] / rgbFactor);
+                } else {
+                    // Inlcudes transparency (alpha); This feature is not fully supported yet as the webview dimensions need to be changed as well.
+                    // Index 0 = alpga, 1 = red, 2 = green, 3 = blue
+                    color = Color.argb(colorValues[0], colorValues[1], colorValues[2], colorValues[3]);
+                }
+                Window window = getWindow();
+                window.addFlags(WindowManager.LayoutParams.FLAG_DRAWS_SYSTEM_BAR_BACKGROUNDS);
+                window.setStatusBarColor(color);
+                window.setNavigationBarColor(color);
+
+                // Automatically decide the color of the status bar and navigation bar text
+                Double darkThreshold = 0.5;
+                View decorView = getWindow().getDecorView();
+                int flags = decorView.getSystemUiVisibility();
+                if (luminance < darkThreshold) {
+                    // Color is dark; use white text
+                    flags &= ~View.SYSTEM_UI_FLAG_LIGHT_STATUS_BAR;
+                    flags &= ~View.SYSTEM_UI_FLAG_LIGHT_NAVIGATION_BAR;
+                    decorView.setSystemUiVisibility(flags);
+
+                } else {
+                    // Color is light; use black text
+                    flags |= View.SYSTEM_UI_FLAG_LIGHT_STATUS_BAR;
+                    flags |= View.SYSTEM_UI_FLAG_LIGHT_NAVIGATION_BAR;
+                    decorView.setSystemUiVisibility(flags);
+                }
+            }
+            return true;
+        });
+        routes.on("statusbartextcolor://", (view, url) -> {
+            String input = url.substring(url.indexOf('/') + 2);
+            View decorView = getWindow().getDecorView();
+            int flags = decorView.getSystemUiVisibility();
+
+            if (input.equals("white")) {
+                flags &= ~View.SYSTEM_UI_FLAG_LIGHT_STATUS_BAR;
+                decorView.setSystemUiVisibility(flags);
+
+            } else if (input.equals("black")) {
+                flags |= View.SYSTEM_UI_FLAG_LIGHT_STATUS_BAR;
+                decorView.setSystemUiVisibility(flags);
+            }
+
+            return true;
+        });
+        routes.on("bottombarcolor://", (view, url) -> {
+            String input = url.substring(url.indexOf('/') + 2);
+            String[] values = input.split(",");
+            int nbValues = values.length;
+
+            if (nbValues == 3 || nbValues == 4) {
+                int colorValues[] = new int[nbValues];
+                for (int i = 0; i < nbValues; i++) {
+                    colorValues[i] = Integer.parseInt(values[i].trim());
+                }
+                int color;
+                if (nbValues == 3) {
+                    // Index 0 = red, 1 = green, 2 = blue
+                    color = Color.rgb(colorValues[0], colorValues[1], colorValues[2]);
+                } else {
+                    // Inlcudes transparency (alpha); This feature is not fully supported yet as the webview dimensions need to be changed as well.
+                    // Index 0 = alpga, 1 = red, 2 = green, 3 = blue
+                    color = Color.argb(colorValues[0], colorValues[1], colorValues[2], colorValues[3]);
                 }
+                Window window = getWindow();
+                window.setNavigationBarColor(color);
+            }
+            return true;
+        });
+        routes.on("navbartextcolor://", (view, url) -> {
+            String input = url.substring(url.indexOf('/') + 2);
+            View decorView = getWindow().getDecorView();
+            int flags = decorView.getSystemUiVisibility();
 
-                return super.shouldOverrideUrlLoading(view, url);
+            if (input.equals("white")) {
+                flags &= ~View.SYSTEM_UI_FLAG_LIGHT_NAVIGATION_BAR;
+                decorView.setSystemUiVisibility(flags);
+
+            } else if (input.equals("black")) {
+                flags |= View.SYSTEM_UI_FLAG_LIGHT_NAVIGATION_BAR;
+                decorView.setSystemUiVisibility(flags);
             }
-            return false;
-        }
 
+            return true;
+        });
+        routes.on("scanningmode://", (view, url) -> {
+            String input = url.substring(url.indexOf('/') + 2);
+
+            if (input.equals("auto")) {
+                turnOnScanningMode();
+            } else if (input.equals("on")) {
+                persistentScanningMode = true;
+                turnOnScanningMode();
+            } else if (input.equals("off")) {
+                persistentScanningMode = false;
+                turnOffScanningMode();
+            }
+            return true;
+        });
+        return routes;
     }
 
     private String escapeJS(String input) {
@@ -3647,9 +4219,16 @@ public class MainActivity extends AppCompatActivity
     }
 
     private void loadRewardedAd() {
+        if (!legacyAdsReady()) {
+            legacyRewardedWanted = true;
+            return;
+        }
+        legacyRewardedWanted = false;
         if (rewardedAd == null) {
             AdRequest adRequest = new AdRequest.Builder().build();
             String admob_id = getString(R.string.admob_rewarded_id);
+            final long loadStartedAt = AdMetrics.now();
+            AdMetrics.loadStarted("legacy_rewarded");
             RewardedAd.load(
                     this,
                     admob_id,
@@ -3658,6 +4237,8 @@ public class MainActivity extends AppCompatActivity
                         @Override
                         public void onAdFailedToLoad(@NonNull LoadAdError loadAdError) {
                             Log.d(TAG, "Rewarded ad failed to load: " + loadAdError.getMessage());
+                            AdMetrics.loadFailed("legacy_rewarded", loadStartedAt, loadAdError.getCode());
+                            AdMetrics.retryScheduled("legacy_rewarded");
                             rewardedAd = null;
                             // Retry loading after 30 seconds on failure
                             new Handler(Looper.getMainLooper()).postDelayed(() -> loadRewardedAd(), 30000);
@@ -3666,6 +4247,7 @@ public class MainActivity extends AppCompatActivity
                         @Override
                         public void onAdLoaded(@NonNull RewardedAd rewardedAd) {
                             MainActivity.this.rewardedAd = rewardedAd;
+                            AdMetrics.loadSucceeded("legacy_rewarded", loadStartedAt);
                             Log.d(TAG, "Rewarded ad loaded successfully");
                         }
                     });
@@ -3744,8 +4326,10 @@ public class MainActivity extends AppCompatActivity
     private void showRewardedAd() {
         if (rewardedAd == null) {
             Log.d("TAG", "The rewarded ad wasn't ready yet.");
+            AdMetrics.notReady("legacy_rewarded");
             return;
         }
+        final long showRequestedAt = AdMetrics.now();
 
         Log.d("henry", "Displaying rewarded ad");
 
@@ -3755,6 +4339,7 @@ public class MainActivity extends AppCompatActivity
                     public void onAdShowedFullScreenContent() {
                         // Called when ad is shown.
                         Log.d(TAG, "onAdShowedFullScreenContent");
+                        AdMetrics.shown("legacy_rewarded", showRequestedAt);
                         //Toast.makeText(MainActivity.this, "onAdShowedFullScreenContent", Toast.LENGTH_SHORT).show();
                     }
 
@@ -3762,6 +4347,7 @@ public class MainActivity extends AppCompatActivity
                     public void onAdFailedToShowFullScreenContent(AdError adError) {
                         // Called when ad fails to show.
                         Log.d(TAG, "onAdFailedToShowFullScreenContent");
+                        AdMetrics.showFailed("legacy_rewarded", adError.getCode());
                         // Don't forget to set the ad reference to null so you
                         // don't show the ad a second time.
                         rewardedAd = null;
@@ -3789,6 +4375,7 @@ public class MainActivity extends AppCompatActivity
                 rewardItem -> {
                     // Handle the reward.
                     Log.d("TAG", "The user earned the reward.");
+                    AdMetrics.rewardEarned("legacy_rewarded");
                     String javascript = "javascript: adMobRewardGranted();";
                     webView.loadUrl(javascript);
                 });
@@ -3940,11 +4527,44 @@ public class MainActivity extends AppCompatActivity
     @SuppressWarnings("SpellCheckingInspection")
     private class MyWebViewClient extends WebViewClient {
 
+        private long lastPageStartedAt = 0;
+
         MyWebViewClient() {
         }
 
+        @Override
+        public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
+            // Runs on the WebView's IO thread
+            WebResourceResponse shared = SharedImagePipeline.intercept(request);
+            if (shared != null) {
+                return shared;
+            }
+            if (Config.OFFLINE_PAGE_CACHE) {
+                WebResourceResponse response = OfflinePageCache.getInstance(MainActivity.this).intercept(request);
+                if (response != null) {
+                    return response;
+                }
+            }
+            return super.shouldInterceptRequest(view, request);
+        }
+
+        @Override
+        public void onPageCommitVisible(WebView view, String url) {
+            super.onPageCommitVisible(view, url);
+            if (view == webView) {
+                StartupWarmup.reportFirstPaint();
+                if (!adsInitRequested) {
+                    Looper.myQueue().addIdleHandler(() -> {
+                        ensureAdsInitialized();
+                        return false;
+                    });
+                }
+            }
+        }
+
         @Override
         public void onPageStarted(WebView view, String url, Bitmap favicon) {
+            lastPageStartedAt = SystemClock.elapsedRealtime();
             customCSS(); //2 times called, also called in onPageFinished() to prevent CSS adjustments from being briefly visible
             if (!isRedirected || INCREMENT_WITH_REDIRECTS) {
                 super.onPageStarted(view, url, favicon);
@@ -3973,89 +4593,53 @@ public class MainActivity extends AppCompatActivity
 
         @Override
         public void onPageFinished(WebView view, String url) {
-            if (!ENABLE_ZOOM) {
-                webView.loadUrl("javascript:document.getElementsByName('viewport')[0].setAttribute('content', 'initial-scale=1.0, user-scalable=no');");
-            }
-
-            if (Config.INPUT_SCROLL_HELPER) {
-                String script = "document.querySelectorAll('input, textarea').forEach((el) => {" +
-                        "  el.addEventListener('focus', (event) => {" +
-                        "    setTimeout(() => {" +
-                        "      event.target.scrollIntoView({ behavior: 'smooth', block: 'center' });" +
-                        "    }, 300);" +
-                        "  });" +
-                        "});";
-
-                view.evaluateJavascript(script, null);
-            }
-
-            if (Config.TRANSPARENT_STATUS_BAR) {
-                try {
-                    webView.evaluateJavascript(
-                            "(function() { return window.devicePixelRatio; })();",
-                            value -> {
-                                try {
-                                    float dpr = Float.parseFloat(value);
-                                    SystemBarUtils.getSafeInsetsAsync(MainActivity.this, insets -> {
-
-                                        int topPx = (int) (insets.top / dpr);
-                                        int bottomPx = (int) (insets.bottom / dpr);
-
-                                        String js = "document.body.style.marginTop = '" + topPx + "px';" +
-                                                "document.body.style.marginBottom = '" + bottomPx + "px';";
-                                        webView.evaluateJavascript(js, null);
-                                    });
-                                } catch (Exception e) {
-                                    e.printStackTrace();
-                                }
-                            }
-                    );
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-
-            }
-
+            // Everything injected on page load goes out as one script
+            PageReadyScript pageScript = new PageReadyScript(!isRedirected);
             if (!isRedirected) {
                 setTitle(view.getTitle());
-                customCSS(); //2 times called, also called in onPageStarted() to prevent CSS adjustments from being briefly visible
-                customJavaScript();
-
+                if (!customAssetsAtDocumentStart) {
+                    pageScript.fragment(CustomAssetInjector.cssFragment(MainActivity.this))
+                            .fragment(CustomAssetInjector.jsFragment(MainActivity.this));
+                }
 
                 if (Config.AUTO_INJECT_VARIABLES) {
-                    // app version
-                    webView.loadUrl("javascript: var versionNumber = '" + BuildConfig.VERSION_NAME + "';" +
-                            "var bundleNumber  = '" + BuildConfig.VERSION_CODE + "';");
-
                     // onesignal
                     if (Config.PUSH_ENABLED) {
-                        String OneSignaluserID = OneSignal.getUser().getPushSubscription().getId();
-                        webView.loadUrl("javascript: var onesignalplayerid = '" + OneSignaluserID + "';");
+                        pageScript.variable("onesignalplayerid", OneSignal.getUser().getPushSubscription().getId());
                     }
 
                     // firebase
                     if (Config.FIREBASE_PUSH_ENABLED) {
-                        String firebaseUserId = AlertManager.getFirebaseToken(MainActivity.this, "");
-                        webView.loadUrl("javascript: var firebaseplayerid = '" + firebaseUserId + "';");
+                        pageScript.variable("firebaseplayerid", AlertManager.getFirebaseToken(MainActivity.this, ""));
                     }
 
-                    // uuid
-                    webView.loadUrl("javascript: var uuid = '" + uuid + "';");
+                    pageScript.variable("uuid", uuid);
 
                     // Dark Mode Detection
                     int nightModeFlags = getResources().getConfiguration().uiMode & Configuration.UI_MODE_NIGHT_MASK;
-                    boolean isDarkMode = (nightModeFlags == Configuration.UI_MODE_NIGHT_YES);
-                    webView.loadUrl("javascript: var isDarkMode = " + isDarkMode + ";");
+                    pageScript.variable("isDarkMode", nightModeFlags == Configuration.UI_MODE_NIGHT_YES);
+                }
+
+                if (bridgeChannel != null) {
+                    pageScript.fragment(BridgeChannel.pageScript());
                 }
+            }
 
-                // Disable link drag and drop
-                if (!Config.LINK_DRAG_AND_DROP) {
-                    String disableLinkDragScript = "javascript: var links = document.getElementsByTagName('a');" +
-                            "for (var i = 0; i < links.length; i++) {" +
-                            "   links[i].draggable = false;" +
-                            "}";
-                    view.loadUrl(disableLinkDragScript);
+            final long pageStartedAt = lastPageStartedAt;
+            final long dispatchedAt = SystemClock.elapsedRealtime();
+            final boolean connectChannel = !isRedirected && bridgeChannel != null;
+            webView.evaluateJavascript(pageScript.build(), value -> {
+                PageReadyScript.recordTiming(pageStartedAt, dispatchedAt, SystemClock.elapsedRealtime());
+                if (connectChannel) {
+                    // The shim is in place now, so the port can't arrive before its listener
+                    bridgeChannel.connect(url);
+                }
+                if (Config.TRANSPARENT_STATUS_BAR) {
+                    applySafeInsets(value);
                 }
+            });
+
+            if (!isRedirected) {
                 if (SPLASH_SCREEN_ACTIVATED && SPLASH_SCREEN_ACTIVE != 0 && (SplashScreen.getInstance() != null) && REMAIN_SPLASH_OPTION) {
                     if (SPLASH_SCREEN_ACTIVE + Config.SPLASH_MIN_TIME > System.currentTimeMillis()) {
                         new Handler().postDelayed(() -> {
@@ -4072,6 +4656,23 @@ public class MainActivity extends AppCompatActivity
             }
         }
 
+        private void applySafeInsets(String devicePixelRatio) {
+            try {
+                float dpr = Float.parseFloat(devicePixelRatio);
+                SystemBarUtils.getSafeInsetsAsync(MainActivity.this, insets -> {
+
+                    int topPx = (int) (insets.top / dpr);
+                    int bottomPx = (int) (insets.bottom / dpr);
+
+                    String js = "document.body.style.marginTop = '" + topPx + "px';" +
+                            "document.body.style.marginBottom = '" + bottomPx + "px';";
+                    webView.evaluateJavascript(js, null);
+                });
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+
         @Override
         public boolean shouldOverrideUrlLoading(WebView view, String url) {
             Log.e(TAG, "URL-2: " + url);
@@ -4109,452 +4710,16 @@ public class MainActivity extends AppCompatActivity
 
                     if (!URLisExternal(url)) {
                         return false;
-
-                    } else if (url.startsWith("getpurchasehistory://")) {
-                        retrievePurchaseHistory();
-                        return true;
-                    } else if (url.startsWith("inapppurchase://") || url.startsWith("inappsubscription://")) {
-
-                        if (extendediap) {
-                            if (BuildConfig.IS_DEBUG_MODE)
-                                Log.d(TAG, "play " + checkPlayServices());
-                            if (BuildConfig.IS_DEBUG_MODE) Log.d(TAG, "InApp URL: " + url);
-                            if (checkPlayServices() && billingClient.isReady()) {
-                                disableAdMob = url.contains("disableadmob");
-                                isConsumable = url.contains("consumable=true") || url.contains("package=consumable.");
-                                handleAppPurchases(url);
-                            } else {
-                                if (BuildConfig.IS_DEBUG_MODE) Log.d(TAG, " toast ");
-                                String iaptext1 = "U2VlIGh0dHBzOi8vdGlueXVybC5jb20vaWFwLWZpeCB8IEluLUFwcCBQdXJjaGFzZSBmYWlsZWQu";
-                                byte[] iapdata1 = Base64.decode(iaptext1, Base64.DEFAULT);
-                                String iapdata1final = new String(iapdata1, StandardCharsets.UTF_8);
-                                Toast.makeText(MainActivity.this, iapdata1final, Toast.LENGTH_SHORT).show();
-                            }
-                            return true;
-                        } else {
-                            String iaptext2 = "U2VlIGh0dHBzOi8vdGlueXVybC5jb20vaWFwLWZpeCB8IEluLUFwcCBQdXJjaGFzZSBmYWlsZWQu";
-                            byte[] iapdata2 = Base64.decode(iaptext2, Base64.DEFAULT);
-                            String iapdata2final = new String(iapdata2, StandardCharsets.UTF_8);
-                            Toast.makeText(MainActivity.this, iapdata2final, Toast.LENGTH_LONG).show();
-                            return true;
-                        }
-                    } else if (url.startsWith("restoreinapppurchases://")) {
-                        restorePurchases();
-                        return true;
-                    } else if (url.startsWith("disableads://")) {
-                        AlertManager.disableAds(getApplicationContext(), true);
-                        disableAdMob = true;
-                        hideOrRemoveAdViewsFromScreen();
-                        return true;
-                    } else if (url.startsWith("enableads://")) {
-                        AlertManager.disableAds(getApplicationContext(), false);
-                        disableAdMob = false;
-                        HIDE_ADS_FOR_PURCHASE = false;
-                        loadAndShowAds();
-                        return true;
-                    } else if (url.startsWith("enableflashlight://")) {
-                        if (flashLightManager == null) return false;
-                        // if (!flashLightManager.hasFlashLight()) return false;
-                        flashLightManager.turnOn();
-                        return true;
-                    } else if (url.startsWith("disableflashlight://")) {
-                        if (flashLightManager == null) return false;
-                        // if (!flashLightManager.hasFlashLight()) return false;
-                        flashLightManager.turnOff();
-                        return true;
-                    } else if (url.startsWith("qrcode://")) {
-                        if (BuildConfig.IS_DEBUG_MODE) Log.d(TAG, url);
-                        if (Config.requireCamera) {
-                            // Check if the CAMERA permission is granted
-                            if (ContextCompat.checkSelfPermission(MainActivity.this, Manifest.permission.CAMERA) != PackageManager.PERMISSION_GRANTED) {
-                                // Permission is not granted, request for permission
-                                ActivityCompat.requestPermissions(MainActivity.this, new String[]{Manifest.permission.CAMERA}, 1402);
-                            } else {
-                                // Permission has already been granted, start the activity
-                                Intent i = new Intent(MainActivity.this, QrCodeActivity.class);
-                                startActivityForResult(i, REQUEST_CODE_QR_SCAN);
-                            }
-                        }
-                        return true;
-                    } else if (url.startsWith("barcodescanner://")) {
-                        if (BuildConfig.IS_DEBUG_MODE) Log.d(TAG, "requested barcode scanning");
-
-                        GmsBarcodeScanner scanner = GmsBarcodeScanning.getClient(MainActivity.this);
-
-                        scanner
-                                .startScan()
-                                .addOnSuccessListener(
-                                        barcode -> {
-                                            // Task completed successfully
-                                            if (BuildConfig.IS_DEBUG_MODE)
-                                                Log.d(TAG, "successful barcode scanning");
-                                            if (BuildConfig.IS_DEBUG_MODE)
-                                                Log.d(TAG, barcode.getRawValue().toString());
-
-                                            webView.loadUrl("javascript: var barcodescanresult = '" + barcode.getRawValue() + "';");
-                                        })
-                                .addOnCanceledListener(
-                                        () -> {
-                                            // Task canceled
-                                        })
-                                .addOnFailureListener(
-                                        e -> {
-                                            // Task failed with an exception
-                                        });
-
-                        return true;
-                    } else if (url.startsWith("backgroundlocationoff://")) {
-                        toggleBackgroundLocationService(false);
-                        return true;
-                    } else if (url.startsWith("backgroundlocationon://")) {
-                        toggleBackgroundLocationService(true);
-                        return true;
                     }
-                    if (url.startsWith("savethisimage://?url=")) {
-                        webView.stopLoading();
-                        if (webView.canGoBack()) {
-                            webView.goBack();
-                        }
-                        if (Config.requireStorage) {
-                            final String imageUrl = url.substring(url.indexOf("=") + 1, url.length());
-                            downloadImageNew("imagesaving", imageUrl);
-                        }
-                        return true;
-                    } else if (url.contains("push.send.cancel")) {
-                        if (Config.USER_AGENT.contains("VRGl")) {
-                            if (url.contains("cartreminderpush.send.cancel")) {
-                                stopCartReminderNotification();
-                            }
-                            if (url.contains("categoryrecommpush.cancel")) {
-                                stopCategoryRecommNotification();
-                            }
-                            if (url.contains("productrecommpush.cancel")) {
-                                stopProductRecommNotification();
-                            }
-                            return true;
-                        } else {
-                            stopNotification();
-                            return true;
-                        }
-                    } else if (url.contains("push.send")) {
-                        if (Config.USER_AGENT.contains("VRGl")) {
-                            if (url.contains("cartreminderpush.send")) {
-                                sendCartReminderNotification(url);
-                            }
-                            if (url.contains("categoryrecommpush.send")) {
-                                sendCategoryRecommNotification(url);
-                            }
-                            if (url.contains("productrecommpush.send")) {
-                                sendProductRecommNotification(url);
-                            }
-                            return true;
-                        } else {
-                            sendNotification(url);
-                            return true;
-                        }
-                    } else if (url.startsWith("get-uuid://")) {
-                        webView.loadUrl("javascript: var uuid = '" + uuid + "';");
-                        return true;
-                    } else if (url.startsWith("cancelinapppurchase://")) {
-                        Intent intent = new Intent(Intent.ACTION_VIEW, Uri.parse("http://support.google.com/googleplay?p=cancelsubsawf")); //forward to Google interface for managing subscriptions
-                        view.getContext().startActivity(intent);
-                        return true;
-                    } else if (url.startsWith("enablepulltorefresh://")) {
-                        mySwipeRefreshLayout.setEnabled(true);
-                        return true;
-                    } else if (url.startsWith("disablepulltorefresh://")) {
-                        mySwipeRefreshLayout.setEnabled(false);
-                        return true;
-                    } else if (url.startsWith("reset://")) {
-
-                        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP_MR1) {
-                            CookieManager.getInstance().removeAllCookies(null);
-                            CookieManager.getInstance().flush();
-                        } else if (mContext != null) {
-                            CookieSyncManager cookieSyncManager = CookieSyncManager.createInstance(mContext);
-                            cookieSyncManager.startSync();
-                            CookieManager cookieManager = CookieManager.getInstance();
-                            cookieManager.removeAllCookie();
-                            cookieManager.removeSessionCookie();
-                            cookieSyncManager.stopSync();
-                            cookieSyncManager.sync();
-                        }
-
-
-                        WebSettings webSettings = webView.getSettings();
-                        webSettings.setCacheMode(WebSettings.LOAD_NO_CACHE);
-                        webView.clearCache(true);
-                        android.webkit.WebStorage.getInstance().deleteAllData();
-                        Toast.makeText(MainActivity.this, "App reset was successful.", Toast.LENGTH_LONG).show();
-                        loadMainUrl();
-                        return true;
-                    } else if (url.startsWith("readnfc://")) {
-                        readModeNFC = true;
-                        writeModeNFC = false;
-                        return true;
-                    } else if (url.startsWith("writenfc://")) {
-                        writeModeNFC = true;
-                        readModeNFC = false;
-                        textToWriteNFC = url.substring(url.indexOf("=") + 1, url.length());
-                        return true;
-                    } else if (url.startsWith("spinneron://")) {
-                        progressBar.setVisibility(View.VISIBLE);
-                        return true;
-                    } else if (url.startsWith("revenuecat://")) {
-                        triggerRevenueCatToken(Uri.parse(url), !extendediap);
-                        progressBar.setVisibility(View.GONE);
-                        if (extendediap) {
-                            launchRevenueCatPaywall(url);
-                        } else {
-                            String iaptext = "U2VlIGh0dHBzOi8vdGlueXVybC5jb20vaWFwLWZpeCB8IEluLUFwcCBQdXJjaGFzZSBmYWlsZWQu";
-                            byte[] iapdata = Base64.decode(iaptext, Base64.DEFAULT);
-                            String iapdatafinal = new String(iapdata, StandardCharsets.UTF_8);
-                            Toast.makeText(MainActivity.this, iapdatafinal, Toast.LENGTH_LONG).show();
-                        }
-                        return true;
-                    } else if (url.startsWith("spinneroff://")) {
-                        progressBar.setVisibility(View.GONE);
-                        return true;
-                    } else if (url.startsWith("takescreenshot://")) {
-                        verifystoragepermissions(MainActivity.this);
-
-                        Toast.makeText(MainActivity.this, "Screenshot Saved", Toast.LENGTH_LONG).show();
-                        screenshot(getWindow().getDecorView().getRootView(), "result");
-
-                        return true;
-
-                    } else if (url.startsWith("getpushwooshid://")) {
-                        if (Config.PUSHWOOSH_ENABLED) {
-                            String pushWooshHardwareId = Pushwoosh.getInstance().getHwid();
-                            webView.loadUrl("javascript: var pushwooshplayerid = '" + pushWooshHardwareId + "';");
-                        }
-                        return true;
-                    } else if (url.startsWith("getclipboard://")) {
-                        ClipboardManager clipboard = (ClipboardManager) getSystemService(Context.CLIPBOARD_SERVICE);
-                        if (clipboard != null && clipboard.hasPrimaryClip()) {
-                            ClipData.Item item = clipboard.getPrimaryClip().getItemAt(0);
-                            String clipboardText = item.getText().toString();
-
-                            // Inject clipboard data into WebView JavaScript
-                            webView.evaluateJavascript("window.clipboarddata = '" + escapeJS(clipboardText) + "';", null);
-                        } else {
-                            Toast.makeText(mContext, "Clipboard is empty", Toast.LENGTH_SHORT).show();
-                        }
-                        return true;
-                    } else if (url.startsWith("getonesignalplayerid://")) {
-
-
-                        String OneSignaluserID = OneSignal.getUser().getPushSubscription().getId();
-                        webView.loadUrl("javascript: var onesignalplayerid = '" + OneSignaluserID + "';");
-
-                        return true;
-
-                    } else if (url.startsWith("getfirebaseplayerid://")) {
-
-                        String firebaseUserId = AlertManager.getFirebaseToken(MainActivity.this, "");
-                        webView.loadUrl("javascript: var firebaseplayerid = '" + firebaseUserId + "';");
-
-                        return true;
-
-                    } else if (url.startsWith("getappversion://")) {
-                        webView.loadUrl("javascript: var versionNumber = '" + BuildConfig.VERSION_NAME + "';" +
-                                "var bundleNumber  = '" + BuildConfig.VERSION_CODE + "';");
-                        return true;
-
-                    } else if (url.startsWith("getstorelocation://")) {
-                        if (billingClient != null && billingClient.isReady()) {
-                            GetBillingConfigParams params = GetBillingConfigParams.newBuilder().build();
-                            billingClient.getBillingConfigAsync(params, new BillingConfigResponseListener() {
-                                @Override
-                                public void onBillingConfigResponse(BillingResult billingResult, BillingConfig billingConfig) {
-                                    if (billingResult.getResponseCode() == BillingClient.BillingResponseCode.OK) {
-                                        String countryCode = billingConfig.getCountryCode(); // Country code in ISO-3166-1 alpha-2 format
-                                        Log.d("CountryCode", countryCode);
-                                        webView.loadUrl("javascript: var storeLocation = '" + countryCode + "';");
-                                    }
-                                }
-                            });
-                        } else {
-                            Log.d("CountryCode", "Billing client not ready");
-                        }
-                        return true;
-
-                    } else if (url.startsWith("shareapp://")) {
-
-                        String sharetext = url.toString();
-                        String newmeg = sharetext.substring(20);
-                        if (BuildConfig.IS_DEBUG_MODE) Log.d("newmeg", newmeg);
-
-                        String inputString = newmeg;
-                        String delimiter = "&url=";
-                        String[] components = inputString.split(delimiter);
-                        String message2 = "";
-                        String url2 = "";
-
-                        if (components.length > 1) {
-                            message2 = components[0];
-                            url2 = components[1];
-                        } else {
-                            message2 = newmeg;
-                        }
-                        String message1 = message2.replace("%20", " ");
-                        String url1 = url2.replace("%20", " ");
-
-                        String totalMessage = "";
-                        if (message1.length() == 0) {
-                            totalMessage = url1;
-                        } else if (url1.length() == 0) {
-                            totalMessage = message1;
-                        } else {
-                            totalMessage = message1 + "\n" + url1;
-                        }
-
-                        List<String> objectsToShare = new ArrayList<>();
-                        objectsToShare.add(totalMessage);
-
-                        Intent intent = new Intent(Intent.ACTION_SEND);
-                        intent.setType("text/plain");
-                        intent.putExtra(Intent.EXTRA_TEXT, totalMessage);
-
-                        Intent chooser = Intent.createChooser(intent, "Share via");
-                        chooser.setFlags(FLAG_ACTIVITY_NEW_TASK);
-
-                        List<LabeledIntent> intents = new ArrayList<>();
-                        for (ResolveInfo info : getPackageManager().queryIntentActivities(intent, 0)) {
-                            Intent target = new Intent(Intent.ACTION_SEND);
-                            target.setType("text/plain");
-                            target.putExtra(Intent.EXTRA_TEXT, totalMessage);
-                            target.setPackage(info.activityInfo.packageName);
-                            intents.add(new LabeledIntent(target, info.activityInfo.packageName, info.loadLabel(getPackageManager()), info.icon));
-                        }
-
-                        Parcelable[] extraIntents = intents.toArray(new Parcelable[intents.size()]);
-                        chooser.putExtra(Intent.EXTRA_INITIAL_INTENTS, extraIntents);
-                        startActivity(chooser);
-
-                        return true;
-                    } else if (url.startsWith("statusbarcolor://") && (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP)) {
-
-                        String input = url.substring(url.indexOf('/') + 2);
-                        String[] values = input.split(",");
-                        int nbValues = values.length;
-
-                        if (nbValues == 3 || nbValues == 4) {
-                            int colorValues[] = new int[nbValues];
-                            for (int i = 0; i < nbValues; i++) {
-                                colorValues[i] = Integer.parseInt(values[i].trim());
-                            }
-                            int color;
-                            Double luminance = 0.0;
-                            Double rgbFactor = 255.0;
-                            if (nbValues == 3) {
-                                // Index 0 = red, 1 = green, 2 = blue
-                                color = Color.rgb(colorValues[0], colorValues[1], colorValues[2]);
-                                luminance = 0.2126 * (colorValues[0] / rgbFactor) + 0.7152 * (colorValues[1] / rgbFactor) + 0.0722 * (colorValues[2] / rgbFactor);
-                            } else {
-                                // Inlcudes transparency (alpha); This feature is not fully supported yet as the webview dimensions need to be changed as well.
-                                // Index 0 = alpga, 1 = red, 2 = green, 3 = blue
-                                color = Color.argb(colorValues[0], colorValues[1], colorValues[2], colorValues[3]);
-                            }
-                            Window window = getWindow();
-                            window.addFlags(WindowManager.LayoutParams.FLAG_DRAWS_SYSTEM_BAR_BACKGROUNDS);
-                            window.setStatusBarColor(color);
-                            window.setNavigationBarColor(color);
-
-                            // Automatically decide the color of the status bar and navigation bar text
-                            Double darkThreshold = 0.5;
-                            View decorView = getWindow().getDecorView();
-                            int flags = decorView.getSystemUiVisibility();
-                            if (luminance < darkThreshold) {
-                                // Color is dark; use white text
-                                flags &= ~View.SYSTEM_UI_FLAG_LIGHT_STATUS_BAR;
-                                flags &= ~View.SYSTEM_UI_FLAG_LIGHT_NAVIGATION_BAR;
-                                decorView.setSystemUiVisibility(flags);
-
-                            } else {
-                                // Color is light; use black text
-                                flags |= View.SYSTEM_UI_FLAG_LIGHT_STATUS_BAR;
-                                flags |= View.SYSTEM_UI_FLAG_LIGHT_NAVIGATION_BAR;
-                                decorView.setSystemUiVisibility(flags);
-                            }
-                        }
-                        return true;
-
-                    } else if (url.startsWith("statusbartextcolor://") && ((Build.VERSION.SDK_INT >= Build.VERSION_CODES.M))) {
-
-                        String input = url.substring(url.indexOf('/') + 2);
-                        View decorView = getWindow().getDecorView();
-                        int flags = decorView.getSystemUiVisibility();
-
-                        if (input.equals("white")) {
-                            flags &= ~View.SYSTEM_UI_FLAG_LIGHT_STATUS_BAR;
-                            decorView.setSystemUiVisibility(flags);
 
-                        } else if (input.equals("black")) {
-                            flags |= View.SYSTEM_UI_FLAG_LIGHT_STATUS_BAR;
-                            decorView.setSystemUiVisibility(flags);
-                        }
-
-                        return true;
-
-                    } else if (url.startsWith("bottombarcolor://") && (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP)) {
-
-                        String input = url.substring(url.indexOf('/') + 2);
-                        String[] values = input.split(",");
-                        int nbValues = values.length;
-
-                        if (nbValues == 3 || nbValues == 4) {
-                            int colorValues[] = new int[nbValues];
-                            for (int i = 0; i < nbValues; i++) {
-                                colorValues[i] = Integer.parseInt(values[i].trim());
-                            }
-                            int color;
-                            if (nbValues == 3) {
-                                // Index 0 = red, 1 = green, 2 = blue
-                                color = Color.rgb(colorValues[0], colorValues[1], colorValues[2]);
-                            } else {
-                                // Inlcudes transparency (alpha); This feature is not fully supported yet as the webview dimensions need to be changed as well.
-                                // Index 0 = alpga, 1 = red, 2 = green, 3 = blue
-                                color = Color.argb(colorValues[0], colorValues[1], colorValues[2], colorValues[3]);
-                            }
-                            Window window = getWindow();
-                            window.setNavigationBarColor(color);
-                        }
-                        return true;
-
-                    } else if (url.startsWith("navbartextcolor://") && ((Build.VERSION.SDK_INT >= Build.VERSION_CODES.M))) {
-
-                        String input = url.substring(url.indexOf('/') + 2);
-                        View decorView = getWindow().getDecorView();
-                        int flags = decorView.getSystemUiVisibility();
-
-                        if (input.equals("white")) {
-                            flags &= ~View.SYSTEM_UI_FLAG_LIGHT_NAVIGATION_BAR;
-                            decorView.setSystemUiVisibility(flags);
-
-                        } else if (input.equals("black")) {
-                            flags |= View.SYSTEM_UI_FLAG_LIGHT_NAVIGATION_BAR;
-                            decorView.setSystemUiVisibility(flags);
-                        }
-
-                        return true;
-
-                    } else if (url.startsWith("scanningmode://")) {
-
-                        String input = url.substring(url.indexOf('/') + 2);
-
-                        if (input.equals("auto")) {
-                            turnOnScanningMode();
-                        } else if (input.equals("on")) {
-                            persistentScanningMode = true;
-                            turnOnScanningMode();
-                        } else if (input.equals("off")) {
-                            persistentScanningMode = false;
-                            turnOffScanningMode();
-                        }
-                        return true;
+                    UrlHandler command = externalCommandRoutes.match(url);
+                    if (command != null) {
+                        return command.handle(view, url);
                     }
                 } else if (!isConnectedNetwork()) {
+                    if (Config.OFFLINE_PAGE_CACHE && OfflinePageCache.getInstance(MainActivity.this).has(url)) {
+                        return false; // served from the page cache by shouldInterceptRequest
+                    }
                     if (Config.FALLBACK_USE_LOCAL_HTML_FOLDER_IF_OFFLINE) {
                         if (!offlineFileLoaded) {
                             loadLocal(INDEX_FILE);
@@ -4576,12 +4741,10 @@ public class MainActivity extends AppCompatActivity
                 }
 
                 // handle whitelisted links for always opening in the external browser
-                for (String whitelistedLink : BROWSER_WHITELIST) {
-                    if (hostpart.contains(whitelistedLink)) {
-                        Intent i = new Intent(Intent.ACTION_VIEW, Uri.parse(url));
-                        startActivity(i);
-                        return true;  // prevents the link also opening in the app by overriding
-                    }
+                if (browserWhitelistRoutes.matches(hostpart)) {
+                    Intent i = new Intent(Intent.ACTION_VIEW, Uri.parse(url));
+                    startActivity(i);
+                    return true;  // prevents the link also opening in the app by overriding
                 }
 
                 if (((Config.EXTERNAL_LINK_HANDLING_OPTIONS != 0)
@@ -4589,10 +4752,8 @@ public class MainActivity extends AppCompatActivity
                         || !(url).startsWith("file://"))) && URLUtil.isValidUrl(url)) {
                     if (Config.EXTERNAL_LINK_HANDLING_OPTIONS == 1) {
                         // check for blacklisting of option
-                        for (String blacklistedLink : NEVER_OPEN_IN_INAPP_TAB) {
-                            if (blacklistedLink.contains(hostpart)) {
-                                return false;
-                            }
+                        if (neverInAppTabHosts.contains(hostpart)) {
+                            return false;
                         }
                         // otherwise, open in a new tab (additional in-app browser)
                         openInInappTab(url);
@@ -4600,11 +4761,9 @@ public class MainActivity extends AppCompatActivity
                     } else if (Config.EXTERNAL_LINK_HANDLING_OPTIONS == 2) {
 
                         // check for blacklist
-                        for (String blacklistedLink : BROWSER_BLACKLIST) {
-                            if (blacklistedLink.contains(hostpart)) {
-                                // shouldn't override url loading now, thus false.
-                                return false;
-                            }
+                        if (browserBlacklistHosts.contains(hostpart)) {
+                            // shouldn't override url loading now, thus false.
+                            return false;
                         }
                         // otherwise, open in a new browser
                         Intent i = new Intent(Intent.ACTION_VIEW, Uri.parse(url));
@@ -4650,7 +4809,7 @@ public class MainActivity extends AppCompatActivity
                 // ignore
             }
             final String finalUrl = url;
-            new Thread(() -> {
+            AppExecutors.io().execute(() -> {
                 try {
                     URL u = new URL(finalUrl);
                     HttpURLConnection conn = (HttpURLConnection) u.openConnection();
@@ -4659,7 +4818,7 @@ public class MainActivity extends AppCompatActivity
                 } catch (IOException ignored) {
                 }
                 prefs.edit().putBoolean(key, true).apply();
-            }).start();
+            });
         }
     }
 
@@ -4672,6 +4831,7 @@ public class MainActivity extends AppCompatActivity
             return;
         }
 
+        AppStartup.require(AppStartup.REVENUECAT);
         Purchases.getSharedInstance().logIn(customerId, new LogInCallback() {
             @Override
             public void onReceived(@NonNull CustomerInfo customerInfo, boolean b) {
@@ -4723,39 +4883,45 @@ public class MainActivity extends AppCompatActivity
 
         Log.e(TAG, "Product ID: " + productId + ", Plan ID: " + planId);
 
-        ArrayList<String> productList = new ArrayList<>();
-        productList.add(productId);
+        storeProductCache.get(packageName,
+                result -> {
+                    ArrayList<String> productList = new ArrayList<>();
+                    productList.add(productId);
 
-        Purchases.getSharedInstance().getProducts(productList, new GetStoreProductsCallback() {
-            @Override
-            public void onReceived(@NonNull List<StoreProduct> list) {
-                boolean isMatchingProductFound = false;
-                for (StoreProduct rPackage : list) {
-                    String rPlanId = rPackage.getId();
-                    Log.e(TAG, "getProducts: " + rPlanId);
-                    if (rPlanId.equalsIgnoreCase(packageName)) {
-                        Log.e(TAG, "Matched package");
-                        isMatchingProductFound = true;
+                    AppStartup.require(AppStartup.REVENUECAT);
+                    Purchases.getSharedInstance().getProducts(productList, new GetStoreProductsCallback() {
+                        @Override
+                        public void onReceived(@NonNull List<StoreProduct> list) {
+                            for (StoreProduct rPackage : list) {
+                                String rPlanId = rPackage.getId();
+                                Log.e(TAG, "getProducts: " + rPlanId);
+                                if (rPlanId.equalsIgnoreCase(packageName)) {
+                                    Log.e(TAG, "Matched package");
+                                    result.found(rPackage);
+                                    return;
+                                }
+                                Log.e(TAG, "---------------------");
+                            }
+                            result.notFound();
+                        }
+
+                        @Override
+                        public void onError(@NonNull PurchasesError purchasesError) {
+                            Log.e(TAG, "getProducts error: " + purchasesError.getMessage());
+                            Log.e(TAG, "getProducts error: " + purchasesError.getCode());
+                            Log.e(TAG, "getProducts error: " + purchasesError.getUnderlyingErrorMessage());
+                            result.failed(purchasesError.getMessage());
+                        }
+                    });
+                },
+                (rPackage, error) -> {
+                    if (rPackage != null) {
                         purchasePackageThroughRevenueCat(triggerUrl, rPackage);
-                        break;
+                    } else {
+                        toast(error != null ? "getProducts error: " + error : "No product matched");
+                        progressBar.setVisibility(View.GONE);
                     }
-                    Log.e(TAG, "---------------------");
-                }
-                if (!isMatchingProductFound){
-                    toast("No product matched");
-                    progressBar.setVisibility(View.GONE);
-                }
-            }
-
-            @Override
-            public void onError(@NonNull PurchasesError purchasesError) {
-                Log.e(TAG, "getProducts error: " + purchasesError.getMessage());
-                Log.e(TAG, "getProducts error: " + purchasesError.getCode());
-                Log.e(TAG, "getProducts error: " + purchasesError.getUnderlyingErrorMessage());
-                toast("getProducts error: " + purchasesError.getMessage());
-                progressBar.setVisibility(View.GONE);
-            }
-        });
+                });
     }
 
     private void purchasePackageThroughRevenueCat(String triggerUrl, StoreProduct rPackage) {
@@ -4763,6 +4929,7 @@ public class MainActivity extends AppCompatActivity
         PurchaseParams.Builder purchaseParamBuilder = new PurchaseParams.Builder(
                 this, rPackage
         );
+        AppStartup.require(AppStartup.REVENUECAT);
         Purchases.getSharedInstance().purchase(
                 purchaseParamBuilder.build(),
                 new PurchaseCallback() {
@@ -4873,10 +5040,7 @@ public class MainActivity extends AppCompatActivity
                                         adLayout.removeAllViews();
                                         adLayout.setVisibility(View.GONE);
 
-                                        SharedPreferences settings = PreferenceManager.getDefaultSharedPreferences(MainActivity.this);
-                                        SharedPreferences.Editor editor = settings.edit();
-                                        editor.putString("disableAdMobDone", "removed");
-                                        editor.commit();
+                                        AlertManager.disableAds(MainActivity.this, true);
 
                                     }
                                 }
@@ -4973,19 +5137,7 @@ public class MainActivity extends AppCompatActivity
                 productType = BillingClient.ProductType.SUBS;
             }
             Log.e(TAG, "handleAppPurchases: " + packagePlan + " x " + productType);
-            List<QueryProductDetailsParams.Product> skuList = new ArrayList<>();
-            skuList.add(
-                    QueryProductDetailsParams.Product
-                            .newBuilder()
-                            .setProductType(productType)
-                            .setProductId(packagePlan)
-                            .build()
-            );
-//            SkuDetailsParams.Builder params = SkuDetailsParams.newBuilder();
-            QueryProductDetailsParams.Builder params =
-                    QueryProductDetailsParams.newBuilder();
-            params.setProductList(skuList);
-            checkItemPurchase(params.build());
+            checkItemPurchase(packagePlan, productType);
         } else {
             Toast.makeText(this, "Unable to get any package. Try again!", Toast.LENGTH_SHORT).show();
         }
@@ -6265,12 +6417,7 @@ public class MainActivity extends AppCompatActivity
     }
 
     boolean shouldAlwaysOpenInInappTab(String URL) {
-        for (int i = 0; i < Config.ALWAYS_OPEN_IN_INAPP_TAB.length; i++) {
-            if ((Config.ALWAYS_OPEN_IN_INAPP_TAB[i] != "") && (URL.startsWith(Config.ALWAYS_OPEN_IN_INAPP_TAB[i]))) {
-                return true;
-            }
-        }
-        return false;
+        return inAppTabRoutes.matches(URL);
     }
 
     void openInInappTab(String URL) {
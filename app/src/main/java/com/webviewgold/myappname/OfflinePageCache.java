@@ -0,0 +1,911 @@
+package com.webviewgold.myappname;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.webkit.CookieManager;
+import android.webkit.ValueCallback;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Disk-backed response cache for pages and assets served from Config.HOST,
+ * plugged into WebViewClient.shouldInterceptRequest.
+ *
+ * - Only GET requests for HTML, CSS, JS and images are handled; anything
+ *   else (XHR/fetch API calls, POSTs, other hosts) goes to the WebView as usual.
+ * - Responses are streamed to the WebView and written to disk at the same
+ *   time; the entry is only committed once the body has been read completely.
+ * - Entries keep their ETag / Last-Modified and are revalidated with a
+ *   conditional GET, so an unchanged resource costs a 304.
+ * - Responses marked no-store or private are never stored. Documents are
+ *   keyed by URL plus the values of the session cookies
+ *   (Config.SESSION_COOKIE_NAMES) sent with them, so a page cached for one
+ *   session (user) is never shown to another after logout or an account
+ *   switch; static assets are keyed by URL only.
+ * - Documents (pages, frames) are never fetched on the WebView's behalf: a
+ *   redirect can't be handed back through shouldInterceptRequest, so the
+ *   WebView would send the same request again. They are answered from disk
+ *   or left to the WebView, and get into the cache through prefetch() and
+ *   background revalidation.
+ * - Static assets and an app shell (main-frame loads of Config.HOME_URL)
+ *   fetched without a session are served stale-while-revalidate: the disk
+ *   copy is returned immediately and refreshed in the background for the
+ *   next load. Other static assets go to the network first and fall back to
+ *   the disk copy when it fails or answers with a 5xx.
+ * - Without validated connectivity, cached entries are served straight from disk.
+ * - The cache is an LRU bounded by MAX_BYTES; access order survives restarts
+ *   through the body file's modification time.
+ * - prefetch() lets startup fill the cache while the splash is showing
+ *   (see StartupWarmup).
+ */
+final class OfflinePageCache {
+
+    private static final String TAG = "OfflinePageCache";
+    private static final String DIR_NAME = "webcache";
+    private static final String SHELL_FILE = "shell";
+    private static final int MAGIC = 0x57435031; // "WCP1"
+    private static final int FORMAT_VERSION = 2;
+
+    private static final long MAX_BYTES = 50L * 1024 * 1024;
+    private static final long MAX_ENTRY_BYTES = 8L * 1024 * 1024;
+    // An app shell older than this is fetched from the network first
+    private static final long SHELL_MAX_STALE_MS = 24L * 60 * 60 * 1000;
+    // Don't revalidate the same asset more often than this
+    private static final long MIN_REVALIDATE_INTERVAL_MS = 30 * 1000;
+    private static final int CONNECT_TIMEOUT_MS = 10 * 1000;
+    private static final int READ_TIMEOUT_MS = 15 * 1000;
+    // How long a WebView request waits for a prefetch of the same URL to land
+    private static final long PREFETCH_WAIT_MS = 3 * 1000;
+    private static final int MAX_PREFETCH_HTML_BYTES = 512 * 1024;
+
+    private static final Set<String> STATIC_EXTENSIONS = new HashSet<>(Arrays.asList(
+            "js", "mjs", "css", "png", "jpg", "jpeg", "gif", "webp", "svg", "ico", "bmp", "avif"));
+
+    // Headers that describe the wire format rather than the decoded body we hand back
+    private static final Set<String> DROPPED_HEADERS = new HashSet<>(Arrays.asList(
+            "content-encoding", "content-length", "transfer-encoding", "connection",
+            "keep-alive", "set-cookie", "set-cookie2"));
+
+    private static OfflinePageCache instance;
+
+    private final Context appContext;
+    private final File dir;
+    private final ExecutorService revalidator = Executors.newFixedThreadPool(2, r -> {
+        Thread t = new Thread(r, "WebCache-Revalidate");
+        t.setPriority(Thread.NORM_PRIORITY - 1);
+        return t;
+    });
+
+    // Guarded by "this": key -> bytes on disk, in access order
+    private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes = 0;
+    private boolean indexLoaded = false;
+    // Lock-free copy of the index keys for main-thread lookups (has()); valid once indexReady
+    private final Set<String> keysOnDisk = ConcurrentHashMap.newKeySet();
+    private volatile boolean indexReady = false;
+    private final Set<String> revalidating = new HashSet<>();
+    private final ConcurrentHashMap<String, CountDownLatch> prefetching = new ConcurrentHashMap<>();
+
+    private volatile String shellUrl;
+    private final AtomicInteger tmpCounter = new AtomicInteger();
+
+    static synchronized OfflinePageCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new OfflinePageCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private OfflinePageCache(Context appContext) {
+        this.appContext = appContext;
+        dir = new File(appContext.getCacheDir(), DIR_NAME);
+        // Build the index off the caller's thread; the first intercept waits for it if needed
+        revalidator.execute(this::ensureIndex);
+    }
+
+    // ─── WebView Entry Point ───
+
+    /**
+     * Called from shouldInterceptRequest (WebView IO thread).
+     *
+     * @return a response from disk or from our own network fetch, or null to
+     *         let the WebView load the request itself
+     */
+    WebResourceResponse intercept(WebResourceRequest request) {
+        String url = request.getUrl().toString();
+        if (!isCandidate(request)) return null;
+        ensureIndex();
+
+        boolean document = !isStaticAsset(request.getUrl());
+        String key = keyFor(url, document);
+        awaitPrefetch(key);
+        Meta cached = readMeta(key);
+        boolean shell = request.isForMainFrame() && url.startsWith(Config.HOME_URL);
+        ConnectivityMonitor connectivity = ConnectivityMonitor.getInstance(appContext);
+
+        if (cached != null && !connectivity.isValidated()) {
+            if (BuildConfig.IS_DEBUG_MODE) Log.d(TAG, "Offline hit " + url);
+            return serve(key, cached);
+        }
+        if (!connectivity.isConnected()) {
+            return null;
+        }
+
+        if (cached != null) {
+            long age = System.currentTimeMillis() - cached.validatedAt;
+            if (age < cached.maxAgeMs) {
+                return serve(key, cached);
+            }
+            // Never paint a stale logged-in page while the network can say what's current
+            boolean staleWhileRevalidate = shell
+                    ? age < SHELL_MAX_STALE_MS && !cached.personal
+                    : isStaticAsset(request.getUrl());
+            if (staleWhileRevalidate) {
+                WebResourceResponse response = serve(key, cached);
+                if (response != null) {
+                    if (age >= MIN_REVALIDATE_INTERVAL_MS) {
+                        revalidateInBackground(url, key, cached, request.getRequestHeaders(), shell);
+                    }
+                    return response;
+                }
+                cached = null; // body went missing, fall through to the network
+            }
+        }
+        if (document) {
+            // Our fetch can't pass a redirect on, and a second request isn't always harmless
+            // (logout, one-time links), so the WebView makes the only one
+            return null;
+        }
+
+        try {
+            return fetch(url, key, cached, request.getRequestHeaders(), shell);
+        } catch (IOException e) {
+            if (BuildConfig.IS_DEBUG_MODE) Log.d(TAG, "Network failed for " + url + ": " + e.getMessage());
+            return cached != null ? serve(key, cached) : null;
+        }
+    }
+
+    /**
+     * True if a copy of the document {@code url} is cached for the current
+     * session (used to let offline navigations through). Never blocks or
+     * touches the disk, so it is safe on the main thread; answers false
+     * until the index has been built.
+     */
+    boolean has(String url) {
+        if (url == null || !indexReady) return false;
+        return keysOnDisk.contains(keyFor(url, true));
+    }
+
+    /**
+     * Looks up the last app shell stored for the current session in the
+     * background and reports its URL, or null if there is none, on the main thread.
+     */
+    void findCachedShell(ValueCallback<String> callback) {
+        revalidator.execute(() -> {
+            String result = cachedShell();
+            new Handler(Looper.getMainLooper()).post(() -> callback.onReceiveValue(result));
+        });
+    }
+
+    /**
+     * The last app shell stored for the current session, or null (blocking:
+     * may build the index; call off the main thread).
+     */
+    String cachedShell() {
+        ensureIndex();
+        String url = shellUrl;
+        return url != null && has(url) ? url : null;
+    }
+
+    void clear() {
+        revalidator.execute(() -> {
+            synchronized (this) {
+                File[] files = dir.listFiles();
+                if (files != null) {
+                    for (File f : files) f.delete();
+                }
+                index.clear();
+                keysOnDisk.clear();
+                totalBytes = 0;
+                shellUrl = null;
+            }
+        });
+    }
+
+    // ─── Prefetch ───
+
+    /**
+     * Fetches {@code url} into the cache ahead of the WebView asking for it
+     * (blocking; call off the main thread). A WebView request for the same
+     * URL that arrives meanwhile waits for this instead of fetching twice.
+     *
+     * @return the cached body if it is HTML, for picking out subresources; otherwise null
+     */
+    String prefetch(String url, Map<String, String> requestHeaders, boolean shell) {
+        Uri uri = Uri.parse(url);
+        String host = uri.getHost();
+        if (host == null || !(host.equals(Config.HOST) || host.endsWith("." + Config.HOST))) return null;
+        ensureIndex();
+
+        String key = keyFor(url, !isStaticAsset(uri));
+        CountDownLatch latch = new CountDownLatch(1);
+        if (prefetching.putIfAbsent(key, latch) != null) return null;
+        try {
+            Meta cached = readMeta(key);
+            boolean recent = cached != null
+                    && System.currentTimeMillis() - cached.validatedAt < Math.max(cached.maxAgeMs, MIN_REVALIDATE_INTERVAL_MS);
+            if (!recent) {
+                WebResourceResponse response = fetch(url, key, cached, requestHeaders, shell);
+                if (response != null && response.getData() != null) {
+                    try (InputStream in = response.getData()) {
+                        byte[] buffer = new byte[8192];
+                        while (in.read(buffer) != -1) {
+                            // drain so the entry is committed
+                        }
+                    }
+                }
+                cached = readMeta(key);
+            }
+            return cached != null && cached.mime.equals("text/html") ? readBody(key, cached) : null;
+        } catch (IOException e) {
+            if (BuildConfig.IS_DEBUG_MODE) Log.d(TAG, "Prefetch failed for " + url + ": " + e.getMessage());
+            return null;
+        } finally {
+            prefetching.remove(key, latch);
+            latch.countDown();
+        }
+    }
+
+    private void awaitPrefetch(String key) {
+        CountDownLatch latch = prefetching.get(key);
+        if (latch == null) return;
+        try {
+            latch.await(PREFETCH_WAIT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String readBody(String key, Meta meta) {
+        File body = new File(dir, key + ".body");
+        if (body.length() > MAX_PREFETCH_HTML_BYTES) return null;
+        try (InputStream in = new FileInputStream(body)) {
+            byte[] bytes = new byte[(int) body.length()];
+            int off = 0;
+            int n;
+            while (off < bytes.length && (n = in.read(bytes, off, bytes.length - off)) != -1) {
+                off += n;
+            }
+            String charset = meta.encoding.isEmpty() ? "UTF-8" : meta.encoding;
+            return new String(bytes, 0, off, charset);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // ─── Request Filtering ───
+
+    private static boolean isCandidate(WebResourceRequest request) {
+        if (!"GET".equalsIgnoreCase(request.getMethod())) return false;
+        Uri uri = request.getUrl();
+        String scheme = uri.getScheme();
+        String host = uri.getHost();
+        if (!"https".equals(scheme) && !"http".equals(scheme)) return false;
+        if (host == null || !(host.equals(Config.HOST) || host.endsWith("." + Config.HOST))) return false;
+
+        Map<String, String> headers = request.getRequestHeaders();
+        if (headers != null) {
+            for (Map.Entry<String, String> h : headers.entrySet()) {
+                if ("range".equalsIgnoreCase(h.getKey())) return false;
+            }
+        }
+        if (request.isForMainFrame() || isStaticAsset(uri)) return true;
+
+        // Sub-frame documents ask for HTML; API calls from scripts normally don't
+        String accept = header(headers, "Accept");
+        return accept != null && accept.startsWith("text/html");
+    }
+
+    private static boolean isStaticAsset(Uri uri) {
+        String path = uri.getPath();
+        if (path == null) return false;
+        int dot = path.lastIndexOf('.');
+        if (dot < 0 || dot < path.lastIndexOf('/')) return false;
+        return STATIC_EXTENSIONS.contains(path.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private static boolean isCacheableMime(String mime) {
+        return mime.equals("text/html") || mime.equals("text/css")
+                || mime.contains("javascript") || mime.startsWith("image/");
+    }
+
+    // ─── Network ───
+
+    private WebResourceResponse fetch(String url, String key, Meta cached,
+                                      Map<String, String> requestHeaders, boolean shell) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        conn.setInstanceFollowRedirects(false);
+        conn.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        conn.setReadTimeout(READ_TIMEOUT_MS);
+        if (requestHeaders != null) {
+            for (Map.Entry<String, String> h : requestHeaders.entrySet()) {
+                String name = h.getKey().toLowerCase(Locale.ROOT);
+                // Let HttpURLConnection negotiate gzip so it also decodes it for us
+                if (name.equals("accept-encoding") || name.equals("cookie")) continue;
+                conn.setRequestProperty(h.getKey(), h.getValue());
+            }
+        }
+        String cookies = CookieManager.getInstance().getCookie(url);
+        if (cookies != null) {
+            conn.setRequestProperty("Cookie", cookies);
+        }
+        if (cached != null) {
+            if (!cached.etag.isEmpty()) conn.setRequestProperty("If-None-Match", cached.etag);
+            if (!cached.lastModified.isEmpty()) conn.setRequestProperty("If-Modified-Since", cached.lastModified);
+        }
+
+        int status = conn.getResponseCode();
+        storeCookies(url, conn);
+        String cacheControl = conn.getHeaderField("Cache-Control");
+        boolean noStore = hasDirective(cacheControl, "no-store") || hasDirective(cacheControl, "private");
+
+        if (status == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+            conn.disconnect();
+            if (noStore) {
+                // The server no longer allows keeping this: hand out the copy it just
+                // confirmed one last time (the open stream outlives the files), then drop it
+                WebResourceResponse response = serve(key, cached);
+                forget(key);
+                return response;
+            }
+            cached.validatedAt = System.currentTimeMillis();
+            cached.maxAgeMs = maxAgeMs(conn.getHeaderField("Cache-Control"), cached.maxAgeMs);
+            writeMeta(key, cached);
+            if (BuildConfig.IS_DEBUG_MODE) Log.d(TAG, "304 " + url);
+            return serve(key, cached);
+        }
+        if (status >= 300 && status < 400) {
+            // The WebView has to follow redirects itself so the page URL stays right
+            conn.disconnect();
+            return null;
+        }
+        if (status >= 500 && cached != null) {
+            // Server trouble: same as a failed request, the disk copy beats an error page
+            conn.disconnect();
+            if (BuildConfig.IS_DEBUG_MODE) Log.d(TAG, status + " for " + url + ", serving cached copy");
+            return serve(key, cached);
+        }
+
+        Meta meta = Meta.from(url, conn);
+        String session = sessionOf(cookies);
+        meta.personal = !session.isEmpty();
+        // A response that changes the session belongs to the new one, whose key we don't have yet
+        boolean sessionChanged = !session.equals(sessionOf(CookieManager.getInstance().getCookie(url)));
+        InputStream body = status >= 400 ? conn.getErrorStream() : conn.getInputStream();
+        if (body == null) {
+            body = new ByteArrayInputStream(new byte[0]);
+        }
+
+        long length = conn.getContentLengthLong();
+        boolean cacheable = status == HttpURLConnection.HTTP_OK
+                && isCacheableMime(meta.mime)
+                && !noStore
+                && !sessionChanged
+                && length <= MAX_ENTRY_BYTES;
+        if (cacheable) {
+            body = new CachingInputStream(body, key, meta, shell);
+        }
+        return meta.toResponse(body);
+    }
+
+    private static void storeCookies(String url, HttpURLConnection conn) {
+        List<String> setCookies = conn.getHeaderFields().get("Set-Cookie");
+        if (setCookies == null) return;
+        CookieManager cookieManager = CookieManager.getInstance();
+        for (String cookie : setCookies) {
+            cookieManager.setCookie(url, cookie);
+        }
+    }
+
+    private void revalidateInBackground(String url, String key, Meta cached,
+                                        Map<String, String> requestHeaders, boolean shell) {
+        synchronized (revalidating) {
+            if (!revalidating.add(key)) return;
+        }
+        final Map<String, String> headers = requestHeaders == null ? null : new HashMap<>(requestHeaders);
+        revalidator.execute(() -> {
+            try {
+                WebResourceResponse response = fetch(url, key, cached, headers, shell);
+                if (response != null && response.getData() != null) {
+                    // Drain so a changed body gets committed to disk
+                    try (InputStream in = response.getData()) {
+                        byte[] buffer = new byte[8192];
+                        while (in.read(buffer) != -1) {
+                            // discard
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                if (BuildConfig.IS_DEBUG_MODE) Log.d(TAG, "Revalidation failed for " + url + ": " + e.getMessage());
+            } finally {
+                synchronized (revalidating) {
+                    revalidating.remove(key);
+                }
+            }
+        });
+    }
+
+    /**
+     * Passes the body through to the WebView while copying it to a temp file;
+     * the copy becomes the cache entry only if the stream reaches EOF.
+     */
+    private final class CachingInputStream extends FilterInputStream {
+        private final String key;
+        private final Meta meta;
+        private final boolean shell;
+        private final File tmp;
+        private OutputStream out;
+        private long written = 0;
+        private boolean finished = false;
+
+        CachingInputStream(InputStream in, String key, Meta meta, boolean shell) {
+            super(in);
+            this.key = key;
+            this.meta = meta;
+            this.shell = shell;
+            this.tmp = new File(dir, key + ".body." + tmpCounter.incrementAndGet() + ".tmp");
+            try {
+                dir.mkdirs();
+                out = new BufferedOutputStream(new FileOutputStream(tmp));
+            } catch (IOException e) {
+                out = null;
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b == -1) {
+                commit();
+            } else {
+                copy(new byte[]{(byte) b}, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count) throws IOException {
+            int n = super.read(buffer, offset, count);
+            if (n == -1) {
+                commit();
+            } else {
+                copy(buffer, offset, n);
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (!finished) abort();
+            }
+        }
+
+        private void copy(byte[] buffer, int offset, int count) {
+            if (out == null) return;
+            written += count;
+            if (written > MAX_ENTRY_BYTES) {
+                abort();
+                return;
+            }
+            try {
+                out.write(buffer, offset, count);
+            } catch (IOException e) {
+                abort();
+            }
+        }
+
+        private void commit() {
+            if (finished || out == null) return;
+            finished = true;
+            try {
+                out.close();
+            } catch (IOException e) {
+                tmp.delete();
+                return;
+            }
+            store(key, meta, tmp, written, shell);
+        }
+
+        private void abort() {
+            finished = true;
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                }
+                out = null;
+            }
+            tmp.delete();
+        }
+    }
+
+    // ─── Disk ───
+
+    private WebResourceResponse serve(String key, Meta meta) {
+        File body = new File(dir, key + ".body");
+        try {
+            InputStream in = new BufferedInputStream(new FileInputStream(body));
+            synchronized (this) {
+                index.get(key); // touch for LRU order
+            }
+            body.setLastModified(System.currentTimeMillis());
+            return meta.toResponse(in);
+        } catch (IOException e) {
+            forget(key);
+            return null;
+        }
+    }
+
+    private void store(String key, Meta meta, File tmpBody, long bodyBytes, boolean shell) {
+        File body = new File(dir, key + ".body");
+        meta.validatedAt = System.currentTimeMillis();
+        synchronized (this) {
+            if (!tmpBody.renameTo(body)) {
+                tmpBody.delete();
+                return;
+            }
+            long metaBytes = writeMeta(key, meta);
+            if (metaBytes < 0) {
+                body.delete();
+                forgetLocked(key);
+                return;
+            }
+            Long old = index.put(key, bodyBytes + metaBytes);
+            keysOnDisk.add(key);
+            totalBytes += bodyBytes + metaBytes - (old != null ? old : 0);
+            trimLocked();
+        }
+        if (shell && !meta.url.equals(shellUrl)) {
+            shellUrl = meta.url;
+            writeShellUrl(meta.url);
+        }
+        if (BuildConfig.IS_DEBUG_MODE) Log.d(TAG, "Stored " + meta.url + " (" + bodyBytes + " bytes, total " + totalBytes + ")");
+    }
+
+    private void trimLocked() {
+        Iterator<Map.Entry<String, Long>> it = index.entrySet().iterator();
+        while (totalBytes > MAX_BYTES && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            totalBytes -= eldest.getValue();
+            new File(dir, eldest.getKey() + ".body").delete();
+            new File(dir, eldest.getKey() + ".meta").delete();
+            keysOnDisk.remove(eldest.getKey());
+            it.remove();
+        }
+    }
+
+    private void forget(String key) {
+        synchronized (this) {
+            forgetLocked(key);
+        }
+    }
+
+    private void forgetLocked(String key) {
+        Long size = index.remove(key);
+        keysOnDisk.remove(key);
+        if (size != null) totalBytes -= size;
+        new File(dir, key + ".body").delete();
+        new File(dir, key + ".meta").delete();
+    }
+
+    /**
+     * Lists the cache directory once, oldest access first, and drops orphans and temp files.
+     */
+    private void ensureIndex() {
+        synchronized (this) {
+            if (indexLoaded) return;
+            indexLoaded = true;
+
+            File[] files = dir.listFiles();
+            List<File> bodies = new ArrayList<>();
+            if (files != null) {
+                for (File f : files) {
+                    String name = f.getName();
+                    if (name.endsWith(".tmp")) {
+                        f.delete();
+                    } else if (name.endsWith(".body")) {
+                        bodies.add(f);
+                    }
+                }
+            }
+            bodies.sort((a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+            for (File body : bodies) {
+                String key = body.getName().substring(0, body.getName().length() - ".body".length());
+                File meta = new File(dir, key + ".meta");
+                if (!meta.exists()) {
+                    body.delete();
+                    continue;
+                }
+                long size = body.length() + meta.length();
+                index.put(key, size);
+                keysOnDisk.add(key);
+                totalBytes += size;
+            }
+            trimLocked();
+        }
+        shellUrl = readShellUrl();
+        indexReady = true;
+        if (BuildConfig.IS_DEBUG_MODE) Log.d(TAG, "Index loaded: " + index.size() + " entries, " + totalBytes + " bytes");
+    }
+
+    private Meta readMeta(String key) {
+        synchronized (this) {
+            if (!index.containsKey(key)) return null;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(new File(dir, key + ".meta"))))) {
+            return Meta.read(in);
+        } catch (IOException e) {
+            forget(key);
+            return null;
+        }
+    }
+
+    /**
+     * @return bytes written, or -1 on failure
+     */
+    private long writeMeta(String key, Meta meta) {
+        File file = new File(dir, key + ".meta");
+        File tmp = new File(dir, key + ".meta." + tmpCounter.incrementAndGet() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            meta.write(out);
+        } catch (IOException e) {
+            tmp.delete();
+            return -1;
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            return -1;
+        }
+        return file.length();
+    }
+
+    private String readShellUrl() {
+        File file = new File(dir, SHELL_FILE);
+        if (!file.exists()) return null;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readUTF();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void writeShellUrl(String url) {
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(new File(dir, SHELL_FILE)))) {
+            out.writeUTF(url);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to record app shell: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param document true for pages: the key then also covers the session
+     *                 cookies the request carries, so each session gets its own copy
+     */
+    private static String keyFor(String url, boolean document) {
+        int hash = url.indexOf('#');
+        if (hash >= 0) url = url.substring(0, hash);
+        String material = url;
+        if (document) {
+            String session = sessionOf(CookieManager.getInstance().getCookie(url));
+            if (!session.isEmpty()) material = url + "\n" + session;
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] bytes = digest.digest(material.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(bytes.length * 2);
+            for (byte b : bytes) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (Exception e) {
+            return Integer.toHexString(material.hashCode());
+        }
+    }
+
+    /**
+     * The session cookies (Config.SESSION_COOKIE_NAMES, matched by name
+     * prefix) out of a Cookie header, in header order; "" without any. Other
+     * cookies (CSRF tokens, analytics) change too often to key on.
+     */
+    private static String sessionOf(String cookies) {
+        if (cookies == null || cookies.isEmpty()) return "";
+        StringBuilder session = new StringBuilder();
+        for (String cookie : cookies.split(";")) {
+            String pair = cookie.trim();
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            for (String sessionName : Config.SESSION_COOKIE_NAMES) {
+                if (!sessionName.isEmpty() && name.startsWith(sessionName)) {
+                    if (session.length() > 0) session.append("; ");
+                    session.append(pair);
+                    break;
+                }
+            }
+        }
+        return session.toString();
+    }
+
+    private static boolean hasDirective(String cacheControl, String directive) {
+        if (cacheControl == null) return false;
+        for (String d : cacheControl.toLowerCase(Locale.ROOT).split(",")) {
+            if (d.trim().equals(directive)) return true;
+        }
+        return false;
+    }
+
+    private static String header(Map<String, String> headers, String name) {
+        if (headers == null) return null;
+        for (Map.Entry<String, String> h : headers.entrySet()) {
+            if (name.equalsIgnoreCase(h.getKey())) return h.getValue();
+        }
+        return null;
+    }
+
+    private static long maxAgeMs(String cacheControl, long fallback) {
+        if (cacheControl == null) return fallback;
+        for (String directive : cacheControl.toLowerCase(Locale.ROOT).split(",")) {
+            directive = directive.trim();
+            if (directive.equals("no-cache") || directive.equals("no-store")) return 0;
+            if (directive.startsWith("max-age=")) {
+                try {
+                    return Long.parseLong(directive.substring(8).trim()) * 1000;
+                } catch (NumberFormatException e) {
+                    return fallback;
+                }
+            }
+        }
+        return fallback;
+    }
+
+    // ─── Entry Metadata ───
+
+    private static final class Meta {
+        String url;
+        int status;
+        String reason;
+        String mime;
+        String encoding;        // "" if the response didn't name a charset
+        String etag;            // "" if none
+        String lastModified;    // "" if none
+        long validatedAt;
+        long maxAgeMs;
+        boolean personal;       // fetched with a session cookie
+        final LinkedHashMap<String, String> headers = new LinkedHashMap<>();
+
+        static Meta from(String url, HttpURLConnection conn) throws IOException {
+            Meta meta = new Meta();
+            meta.url = url;
+            meta.status = conn.getResponseCode();
+            String reason = conn.getResponseMessage();
+            meta.reason = reason == null || reason.trim().isEmpty() ? "OK" : reason;
+
+            String contentType = conn.getContentType();
+            meta.mime = "application/octet-stream";
+            meta.encoding = "";
+            if (contentType != null) {
+                String[] parts = contentType.split(";");
+                meta.mime = parts[0].trim().toLowerCase(Locale.ROOT);
+                for (int i = 1; i < parts.length; i++) {
+                    String p = parts[i].trim();
+                    if (p.toLowerCase(Locale.ROOT).startsWith("charset=")) {
+                        meta.encoding = p.substring(8).replace("\"", "").trim();
+                    }
+                }
+            }
+            meta.etag = valueOrEmpty(conn.getHeaderField("ETag"));
+            meta.lastModified = valueOrEmpty(conn.getHeaderField("Last-Modified"));
+            meta.maxAgeMs = maxAgeMs(conn.getHeaderField("Cache-Control"), 0);
+
+            for (Map.Entry<String, List<String>> h : conn.getHeaderFields().entrySet()) {
+                String name = h.getKey();
+                if (name == null || h.getValue() == null || h.getValue().isEmpty()) continue;
+                if (DROPPED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) continue;
+                String value = h.getValue().get(0);
+                if (value.length() > 8192) continue;
+                meta.headers.put(name, value);
+            }
+            return meta;
+        }
+
+        WebResourceResponse toResponse(InputStream body) {
+            return new WebResourceResponse(mime, encoding.isEmpty() ? null : encoding,
+                    status, reason, new HashMap<>(headers), body);
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(url);
+            out.writeInt(status);
+            out.writeUTF(reason);
+            out.writeUTF(mime);
+            out.writeUTF(encoding);
+            out.writeUTF(etag);
+            out.writeUTF(lastModified);
+            out.writeLong(validatedAt);
+            out.writeLong(maxAgeMs);
+            out.writeBoolean(personal);
+            out.writeInt(headers.size());
+            for (Map.Entry<String, String> h : headers.entrySet()) {
+                out.writeUTF(h.getKey());
+                out.writeUTF(h.getValue());
+            }
+        }
+
+        static Meta read(DataInputStream in) throws IOException {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unknown cache entry format");
+            }
+            Meta meta = new Meta();
+            meta.url = in.readUTF();
+            meta.status = in.readInt();
+            meta.reason = in.readUTF();
+            meta.mime = in.readUTF();
+            meta.encoding = in.readUTF();
+            meta.etag = in.readUTF();
+            meta.lastModified = in.readUTF();
+            meta.validatedAt = in.readLong();
+            meta.maxAgeMs = in.readLong();
+            meta.personal = in.readBoolean();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                meta.headers.put(in.readUTF(), in.readUTF());
+            }
+            return meta;
+        }
+
+        private static String valueOrEmpty(String value) {
+            return value == null ? "" : value;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.webviewgold.myappname;
+
+import android.util.Log;
+
+import org.json.JSONObject;
+
+/**
+ * Assembles everything onPageFinished injects into one script, so a
+ * navigation costs a single evaluateJavascript round trip instead of one
+ * loadUrl("javascript:") per feature.
+ *
+ * Fragments that only depend on Config are built once per process. Each
+ * fragment runs in its own try/catch, so one failing fragment does not
+ * stop the rest (as with the old separate calls). The script evaluates to
+ * window.devicePixelRatio, which the safe-inset handling needs anyway.
+ */
+final class PageReadyScript {
+
+    private static final String TAG = "PageReadyScript";
+
+    // Config-only fragments, built once
+    private static String everyLoadFragments;
+    private static String firstLoadFragments;
+
+    // Timing stats, main thread only
+    private static int samples = 0;
+    private static long totalReadyMs = 0;
+    private static long totalRoundTripMs = 0;
+
+    private final StringBuilder script = new StringBuilder(1024);
+
+    /**
+     * @param firstLoad false for redirect hops, which only get the viewport
+     *                  and input fragments (as before)
+     */
+    PageReadyScript(boolean firstLoad) {
+        ensureStaticFragments();
+        script.append("(function() {");
+        script.append(everyLoadFragments);
+        if (firstLoad) {
+            script.append(firstLoadFragments);
+        }
+    }
+
+    /**
+     * Adds a fragment that has already been built by the caller (e.g. cached custom CSS/JS).
+     */
+    PageReadyScript fragment(String js) {
+        if (js != null && !js.isEmpty()) {
+            script.append(wrap(js));
+        }
+        return this;
+    }
+
+    /**
+     * Declares a global variable for the page, e.g. uuid or onesignalplayerid.
+     */
+    PageReadyScript variable(String name, String value) {
+        script.append("window.").append(name).append(" = ")
+                .append(JSONObject.quote(String.valueOf(value))).append(";");
+        return this;
+    }
+
+    PageReadyScript variable(String name, boolean value) {
+        script.append("window.").append(name).append(" = ").append(value).append(";");
+        return this;
+    }
+
+    String build() {
+        return script + "return window.devicePixelRatio;})();";
+    }
+
+    private static synchronized void ensureStaticFragments() {
+        if (everyLoadFragments != null) return;
+
+        StringBuilder every = new StringBuilder();
+        if (!Config.ENABLE_ZOOM) {
+            every.append(wrap("var viewport = document.getElementsByName('viewport')[0];" +
+                    "if (viewport) viewport.setAttribute('content', 'initial-scale=1.0, user-scalable=no');"));
+        }
+        if (Config.INPUT_SCROLL_HELPER) {
+            every.append(wrap("document.querySelectorAll('input, textarea').forEach((el) => {" +
+                    "  el.addEventListener('focus', (event) => {" +
+                    "    setTimeout(() => {" +
+                    "      event.target.scrollIntoView({ behavior: 'smooth', block: 'center' });" +
+                    "    }, 300);" +
+                    "  });" +
+                    "});"));
+        }
+
+        StringBuilder first = new StringBuilder();
+        if (Config.AUTO_INJECT_VARIABLES) {
+            first.append("window.versionNumber = ").append(JSONObject.quote(BuildConfig.VERSION_NAME)).append(";")
+                    .append("window.bundleNumber = ").append(JSONObject.quote(String.valueOf(BuildConfig.VERSION_CODE))).append(";");
+        }
+        if (!Config.LINK_DRAG_AND_DROP) {
+            first.append(wrap("var links = document.getElementsByTagName('a');" +
+                    "for (var i = 0; i < links.length; i++) {" +
+                    "   links[i].draggable = false;" +
+                    "}"));
+        }
+
+        everyLoadFragments = every.toString();
+        firstLoadFragments = first.toString();
+    }
+
+    private static String wrap(String js) {
+        return "try {" + js + "} catch (e) { console.error(e); }";
+    }
+
+    // ─── Timing ───
+
+    /**
+     * Records how long the page took to become ready after onPageStarted,
+     * and how much of that was the injection round trip itself.
+     */
+    static void recordTiming(long pageStartedAt, long dispatchedAt, long completedAt) {
+        if (pageStartedAt <= 0) return;
+        long readyMs = completedAt - pageStartedAt;
+        long roundTripMs = completedAt - dispatchedAt;
+        samples++;
+        totalReadyMs += readyMs;
+        totalRoundTripMs += roundTripMs;
+        if (BuildConfig.IS_DEBUG_MODE) {
+            Log.d(TAG, "Page ready in " + readyMs + " ms (injection " + roundTripMs + " ms); avg " +
+                    (totalReadyMs / samples) + " / " + (totalRoundTripMs / samples) + " ms over " + samples + " loads");
+        }
+    }
+}
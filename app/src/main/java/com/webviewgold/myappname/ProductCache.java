@@ -0,0 +1,155 @@
+package com.webviewgold.myappname;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Store product lookups (Play ProductDetails, RevenueCat StoreProduct) kept
+ * for a while, so opening the same paywall or purchase trigger again starts
+ * the purchase flow immediately instead of querying the store every time.
+ *
+ * Keyed by the caller (e.g. product type + product id). Found products are
+ * kept for Config.PRODUCT_CACHE_TTL_SECONDS; products the store doesn't know
+ * are remembered for a shorter Config.PRODUCT_CACHE_NEGATIVE_TTL_SECONDS so a
+ * misconfigured id doesn't cost a round trip on every tap. Errors are never
+ * cached. Concurrent lookups of the same key share one store query.
+ *
+ * Callbacks always arrive on the main thread. All methods may be called
+ * from any thread.
+ */
+final class ProductCache<T> {
+
+    interface Loader<T> {
+        /**
+         * Queries the store once and reports exactly once, on any thread.
+         */
+        void load(Result<T> result);
+    }
+
+    interface Result<T> {
+        void found(T product);
+
+        void notFound();
+
+        void failed(String message);
+    }
+
+    interface Callback<T> {
+        /**
+         * @param product the product, or null if the store doesn't have it or the query failed
+         * @param error   null unless the query failed
+         */
+        void onResult(@Nullable T product, @Nullable String error);
+    }
+
+    private static final String TAG = "ProductCache";
+
+    private static final class Entry<T> {
+        final T product;          // null = not found
+        final long expiresAt;     // SystemClock.elapsedRealtime()
+
+        Entry(T product, long expiresAt) {
+            this.product = product;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final String name;
+    private final long ttlMs;
+    private final long negativeTtlMs;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Guarded by this
+    private final Map<String, Entry<T>> entries = new HashMap<>();
+    private final Map<String, List<Callback<T>>> inFlight = new HashMap<>();
+
+    ProductCache(String name) {
+        this.name = name;
+        this.ttlMs = Config.PRODUCT_CACHE_TTL_SECONDS * 1000L;
+        this.negativeTtlMs = Config.PRODUCT_CACHE_NEGATIVE_TTL_SECONDS * 1000L;
+    }
+
+    /**
+     * Answers from the cache if the entry is fresh; otherwise runs the loader,
+     * or joins the query already running for this key.
+     */
+    void get(String key, Loader<T> loader, Callback<T> callback) {
+        synchronized (this) {
+            Entry<T> entry = entries.get(key);
+            if (entry != null) {
+                if (SystemClock.elapsedRealtime() < entry.expiresAt) {
+                    if (BuildConfig.IS_DEBUG_MODE) Log.d(TAG, name + " cache hit: " + key);
+                    mainHandler.post(() -> callback.onResult(entry.product, null));
+                    return;
+                }
+                entries.remove(key);
+            }
+
+            List<Callback<T>> waiting = inFlight.get(key);
+            if (waiting != null) {
+                if (BuildConfig.IS_DEBUG_MODE) Log.d(TAG, name + " joining query: " + key);
+                waiting.add(callback);
+                return;
+            }
+            waiting = new ArrayList<>();
+            waiting.add(callback);
+            inFlight.put(key, waiting);
+        }
+
+        if (BuildConfig.IS_DEBUG_MODE) Log.d(TAG, name + " querying: " + key);
+        loader.load(new Result<T>() {
+            private boolean reported = false;
+
+            @Override
+            public void found(T product) {
+                complete(product, null, ttlMs);
+            }
+
+            @Override
+            public void notFound() {
+                complete(null, null, negativeTtlMs);
+            }
+
+            @Override
+            public void failed(String message) {
+                complete(null, message, 0);
+            }
+
+            private void complete(@Nullable T product, @Nullable String error, long keepMs) {
+                final List<Callback<T>> callbacks;
+                synchronized (ProductCache.this) {
+                    if (reported) return;
+                    reported = true;
+                    if (keepMs > 0) {
+                        entries.put(key, new Entry<>(product, SystemClock.elapsedRealtime() + keepMs));
+                    }
+                    callbacks = inFlight.remove(key);
+                }
+                if (callbacks == null) return;
+                mainHandler.post(() -> {
+                    for (Callback<T> c : callbacks) c.onResult(product, error);
+                });
+            }
+        });
+    }
+
+    /**
+     * Drops one entry, e.g. after the store rejected a purchase of a cached product.
+     */
+    synchronized void invalidate(String key) {
+        entries.remove(key);
+    }
+
+    synchronized void clear() {
+        entries.clear();
+    }
+}
@@ -0,0 +1,251 @@
+package com.webviewgold.myappname;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Build;
+import android.util.Log;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Process-wide screen state monitor.
+ *
+ * Owns the single SCREEN_OFF / SCREEN_ON / USER_PRESENT receiver for the app,
+ * registered on the application context so it outlives MainActivity.
+ * ScreenStateService keeps the process alive while a focus trial or sleep
+ * tracking is in progress.
+ *
+ * Transitions are recorded in a fixed ring buffer with timestamps and a
+ * sequence number. Each subscriber tag has a delivery cursor, so a bridge
+ * that was destroyed with its activity gets the events it missed replayed
+ * (with their original timestamps) when it subscribes again.
+ *
+ * Listeners live in a CopyOnWriteArrayList: dispatch iterates a snapshot
+ * without locking, subscribe/unsubscribe are rare.
+ */
+public final class ScreenStateMonitor {
+
+    private static final String TAG = "ScreenStateMonitor";
+    private static final int RING_SIZE = 64;
+
+    public static final int EVENT_SCREEN_OFF = 1;
+    public static final int EVENT_SCREEN_ON = 2;
+    public static final int EVENT_USER_PRESENT = 3;
+
+    public interface Listener {
+        /**
+         * Called on the main thread.
+         *
+         * @param replay true if the event happened while this subscriber was detached
+         */
+        void onScreenEvent(int event, long timestamp, boolean replay);
+    }
+
+    private static final class Subscription {
+        final String tag;
+        final Listener listener;
+
+        Subscription(String tag, Listener listener) {
+            this.tag = tag;
+            this.listener = listener;
+        }
+    }
+
+    private static ScreenStateMonitor instance;
+
+    private final Context appContext;
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final ConcurrentHashMap<String, Long> cursors = new ConcurrentHashMap<>();
+
+    // Ring buffer of transitions; guarded by "this"
+    private final long[] ringTimes = new long[RING_SIZE];
+    private final long[] ringSeqs = new long[RING_SIZE];
+    private final int[] ringEvents = new int[RING_SIZE];
+    private long nextSeq = 1;
+
+    private BroadcastReceiver receiver;
+    private boolean serviceHold = false;
+
+    public static synchronized ScreenStateMonitor getInstance(Context context) {
+        if (instance == null) {
+            instance = new ScreenStateMonitor(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private ScreenStateMonitor(Context appContext) {
+        this.appContext = appContext;
+    }
+
+    // ─── Subscriptions ───
+
+    /**
+     * Subscribes a listener under a stable tag (one per feature).
+     * Events recorded since the tag's last delivery are replayed first.
+     * Must be called on the main thread.
+     */
+    public void subscribe(String tag, Listener listener) {
+        unsubscribe(tag);
+
+        Subscription sub = new Subscription(tag, listener);
+        subscriptions.add(sub);
+        updateRegistration();
+
+        Long cursor = cursors.get(tag);
+        if (cursor != null) {
+            replaySince(cursor, sub);
+        } else {
+            synchronized (this) {
+                cursors.put(tag, nextSeq - 1);
+            }
+        }
+    }
+
+    public void unsubscribe(String tag) {
+        for (Subscription sub : subscriptions) {
+            if (sub.tag.equals(tag)) {
+                subscriptions.remove(sub);
+            }
+        }
+        updateRegistration();
+    }
+
+    /**
+     * Forgets the delivery cursor for a tag, so the next subscribe starts fresh
+     * instead of replaying. Call when the feature has nothing left to track.
+     */
+    public void reset(String tag) {
+        cursors.remove(tag);
+    }
+
+    void setServiceHold(boolean hold) {
+        serviceHold = hold;
+        updateRegistration();
+    }
+
+    // ─── Ring Buffer ───
+
+    private void replaySince(long cursor, Subscription sub) {
+        long[] times;
+        long[] seqs;
+        int[] events;
+        int count = 0;
+        synchronized (this) {
+            long oldest = Math.max(cursor + 1, nextSeq - RING_SIZE);
+            int n = (int) Math.max(0, nextSeq - oldest);
+            times = new long[n];
+            seqs = new long[n];
+            events = new int[n];
+            for (long seq = oldest; seq < nextSeq; seq++) {
+                int idx = (int) (seq % RING_SIZE);
+                times[count] = ringTimes[idx];
+                seqs[count] = ringSeqs[idx];
+                events[count] = ringEvents[idx];
+                count++;
+            }
+            if (cursor + 1 < oldest) {
+                Log.w(TAG, sub.tag + " missed " + (oldest - cursor - 1) + " events (ring overflow)");
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            // The listener may unsubscribe itself while handling a replayed event
+            if (!subscriptions.contains(sub)) return;
+            sub.listener.onScreenEvent(events[i], times[i], true);
+            if (subscriptions.contains(sub)) {
+                cursors.put(sub.tag, seqs[i]);
+            }
+        }
+        if (count > 0) {
+            Log.d(TAG, "Replayed " + count + " screen events to " + sub.tag);
+        }
+    }
+
+    private synchronized long record(int event, long timestamp) {
+        long seq = nextSeq++;
+        int idx = (int) (seq % RING_SIZE);
+        ringTimes[idx] = timestamp;
+        ringSeqs[idx] = seq;
+        ringEvents[idx] = event;
+        return seq;
+    }
+
+    /**
+     * Returns the timestamp of the most recent occurrence of an event, or 0.
+     */
+    public synchronized long getLastEventTime(int event) {
+        for (long seq = nextSeq - 1; seq > 0 && seq >= nextSeq - RING_SIZE; seq--) {
+            int idx = (int) (seq % RING_SIZE);
+            if (ringEvents[idx] == event) return ringTimes[idx];
+        }
+        return 0;
+    }
+
+    // ─── Receiver ───
+
+    private void dispatch(int event) {
+        long timestamp = System.currentTimeMillis();
+        long seq = record(event, timestamp);
+
+        Iterator<Subscription> it = subscriptions.iterator();
+        while (it.hasNext()) {
+            Subscription sub = it.next();
+            try {
+                sub.listener.onScreenEvent(event, timestamp, false);
+            } catch (Exception e) {
+                Log.e(TAG, "Listener " + sub.tag + " failed: " + e.getMessage());
+            }
+            if (subscriptions.contains(sub)) {
+                cursors.put(sub.tag, seq);
+            }
+        }
+    }
+
+    private synchronized void updateRegistration() {
+        boolean needed = serviceHold || !subscriptions.isEmpty();
+        if (needed && receiver == null) {
+            receiver = new BroadcastReceiver() {
+                @Override
+                public void onReceive(Context ctx, Intent intent) {
+                    if (intent == null || intent.getAction() == null) return;
+
+                    switch (intent.getAction()) {
+                        case Intent.ACTION_SCREEN_OFF:
+                            dispatch(EVENT_SCREEN_OFF);
+                            break;
+                        case Intent.ACTION_SCREEN_ON:
+                            dispatch(EVENT_SCREEN_ON);
+                            break;
+                        case Intent.ACTION_USER_PRESENT:
+                            dispatch(EVENT_USER_PRESENT);
+                            break;
+                    }
+                }
+            };
+
+            IntentFilter filter = new IntentFilter();
+            filter.addAction(Intent.ACTION_SCREEN_OFF);
+            filter.addAction(Intent.ACTION_SCREEN_ON);
+            filter.addAction(Intent.ACTION_USER_PRESENT);
+
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+                appContext.registerReceiver(receiver, filter, Context.RECEIVER_NOT_EXPORTED);
+            } else {
+                appContext.registerReceiver(receiver, filter);
+            }
+            Log.d(TAG, "Screen receiver registered");
+        } else if (!needed && receiver != null) {
+            try {
+                appContext.unregisterReceiver(receiver);
+            } catch (Exception e) {
+                Log.e(TAG, "Error unregistering receiver: " + e.getMessage());
+            }
+            receiver = null;
+            Log.d(TAG, "Screen receiver unregistered");
+        }
+    }
+}
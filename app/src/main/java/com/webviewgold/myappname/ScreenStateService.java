@@ -0,0 +1,187 @@
+package com.webviewgold.myappname;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.os.Build;
+import android.os.IBinder;
+import android.util.Log;
+
+import androidx.core.app.NotificationCompat;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Lightweight foreground service that keeps ScreenStateMonitor alive
+ * while a Deep Work trial or sleep tracking is in progress, so screen
+ * transitions are still recorded after MainActivity is destroyed.
+ *
+ * Features hold the service with acquire(tag) and drop it with release(tag);
+ * the service stops itself once nothing holds it.
+ */
+public class ScreenStateService extends Service {
+
+    private static final String TAG = "ScreenStateService";
+    private static final int NOTIFICATION_ID = 9003;
+    private static final String CHANNEL_ID = "ScreenStateChannel";
+
+    public static final String HOLDER_DEEP_WORK = "deepwork";
+    public static final String HOLDER_SLEEP = "sleep";
+
+    // Guarded by HOLDERS
+    private static final Set<String> HOLDERS = new HashSet<>();
+    private static boolean running = false;
+
+    private NotificationManager notificationManager;
+
+    /**
+     * Keeps screen tracking alive for the given feature. Starts the service if needed.
+     */
+    public static void acquire(Context context, String holder) {
+        boolean start;
+        synchronized (HOLDERS) {
+            boolean added = HOLDERS.add(holder);
+            start = !running || added;
+        }
+        if (!start) return;
+
+        try {
+            Intent intent = new Intent(context, ScreenStateService.class);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                context.startForegroundService(intent);
+            } else {
+                context.startService(intent);
+            }
+        } catch (Exception e) {
+            // Background start restrictions; the activity-scoped subscription still works
+            Log.e(TAG, "Failed to start screen state service: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Releases the feature's hold. Stops the service when no feature holds it.
+     */
+    public static void release(Context context, String holder) {
+        boolean stop;
+        synchronized (HOLDERS) {
+            if (!HOLDERS.remove(holder)) return;
+            stop = HOLDERS.isEmpty() && running;
+        }
+        if (stop) {
+            try {
+                context.stopService(new Intent(context, ScreenStateService.class));
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to stop screen state service: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        notificationManager = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
+        createNotificationChannel();
+        ScreenStateMonitor.getInstance(this).setServiceHold(true);
+        Log.d(TAG, "Service created");
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        Notification notification = buildNotification();
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE) {
+            startForeground(NOTIFICATION_ID, notification, ServiceInfo.FOREGROUND_SERVICE_TYPE_SPECIAL_USE);
+        } else {
+            startForeground(NOTIFICATION_ID, notification);
+        }
+
+        boolean empty;
+        synchronized (HOLDERS) {
+            running = true;
+            empty = HOLDERS.isEmpty();
+        }
+        if (empty) {
+            // Restarted after process death: holders re-acquire when their bridge loads
+            Log.d(TAG, "No holders, stopping");
+            stopSelf();
+            return START_NOT_STICKY;
+        }
+
+        Log.d(TAG, "Service started in foreground");
+        return START_STICKY;
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+
+    @Override
+    public void onDestroy() {
+        synchronized (HOLDERS) {
+            running = false;
+        }
+        ScreenStateMonitor.getInstance(this).setServiceHold(false);
+        Log.d(TAG, "Service destroyed");
+        super.onDestroy();
+    }
+
+    private void createNotificationChannel() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(
+                CHANNEL_ID,
+                "Focus & Sleep Tracking",
+                NotificationManager.IMPORTANCE_LOW
+            );
+            channel.setDescription("Shown while a focus trial or sleep tracking is active");
+            channel.setShowBadge(false);
+            notificationManager.createNotificationChannel(channel);
+        }
+    }
+
+    private Notification buildNotification() {
+        boolean deepWork;
+        boolean sleep;
+        synchronized (HOLDERS) {
+            deepWork = HOLDERS.contains(HOLDER_DEEP_WORK);
+            sleep = HOLDERS.contains(HOLDER_SLEEP);
+        }
+
+        String title;
+        if (deepWork && sleep) {
+            title = "Focus & sleep tracking active";
+        } else if (sleep) {
+            title = "Sleep tracking active";
+        } else {
+            title = "Deep focus in progress";
+        }
+
+        Intent intent = new Intent(this, MainActivity.class);
+        intent.setAction(Intent.ACTION_MAIN);
+        intent.addCategory(Intent.CATEGORY_LAUNCHER);
+        intent.addFlags(Intent.FLAG_ACTIVITY_REORDER_TO_FRONT);
+
+        PendingIntent pendingIntent = PendingIntent.getActivity(
+            this, 0, intent, PendingIntent.FLAG_IMMUTABLE
+        );
+
+        return new NotificationCompat.Builder(this, CHANNEL_ID)
+            .setSmallIcon(R.mipmap.ic_launcher_round)
+            .setColor(getResources().getColor(R.color.colorPrimary))
+            .setContentTitle(title)
+            .setContentText("Tracking lock and unlock events")
+            .setShowWhen(false)
+            .setPriority(NotificationCompat.PRIORITY_LOW)
+            .setCategory(NotificationCompat.CATEGORY_SERVICE)
+            .setOngoing(true)
+            .setVisibility(NotificationCompat.VISIBILITY_PUBLIC)
+            .setContentIntent(pendingIntent)
+            .build();
+    }
+}
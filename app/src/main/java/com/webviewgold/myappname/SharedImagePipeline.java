@@ -0,0 +1,217 @@
+package com.webviewgold.myappname;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.util.Log;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands images shared into the app (ACTION_SEND image/*) to the page
+ * without building a Base64 string.
+ *
+ * The image is decoded with inSampleSize to roughly MAX_DIMENSION, scaled
+ * and rotated (EXIF) to fit, re-encoded on the I/O executor and written to
+ * cacheDir/shared. The page gets a short same-origin URL
+ * (/__app_shared/<token>.jpg) that shouldInterceptRequest serves straight
+ * from that file, so it can be used as an <img> src or fetch()ed as a Blob.
+ */
+final class SharedImagePipeline {
+
+    private static final String TAG = "SharedImagePipeline";
+    private static final String DIR_NAME = "shared";
+    static final String PATH_PREFIX = "/__app_shared/";
+
+    private static final int MAX_DIMENSION = 2048;
+    private static final int JPEG_QUALITY = 85;
+    private static final int MAX_KEPT_FILES = 4;
+
+    public interface Callback {
+        /**
+         * Called on the main thread with the page-relative URL of the
+         * prepared image, or null if it could not be read.
+         */
+        void onReady(String path, String mimeType);
+    }
+
+    // token -> prepared file (and its mime type)
+    private static final Map<String, File> FILES = new ConcurrentHashMap<>();
+    private static final Map<String, String> MIME_TYPES = new ConcurrentHashMap<>();
+
+    private SharedImagePipeline() {
+    }
+
+    static void prepare(Context context, Uri imageUri, Callback callback) {
+        final Context appContext = context.getApplicationContext();
+        AppExecutors.io().execute(() -> {
+            String path = null;
+            String mimeType = null;
+            try {
+                ContentResolver resolver = appContext.getContentResolver();
+                String sourceType = resolver.getType(imageUri);
+                boolean keepAlpha = "image/png".equals(sourceType) || "image/webp".equals(sourceType)
+                        || "image/gif".equals(sourceType);
+                mimeType = keepAlpha ? "image/png" : "image/jpeg";
+
+                Bitmap bitmap = decodeBounded(resolver, imageUri);
+                if (bitmap != null) {
+                    String token = UUID.randomUUID().toString();
+                    File file = new File(directory(appContext), token + (keepAlpha ? ".png" : ".jpg"));
+                    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+                        bitmap.compress(keepAlpha ? Bitmap.CompressFormat.PNG : Bitmap.CompressFormat.JPEG,
+                                JPEG_QUALITY, out);
+                    } finally {
+                        bitmap.recycle();
+                    }
+                    FILES.put(token, file);
+                    MIME_TYPES.put(token, mimeType);
+                    path = PATH_PREFIX + file.getName();
+                    prune(appContext);
+                    if (BuildConfig.IS_DEBUG_MODE) Log.d(TAG, "Prepared " + file.getName() + " (" + file.length() + " bytes)");
+                }
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Failed to prepare shared image: " + e.getMessage());
+            }
+
+            final String readyPath = path;
+            final String readyType = mimeType;
+            AppExecutors.mainThread(() -> callback.onReady(readyPath, readyType));
+        });
+    }
+
+    /**
+     * Serves a prepared image to the WebView; null for any other request.
+     */
+    static WebResourceResponse intercept(WebResourceRequest request) {
+        String path = request.getUrl().getPath();
+        if (path == null || !path.startsWith(PATH_PREFIX)) return null;
+
+        String name = path.substring(PATH_PREFIX.length());
+        int dot = name.lastIndexOf('.');
+        String token = dot > 0 ? name.substring(0, dot) : name;
+        File file = FILES.get(token);
+        if (file == null || !file.exists()) {
+            return new WebResourceResponse("text/plain", "utf-8", 404, "Not Found", new HashMap<>(), null);
+        }
+        try {
+            Map<String, String> headers = new HashMap<>();
+            headers.put("Cache-Control", "no-store");
+            headers.put("Content-Length", String.valueOf(file.length()));
+            return new WebResourceResponse(MIME_TYPES.get(token), null, 200, "OK", headers,
+                    new BufferedInputStream(new FileInputStream(file)));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Decodes the image at no more than about MAX_DIMENSION on the long edge:
+     * inSampleSize does the coarse power-of-two step during decode, then one
+     * scale (combined with the EXIF rotation) brings it within the bound.
+     */
+    private static Bitmap decodeBounded(ContentResolver resolver, Uri uri) throws IOException {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream in = resolver.openInputStream(uri)) {
+            if (in == null) return null;
+            BitmapFactory.decodeStream(in, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) return null;
+
+        int sampleSize = 1;
+        int longEdge = Math.max(bounds.outWidth, bounds.outHeight);
+        while (longEdge / (sampleSize * 2) >= MAX_DIMENSION) {
+            sampleSize *= 2;
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize;
+        Bitmap decoded;
+        try (InputStream in = resolver.openInputStream(uri)) {
+            if (in == null) return null;
+            decoded = BitmapFactory.decodeStream(in, null, options);
+        }
+        if (decoded == null) return null;
+
+        Matrix matrix = new Matrix();
+        int decodedLongEdge = Math.max(decoded.getWidth(), decoded.getHeight());
+        if (decodedLongEdge > MAX_DIMENSION) {
+            float scale = (float) MAX_DIMENSION / decodedLongEdge;
+            matrix.postScale(scale, scale);
+        }
+        int rotation = exifRotation(resolver, uri);
+        if (rotation != 0) {
+            matrix.postRotate(rotation);
+        }
+        if (matrix.isIdentity()) return decoded;
+
+        Bitmap transformed = Bitmap.createBitmap(decoded, 0, 0, decoded.getWidth(), decoded.getHeight(), matrix, true);
+        if (transformed != decoded) decoded.recycle();
+        return transformed;
+    }
+
+    private static int exifRotation(ContentResolver resolver, Uri uri) {
+        try (InputStream in = resolver.openInputStream(uri)) {
+            if (in == null) return 0;
+            int orientation = new ExifInterface(in).getAttributeInt(
+                    ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+            switch (orientation) {
+                case ExifInterface.ORIENTATION_ROTATE_90:
+                    return 90;
+                case ExifInterface.ORIENTATION_ROTATE_180:
+                    return 180;
+                case ExifInterface.ORIENTATION_ROTATE_270:
+                    return 270;
+                default:
+                    return 0;
+            }
+        } catch (IOException | RuntimeException e) {
+            return 0;
+        }
+    }
+
+    private static File directory(Context context) {
+        File dir = new File(context.getCacheDir(), DIR_NAME);
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.e(TAG, "Failed to create " + dir);
+        }
+        return dir;
+    }
+
+    /**
+     * Keeps only the newest few prepared images.
+     */
+    private static void prune(Context context) {
+        File[] files = directory(context).listFiles();
+        if (files == null || files.length <= MAX_KEPT_FILES) return;
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (int i = 0; i < files.length - MAX_KEPT_FILES; i++) {
+            String name = files[i].getName();
+            int dot = name.lastIndexOf('.');
+            String token = dot > 0 ? name.substring(0, dot) : name;
+            FILES.remove(token);
+            MIME_TYPES.remove(token);
+            files[i].delete();
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.webviewgold.myappname;
+
+import android.app.AppOpsManager;
+import android.app.usage.UsageEvents;
+import android.app.usage.UsageStatsManager;
+import android.content.Context;
+import android.os.Build;
+import android.os.Process;
+import android.util.Log;
+
+import org.json.JSONObject;
+
+import java.util.Calendar;
+
+/**
+ * Rebuilds last night's sleep interval from UsageStats screen/keyguard events,
+ * so the sleep tracker does not depend on a live receiver overnight.
+ *
+ * Events are streamed once in time order; state is a handful of longs:
+ * the start of the current locked period, a pending end (last unlock) and
+ * the best interval so far. A short unlock (checking the time, bathroom)
+ * followed by a re-lock within MAX_INTERRUPTION_MS is merged into the
+ * same sleep interval.
+ *
+ * Requires the "Usage access" special permission and API 28+ for the
+ * SCREEN_INTERACTIVE / KEYGUARD events.
+ */
+public class SleepSessionReconstructor {
+
+    private static final String TAG = "SleepReconstructor";
+
+    private static final long MIN_SLEEP_MS = 2 * 60 * 60 * 1000L;          // 2 hours
+    private static final long MAX_SLEEP_MS = 16 * 60 * 60 * 1000L;         // 16 hours
+    private static final long MAX_INTERRUPTION_MS = 5 * 60 * 1000L;        // 5 minutes awake is still "asleep"
+    private static final int QUERY_START_HOUR = 18;                        // previous day, 6 PM
+    private static final int QUERY_END_HOUR = 12;                          // today, noon
+
+    /** Result of a reconstruction; if ongoing, end is the query time (still locked). */
+    public static class Session {
+        public final long start;
+        public final long end;
+        public final boolean ongoing;
+        public final int interruptions;
+
+        Session(long start, long end, boolean ongoing, int interruptions) {
+            this.start = start;
+            this.end = end;
+            this.ongoing = ongoing;
+            this.interruptions = interruptions;
+        }
+
+        public long durationMs() {
+            return end - start;
+        }
+
+        public JSONObject toJson() throws Exception {
+            JSONObject obj = new JSONObject();
+            obj.put("bedtimeTimestamp", start);
+            obj.put("waketimeTimestamp", end);
+            obj.put("durationMinutes", durationMs() / 60000);
+            obj.put("ongoing", ongoing);
+            obj.put("interruptions", interruptions);
+            obj.put("source", "usage_stats");
+            return obj;
+        }
+    }
+
+    // ─── Streaming state (O(1)) ───
+
+    private long lockedSince = 0;      // start of the current candidate interval
+    private long pendingEnd = 0;       // last unlock inside the candidate, 0 while locked
+    private int interruptions = 0;
+    private boolean locked = false;
+    private boolean keyguardSeen = false; // devices without a lock screen never emit KEYGUARD_*
+
+    private long bestStart = 0;
+    private long bestEnd = 0;
+    private int bestInterruptions = 0;
+
+    public static boolean isSupported() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.P;
+    }
+
+    @SuppressWarnings("deprecation")
+    public static boolean hasUsageAccess(Context context) {
+        try {
+            AppOpsManager appOps = (AppOpsManager) context.getSystemService(Context.APP_OPS_SERVICE);
+            if (appOps == null) return false;
+            int mode;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                mode = appOps.unsafeCheckOpNoThrow(AppOpsManager.OPSTR_GET_USAGE_STATS,
+                    Process.myUid(), context.getPackageName());
+            } else {
+                mode = appOps.checkOpNoThrow(AppOpsManager.OPSTR_GET_USAGE_STATS,
+                    Process.myUid(), context.getPackageName());
+            }
+            return mode == AppOpsManager.MODE_ALLOWED;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reconstructs the longest plausible sleep interval between 6 PM yesterday
+     * and noon today (or now, if earlier). Returns null if nothing qualifies
+     * or usage access is missing. Runs synchronously; call off the main thread.
+     */
+    public static Session reconstructLastNight(Context context) {
+        if (!isSupported() || !hasUsageAccess(context)) return null;
+
+        UsageStatsManager usm = (UsageStatsManager) context.getSystemService(Context.USAGE_STATS_SERVICE);
+        if (usm == null) return null;
+
+        Calendar cal = Calendar.getInstance();
+        long now = cal.getTimeInMillis();
+        if (cal.get(Calendar.HOUR_OF_DAY) < QUERY_START_HOUR) {
+            cal.add(Calendar.DAY_OF_YEAR, -1);
+        }
+        cal.set(Calendar.HOUR_OF_DAY, QUERY_START_HOUR);
+        cal.set(Calendar.MINUTE, 0);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        long begin = cal.getTimeInMillis();
+        cal.add(Calendar.DAY_OF_YEAR, 1);
+        cal.set(Calendar.HOUR_OF_DAY, QUERY_END_HOUR);
+        long end = Math.min(now, cal.getTimeInMillis());
+
+        SleepSessionReconstructor engine = new SleepSessionReconstructor();
+        UsageEvents events = usm.queryEvents(begin, end);
+        UsageEvents.Event event = new UsageEvents.Event(); // reused, no per-event allocation
+        int seen = 0;
+        while (events.hasNextEvent()) {
+            events.getNextEvent(event);
+            engine.feed(event.getEventType(), event.getTimeStamp());
+            seen++;
+        }
+        Session result = engine.finish(end, end == now);
+        Log.d(TAG, "Processed " + seen + " usage events, result: " +
+            (result == null ? "none" : (result.durationMs() / 60000) + " min"));
+        return result;
+    }
+
+    /**
+     * Feeds one usage event. Events must arrive in time order.
+     */
+    void feed(int type, long timestamp) {
+        switch (type) {
+            case UsageEvents.Event.KEYGUARD_SHOWN:
+                keyguardSeen = true;
+                onLock(timestamp);
+                break;
+            case UsageEvents.Event.SCREEN_NON_INTERACTIVE:
+                onLock(timestamp);
+                break;
+            case UsageEvents.Event.KEYGUARD_HIDDEN:
+                keyguardSeen = true;
+                onUnlock(timestamp);
+                break;
+            case UsageEvents.Event.SCREEN_INTERACTIVE:
+                // Glancing at a locked screen does not end sleep; without a keyguard it does
+                if (!keyguardSeen) onUnlock(timestamp);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void onLock(long timestamp) {
+        if (locked) return;
+        locked = true;
+
+        if (lockedSince > 0 && pendingEnd > 0 && timestamp - pendingEnd <= MAX_INTERRUPTION_MS) {
+            // Brief wake-up: keep extending the same interval
+            interruptions++;
+        } else {
+            closeCandidate();
+            lockedSince = timestamp;
+            interruptions = 0;
+        }
+        pendingEnd = 0;
+    }
+
+    private void onUnlock(long timestamp) {
+        if (!locked) return;
+        locked = false;
+        pendingEnd = timestamp;
+    }
+
+    private void closeCandidate() {
+        if (lockedSince <= 0 || pendingEnd <= 0) return;
+        consider(lockedSince, pendingEnd, interruptions);
+        lockedSince = 0;
+        pendingEnd = 0;
+    }
+
+    private void consider(long start, long end, int breaks) {
+        long duration = end - start;
+        if (duration < MIN_SLEEP_MS || duration > MAX_SLEEP_MS) return;
+        if (!isPlausibleBedtime(start)) return;
+        if (duration > bestEnd - bestStart) {
+            bestStart = start;
+            bestEnd = end;
+            bestInterruptions = breaks;
+        }
+    }
+
+    /**
+     * Sleep must begin between 6 PM and 6 AM to count as a night's sleep.
+     */
+    private static boolean isPlausibleBedtime(long start) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(start);
+        int hour = cal.get(Calendar.HOUR_OF_DAY);
+        return hour >= 18 || hour < 6;
+    }
+
+    Session finish(long queryEnd, boolean endIsNow) {
+        if (locked && lockedSince > 0 && endIsNow) {
+            // Still locked: report as ongoing if it already beats everything else
+            long duration = queryEnd - lockedSince;
+            if (duration >= MIN_SLEEP_MS && isPlausibleBedtime(lockedSince)
+                    && duration > bestEnd - bestStart) {
+                return new Session(lockedSince, queryEnd, true, interruptions);
+            }
+        } else if (!locked) {
+            closeCandidate();
+        } else if (lockedSince > 0) {
+            // Locked through the end of the window (e.g. noon); cap at the window end
+            consider(lockedSince, queryEnd, interruptions);
+        }
+
+        if (bestEnd <= bestStart) return null;
+        return new Session(bestStart, bestEnd, false, bestInterruptions);
+    }
+}
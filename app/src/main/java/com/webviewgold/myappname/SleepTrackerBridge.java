@@ -3,21 +3,36 @@ package com.webviewgold.myappname;
 import android.app.Activity;
 import android.app.AlarmManager;
 import android.app.PendingIntent;
-import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.content.IntentFilter;
-import android.content.SharedPreferences;
-import android.os.Build;
 import android.os.PowerManager;
 import android.provider.Settings;
 import android.util.Log;
 import android.webkit.JavascriptInterface;
 import android.webkit.WebView;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.health.connect.client.HealthConnectClient;
+import androidx.health.connect.client.permission.HealthPermission;
+import androidx.health.connect.client.records.SleepSessionRecord;
+import androidx.health.connect.client.request.ReadRecordsRequest;
+import androidx.health.connect.client.response.ReadRecordsResponse;
+import androidx.health.connect.client.time.TimeRangeFilter;
+
+import com.webviewgold.myappname.storage.AppStore;
+
 import org.json.JSONObject;
 
+import java.time.Instant;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import kotlin.coroutines.EmptyCoroutineContext;
+import kotlin.jvm.JvmClassMappingKt;
+import kotlin.reflect.KClass;
+import kotlinx.coroutines.BuildersKt;
 
 /**
  * Sleep Tracker Bridge for Sleep Discipline Challenge.
@@ -27,6 +42,15 @@ import java.util.Calendar;
  * Bedtime window: 8 PM - 3 AM (screen off = going to sleep)
  * Wake window: 4 AM - 12 PM (screen on = waking up)
  *
+ * Screen events come from the shared ScreenStateMonitor, kept alive by
+ * ScreenStateService while tracking, so the night still gets recorded
+ * if the activity is destroyed after the user locks the phone.
+ *
+ * Wearable users: SleepSessionRecord from Health Connect is read with the
+ * same thread-per-request + prefs cache approach as StepKingBridge and
+ * merged with the screen-derived times. Precedence per timestamp:
+ * manual > health_connect > usage_stats / screen.
+ *
  * JS bridge exposed as window.SleepTracker
  */
 public class SleepTrackerBridge {
@@ -43,6 +67,28 @@ public class SleepTrackerBridge {
     private static final String KEY_TARGET_BED_MINUTE = "target_bed_minute";
     private static final String KEY_TARGET_WAKE_HOUR = "target_wake_hour";
     private static final String KEY_TARGET_WAKE_MINUTE = "target_wake_minute";
+    private static final String KEY_BEDTIME_SOURCE = "bedtime_source";
+    private static final String KEY_WAKETIME_SOURCE = "waketime_source";
+    private static final String KEY_HC_SLEEP_START = "hc_sleep_start";
+    private static final String KEY_HC_SLEEP_END = "hc_sleep_end";
+    private static final String KEY_HC_SLEEP_AWAKE_MIN = "hc_sleep_awake_minutes";
+
+    // Where a recorded timestamp came from
+    private static final String SOURCE_SCREEN = "screen";
+    private static final String SOURCE_MANUAL = "manual";
+    private static final String SOURCE_USAGE_STATS = "usage_stats";
+    private static final String SOURCE_HEALTH_CONNECT = "health_connect";
+
+    private static final String HEALTH_CONNECT_PACKAGE = "com.google.android.apps.healthdata";
+    private static final long HC_MERGE_GAP_MS = 30 * 60 * 1000L; // segments closer than 30 min = one night
+
+    @SuppressWarnings("unchecked")
+    private static final KClass<SleepSessionRecord> SLEEP_KCLASS =
+        JvmClassMappingKt.getKotlinClass(SleepSessionRecord.class);
+
+    public static final Set<String> REQUIRED_PERMISSIONS = new HashSet<>(Collections.singletonList(
+        HealthPermission.getReadPermission(SLEEP_KCLASS)
+    ));
 
     private final Context context;
     private final WebView webView;
@@ -56,18 +102,77 @@ public class SleepTrackerBridge {
     private int targetBedMinute = 0;
     private int targetWakeHour = 6;
     private int targetWakeMinute = 30;
+    private String bedtimeSource = "";
+    private String waketimeSource = "";
 
-    private BroadcastReceiver screenReceiver;
+    // Staged Health Connect session for the current night (0 = none)
+    private volatile long hcSleepStart = 0;
+    private volatile long hcSleepEnd = 0;
+    private volatile int hcAwakeMinutes = 0;
+
+    private HealthConnectClient healthConnectClient;
+    private volatile boolean cachedPermissionState = false;
+    private ActivityResultLauncher<Set<String>> permissionLauncher;
+
+    private static final String MONITOR_TAG = "SleepTrackerBridge";
+
+    private final ScreenStateMonitor screenMonitor;
     private boolean receiverRegistered = false;
 
     public SleepTrackerBridge(Context context, WebView webView) {
         this.context = context;
         this.webView = webView;
+        this.screenMonitor = ScreenStateMonitor.getInstance(context);
         loadCachedData();
+        initHealthConnect();
+    }
+
+    private void initHealthConnect() {
+        try {
+            int status = HealthConnectClient.getSdkStatus(context, HEALTH_CONNECT_PACKAGE);
+            if (status == HealthConnectClient.SDK_AVAILABLE) {
+                healthConnectClient = HealthConnectClient.getOrCreate(context);
+                Log.d(TAG, "Health Connect client initialized");
+                refreshPermissionState();
+            } else {
+                Log.w(TAG, "Health Connect not available, status: " + status);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to init Health Connect: " + e.getMessage());
+        }
+    }
+
+    private void refreshPermissionState() {
+        if (healthConnectClient == null) {
+            cachedPermissionState = false;
+            return;
+        }
+        new Thread(() -> {
+            try {
+                @SuppressWarnings("unchecked")
+                Set<String> granted = (Set<String>) BuildersKt.runBlocking(
+                    EmptyCoroutineContext.INSTANCE,
+                    (scope, continuation) -> healthConnectClient.getPermissionController()
+                        .getGrantedPermissions(continuation)
+                );
+                cachedPermissionState = granted.containsAll(REQUIRED_PERMISSIONS);
+                Log.d(TAG, "Permission state refreshed: " + cachedPermissionState);
+                if (cachedPermissionState && trackingActive && !waketimeRecorded) {
+                    refreshHealthSleep();
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error refreshing permission state: " + e.getMessage());
+                cachedPermissionState = false;
+            }
+        }, "HC-SleepPermCheck").start();
+    }
+
+    public void setPermissionLauncher(ActivityResultLauncher<Set<String>> launcher) {
+        this.permissionLauncher = launcher;
     }
 
     private void loadCachedData() {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        AppStore prefs = AppStore.get(context, PREFS_NAME);
         String cachedDate = prefs.getString(KEY_TRACKING_DATE, "");
         String today = java.time.LocalDate.now().toString();
 
@@ -91,12 +196,22 @@ public class SleepTrackerBridge {
             waketimeRecorded = false;
             bedtimeTimestamp = 0;
             waketimeTimestamp = 0;
+            bedtimeSource = "";
+            waketimeSource = "";
+            hcSleepStart = 0;
+            hcSleepEnd = 0;
+            hcAwakeMinutes = 0;
             prefs.edit()
                 .putBoolean(KEY_TRACKING_ACTIVE, false)
                 .putBoolean(KEY_BEDTIME_RECORDED, false)
                 .putBoolean(KEY_WAKETIME_RECORDED, false)
                 .putLong(KEY_BEDTIME_TIMESTAMP, 0)
                 .putLong(KEY_WAKETIME_TIMESTAMP, 0)
+                .putString(KEY_BEDTIME_SOURCE, "")
+                .putString(KEY_WAKETIME_SOURCE, "")
+                .putLong(KEY_HC_SLEEP_START, 0)
+                .putLong(KEY_HC_SLEEP_END, 0)
+                .putInt(KEY_HC_SLEEP_AWAKE_MIN, 0)
                 .putString(KEY_TRACKING_DATE, today)
                 .apply();
         } else {
@@ -109,6 +224,11 @@ public class SleepTrackerBridge {
             targetBedMinute = prefs.getInt(KEY_TARGET_BED_MINUTE, 0);
             targetWakeHour = prefs.getInt(KEY_TARGET_WAKE_HOUR, 6);
             targetWakeMinute = prefs.getInt(KEY_TARGET_WAKE_MINUTE, 30);
+            bedtimeSource = prefs.getString(KEY_BEDTIME_SOURCE, "");
+            waketimeSource = prefs.getString(KEY_WAKETIME_SOURCE, "");
+            hcSleepStart = prefs.getLong(KEY_HC_SLEEP_START, 0);
+            hcSleepEnd = prefs.getLong(KEY_HC_SLEEP_END, 0);
+            hcAwakeMinutes = prefs.getInt(KEY_HC_SLEEP_AWAKE_MIN, 0);
 
             // Resume receiver if tracking
             if (trackingActive && !waketimeRecorded) {
@@ -118,7 +238,7 @@ public class SleepTrackerBridge {
     }
 
     private void saveData() {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        AppStore prefs = AppStore.get(context, PREFS_NAME);
         prefs.edit()
             .putBoolean(KEY_TRACKING_ACTIVE, trackingActive)
             .putBoolean(KEY_BEDTIME_RECORDED, bedtimeRecorded)
@@ -129,6 +249,11 @@ public class SleepTrackerBridge {
             .putInt(KEY_TARGET_BED_MINUTE, targetBedMinute)
             .putInt(KEY_TARGET_WAKE_HOUR, targetWakeHour)
             .putInt(KEY_TARGET_WAKE_MINUTE, targetWakeMinute)
+            .putString(KEY_BEDTIME_SOURCE, bedtimeSource)
+            .putString(KEY_WAKETIME_SOURCE, waketimeSource)
+            .putLong(KEY_HC_SLEEP_START, hcSleepStart)
+            .putLong(KEY_HC_SLEEP_END, hcSleepEnd)
+            .putInt(KEY_HC_SLEEP_AWAKE_MIN, hcAwakeMinutes)
             .putString(KEY_TRACKING_DATE, java.time.LocalDate.now().toString())
             .apply();
     }
@@ -139,7 +264,12 @@ public class SleepTrackerBridge {
      * Check if current time is in bedtime window (8 PM - 3 AM)
      */
     private boolean isInBedtimeWindow() {
+        return isInBedtimeWindow(System.currentTimeMillis());
+    }
+
+    private boolean isInBedtimeWindow(long at) {
         Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(at);
         int hour = cal.get(Calendar.HOUR_OF_DAY);
         return hour >= 20 || hour < 3; // 8 PM to 3 AM
     }
@@ -148,76 +278,69 @@ public class SleepTrackerBridge {
      * Check if current time is in wake window (4 AM - 12 PM)
      */
     private boolean isInWakeWindow() {
+        return isInWakeWindow(System.currentTimeMillis());
+    }
+
+    private boolean isInWakeWindow(long at) {
         Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(at);
         int hour = cal.get(Calendar.HOUR_OF_DAY);
         return hour >= 4 && hour < 12; // 4 AM to 12 PM
     }
 
-    // ─── Screen Receiver ───
+    // ─── Screen Events (shared ScreenStateMonitor) ───
 
     private void registerScreenReceiver() {
         if (receiverRegistered) return;
 
-        screenReceiver = new BroadcastReceiver() {
-            @Override
-            public void onReceive(Context ctx, Intent intent) {
-                if (intent == null || intent.getAction() == null) return;
-
-                switch (intent.getAction()) {
-                    case Intent.ACTION_SCREEN_OFF:
-                        onScreenOff();
-                        break;
-                    case Intent.ACTION_SCREEN_ON:
-                        onScreenOn();
-                        break;
-                }
-            }
-        };
-
-        IntentFilter filter = new IntentFilter();
-        filter.addAction(Intent.ACTION_SCREEN_OFF);
-        filter.addAction(Intent.ACTION_SCREEN_ON);
-
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
-            context.registerReceiver(screenReceiver, filter, Context.RECEIVER_NOT_EXPORTED);
-        } else {
-            context.registerReceiver(screenReceiver, filter);
-        }
-
+        ScreenStateService.acquire(context, ScreenStateService.HOLDER_SLEEP);
         receiverRegistered = true;
-        Log.d(TAG, "Screen receiver registered for sleep tracking");
+        screenMonitor.subscribe(MONITOR_TAG, (event, timestamp, replay) -> {
+            switch (event) {
+                case ScreenStateMonitor.EVENT_SCREEN_OFF:
+                    onScreenOff(timestamp);
+                    break;
+                case ScreenStateMonitor.EVENT_SCREEN_ON:
+                    onScreenOn(timestamp);
+                    break;
+            }
+        });
+        Log.d(TAG, "Subscribed to screen state monitor for sleep tracking");
     }
 
+    /**
+     * Tracking finished: stop listening and let the service go.
+     */
     private void unregisterScreenReceiver() {
-        if (!receiverRegistered || screenReceiver == null) return;
-        try {
-            context.unregisterReceiver(screenReceiver);
-        } catch (Exception e) {
-            Log.e(TAG, "Error unregistering receiver: " + e.getMessage());
-        }
+        if (!receiverRegistered) return;
+        screenMonitor.unsubscribe(MONITOR_TAG);
+        screenMonitor.reset(MONITOR_TAG);
+        ScreenStateService.release(context, ScreenStateService.HOLDER_SLEEP);
         receiverRegistered = false;
     }
 
-    private void onScreenOff() {
+    private void onScreenOff(long at) {
         if (!trackingActive || bedtimeRecorded || waketimeRecorded) return;
 
         // Auto-detect bedtime only in bedtime window
-        if (isInBedtimeWindow()) {
+        if (isInBedtimeWindow(at)) {
             bedtimeRecorded = true;
-            bedtimeTimestamp = System.currentTimeMillis();
+            bedtimeTimestamp = at;
+            bedtimeSource = SOURCE_SCREEN;
             saveData();
             Log.d(TAG, "Bedtime auto-detected at " + new java.util.Date(bedtimeTimestamp));
             notifyJs("bedtime");
         }
     }
 
-    private void onScreenOn() {
+    private void onScreenOn(long at) {
         if (!trackingActive || !bedtimeRecorded || waketimeRecorded) return;
 
         // Auto-detect wake time only in wake window
-        if (isInWakeWindow()) {
+        if (isInWakeWindow(at)) {
             waketimeRecorded = true;
-            waketimeTimestamp = System.currentTimeMillis();
+            waketimeTimestamp = at;
+            waketimeSource = SOURCE_SCREEN;
             saveData();
             unregisterScreenReceiver(); // Done tracking
             Log.d(TAG, "Wake time auto-detected at " + new java.util.Date(waketimeTimestamp));
@@ -247,6 +370,11 @@ public class SleepTrackerBridge {
         waketimeRecorded = false;
         bedtimeTimestamp = 0;
         waketimeTimestamp = 0;
+        bedtimeSource = "";
+        waketimeSource = "";
+        hcSleepStart = 0;
+        hcSleepEnd = 0;
+        hcAwakeMinutes = 0;
         saveData();
         registerScreenReceiver();
         Log.d(TAG, "Sleep tracking started. Target bed: " + bedHour + ":" + bedMinute +
@@ -263,6 +391,7 @@ public class SleepTrackerBridge {
 
         bedtimeRecorded = true;
         bedtimeTimestamp = System.currentTimeMillis();
+        bedtimeSource = SOURCE_MANUAL;
         saveData();
         Log.d(TAG, "Bedtime manually recorded at " + new java.util.Date(bedtimeTimestamp));
         return true;
@@ -278,6 +407,7 @@ public class SleepTrackerBridge {
 
         waketimeRecorded = true;
         waketimeTimestamp = System.currentTimeMillis();
+        waketimeSource = SOURCE_MANUAL;
         saveData();
         unregisterScreenReceiver();
         Log.d(TAG, "Wake time manually recorded at " + new java.util.Date(waketimeTimestamp));
@@ -328,6 +458,11 @@ public class SleepTrackerBridge {
             status.put("waketimeRecorded", waketimeRecorded);
             status.put("bedtimeTimestamp", bedtimeTimestamp);
             status.put("waketimeTimestamp", waketimeTimestamp);
+            status.put("bedtimeSource", bedtimeSource);
+            status.put("waketimeSource", waketimeSource);
+            status.put("healthConnectSleepStart", hcSleepStart);
+            status.put("healthConnectSleepEnd", hcSleepEnd);
+            status.put("healthConnectAwakeMinutes", hcAwakeMinutes);
             status.put("targetBedHour", targetBedHour);
             status.put("targetBedMinute", targetBedMinute);
             status.put("targetWakeHour", targetWakeHour);
@@ -351,11 +486,307 @@ public class SleepTrackerBridge {
         Log.d(TAG, "Sleep tracking stopped");
     }
 
+    // ─── UsageStats Reconstruction ───
+
+    /**
+     * True if the app can read screen/keyguard history (Usage access granted, API 28+).
+     */
+    @JavascriptInterface
+    public boolean hasUsageAccess() {
+        return SleepSessionReconstructor.isSupported()
+            && SleepSessionReconstructor.hasUsageAccess(context);
+    }
+
+    /**
+     * Opens the system "Usage access" settings screen so the user can grant access.
+     */
+    @JavascriptInterface
+    public void requestUsageAccess() {
+        try {
+            Intent intent = new Intent(Settings.ACTION_USAGE_ACCESS_SETTINGS);
+            intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+            context.startActivity(intent);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to open usage access settings: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuilds last night's sleep from UsageStats screen events, independent of
+     * whether this bridge was alive overnight. Fills in bedtime/wake time that the
+     * live receiver missed, then calls window.onSleepReconstructed(result) where
+     * result is null if nothing plausible was found.
+     */
+    @JavascriptInterface
+    public void reconstructLastNight() {
+        new Thread(() -> {
+            String json = "null";
+            try {
+                SleepSessionReconstructor.Session session =
+                    SleepSessionReconstructor.reconstructLastNight(context);
+                if (session != null) {
+                    applyReconstructedSession(session);
+                    json = session.toJson().toString();
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Sleep reconstruction failed: " + e.getMessage(), e);
+            }
+
+            final String result = json;
+            if (context instanceof Activity) {
+                ((Activity) context).runOnUiThread(() -> webView.evaluateJavascript(
+                    "if(window.onSleepReconstructed) window.onSleepReconstructed(" + result + ");", null));
+            }
+        }, "Sleep-Reconstruct").start();
+    }
+
+    /**
+     * Only fills gaps: timestamps already recorded live (or manually) win.
+     */
+    private void applyReconstructedSession(SleepSessionReconstructor.Session session) {
+        if (context instanceof Activity) {
+            ((Activity) context).runOnUiThread(() -> {
+                if (!trackingActive) return;
+                boolean changed = false;
+                if (!bedtimeRecorded && isInBedtimeWindow(session.start)) {
+                    bedtimeRecorded = true;
+                    bedtimeTimestamp = session.start;
+                    bedtimeSource = SOURCE_USAGE_STATS;
+                    changed = true;
+                    notifyJs("bedtime");
+                }
+                if (bedtimeRecorded && !waketimeRecorded && !session.ongoing
+                        && isInWakeWindow(session.end)) {
+                    waketimeRecorded = true;
+                    waketimeTimestamp = session.end;
+                    waketimeSource = SOURCE_USAGE_STATS;
+                    changed = true;
+                    unregisterScreenReceiver();
+                    notifyJs("wakeup");
+                }
+                if (changed) {
+                    saveData();
+                    Log.d(TAG, "Applied reconstructed sleep: " + new java.util.Date(session.start) +
+                        " - " + new java.util.Date(session.end));
+                }
+            });
+        }
+    }
+
+    // ─── Health Connect (SleepSessionRecord) ───
+
+    @JavascriptInterface
+    public boolean isHealthConnectAvailable() {
+        try {
+            int status = HealthConnectClient.getSdkStatus(context, HEALTH_CONNECT_PACKAGE);
+            return status == HealthConnectClient.SDK_AVAILABLE;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    @JavascriptInterface
+    public boolean hasHealthPermission() {
+        if (healthConnectClient == null) return false;
+        return cachedPermissionState;
+    }
+
+    @JavascriptInterface
+    public void requestHealthPermission() {
+        if (context instanceof Activity) {
+            ((Activity) context).runOnUiThread(() -> {
+                if (healthConnectClient == null) {
+                    callJsHealthSleep(null, "Health Connect not available on this device");
+                    return;
+                }
+                if (permissionLauncher != null) {
+                    permissionLauncher.launch(REQUIRED_PERMISSIONS);
+                } else {
+                    Log.e(TAG, "Permission launcher not set");
+                    callJsHealthSleep(null, "Permission launcher not initialized");
+                }
+            });
+        }
+    }
+
+    /**
+     * Reads last night's SleepSessionRecords (6 PM yesterday to now), stages the
+     * merged session in prefs and merges it into bedtime/wake time.
+     * Calls window.onHealthSleepRead(data) or window.onHealthSleepError(error).
+     */
+    @JavascriptInterface
+    public void refreshHealthSleep() {
+        if (healthConnectClient == null) {
+            callJsHealthSleep(null, "Health Connect not available");
+            return;
+        }
+
+        new Thread(() -> {
+            try {
+                Calendar cal = Calendar.getInstance();
+                if (cal.get(Calendar.HOUR_OF_DAY) < 18) {
+                    cal.add(Calendar.DAY_OF_YEAR, -1);
+                }
+                cal.set(Calendar.HOUR_OF_DAY, 18);
+                cal.set(Calendar.MINUTE, 0);
+                cal.set(Calendar.SECOND, 0);
+                cal.set(Calendar.MILLISECOND, 0);
+                Instant startTime = Instant.ofEpochMilli(cal.getTimeInMillis());
+                Instant endTime = Instant.now();
+
+                Log.d(TAG, "Reading sleep sessions from Health Connect: " + startTime + " to " + endTime);
+
+                ReadRecordsRequest<SleepSessionRecord> readRequest = new ReadRecordsRequest<>(
+                    SLEEP_KCLASS,
+                    TimeRangeFilter.between(startTime, endTime),
+                    new HashSet<>(),
+                    true,
+                    100,
+                    null
+                );
+
+                @SuppressWarnings("unchecked")
+                ReadRecordsResponse<SleepSessionRecord> response = (ReadRecordsResponse<SleepSessionRecord>) BuildersKt.runBlocking(
+                    EmptyCoroutineContext.INSTANCE,
+                    (scope, continuation) -> healthConnectClient.readRecords(readRequest, continuation)
+                );
+
+                // Records are ascending: merge segments split by short gaps, keep the longest
+                long curStart = 0, curEnd = 0, bestStart = 0, bestEnd = 0;
+                int curAwake = 0, bestAwake = 0;
+                for (SleepSessionRecord record : response.getRecords()) {
+                    long start = record.getStartTime().toEpochMilli();
+                    long end = record.getEndTime().toEpochMilli();
+                    int awake = 0;
+                    for (SleepSessionRecord.Stage stage : record.getStages()) {
+                        if (stage.getStage() == SleepSessionRecord.STAGE_TYPE_AWAKE
+                                || stage.getStage() == SleepSessionRecord.STAGE_TYPE_OUT_OF_BED) {
+                            awake += (int) ((stage.getEndTime().toEpochMilli()
+                                - stage.getStartTime().toEpochMilli()) / 60000);
+                        }
+                    }
+
+                    if (curEnd > 0 && start - curEnd <= HC_MERGE_GAP_MS) {
+                        curAwake += awake + (int) (Math.max(0, start - curEnd) / 60000);
+                        curEnd = Math.max(curEnd, end);
+                    } else {
+                        curStart = start;
+                        curEnd = end;
+                        curAwake = awake;
+                    }
+                    if (curEnd - curStart > bestEnd - bestStart) {
+                        bestStart = curStart;
+                        bestEnd = curEnd;
+                        bestAwake = curAwake;
+                    }
+                }
+
+                Log.d(TAG, "Health Connect sleep records: " + response.getRecords().size() +
+                    ", merged session: " + ((bestEnd - bestStart) / 60000) + " min");
+
+                final long sessionStart = bestStart;
+                final long sessionEnd = bestEnd;
+                final int awakeMinutes = bestAwake;
+                if (context instanceof Activity) {
+                    ((Activity) context).runOnUiThread(() -> {
+                        hcSleepStart = sessionStart;
+                        hcSleepEnd = sessionEnd;
+                        hcAwakeMinutes = awakeMinutes;
+                        mergeHealthConnectSleep();
+                        saveData();
+                        callJsHealthSleep(buildHealthSleepJson(), null);
+                    });
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to read sleep sessions: " + e.getMessage(), e);
+                callJsHealthSleep(null, "Failed to read sleep: " + e.getMessage());
+            }
+        }, "HC-Sleep").start();
+    }
+
+    /**
+     * Health Connect data from a wearable beats screen heuristics,
+     * but never overrides a time the user recorded manually.
+     * Main thread only.
+     */
+    private void mergeHealthConnectSleep() {
+        if (!trackingActive || hcSleepStart <= 0 || hcSleepEnd <= hcSleepStart) return;
+
+        if (!SOURCE_MANUAL.equals(bedtimeSource) && isInBedtimeWindow(hcSleepStart)
+                && (!bedtimeRecorded || bedtimeTimestamp != hcSleepStart)) {
+            boolean wasRecorded = bedtimeRecorded;
+            bedtimeRecorded = true;
+            bedtimeTimestamp = hcSleepStart;
+            bedtimeSource = SOURCE_HEALTH_CONNECT;
+            if (!wasRecorded) notifyJs("bedtime");
+        }
+
+        // A session ending "now" may still be in progress on the wearable
+        boolean sessionFinished = System.currentTimeMillis() - hcSleepEnd > 60 * 1000L;
+        if (bedtimeRecorded && sessionFinished && !SOURCE_MANUAL.equals(waketimeSource)
+                && isInWakeWindow(hcSleepEnd)
+                && (!waketimeRecorded || waketimeTimestamp != hcSleepEnd)) {
+            boolean wasRecorded = waketimeRecorded;
+            waketimeRecorded = true;
+            waketimeTimestamp = hcSleepEnd;
+            waketimeSource = SOURCE_HEALTH_CONNECT;
+            unregisterScreenReceiver();
+            if (!wasRecorded) notifyJs("wakeup");
+        }
+    }
+
+    private String buildHealthSleepJson() {
+        try {
+            JSONObject data = new JSONObject();
+            data.put("sleepStart", hcSleepStart);
+            data.put("sleepEnd", hcSleepEnd);
+            data.put("durationMinutes", hcSleepStart > 0 ? (hcSleepEnd - hcSleepStart) / 60000 : 0);
+            data.put("awakeMinutes", hcAwakeMinutes);
+            data.put("bedtimeTimestamp", bedtimeTimestamp);
+            data.put("waketimeTimestamp", waketimeTimestamp);
+            data.put("bedtimeSource", bedtimeSource);
+            data.put("waketimeSource", waketimeSource);
+            data.put("source", SOURCE_HEALTH_CONNECT);
+            return data.toString();
+        } catch (Exception e) {
+            return "{}";
+        }
+    }
+
+    /** Called from MainActivity when the Health Connect sleep permission is granted */
+    public void onPermissionGranted() {
+        cachedPermissionState = true;
+        refreshPermissionState();
+    }
+
+    private void callJsHealthSleep(String dataJson, String error) {
+        if (context instanceof Activity) {
+            ((Activity) context).runOnUiThread(() -> {
+                String js;
+                if (error != null) {
+                    js = "if(window.onHealthSleepError) window.onHealthSleepError('" +
+                         error.replace("'", "\\'") + "');";
+                } else {
+                    js = "if(window.onHealthSleepRead) window.onHealthSleepRead(" + dataJson + ");";
+                }
+                webView.evaluateJavascript(js, null);
+            });
+        }
+    }
+
     // ─── Lifecycle ───
 
     public void onDestroy() {
         saveData();
-        unregisterScreenReceiver();
+
+        if (receiverRegistered) {
+            // Keep the service hold while tracking; missed events replay on reload
+            screenMonitor.unsubscribe(MONITOR_TAG);
+            receiverRegistered = false;
+            if (!trackingActive || waketimeRecorded) {
+                ScreenStateService.release(context, ScreenStateService.HOLDER_SLEEP);
+            }
+        }
     }
 
     // ─── JS Notification ───
@@ -371,6 +802,8 @@ public class SleepTrackerBridge {
                     data.put("waketimeRecorded", waketimeRecorded);
                     data.put("bedtimeTimestamp", bedtimeTimestamp);
                     data.put("waketimeTimestamp", waketimeTimestamp);
+                    data.put("bedtimeSource", bedtimeSource);
+                    data.put("waketimeSource", waketimeSource);
                     String js = "if(window.onSleepEvent) window.onSleepEvent('" + event + "', " + data.toString() + ");";
                     webView.evaluateJavascript(js, null);
                 } catch (Exception e) {
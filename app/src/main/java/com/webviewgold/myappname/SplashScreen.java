@@ -39,6 +39,8 @@ public class SplashScreen extends AppCompatActivity {
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         String userAgent = WebSettings.getDefaultUserAgent(this);
+        // Preconnect/prefetch the home page while the splash is up
+        StartupWarmup.begin(this, userAgent);
         // Phone orientation setting for Android 8 (Oreo)
         if (userAgent.contains("Mobile") && android.os.Build.VERSION.SDK_INT == Build.VERSION_CODES.O) {
             if (Config.PHONE_ORIENTATION == "auto") {
@@ -186,6 +188,7 @@ public class SplashScreen extends AppCompatActivity {
 
     @Override
     public void finish() {
+        StartupWarmup.markSplashEnd();
         super.finish();
         overridePendingTransition(0, 0);
     }
@@ -30,6 +30,8 @@ public class SplashScreenActivity extends BaseActivity {
         androidx.core.splashscreen.SplashScreen.installSplashScreen(this);
         super.onCreate(savedInstanceState);
         String userAgent = WebSettings.getDefaultUserAgent(this);
+        // Preconnect/prefetch the home page while the splash is up
+        StartupWarmup.begin(this, userAgent);
         // Phone orientation setting for Android 8 (Oreo)
         if (userAgent.contains("Mobile") && android.os.Build.VERSION.SDK_INT == Build.VERSION_CODES.O) {
             if (Config.PHONE_ORIENTATION == "auto") {
@@ -174,6 +176,7 @@ public class SplashScreenActivity extends BaseActivity {
 
 
     private void openNextActivity() {
+        StartupWarmup.markSplashEnd();
 
         Intent intent = new Intent(this, MainActivity.class);
         intent.setFlags(Intent.FLAG_ACTIVITY_NO_ANIMATION);
@@ -0,0 +1,233 @@
+package com.webviewgold.myappname;
+
+import android.content.Context;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import android.webkit.CookieManager;
+
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Startup work that runs while the splash screen is showing, so the splash
+ * time is spent on real work instead of waiting:
+ *
+ * - WebView provider warm-up (CookieManager init on the first idle pass),
+ * - DNS lookup and a TLS preconnect to Config.HOST (the connection is kept
+ *   alive in HttpURLConnection's pool, which OfflinePageCache fetches reuse),
+ * - prefetch of the app shell and its stylesheets/scripts into OfflinePageCache.
+ *
+ * Also records the startup timeline and, in debug builds, logs
+ * time-to-first-paint (process start to the first onPageCommitVisible of
+ * the main WebView).
+ */
+final class StartupWarmup {
+
+    private static final String TAG = "StartupWarmup";
+    private static final int MAX_SUBRESOURCES = 12;
+    private static final int SUBRESOURCE_THREADS = 3;
+    private static final long SUBRESOURCE_TIMEOUT_MS = 10 * 1000;
+
+    private static final Pattern STYLESHEET = Pattern.compile(
+            "<link\\b[^>]*\\brel=[\"']?(?:stylesheet|preload|modulepreload)\\b[^>]*>", Pattern.CASE_INSENSITIVE);
+    private static final Pattern SCRIPT = Pattern.compile(
+            "<script\\b[^>]*\\bsrc=[\"']([^\"'>\\s]+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern HREF = Pattern.compile(
+            "\\bhref=[\"']?([^\"'>\\s]+)", Pattern.CASE_INSENSITIVE);
+
+    private static boolean started = false;
+
+    // Startup timeline, SystemClock.elapsedRealtime(); 0 = not reached
+    private static volatile long warmupStartedAt = 0;
+    private static volatile long warmupFinishedAt = 0;
+    private static volatile long splashEndedAt = 0;
+    private static volatile long firstPaintAt = 0;
+    // Prefetches attempted, whether or not they ended up in the cache
+    private static final AtomicInteger prefetchRequests = new AtomicInteger();
+
+    private StartupWarmup() {
+    }
+
+    /**
+     * Starts the warm-up once per process. Call from the splash's onCreate.
+     *
+     * @param userAgent the WebView's default user agent, already looked up by the splash
+     */
+    static synchronized void begin(Context context, String userAgent) {
+        if (started) return;
+        started = true;
+        warmupStartedAt = SystemClock.elapsedRealtime();
+
+        // Initialise the WebView's cookie store while the splash sits idle, so
+        // MainActivity doesn't pay for it and our fetches can read cookies
+        Looper.myQueue().addIdleHandler(() -> {
+            CookieManager.getInstance();
+            return false;
+        });
+
+        final Context appContext = context.getApplicationContext();
+        if (Config.USE_LOCAL_HTML_FOLDER || !ConnectivityMonitor.getInstance(appContext).isConnected()) {
+            warmupFinishedAt = SystemClock.elapsedRealtime();
+            return;
+        }
+
+        final String agent = Config.USER_AGENT.isEmpty() ? userAgent : Config.USER_AGENT;
+        new Thread(() -> run(appContext, agent), "StartupWarmup").start();
+    }
+
+    private static void run(Context appContext, String userAgent) {
+        try {
+            long t0 = SystemClock.elapsedRealtime();
+            preconnect();
+            long t1 = SystemClock.elapsedRealtime();
+
+            if (Config.OFFLINE_PAGE_CACHE) {
+                prefetch(appContext, userAgent);
+            }
+            long t2 = SystemClock.elapsedRealtime();
+            if (BuildConfig.IS_DEBUG_MODE) {
+                Log.d(TAG, "Preconnect " + (t1 - t0) + " ms, prefetch " + (t2 - t1) + " ms ("
+                        + prefetchRequests.get() + " requests)");
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Warm-up failed: " + e.getMessage());
+        } finally {
+            warmupFinishedAt = SystemClock.elapsedRealtime();
+        }
+    }
+
+    /**
+     * Resolves the host and completes a TLS handshake with a HEAD request.
+     */
+    private static void preconnect() {
+        try {
+            InetAddress.getAllByName(Config.HOST);
+            URL url = new URL(Config.HOME_URL);
+            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+            conn.setRequestMethod("HEAD");
+            conn.setInstanceFollowRedirects(false);
+            conn.setConnectTimeout(5000);
+            conn.setReadTimeout(5000);
+            conn.getResponseCode();
+            // Not disconnect(): closing the (empty) stream returns the socket to the pool
+            conn.getInputStream().close();
+        } catch (Exception e) {
+            if (BuildConfig.IS_DEBUG_MODE) Log.d(TAG, "Preconnect failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Fetches the app shell, then the stylesheets and scripts it references,
+     * into the page cache.
+     */
+    private static void prefetch(Context appContext, String userAgent) throws InterruptedException {
+        OfflinePageCache cache = OfflinePageCache.getInstance(appContext);
+        String shellUrl = cache.cachedShell();
+        if (shellUrl == null || !shellUrl.startsWith(Config.HOME_URL)) {
+            shellUrl = Config.HOME_URL;
+        }
+
+        Map<String, String> headers = new HashMap<>();
+        if (userAgent != null) headers.put("User-Agent", userAgent);
+        headers.put("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8");
+        String html = cache.prefetch(shellUrl, headers, true);
+        prefetchRequests.incrementAndGet();
+        if (html == null) return;
+
+        List<String> subresources = criticalSubresources(shellUrl, html);
+        if (subresources.isEmpty()) return;
+
+        final Map<String, String> subHeaders = new HashMap<>();
+        if (userAgent != null) subHeaders.put("User-Agent", userAgent);
+        subHeaders.put("Accept", "*/*");
+        subHeaders.put("Referer", shellUrl);
+
+        ExecutorService pool = Executors.newFixedThreadPool(SUBRESOURCE_THREADS, r -> new Thread(r, "StartupWarmup-Prefetch"));
+        for (String url : subresources) {
+            pool.execute(() -> {
+                cache.prefetch(url, subHeaders, false);
+                prefetchRequests.incrementAndGet();
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(SUBRESOURCE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Same-host stylesheets, preloads and scripts referenced by the document, in order.
+     */
+    private static List<String> criticalSubresources(String pageUrl, String html) {
+        Set<String> urls = new LinkedHashSet<>();
+        Matcher link = STYLESHEET.matcher(html);
+        while (link.find()) {
+            Matcher href = HREF.matcher(link.group());
+            if (href.find()) urls.add(href.group(1));
+        }
+        Matcher script = SCRIPT.matcher(html);
+        while (script.find()) {
+            urls.add(script.group(1));
+        }
+
+        List<String> resolved = new ArrayList<>();
+        URI base;
+        try {
+            base = new URI(pageUrl);
+        } catch (Exception e) {
+            return resolved;
+        }
+        for (String raw : urls) {
+            if (resolved.size() >= MAX_SUBRESOURCES) break;
+            try {
+                URI uri = base.resolve(raw.replace("&amp;", "&"));
+                String host = uri.getHost();
+                if (host != null && (host.equals(Config.HOST) || host.endsWith("." + Config.HOST))) {
+                    resolved.add(uri.toString());
+                }
+            } catch (Exception ignored) {
+                // Malformed reference; the WebView will deal with it
+            }
+        }
+        return resolved;
+    }
+
+    // ─── Startup Timeline ───
+
+    static void markSplashEnd() {
+        if (splashEndedAt == 0) splashEndedAt = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * Called when the main WebView first commits a visible page; logs the
+     * startup timeline relative to process start.
+     */
+    static void reportFirstPaint() {
+        if (firstPaintAt != 0) return;
+        firstPaintAt = SystemClock.elapsedRealtime();
+        long processStart = Process.getStartElapsedRealtime();
+        if (BuildConfig.IS_DEBUG_MODE) {
+            Log.d(TAG, "Time to first paint " + (firstPaintAt - processStart) + " ms"
+                    + " (warm-up " + since(processStart, warmupStartedAt) + " -> " + since(processStart, warmupFinishedAt)
+                    + ", splash ended " + since(processStart, splashEndedAt) + ")");
+        }
+    }
+
+    private static String since(long processStart, long at) {
+        return at == 0 ? "-" : (at - processStart) + " ms";
+    }
+}
@@ -3,7 +3,6 @@ package com.webviewgold.myappname;
 import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.net.Uri;
 import android.os.Build;
 import android.provider.Settings;
@@ -23,6 +22,8 @@ import androidx.health.connect.client.aggregate.AggregationResult;
 import androidx.health.connect.client.response.ReadRecordsResponse;
 import androidx.health.connect.client.time.TimeRangeFilter;
 
+import com.webviewgold.myappname.storage.AppStore;
+
 import org.json.JSONObject;
 
 import java.time.Instant;
@@ -129,7 +130,7 @@ public class StepKingBridge {
     }
 
     private void loadCachedData() {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        AppStore prefs = AppStore.get(context, PREFS_NAME);
         String cachedDate = prefs.getString(KEY_STEPS_DATE, "");
         String today = LocalDate.now().toString();
         if (today.equals(cachedDate)) {
@@ -148,7 +149,7 @@ public class StepKingBridge {
 
     private void saveSteps(long steps) {
         todaySteps = steps;
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        AppStore prefs = AppStore.get(context, PREFS_NAME);
         prefs.edit()
             .putLong(KEY_STEPS_TODAY, steps)
             .putString(KEY_STEPS_DATE, LocalDate.now().toString())
@@ -157,7 +158,7 @@ public class StepKingBridge {
 
     private void saveHeartPoints(float hp) {
         todayHeartPoints = hp;
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        AppStore prefs = AppStore.get(context, PREFS_NAME);
         prefs.edit()
             .putFloat(KEY_HEART_POINTS, hp)
             .putString(KEY_STEPS_DATE, LocalDate.now().toString())
@@ -1,7 +1,6 @@
 package com.webviewgold.myappname;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.provider.Settings;
 import android.util.Log;
 
@@ -19,6 +18,8 @@ import androidx.work.WorkManager;
 import androidx.work.Worker;
 import androidx.work.WorkerParameters;
 
+import com.webviewgold.myappname.storage.AppStore;
+
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
@@ -58,8 +59,7 @@ public class StepSyncWorker extends Worker {
 
             // Fallback to cached data if Health Connect read fails
             if (steps <= 0) {
-                SharedPreferences prefs = getApplicationContext()
-                    .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+                AppStore prefs = AppStore.get(getApplicationContext(), PREFS_NAME);
 
                 String today = LocalDate.now().toString();
                 String cachedDate = prefs.getString(KEY_STEPS_DATE, "");
@@ -77,6 +77,12 @@ public class StepSyncWorker extends Worker {
                 return Result.success();
             }
 
+            // WorkManager's CONNECTED constraint can be stale by the time we run
+            if (!ConnectivityMonitor.getInstance(getApplicationContext()).isConnected()) {
+                Log.d(TAG, "Offline, retrying later");
+                return Result.retry();
+            }
+
             String deviceId = Settings.Secure.getString(
                 getApplicationContext().getContentResolver(),
                 Settings.Secure.ANDROID_ID
@@ -127,7 +133,7 @@ public class StepSyncWorker extends Worker {
 
             // Update cached data
             if (steps > 0) {
-                SharedPreferences prefs = ctx.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+                AppStore prefs = AppStore.get(ctx, PREFS_NAME);
                 prefs.edit()
                     .putLong(KEY_STEPS_TODAY, steps)
                     .putString(KEY_STEPS_DATE, LocalDate.now().toString())
@@ -0,0 +1,164 @@
+package com.webviewgold.myappname;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Declarative URL routing table: an ordered list of rules, each an anchored
+ * prefix ({@code url.startsWith(p)}) or a substring ({@code url.contains(s)}).
+ *
+ * match() tries the rules in order and returns the handler of the first one
+ * that matches, exactly like the if/else chains this replaces. The tables
+ * are a few dozen short rules, mostly prefixes that fail on the first
+ * character, so a linear pass beats any index over them (see
+ * UrlRouterBenchmark). Matching is case-sensitive, as the chains were.
+ *
+ * Rules come either from a fixed table (UrlRoutes) with handlers attached
+ * by pattern through on(), or from prefix()/contains() for lists read from
+ * Config.
+ *
+ * Pure Java (no Android types) so it can be exercised off-device.
+ *
+ * @param <H> handler type returned for a matching rule
+ */
+public final class UrlRouter<H> {
+
+    /**
+     * One rule of a fixed table.
+     */
+    static final class Rule {
+        final boolean prefix;
+        final String pattern;
+
+        private Rule(boolean prefix, String pattern) {
+            this.prefix = prefix;
+            this.pattern = pattern;
+        }
+
+        static Rule prefix(String pattern) {
+            return new Rule(true, pattern);
+        }
+
+        static Rule contains(String pattern) {
+            return new Rule(false, pattern);
+        }
+
+        boolean matches(String url) {
+            return prefix ? url.startsWith(pattern) : url.contains(pattern);
+        }
+    }
+
+    private final List<Rule> rules = new ArrayList<>();
+    private final List<H> handlers = new ArrayList<>();
+
+    public UrlRouter() {
+    }
+
+    /**
+     * A router over a fixed table; attach the handlers with on(). Rules
+     * without a handler never match.
+     */
+    UrlRouter(Rule[] table) {
+        for (Rule rule : table) {
+            rules.add(rule);
+            handlers.add(null);
+        }
+    }
+
+    /**
+     * Attaches {@code handler} to the table rule with the given pattern.
+     *
+     * @throws IllegalArgumentException if the table has no such rule
+     */
+    UrlRouter<H> on(String pattern, H handler) {
+        for (int i = 0; i < rules.size(); i++) {
+            if (rules.get(i).pattern.equals(pattern)) {
+                handlers.set(i, handler);
+                return this;
+            }
+        }
+        throw new IllegalArgumentException("No route for " + pattern);
+    }
+
+    /**
+     * Adds a rule matching URLs that start with {@code prefix}. Empty prefixes are ignored.
+     */
+    public UrlRouter<H> prefix(String prefix, H handler) {
+        if (prefix != null && !prefix.isEmpty()) add(Rule.prefix(prefix), handler);
+        return this;
+    }
+
+    /**
+     * Adds one rule per prefix, all sharing the same handler.
+     */
+    public UrlRouter<H> prefixes(String[] prefixes, H handler) {
+        for (String p : prefixes) {
+            prefix(p, handler);
+        }
+        return this;
+    }
+
+    /**
+     * Adds a rule matching URLs that contain {@code needle}. Empty needles are ignored.
+     */
+    public UrlRouter<H> contains(String needle, H handler) {
+        if (needle != null && !needle.isEmpty()) add(Rule.contains(needle), handler);
+        return this;
+    }
+
+    public UrlRouter<H> contains(Iterable<String> needles, H handler) {
+        for (String n : needles) {
+            contains(n, handler);
+        }
+        return this;
+    }
+
+    /**
+     * Returns the handler of the first rule matching {@code url}, or null.
+     */
+    public H match(String url) {
+        if (url == null) return null;
+        for (int i = 0; i < rules.size(); i++) {
+            H handler = handlers.get(i);
+            if (handler != null && rules.get(i).matches(url)) return handler;
+        }
+        return null;
+    }
+
+    public boolean matches(String url) {
+        return match(url) != null;
+    }
+
+    private void add(Rule rule, H handler) {
+        rules.add(rule);
+        handlers.add(handler);
+    }
+
+    /**
+     * Answers "is this host a substring of any configured entry?" with one
+     * hash lookup. Entries are short hostnames, so indexing every substring
+     * up front is cheap. Used for the blacklists, which are checked as
+     * {@code entry.contains(host)} rather than the other way round.
+     */
+    public static final class HostIndex {
+        private final Set<String> substrings = new HashSet<>();
+
+        public HostIndex(String... entries) {
+            for (String entry : entries) {
+                if (entry == null) continue;
+                for (int i = 0; i < entry.length(); i++) {
+                    for (int j = i + 1; j <= entry.length(); j++) {
+                        substrings.add(entry.substring(i, j));
+                    }
+                }
+                substrings.add("");
+            }
+        }
+
+        public boolean contains(String host) {
+            return host != null && substrings.contains(host);
+        }
+    }
+}
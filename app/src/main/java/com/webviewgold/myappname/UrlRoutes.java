@@ -0,0 +1,108 @@
+package com.webviewgold.myappname;
+
+import static com.webviewgold.myappname.UrlRouter.Rule.contains;
+import static com.webviewgold.myappname.UrlRouter.Rule.prefix;
+
+/**
+ * The URL tables MainActivity routes navigations through, in priority
+ * order (the first matching rule wins). MainActivity attaches a handler to
+ * every rule with UrlRouter.on(); UrlRouterTest checks the tables against
+ * the if/else chains they replaced.
+ */
+final class UrlRoutes {
+
+    /**
+     * App API commands, checked first for every navigation (AdvanceWebViewClient).
+     */
+    static final UrlRouter.Rule[] APP_COMMANDS = {
+            contains("push.send.cancel"),
+            prefix("startnativevideo://"),
+            contains("push.send"),
+            prefix("getpushwooshid://"),
+            prefix("getclipboard://"),
+            prefix("getonesignalplayerid://"),
+            prefix("getfirebaseplayerid://"),
+            prefix("getappversion://"),
+            prefix("get-uuid://"),
+            prefix("cancelinapppurchase://"),
+            prefix("enablepulltorefresh://"),
+            prefix("disablepulltorefresh://"),
+            prefix("hidebars://"),
+            prefix("successhaptic://"),
+            prefix("errorhaptic://"),
+            prefix("lighthaptic://"),
+            prefix("heavyhaptic://"),
+            prefix("displayrewardedad://"),
+            prefix("requestcontactpermission://"),
+            prefix("readcontacts://"),
+    };
+
+    /**
+     * Schemes and hosts handed to other apps (AdvanceWebViewClient, unless redirected).
+     */
+    static final UrlRouter.Rule[] EXTERNAL_SCHEMES = {
+            prefix("wc:"),
+            prefix("mailto:"),
+            prefix("share:"),
+            contains("api.whatsapp.com"),
+            prefix("whatsapp:"),
+            prefix("geo:"),
+            contains("maps:"),
+            prefix("market:"),
+            prefix("maps.app.goo.gl"),
+            contains("maps.google.com"),
+            prefix("intent:"),
+            prefix("tel:"),
+            prefix("sms:"),
+            prefix("play.google.com"),
+            prefix("blob:"),
+            prefix("data:"),
+    };
+
+    /**
+     * Commands handled for external URLs (MyWebViewClient).
+     */
+    static final UrlRouter.Rule[] EXTERNAL_COMMANDS = {
+            prefix("getpurchasehistory://"),
+            prefix("inapppurchase://"),
+            prefix("inappsubscription://"),
+            prefix("restoreinapppurchases://"),
+            prefix("disableads://"),
+            prefix("enableads://"),
+            prefix("enableflashlight://"),
+            prefix("disableflashlight://"),
+            prefix("qrcode://"),
+            prefix("barcodescanner://"),
+            prefix("backgroundlocationoff://"),
+            prefix("backgroundlocationon://"),
+            prefix("savethisimage://?url="),
+            contains("push.send.cancel"),
+            contains("push.send"),
+            prefix("get-uuid://"),
+            prefix("cancelinapppurchase://"),
+            prefix("enablepulltorefresh://"),
+            prefix("disablepulltorefresh://"),
+            prefix("reset://"),
+            prefix("readnfc://"),
+            prefix("writenfc://"),
+            prefix("spinneron://"),
+            prefix("revenuecat://"),
+            prefix("spinneroff://"),
+            prefix("takescreenshot://"),
+            prefix("getpushwooshid://"),
+            prefix("getclipboard://"),
+            prefix("getonesignalplayerid://"),
+            prefix("getfirebaseplayerid://"),
+            prefix("getappversion://"),
+            prefix("getstorelocation://"),
+            prefix("shareapp://"),
+            prefix("statusbarcolor://"),
+            prefix("statusbartextcolor://"),
+            prefix("bottombarcolor://"),
+            prefix("navbartextcolor://"),
+            prefix("scanningmode://"),
+    };
+
+    private UrlRoutes() {
+    }
+}
@@ -4,6 +4,7 @@ import android.app.Activity;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
+import android.view.Gravity;
 import android.view.View;
 import android.webkit.JavascriptInterface;
 import android.webkit.WebView;
@@ -14,7 +15,6 @@ import androidx.annotation.NonNull;
 import com.google.android.gms.ads.AdError;
 import com.google.android.gms.ads.AdRequest;
 import com.google.android.gms.ads.AdSize;
-import com.google.android.gms.ads.AdView;
 import com.google.android.gms.ads.FullScreenContentCallback;
 import com.google.android.gms.ads.LoadAdError;
 import com.google.android.gms.ads.interstitial.InterstitialAd;
@@ -22,6 +22,12 @@ import com.google.android.gms.ads.interstitial.InterstitialAdLoadCallback;
 import com.google.android.gms.ads.rewarded.RewardedAd;
 import com.google.android.gms.ads.rewarded.RewardedAdLoadCallback;
 
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * WebAppInterface - Remote Control Ad Architecture
  *
@@ -37,6 +43,9 @@ import com.google.android.gms.ads.rewarded.RewardedAdLoadCallback;
  * - Android.hideBanner() - Hide banner ad
  * - Android.showMREC(position) - Show MREC 300x250 video banner (position: "top", "bottom", "center")
  * - Android.hideMREC() - Hide MREC ad
+ * - Android.isInterstitialReady() / Android.isRewardAdReady() - Check if an ad is preloaded
+ * - Android.getAdInventoryStats() - Preload pool state (JSON)
+ * - Android.getAdStats() - Ad load/show metrics and latency histograms (JSON)
  *
  * JavaScript Callbacks:
  * - onAdCompleted('REWARD') - Called when reward is earned
@@ -49,11 +58,11 @@ public class WebAppInterface {
     private final WebView webView;
     private final FrameLayout adContainer;
 
-    // Ad instances
-    private InterstitialAd interstitialAd;
-    private RewardedAd rewardedAd;
-    private AdView bannerAdView;
-    private AdView mrecAdView;
+    // Ad instances; full-screen ads are kept preloaded in pools
+    private final AdInventory<InterstitialAd> interstitialPool;
+    private final AdInventory<RewardedAd> rewardedPool;
+    private final AdSlot bannerSlot;
+    private final AdSlot mrecSlot;
 
     // Ad Unit IDs (from strings.xml)
     private final String interstitialAdUnitId;
@@ -63,14 +72,29 @@ public class WebAppInterface {
     // Handler for UI operations
     private final Handler mainHandler;
 
-    // Loading states
-    private boolean isInterstitialLoading = false;
-    private boolean isRewardedLoading = false;
+    // Lazy SDK start: calls wait in pendingCalls until onSdkInitialized() or
+    // onSdkUnavailable() (main thread)
+    private Runnable sdkInitializer;
+    private volatile boolean sdkReady = false;
+    private volatile boolean sdkUnavailable = false;
+    private final List<PendingCall> pendingCalls = new ArrayList<>();
+
+    private static final class PendingCall {
+        final Runnable call;
+        final boolean startsSdk;
+        final String format;   // answered with onAdNotReady(format) if ads can't be requested; null = drop
+
+        PendingCall(Runnable call, boolean startsSdk, String format) {
+            this.call = call;
+            this.startsSdk = startsSdk;
+            this.format = format;
+        }
+    }
 
-    // Retry counters to prevent infinite retry loops
-    private int interstitialRetryCount = 0;
-    private int rewardedRetryCount = 0;
-    private static final int MAX_RETRY_COUNT = 3;
+    // Skip the retry backoff as soon as the network is back
+    private final ConnectivityMonitor.Listener connectivityListener = online -> {
+        if (online) resetAndReloadAds();
+    };
 
     public WebAppInterface(Activity activity, WebView webView, FrameLayout adContainer) {
         this.activity = activity;
@@ -83,61 +107,140 @@ public class WebAppInterface {
         this.rewardedAdUnitId = activity.getString(R.string.admob_rewarded_id);
         this.bannerAdUnitId = activity.getString(R.string.banner_footer);
 
+        this.interstitialPool = new AdInventory<>("interstitial", Config.INTERSTITIAL_POOL_DEPTH,
+            callback -> InterstitialAd.load(activity, interstitialAdUnitId, new AdRequest.Builder().build(),
+                new InterstitialAdLoadCallback() {
+                    @Override
+                    public void onAdLoaded(@NonNull InterstitialAd ad) {
+                        callback.onLoaded(ad);
+                    }
+
+                    @Override
+                    public void onAdFailedToLoad(@NonNull LoadAdError loadAdError) {
+                        callback.onFailed(loadAdError.getCode(), loadAdError.getMessage());
+                    }
+                }));
+        this.rewardedPool = new AdInventory<>("rewarded", Config.REWARDED_POOL_DEPTH,
+            callback -> RewardedAd.load(activity, rewardedAdUnitId, new AdRequest.Builder().build(),
+                new RewardedAdLoadCallback() {
+                    @Override
+                    public void onAdLoaded(@NonNull RewardedAd ad) {
+                        callback.onLoaded(ad);
+                    }
+
+                    @Override
+                    public void onAdFailedToLoad(@NonNull LoadAdError loadAdError) {
+                        callback.onFailed(loadAdError.getCode(), loadAdError.getMessage());
+                    }
+                }));
+        ConnectivityMonitor.getInstance(activity).addListener(connectivityListener);
+
+        this.bannerSlot = new AdSlot("banner", activity, adContainer, bannerAdUnitId, AdSize.BANNER,
+            FrameLayout.LayoutParams.MATCH_PARENT);
+        // Uses same ad unit, AdMob will serve MREC
+        this.mrecSlot = new AdSlot("mrec", activity, adContainer, bannerAdUnitId, AdSize.MEDIUM_RECTANGLE,
+            FrameLayout.LayoutParams.WRAP_CONTENT);
+
         Log.d(TAG, "WebAppInterface initialized");
     }
 
-    // ==================== INTERSTITIAL ADS ====================
+    // ==================== SDK BOOTSTRAP ====================
 
     /**
-     * Pre-load interstitial ad so it's ready to show
+     * Sets what starts the ad SDK. It runs once, on the main thread, on the
+     * first ad call from the page (unless the app starts it earlier).
+     * Calls made before onSdkInitialized() are queued and replayed in order.
      */
-    @JavascriptInterface
-    public void loadInterstitial() {
-        Log.d(TAG, "loadInterstitial() called");
-
-        if (isInterstitialLoading) {
-            Log.d(TAG, "Interstitial already loading, skipping");
-            return;
-        }
+    public void setSdkInitializer(Runnable initializer) {
+        mainHandler.post(() -> sdkInitializer = initializer);
+    }
 
-        if (interstitialAd != null) {
-            Log.d(TAG, "Interstitial already loaded, skipping");
-            return;
-        }
+    /**
+     * The ad SDK is ready (or not needed); runs the queued calls.
+     */
+    public void onSdkInitialized() {
+        mainHandler.post(() -> {
+            if (sdkReady || sdkUnavailable) return;
+            sdkReady = true;
+            sdkInitializer = null;
+            Log.d(TAG, "Ad SDK ready, running " + pendingCalls.size() + " queued call(s)");
+            for (PendingCall pending : pendingCalls) {
+                pending.call.run();
+            }
+            pendingCalls.clear();
+        });
+    }
 
-        isInterstitialLoading = true;
+    /**
+     * Ads may not be requested (e.g. consent was not given). Queued and later
+     * show calls are answered with onAdNotReady; nothing is loaded.
+     */
+    public void onSdkUnavailable() {
+        mainHandler.post(() -> {
+            if (sdkReady || sdkUnavailable) return;
+            sdkUnavailable = true;
+            sdkInitializer = null;
+            Log.d(TAG, "Ads unavailable, answering " + pendingCalls.size() + " queued call(s)");
+            for (PendingCall pending : pendingCalls) {
+                answerUnavailable(pending);
+            }
+            pendingCalls.clear();
+        });
+    }
 
+    /**
+     * Runs the call on the main thread once the SDK is ready.
+     * @param startsSdk whether this call may trigger SDK initialization (hides don't)
+     * @param format    reported via onAdNotReady if ads turn out to be unavailable;
+     *                  null to drop the call silently instead
+     */
+    private void whenSdkReady(Runnable call, boolean startsSdk, String format) {
         mainHandler.post(() -> {
-            AdRequest adRequest = new AdRequest.Builder().build();
+            PendingCall pending = new PendingCall(call, startsSdk, format);
+            if (sdkReady) {
+                call.run();
+                return;
+            }
+            if (sdkUnavailable) {
+                answerUnavailable(pending);
+                return;
+            }
+            pendingCalls.add(pending);
+            if (startsSdk) {
+                startSdk();
+            }
+        });
+    }
 
-            InterstitialAd.load(activity, interstitialAdUnitId, adRequest,
-                new InterstitialAdLoadCallback() {
-                    @Override
-                    public void onAdLoaded(@NonNull InterstitialAd ad) {
-                        Log.d(TAG, "Interstitial ad loaded successfully");
-                        interstitialAd = ad;
-                        isInterstitialLoading = false;
-                        interstitialRetryCount = 0; // Reset retry counter on success
-                        setupInterstitialCallbacks();
-                    }
+    // Main thread
+    private void answerUnavailable(PendingCall pending) {
+        if (!pending.startsSdk) {
+            // Hides never request ads
+            pending.call.run();
+        } else if (pending.format != null) {
+            executeJavaScript("onAdNotReady('" + pending.format + "')");
+        }
+    }
 
-                    @Override
-                    public void onAdFailedToLoad(@NonNull LoadAdError loadAdError) {
-                        Log.e(TAG, "Interstitial ad failed to load: " + loadAdError.getMessage());
-                        interstitialAd = null;
-                        isInterstitialLoading = false;
-                        // Retry with exponential backoff, max 3 retries
-                        if (interstitialRetryCount < MAX_RETRY_COUNT) {
-                            interstitialRetryCount++;
-                            long delay = 30000L * interstitialRetryCount; // 30s, 60s, 90s
-                            Log.d(TAG, "Will retry interstitial in " + (delay/1000) + "s (attempt " + interstitialRetryCount + ")");
-                            mainHandler.postDelayed(() -> loadInterstitial(), delay);
-                        } else {
-                            Log.d(TAG, "Max interstitial retries reached, stopping");
-                        }
-                    }
-                });
-        });
+    // Main thread
+    private void startSdk() {
+        if (sdkInitializer != null) {
+            Runnable initializer = sdkInitializer;
+            sdkInitializer = null;
+            initializer.run();
+        }
+    }
+
+    // ==================== INTERSTITIAL ADS ====================
+
+    /**
+     * Pre-load interstitial ads so one is ready to show.
+     * The pool keeps itself filled from then on.
+     */
+    @JavascriptInterface
+    public void loadInterstitial() {
+        Log.d(TAG, "loadInterstitial() called");
+        whenSdkReady(interstitialPool::start, true, null);
     }
 
     /**
@@ -147,40 +250,48 @@ public class WebAppInterface {
     public void showInterstitial() {
         Log.d(TAG, "showInterstitial() called");
 
-        mainHandler.post(() -> {
+        whenSdkReady(() -> {
+            InterstitialAd interstitialAd = interstitialPool.poll();
             if (interstitialAd != null) {
+                setupInterstitialCallbacks(interstitialAd, AdMetrics.now());
                 interstitialAd.show(activity);
             } else {
                 Log.d(TAG, "Interstitial ad not ready");
                 // Notify JS that ad wasn't shown
                 executeJavaScript("onAdNotReady('interstitial')");
             }
-        });
+        }, true, "interstitial");
     }
 
-    private void setupInterstitialCallbacks() {
-        if (interstitialAd == null) return;
-
+    private void setupInterstitialCallbacks(InterstitialAd interstitialAd, long showRequestedAt) {
         interstitialAd.setFullScreenContentCallback(new FullScreenContentCallback() {
             @Override
             public void onAdDismissedFullScreenContent() {
                 Log.d(TAG, "Interstitial ad dismissed");
-                interstitialAd = null;
                 // Notify website
                 executeJavaScript("onAdClosed()");
-                // Pre-load next ad
-                loadInterstitial();
             }
 
             @Override
             public void onAdFailedToShowFullScreenContent(@NonNull AdError adError) {
                 Log.e(TAG, "Interstitial ad failed to show: " + adError.getMessage());
-                interstitialAd = null;
+                AdMetrics.showFailed("interstitial", adError.getCode());
             }
 
             @Override
             public void onAdShowedFullScreenContent() {
                 Log.d(TAG, "Interstitial ad showed");
+                AdMetrics.shown("interstitial", showRequestedAt);
+            }
+
+            @Override
+            public void onAdImpression() {
+                AdMetrics.impression("interstitial");
+            }
+
+            @Override
+            public void onAdClicked() {
+                AdMetrics.clicked("interstitial");
             }
         });
     }
@@ -188,55 +299,13 @@ public class WebAppInterface {
     // ==================== REWARDED ADS ====================
 
     /**
-     * Pre-load rewarded ad so it's ready to show
+     * Pre-load rewarded ads so one is ready to show.
+     * The pool keeps itself filled from then on.
      */
     @JavascriptInterface
     public void loadRewardAd() {
         Log.d(TAG, "loadRewardAd() called");
-
-        if (isRewardedLoading) {
-            Log.d(TAG, "Rewarded ad already loading, skipping");
-            return;
-        }
-
-        if (rewardedAd != null) {
-            Log.d(TAG, "Rewarded ad already loaded, skipping");
-            return;
-        }
-
-        isRewardedLoading = true;
-
-        mainHandler.post(() -> {
-            AdRequest adRequest = new AdRequest.Builder().build();
-
-            RewardedAd.load(activity, rewardedAdUnitId, adRequest,
-                new RewardedAdLoadCallback() {
-                    @Override
-                    public void onAdLoaded(@NonNull RewardedAd ad) {
-                        Log.d(TAG, "Rewarded ad loaded successfully");
-                        rewardedAd = ad;
-                        isRewardedLoading = false;
-                        rewardedRetryCount = 0; // Reset retry counter on success
-                        setupRewardedCallbacks();
-                    }
-
-                    @Override
-                    public void onAdFailedToLoad(@NonNull LoadAdError loadAdError) {
-                        Log.e(TAG, "Rewarded ad failed to load: " + loadAdError.getMessage());
-                        rewardedAd = null;
-                        isRewardedLoading = false;
-                        // Retry with exponential backoff, max 3 retries
-                        if (rewardedRetryCount < MAX_RETRY_COUNT) {
-                            rewardedRetryCount++;
-                            long delay = 30000L * rewardedRetryCount; // 30s, 60s, 90s
-                            Log.d(TAG, "Will retry rewarded in " + (delay/1000) + "s (attempt " + rewardedRetryCount + ")");
-                            mainHandler.postDelayed(() -> loadRewardAd(), delay);
-                        } else {
-                            Log.d(TAG, "Max rewarded retries reached, stopping");
-                        }
-                    }
-                });
-        });
+        whenSdkReady(rewardedPool::start, true, null);
     }
 
     /**
@@ -246,10 +315,13 @@ public class WebAppInterface {
     public void showRewardAd() {
         Log.d(TAG, "showRewardAd() called");
 
-        mainHandler.post(() -> {
+        whenSdkReady(() -> {
+            RewardedAd rewardedAd = rewardedPool.poll();
             if (rewardedAd != null) {
+                setupRewardedCallbacks(rewardedAd, AdMetrics.now());
                 rewardedAd.show(activity, rewardItem -> {
                     Log.d(TAG, "User earned reward: " + rewardItem.getAmount() + " " + rewardItem.getType());
+                    AdMetrics.rewardEarned("rewarded");
                     // Notify website that reward was earned
                     executeJavaScript("onAdCompleted('REWARD')");
                     // Also call legacy callback for backwards compatibility
@@ -260,7 +332,7 @@ public class WebAppInterface {
                 // Notify JS that ad wasn't shown so game can handle it
                 executeJavaScript("onAdNotReady('rewarded')");
             }
-        });
+        }, true, "rewarded");
     }
 
     /**
@@ -271,29 +343,35 @@ public class WebAppInterface {
         showRewardAd();
     }
 
-    private void setupRewardedCallbacks() {
-        if (rewardedAd == null) return;
-
+    private void setupRewardedCallbacks(RewardedAd rewardedAd, long showRequestedAt) {
         rewardedAd.setFullScreenContentCallback(new FullScreenContentCallback() {
             @Override
             public void onAdDismissedFullScreenContent() {
                 Log.d(TAG, "Rewarded ad dismissed");
-                rewardedAd = null;
                 // Notify website
                 executeJavaScript("onAdClosed()");
-                // Pre-load next ad
-                loadRewardAd();
             }
 
             @Override
             public void onAdFailedToShowFullScreenContent(@NonNull AdError adError) {
                 Log.e(TAG, "Rewarded ad failed to show: " + adError.getMessage());
-                rewardedAd = null;
+                AdMetrics.showFailed("rewarded", adError.getCode());
             }
 
             @Override
             public void onAdShowedFullScreenContent() {
                 Log.d(TAG, "Rewarded ad showed");
+                AdMetrics.shown("rewarded", showRequestedAt);
+            }
+
+            @Override
+            public void onAdImpression() {
+                AdMetrics.impression("rewarded");
+            }
+
+            @Override
+            public void onAdClicked() {
+                AdMetrics.clicked("rewarded");
             }
         });
     }
@@ -302,52 +380,25 @@ public class WebAppInterface {
 
     /**
      * Show banner ad at specified position
+     * The banner is kept across hide/show and repositioned without reloading
      * @param position "top" or "bottom" (default: bottom)
      */
     @JavascriptInterface
     public void showBanner(String position) {
         Log.d(TAG, "showBanner() called with position: " + position);
 
-        mainHandler.post(() -> {
+        whenSdkReady(() -> {
             if (adContainer == null) {
                 Log.e(TAG, "Ad container is null, cannot show banner");
                 return;
             }
 
-            // Remove existing banner if any
-            if (bannerAdView != null) {
-                adContainer.removeView(bannerAdView);
-                bannerAdView.destroy();
-            }
-
-            // Create new banner
-            bannerAdView = new AdView(activity);
-            bannerAdView.setAdUnitId(bannerAdUnitId);
-            bannerAdView.setAdSize(AdSize.BANNER);
-
-            // Set layout params based on position
-            FrameLayout.LayoutParams params = new FrameLayout.LayoutParams(
-                FrameLayout.LayoutParams.MATCH_PARENT,
-                FrameLayout.LayoutParams.WRAP_CONTENT
-            );
-
             if ("top".equalsIgnoreCase(position)) {
-                params.gravity = android.view.Gravity.TOP;
+                bannerSlot.show(Gravity.TOP);
             } else {
-                params.gravity = android.view.Gravity.BOTTOM;
+                bannerSlot.show(Gravity.BOTTOM);
             }
-
-            bannerAdView.setLayoutParams(params);
-
-            // Add to container and load ad
-            adContainer.addView(bannerAdView);
-            adContainer.setVisibility(View.VISIBLE);
-
-            AdRequest adRequest = new AdRequest.Builder().build();
-            bannerAdView.loadAd(adRequest);
-
-            Log.d(TAG, "Banner ad loading...");
-        });
+        }, true, "banner");
     }
 
     /**
@@ -357,14 +408,10 @@ public class WebAppInterface {
     public void hideBanner() {
         Log.d(TAG, "hideBanner() called");
 
-        mainHandler.post(() -> {
-            if (bannerAdView != null) {
-                bannerAdView.setVisibility(View.GONE);
-            }
-            if (adContainer != null && mrecAdView == null) {
-                adContainer.setVisibility(View.GONE);
-            }
-        });
+        whenSdkReady(() -> {
+            bannerSlot.hide();
+            hideContainerIfEmpty();
+        }, false, null);
     }
 
     // ==================== MREC (300x250) VIDEO BANNER ADS ====================
@@ -378,49 +425,21 @@ public class WebAppInterface {
     public void showMREC(String position) {
         Log.d(TAG, "showMREC() called with position: " + position);
 
-        mainHandler.post(() -> {
+        whenSdkReady(() -> {
             if (adContainer == null) {
                 Log.e(TAG, "Ad container is null, cannot show MREC");
                 return;
             }
 
-            // Remove existing MREC if any
-            if (mrecAdView != null) {
-                adContainer.removeView(mrecAdView);
-                mrecAdView.destroy();
-            }
-
-            // Create new MREC ad
-            mrecAdView = new AdView(activity);
-            mrecAdView.setAdUnitId(bannerAdUnitId); // Uses same ad unit, AdMob will serve MREC
-            mrecAdView.setAdSize(AdSize.MEDIUM_RECTANGLE); // 300x250
-
-            // Set layout params based on position
-            FrameLayout.LayoutParams params = new FrameLayout.LayoutParams(
-                FrameLayout.LayoutParams.WRAP_CONTENT,
-                FrameLayout.LayoutParams.WRAP_CONTENT
-            );
-
             if ("top".equalsIgnoreCase(position)) {
-                params.gravity = android.view.Gravity.TOP | android.view.Gravity.CENTER_HORIZONTAL;
+                mrecSlot.show(Gravity.TOP | Gravity.CENTER_HORIZONTAL);
             } else if ("bottom".equalsIgnoreCase(position)) {
-                params.gravity = android.view.Gravity.BOTTOM | android.view.Gravity.CENTER_HORIZONTAL;
+                mrecSlot.show(Gravity.BOTTOM | Gravity.CENTER_HORIZONTAL);
             } else {
                 // Default: center
-                params.gravity = android.view.Gravity.CENTER;
+                mrecSlot.show(Gravity.CENTER);
             }
-
-            mrecAdView.setLayoutParams(params);
-
-            // Add to container and load ad
-            adContainer.addView(mrecAdView);
-            adContainer.setVisibility(View.VISIBLE);
-
-            AdRequest adRequest = new AdRequest.Builder().build();
-            mrecAdView.loadAd(adRequest);
-
-            Log.d(TAG, "MREC ad loading...");
-        });
+        }, true, "mrec");
     }
 
     /**
@@ -430,17 +449,16 @@ public class WebAppInterface {
     public void hideMREC() {
         Log.d(TAG, "hideMREC() called");
 
-        mainHandler.post(() -> {
-            if (mrecAdView != null) {
-                mrecAdView.setVisibility(View.GONE);
-                adContainer.removeView(mrecAdView);
-                mrecAdView.destroy();
-                mrecAdView = null;
-            }
-            if (adContainer != null && bannerAdView == null) {
-                adContainer.setVisibility(View.GONE);
-            }
-        });
+        whenSdkReady(() -> {
+            mrecSlot.hide();
+            hideContainerIfEmpty();
+        }, false, null);
+    }
+
+    private void hideContainerIfEmpty() {
+        if (adContainer != null && !bannerSlot.isVisible() && !mrecSlot.isVisible()) {
+            adContainer.setVisibility(View.GONE);
+        }
     }
 
     // ==================== UTILITY METHODS ====================
@@ -464,7 +482,8 @@ public class WebAppInterface {
      */
     @JavascriptInterface
     public boolean isRewardAdReady() {
-        return rewardedAd != null;
+        if (!sdkReady && !sdkUnavailable) mainHandler.post(this::startSdk);
+        return rewardedPool.isReady();
     }
 
     /**
@@ -473,11 +492,48 @@ public class WebAppInterface {
      */
     @JavascriptInterface
     public boolean isInterstitialReady() {
-        return interstitialAd != null;
+        if (!sdkReady && !sdkUnavailable) mainHandler.post(this::startSdk);
+        return interstitialPool.isReady();
+    }
+
+    /**
+     * Preload pool state per format: depth, ready count, whether a load is
+     * in flight, and consecutive failures. Fill rate and time-to-ready are
+     * in getAdStats()
+     * @return JSON object keyed by "interstitial" and "rewarded"
+     */
+    @JavascriptInterface
+    public String getAdInventoryStats() {
+        try {
+            JSONObject stats = new JSONObject();
+            stats.put("interstitial", interstitialPool.stats());
+            stats.put("rewarded", rewardedPool.stats());
+            return stats.toString();
+        } catch (JSONException e) {
+            return "{}";
+        }
+    }
+
+    /**
+     * Ad metrics across all formats (loads, fills, failures by error code,
+     * retries, expiry discards, shows, impressions, rewards, and load/show
+     * latency histograms), persisted across sessions, plus the current
+     * preload pool state under "inventory"
+     * @return JSON object, see AdMetrics.snapshot()
+     */
+    @JavascriptInterface
+    public String getAdStats() {
+        try {
+            JSONObject stats = AdMetrics.snapshot();
+            stats.put("inventory", new JSONObject(getAdInventoryStats()));
+            return stats.toString();
+        } catch (JSONException e) {
+            return "{}";
+        }
     }
 
     /**
-     * Pre-load all ads (call this on app start)
+     * Pre-load all ads (call this once the ad SDK is initialized)
      */
     public void preloadAllAds() {
         loadInterstitial();
@@ -485,33 +541,40 @@ public class WebAppInterface {
     }
 
     /**
-     * Reset retry counters and try loading ads again
+     * Skip any pending retry backoff and refill the pools now
      * Call this when user returns to app or network becomes available
      */
     public void resetAndReloadAds() {
-        interstitialRetryCount = 0;
-        rewardedRetryCount = 0;
-        if (interstitialAd == null && !isInterstitialLoading) {
-            loadInterstitial();
-        }
-        if (rewardedAd == null && !isRewardedLoading) {
-            loadRewardAd();
-        }
+        interstitialPool.retryNow();
+        rewardedPool.retryNow();
+    }
+
+    /**
+     * Pause banner/MREC views with the activity
+     */
+    public void onPause() {
+        bannerSlot.pause();
+        mrecSlot.pause();
+    }
+
+    /**
+     * Resume banner/MREC views with the activity
+     */
+    public void onResume() {
+        bannerSlot.resume();
+        mrecSlot.resume();
     }
 
     /**
      * Clean up resources
      */
     public void destroy() {
-        if (bannerAdView != null) {
-            bannerAdView.destroy();
-            bannerAdView = null;
-        }
-        if (mrecAdView != null) {
-            mrecAdView.destroy();
-            mrecAdView = null;
+        if (adContainer != null) {
+            bannerSlot.destroy();
+            mrecSlot.destroy();
         }
-        interstitialAd = null;
-        rewardedAd = null;
+        ConnectivityMonitor.getInstance(activity).removeListener(connectivityListener);
+        interstitialPool.clear();
+        rewardedPool.clear();
     }
 }
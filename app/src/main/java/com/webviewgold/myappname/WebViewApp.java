@@ -5,6 +5,7 @@ import android.app.Application;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.StrictMode;
 import android.util.Log;
 import android.view.WindowManager;
 
@@ -26,6 +27,7 @@ import com.onesignal.notifications.INotificationClickListener;
 import com.pushwoosh.Pushwoosh;
 import com.revenuecat.purchases.Purchases;
 import com.revenuecat.purchases.PurchasesConfiguration;
+import com.webviewgold.myappname.storage.AppStore;
 
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -38,17 +40,52 @@ public class WebViewApp extends MultiDexApplication {
     public void onCreate() {
         super.onCreate();
         context = this;
+        if (BuildConfig.IS_DEBUG_MODE) {
+            enableStrictMode();
+        }
+
+        // Warm the bridge stores off the main thread before MainActivity reads them
+        AppStore.preload(this, "rate_prefs", "purchase_prefs", "stepking_prefs",
+                "deepwork_prefs", "ghostrunner_prefs", "sleep_tracker_prefs");
+        AlertManager.preloadPreferences(this);
+        AdMetrics.init(this);
 
         setupActivityListener();
-        initFirebase();
-        initOneSignal();
-        initAdsSDK();
-        initPushWooshSDK();
-        initRevenueCat();
+
+        // Firebase and OneSignal stay on the main thread: push receivers and
+        // notification clicks can arrive as soon as onCreate returns
+        AppStartup.register(AppStartup.FIREBASE, AppStartup.Mode.MAIN, this::initFirebase);
+        AppStartup.register(AppStartup.ONESIGNAL, AppStartup.Mode.MAIN, this::initOneSignal);
+        AppStartup.register(AppStartup.CONNECTIVITY, AppStartup.Mode.BACKGROUND, () -> ConnectivityMonitor.getInstance(this));
+        // Ad SDKs wait for the page's first ad call or first paint (MainActivity.ensureAdsInitialized)
+        AppStartup.register(AppStartup.ADS, AppStartup.Mode.DEFERRED, this::initAdsSDK);
+        AppStartup.register(AppStartup.PUSHWOOSH, AppStartup.Mode.DEFERRED, this::initPushWooshSDK, AppStartup.FIREBASE);
+        AppStartup.register(AppStartup.REVENUECAT, AppStartup.Mode.DEFERRED, this::initRevenueCat);
+        AppStartup.start();
+    }
+
+    /**
+     * Debug builds only: logs main-thread disk/network access and leaked
+     * closeables, so blocking calls that slip back onto the UI thread show up.
+     */
+    private void enableStrictMode() {
+        StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                .detectAll()
+                .penaltyLog()
+                .build());
+        StrictMode.setVmPolicy(new StrictMode.VmPolicy.Builder()
+                .detectLeakedSqlLiteObjects()
+                .detectLeakedClosableObjects()
+                .detectLeakedRegistrationObjects()
+                .detectActivityLeaks()
+                .penaltyLog()
+                .build());
     }
 
     private void initRevenueCat() {
-        Purchases.setLogLevel(com.revenuecat.purchases.LogLevel.DEBUG);
+        if (BuildConfig.IS_DEBUG_MODE) {
+            Purchases.setLogLevel(com.revenuecat.purchases.LogLevel.DEBUG);
+        }
         PurchasesConfiguration purchaseConfigs = new PurchasesConfiguration.Builder(
                 this,
                 Config.REVENUECAT_API_KEY
@@ -74,7 +111,9 @@ public class WebViewApp extends MultiDexApplication {
 
     private void initOneSignal() {
         if (Config.PUSH_ENABLED) {
-            OneSignal.getDebug().setLogLevel(LogLevel.VERBOSE);
+            if (BuildConfig.IS_DEBUG_MODE) {
+                OneSignal.getDebug().setLogLevel(LogLevel.VERBOSE);
+            }
             OneSignal.initWithContext(this, ONESIGNAL_APP_ID);
             OneSignal.getNotifications().addClickListener(
                     new INotificationClickListener() {
@@ -128,6 +167,9 @@ public class WebViewApp extends MultiDexApplication {
             @Override
             public void onStop(@NonNull LifecycleOwner owner) {
                 DefaultLifecycleObserver.super.onStop(owner);
+                // Backgrounded: write pending store edits now rather than after the debounce
+                AppStore.flushAll();
+                AdMetrics.flush();
             }
         });
     }
@@ -144,7 +186,9 @@ public class WebViewApp extends MultiDexApplication {
         public void onActivityStarted(@NonNull Activity activity) {}
 
         @Override
-        public void onActivityResumed(@NonNull Activity activity) {}
+        public void onActivityResumed(@NonNull Activity activity) {
+            AppStartup.onFirstActivityResumed();
+        }
 
         @Override
         public void onActivityPaused(@NonNull Activity activity) {}
@@ -0,0 +1,372 @@
+package com.webviewgold.myappname.storage;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Typed key-value store with write-behind persistence, replacing the
+ * per-bridge SharedPreferences XML files.
+ *
+ * - Reads are served from memory.
+ * - Edits are applied to memory immediately and the store is marked dirty.
+ *   A single writer thread (shared by all stores) flushes each dirty store
+ *   after a short debounce, so a burst of edits to the same keys becomes one
+ *   write of the latest values.
+ * - Each flush writes the whole store to a temp file, fsyncs it and renames it
+ *   over the old file, so a crash leaves either the old or the new contents.
+ * - On first open, a legacy SharedPreferences file with the same name is
+ *   migrated and then cleared.
+ *
+ * Editor mirrors SharedPreferences.Editor so call sites read the same.
+ */
+public final class AppStore {
+
+    private static final String TAG = "AppStore";
+    private static final String DIR_NAME = "store";
+    private static final int MAGIC = 0x4B565331; // "KVS1"
+    private static final int FORMAT_VERSION = 1;
+    private static final long FLUSH_DELAY_MS = 300;
+
+    private static final byte TYPE_INT = 1;
+    private static final byte TYPE_LONG = 2;
+    private static final byte TYPE_FLOAT = 3;
+    private static final byte TYPE_BOOLEAN = 4;
+    private static final byte TYPE_STRING = 5;
+
+    private static final Map<String, AppStore> STORES = new HashMap<>();
+
+    private static final ScheduledExecutorService WRITER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "AppStore-Writer");
+        t.setPriority(Thread.NORM_PRIORITY - 1);
+        return t;
+    });
+
+    private final String name;
+    private final File file;
+
+    // Guarded by "this"
+    private final HashMap<String, Object> values = new HashMap<>();
+    private long version = 0;          // bumped on every applied edit
+    private long flushedVersion = 0;   // last version written to disk
+    private boolean flushScheduled = false;
+
+    /**
+     * Returns the store for {@code name}, loading (or migrating) it on first use.
+     */
+    public static AppStore get(Context context, String name) {
+        synchronized (STORES) {
+            AppStore store = STORES.get(name);
+            if (store == null) {
+                store = new AppStore(context.getApplicationContext(), name);
+                STORES.put(name, store);
+            }
+            return store;
+        }
+    }
+
+    /**
+     * Loads the given stores on the writer thread so the first read on the
+     * main thread finds them in memory.
+     */
+    public static void preload(Context context, String... names) {
+        final Context appContext = context.getApplicationContext();
+        WRITER.execute(() -> {
+            for (String name : names) {
+                get(appContext, name);
+            }
+        });
+    }
+
+    /**
+     * Flushes every dirty store now (e.g. when the app goes to the background).
+     */
+    public static void flushAll() {
+        synchronized (STORES) {
+            for (AppStore store : STORES.values()) {
+                store.flush();
+            }
+        }
+    }
+
+    private AppStore(Context context, String name) {
+        this.name = name;
+        File dir = new File(context.getFilesDir(), DIR_NAME);
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.e(TAG, "Failed to create " + dir);
+        }
+        this.file = new File(dir, name + ".kv");
+
+        if (file.exists()) {
+            readFromDisk();
+        } else {
+            migrateFromSharedPreferences(context);
+        }
+    }
+
+    // ─── Typed Reads ───
+
+    public synchronized int getInt(String key, int defValue) {
+        Object v = values.get(key);
+        return v instanceof Integer ? (Integer) v : defValue;
+    }
+
+    public synchronized long getLong(String key, long defValue) {
+        Object v = values.get(key);
+        return v instanceof Long ? (Long) v : defValue;
+    }
+
+    public synchronized float getFloat(String key, float defValue) {
+        Object v = values.get(key);
+        return v instanceof Float ? (Float) v : defValue;
+    }
+
+    public synchronized boolean getBoolean(String key, boolean defValue) {
+        Object v = values.get(key);
+        return v instanceof Boolean ? (Boolean) v : defValue;
+    }
+
+    public synchronized String getString(String key, String defValue) {
+        Object v = values.get(key);
+        return v instanceof String ? (String) v : defValue;
+    }
+
+    public synchronized boolean contains(String key) {
+        return values.containsKey(key);
+    }
+
+    public Editor edit() {
+        return new Editor();
+    }
+
+    /**
+     * Batches edits; apply() publishes them to memory atomically and
+     * schedules a write-behind flush.
+     */
+    public final class Editor {
+        private final HashMap<String, Object> pending = new HashMap<>();
+        private boolean clear = false;
+
+        public Editor putInt(String key, int value) {
+            pending.put(key, value);
+            return this;
+        }
+
+        public Editor putLong(String key, long value) {
+            pending.put(key, value);
+            return this;
+        }
+
+        public Editor putFloat(String key, float value) {
+            pending.put(key, value);
+            return this;
+        }
+
+        public Editor putBoolean(String key, boolean value) {
+            pending.put(key, value);
+            return this;
+        }
+
+        public Editor putString(String key, String value) {
+            pending.put(key, value); // null removes, as with SharedPreferences
+            return this;
+        }
+
+        public Editor remove(String key) {
+            pending.put(key, null);
+            return this;
+        }
+
+        public Editor clear() {
+            clear = true;
+            return this;
+        }
+
+        public void apply() {
+            synchronized (AppStore.this) {
+                boolean changed = false;
+                if (clear && !values.isEmpty()) {
+                    values.clear();
+                    changed = true;
+                }
+                for (Map.Entry<String, Object> entry : pending.entrySet()) {
+                    Object value = entry.getValue();
+                    Object old = value == null ? values.remove(entry.getKey())
+                                               : values.put(entry.getKey(), value);
+                    if (value == null ? old != null : !value.equals(old)) {
+                        changed = true;
+                    }
+                }
+                if (!changed) return;
+                version++;
+                scheduleFlush(FLUSH_DELAY_MS);
+            }
+        }
+    }
+
+    // ─── Write-behind ───
+
+    /**
+     * Requests an immediate flush if there are unwritten edits.
+     */
+    public void flush() {
+        synchronized (this) {
+            if (version == flushedVersion) return;
+            scheduleFlush(0);
+        }
+    }
+
+    // Caller holds "this"
+    private void scheduleFlush(long delayMs) {
+        if (flushScheduled && delayMs > 0) return; // already coalescing
+        flushScheduled = true;
+        WRITER.schedule(this::writeToDisk, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void writeToDisk() {
+        HashMap<String, Object> snapshot;
+        long snapshotVersion;
+        synchronized (this) {
+            flushScheduled = false;
+            if (version == flushedVersion) return;
+            snapshot = new HashMap<>(values);
+            snapshotVersion = version;
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(snapshot.size());
+            for (Map.Entry<String, Object> entry : snapshot.entrySet()) {
+                out.writeUTF(entry.getKey());
+                writeValue(out, entry.getValue());
+            }
+            out.flush();
+            fos.getFD().sync();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write " + name + ": " + e.getMessage());
+            tmp.delete();
+            return;
+        }
+
+        if (!tmp.renameTo(file)) {
+            Log.e(TAG, "Failed to replace " + file);
+            tmp.delete();
+            return;
+        }
+
+        synchronized (this) {
+            flushedVersion = Math.max(flushedVersion, snapshotVersion);
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value instanceof Integer) {
+            out.writeByte(TYPE_INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(TYPE_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            out.writeByte(TYPE_FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(TYPE_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else {
+            // Strings may exceed writeUTF's 64 KB limit (e.g. GPS breadcrumbs)
+            byte[] bytes = String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+            out.writeByte(TYPE_STRING);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    // ─── Load / Migration ───
+
+    private void readFromDisk() {
+        HashMap<String, Object> loaded = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                Log.e(TAG, "Unknown format for " + name + ", starting empty");
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                byte type = in.readByte();
+                switch (type) {
+                    case TYPE_INT:
+                        loaded.put(key, in.readInt());
+                        break;
+                    case TYPE_LONG:
+                        loaded.put(key, in.readLong());
+                        break;
+                    case TYPE_FLOAT:
+                        loaded.put(key, in.readFloat());
+                        break;
+                    case TYPE_BOOLEAN:
+                        loaded.put(key, in.readBoolean());
+                        break;
+                    case TYPE_STRING:
+                        byte[] bytes = new byte[in.readInt()];
+                        in.readFully(bytes);
+                        loaded.put(key, new String(bytes, StandardCharsets.UTF_8));
+                        break;
+                    default:
+                        throw new IOException("Unknown value type " + type);
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to read " + name + ": " + e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            values.putAll(loaded);
+        }
+    }
+
+    private void migrateFromSharedPreferences(Context context) {
+        SharedPreferences legacy = context.getSharedPreferences(name, Context.MODE_PRIVATE);
+        Map<String, ?> all = legacy.getAll();
+        if (all.isEmpty()) return;
+
+        synchronized (this) {
+            for (Map.Entry<String, ?> entry : all.entrySet()) {
+                Object value = entry.getValue();
+                if (value instanceof Integer || value instanceof Long || value instanceof Float
+                        || value instanceof Boolean || value instanceof String) {
+                    values.put(entry.getKey(), value);
+                } else {
+                    Log.w(TAG, "Skipping unsupported legacy value " + name + "/" + entry.getKey());
+                }
+            }
+            version++;
+        }
+
+        // Write synchronously so the legacy file is only cleared once the copy is durable
+        writeToDisk();
+        if (file.exists()) {
+            legacy.edit().clear().apply();
+            Log.d(TAG, "Migrated " + all.size() + " keys from SharedPreferences '" + name + "'");
+        }
+    }
+}
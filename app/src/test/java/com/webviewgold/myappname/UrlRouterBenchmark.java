@@ -0,0 +1,70 @@
+package com.webviewgold.myappname;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Per-URL cost of UrlRouter.match against the if/else chain it replaced,
+ * over MainActivity's external-command table (the longest chain) and the
+ * URLs from UrlRouterTest. Prints the results; only the answers are asserted.
+ *
+ * Not part of the unit suite: remove the @Ignore to run it by hand.
+ */
+public class UrlRouterBenchmark {
+
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int ROUNDS = 200;
+
+    @Ignore("Benchmark; run manually")
+    @Test
+    public void matchCostPerUrl() {
+        UrlRouter.Rule[] rules = UrlRoutes.EXTERNAL_COMMANDS;
+        List<String> urls = UrlRouterTest.urlsFor(rules);
+        UrlRouter<Integer> router = UrlRouterTest.compile(rules);
+
+        long sink = 0;
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            sink += runChain(rules, urls) + runRouter(router, urls);
+        }
+
+        long startedAt = System.nanoTime();
+        long chainHits = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            chainHits += runChain(rules, urls);
+        }
+        long chainNanos = (System.nanoTime() - startedAt) / ((long) ROUNDS * urls.size());
+
+        startedAt = System.nanoTime();
+        long routerHits = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            routerHits += runRouter(router, urls);
+        }
+        long routerNanos = (System.nanoTime() - startedAt) / ((long) ROUNDS * urls.size());
+
+        assertEquals(chainHits, routerHits);
+        System.out.println("UrlRouter over " + rules.length + " rules, " + urls.size() + " URLs: if/else chain "
+                + chainNanos + " ns, router " + routerNanos + " ns per URL (" + (sink > 0) + ")");
+    }
+
+    private static long runChain(UrlRouter.Rule[] rules, List<String> urls) {
+        long hits = 0;
+        for (String url : urls) {
+            Integer match = UrlRouterTest.legacyMatch(rules, url);
+            if (match != null) hits += match + 1;
+        }
+        return hits;
+    }
+
+    private static long runRouter(UrlRouter<Integer> router, List<String> urls) {
+        long hits = 0;
+        for (String url : urls) {
+            Integer match = router.match(url);
+            if (match != null) hits += match + 1;
+        }
+        return hits;
+    }
+}
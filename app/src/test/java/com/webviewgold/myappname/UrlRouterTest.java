@@ -0,0 +1,256 @@
+package com.webviewgold.myappname;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class UrlRouterTest {
+
+    /**
+     * A router over {@code table} as MainActivity builds it, with each rule's
+     * index as its handler.
+     */
+    static UrlRouter<Integer> compile(UrlRouter.Rule[] table) {
+        UrlRouter<Integer> router = new UrlRouter<>(table);
+        for (int i = 0; i < table.length; i++) {
+            router.on(table[i].pattern, i);
+        }
+        return router;
+    }
+
+    /**
+     * What the if/else chain did: the index of the first rule that matches, or null.
+     */
+    static Integer legacyMatch(UrlRouter.Rule[] table, String url) {
+        for (int i = 0; i < table.length; i++) {
+            UrlRouter.Rule rule = table[i];
+            if (rule.prefix ? url.startsWith(rule.pattern) : url.contains(rule.pattern)) return i;
+        }
+        return null;
+    }
+
+    /**
+     * Every rule's pattern bare, with a payload, behind a page URL, and
+     * combined with every other pattern, plus ordinary page URLs.
+     */
+    static List<String> urlsFor(UrlRouter.Rule[] table) {
+        List<String> urls = new ArrayList<>(Arrays.asList(
+                "", "https://www.example.com/", "https://www.example.com/shop?item=42#top",
+                "http://m.example.com/login?next=%2Faccount", "about:blank",
+                "https://www.google.com/maps/place/Berlin", "https://maps.google.com/?q=1,2",
+                "https://api.whatsapp.com/send?phone=123", "https://play.google.com/store/apps",
+                "file:///android_asset/index.html", "javascript:void(0)"));
+        for (UrlRouter.Rule rule : table) {
+            String s = rule.pattern;
+            urls.add(s);
+            urls.add(s + "payload?x=1&y=%20z");
+            urls.add("https://www.example.com/" + s);
+            urls.add(s.substring(0, s.length() - 1));
+            urls.add(s.toUpperCase());
+            for (UrlRouter.Rule other : table) {
+                urls.add(s + other.pattern);
+                urls.add("https://www.example.com/?a=" + s + "&b=" + other.pattern);
+            }
+        }
+        return urls;
+    }
+
+    private static void assertSameAsChain(UrlRouter.Rule[] table) {
+        UrlRouter<Integer> router = compile(table);
+        for (String url : urlsFor(table)) {
+            assertEquals(url, legacyMatch(table, url), router.match(url));
+        }
+    }
+
+    /**
+     * on() attaches a handler to the first rule with the pattern, so a
+     * repeated pattern would leave the later rule without one.
+     */
+    private static void assertPatternsUnique(UrlRouter.Rule[] table) {
+        Set<String> patterns = new HashSet<>();
+        for (UrlRouter.Rule rule : table) {
+            assertTrue(rule.pattern, patterns.add(rule.pattern));
+        }
+    }
+
+    @Test
+    public void prefixMatchesOnlyAtStart() {
+        UrlRouter<String> router = new UrlRouter<String>()
+                .prefix("tel:", "tel")
+                .prefix("mailto:", "mail");
+        assertEquals("tel", router.match("tel:123"));
+        assertEquals("mail", router.match("mailto:a@b.c"));
+        assertNull(router.match("https://example.com/tel:123"));
+        assertNull(router.match("te"));
+        assertNull(router.match("TEL:123"));
+        assertNull(router.match(null));
+    }
+
+    @Test
+    public void earlierPrefixWinsOverLongerOne() {
+        UrlRouter<String> shortFirst = new UrlRouter<String>()
+                .prefix("get", "short")
+                .prefix("getappversion://", "long");
+        assertEquals("short", shortFirst.match("getappversion://"));
+
+        UrlRouter<String> longFirst = new UrlRouter<String>()
+                .prefix("getappversion://", "long")
+                .prefix("get", "short");
+        assertEquals("long", longFirst.match("getappversion://"));
+        assertEquals("short", longFirst.match("getclipboard://"));
+    }
+
+    @Test
+    public void emptyRulesAreIgnored() {
+        UrlRouter<String> router = new UrlRouter<String>()
+                .prefix("", "empty")
+                .contains("", "empty")
+                .prefix("a", "a");
+        assertEquals("a", router.match("abc"));
+        assertNull(router.match("xyz"));
+    }
+
+    @Test
+    public void prefixesShareOnePrioritySlot() {
+        UrlRouter<String> router = new UrlRouter<String>()
+                .prefixes(new String[]{"https://accounts.google.com", "https://www.facebook.com"}, "login")
+                .prefix("https://", "web");
+        assertEquals("login", router.match("https://accounts.google.com/signin"));
+        assertEquals("login", router.match("https://www.facebook.com/dialog"));
+        assertEquals("web", router.match("https://example.com"));
+    }
+
+    @Test
+    public void containsFindsNeedlesAnywhere() {
+        UrlRouter<String> router = new UrlRouter<String>()
+                .contains(Arrays.asList("he", "she", "his", "hers"), "hit");
+        assertEquals("hit", router.match("ushers"));
+        assertEquals("hit", router.match("this"));
+        assertNull(router.match("abc"));
+        assertNull(router.match("HE"));
+    }
+
+    @Test
+    public void containsFindsNeedleAfterPartialMatch() {
+        UrlRouter<String> router = new UrlRouter<String>()
+                .contains("abcd", "abcd")
+                .contains("bce", "bce");
+        assertEquals("bce", router.match("abce"));
+        assertEquals("abcd", router.match("xabcdx"));
+        assertNull(router.match("abcbd"));
+    }
+
+    @Test
+    public void earlierNeedleWinsOverOverlappingOne() {
+        UrlRouter<String> router = new UrlRouter<String>()
+                .contains("send", "send")
+                .contains("push.send", "push");
+        assertEquals("send", router.match("x://push.send"));
+
+        UrlRouter<String> reversed = new UrlRouter<String>()
+                .contains("push.send", "push")
+                .contains("send", "send");
+        assertEquals("push", reversed.match("x://push.send"));
+        assertEquals("send", reversed.match("x://resend"));
+    }
+
+    @Test
+    public void earliestRuleWinsAcrossPrefixesAndSubstrings() {
+        UrlRouter<String> router = new UrlRouter<String>()
+                .contains("push.send.cancel", "cancel")
+                .prefix("startnativevideo://", "video")
+                .contains("push.send", "send");
+        assertEquals("cancel", router.match("https://example.com/cartreminderpush.send.cancel"));
+        assertEquals("send", router.match("https://example.com/push.send?title=Hi"));
+        assertEquals("video", router.match("startnativevideo://push.send"));
+        assertEquals("cancel", router.match("startnativevideo://push.send.cancel"));
+    }
+
+    @Test
+    public void rulesAddedAfterMatchingAreUsed() {
+        UrlRouter<String> router = new UrlRouter<String>().contains("maps:", "maps");
+        assertNull(router.match("https://maps.google.com"));
+        router.contains("maps.google.com", "google");
+        assertEquals("google", router.match("https://maps.google.com"));
+        assertEquals("maps", router.match("maps:0,0"));
+    }
+
+    @Test
+    public void tableRulesMatchOnceTheyHaveAHandler() {
+        UrlRouter.Rule[] table = {UrlRouter.Rule.prefix("tel:"), UrlRouter.Rule.contains("maps:")};
+        UrlRouter<String> router = new UrlRouter<>(table);
+        assertNull(router.match("tel:123"));
+        router.on("maps:", "maps");
+        assertNull(router.match("tel:123"));
+        assertEquals("maps", router.match("https://example.com/maps:0,0"));
+        router.on("tel:", "tel");
+        assertEquals("tel", router.match("tel:maps:"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void onRejectsPatternNotInTheTable() {
+        new UrlRouter<String>(UrlRoutes.EXTERNAL_SCHEMES).on("telephone:", "tel");
+    }
+
+    @Test
+    public void tablePatternsAreUnique() {
+        assertPatternsUnique(UrlRoutes.APP_COMMANDS);
+        assertPatternsUnique(UrlRoutes.EXTERNAL_SCHEMES);
+        assertPatternsUnique(UrlRoutes.EXTERNAL_COMMANDS);
+    }
+
+    @Test
+    public void hostIndexMatchesHostsContainedInAnEntry() {
+        UrlRouter.HostIndex index = new UrlRouter.HostIndex("ads.example.com", "tracker.net");
+        assertTrue(index.contains("ads.example.com"));
+        assertTrue(index.contains("example.com"));
+        assertTrue(index.contains("tracker"));
+        assertTrue(index.contains(""));
+        assertFalse(index.contains("www.ads.example.com"));
+        assertFalse(index.contains("other.com"));
+        assertFalse(index.contains(null));
+    }
+
+    @Test
+    public void hostIndexMatchesEntryContainsCheck() {
+        String[] entries = {"ads.example.com", "tracker.net", "cdn.example.org"};
+        UrlRouter.HostIndex index = new UrlRouter.HostIndex(entries);
+        List<String> hosts = new ArrayList<>(Arrays.asList("", "example", "example.com", "net",
+                "www.example.com", "cdn.example.org.evil.com", "tracker.net", "a"));
+        for (String host : hosts) {
+            boolean expected = false;
+            for (String entry : entries) {
+                if (entry.contains(host)) expected = true;
+            }
+            assertEquals(host, expected, index.contains(host));
+        }
+
+        UrlRouter.HostIndex empty = new UrlRouter.HostIndex();
+        assertFalse(empty.contains(""));
+        assertFalse(empty.contains("a"));
+    }
+
+    @Test
+    public void appCommandsMatchTheIfElseChain() {
+        assertSameAsChain(UrlRoutes.APP_COMMANDS);
+    }
+
+    @Test
+    public void externalSchemesMatchTheIfElseChain() {
+        assertSameAsChain(UrlRoutes.EXTERNAL_SCHEMES);
+    }
+
+    @Test
+    public void externalCommandsMatchTheIfElseChain() {
+        assertSameAsChain(UrlRoutes.EXTERNAL_COMMANDS);
+    }
+}
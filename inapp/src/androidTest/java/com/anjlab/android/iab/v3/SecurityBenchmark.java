@@ -0,0 +1,109 @@
+/**
+ * Copyright 2014 AnjLab
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.anjlab.android.iab.v3;
+
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Base64;
+import android.util.Log;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.Signature;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Per-purchase cost of Security.verifyPurchase(): cold, parsing the license
+ * key and looking up the Signature for every purchase (what every call used
+ * to do), against the cached key and per-thread Signature.
+ *
+ * Runs on a device, since android.util.Base64 is only stubbed in local unit
+ * tests. Results go to logcat under the "SecurityBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SecurityBenchmark
+{
+	private static final String TAG = "SecurityBenchmark";
+	private static final String PRODUCT_ID = "benchmark.product";
+	private static final int WARMUP = 20;
+	private static final int PURCHASES = 200;
+
+	private static String licenseKey;
+	private static String purchaseData;
+	private static String signature;
+
+	@BeforeClass
+	public static void signPurchase() throws Exception
+	{
+		KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+		generator.initialize(2048);
+		KeyPair keyPair = generator.generateKeyPair();
+		licenseKey = Base64.encodeToString(keyPair.getPublic().getEncoded(), Base64.NO_WRAP);
+
+		purchaseData = "{\"orderId\":\"GPA.0000-0000-0000-00000\",\"packageName\":\"com.example\","
+				+ "\"productId\":\"" + PRODUCT_ID + "\",\"purchaseTime\":1700000000000,"
+				+ "\"purchaseState\":0,\"purchaseToken\":\"token\",\"acknowledged\":true}";
+		Signature signer = Signature.getInstance("SHA1withRSA");
+		signer.initSign(keyPair.getPrivate());
+		signer.update(purchaseData.getBytes());
+		signature = Base64.encodeToString(signer.sign(), Base64.NO_WRAP);
+	}
+
+	@Test
+	public void verifyPurchaseCost() throws Exception
+	{
+		for (int i = 0; i < WARMUP; i++)
+		{
+			assertTrue(verifyCold());
+			assertTrue(Security.verifyPurchase(PRODUCT_ID, licenseKey, purchaseData, signature));
+		}
+
+		long startedAt = System.nanoTime();
+		for (int i = 0; i < PURCHASES; i++)
+		{
+			assertTrue(verifyCold());
+		}
+		long coldMicros = (System.nanoTime() - startedAt) / 1000L / PURCHASES;
+
+		startedAt = System.nanoTime();
+		for (int i = 0; i < PURCHASES; i++)
+		{
+			assertTrue(Security.verifyPurchase(PRODUCT_ID, licenseKey, purchaseData, signature));
+		}
+		long cachedMicros = (System.nanoTime() - startedAt) / 1000L / PURCHASES;
+
+		Log.i(TAG, "verifyPurchase over " + PURCHASES + " purchases: cold " + coldMicros
+				+ " us, cached key " + cachedMicros + " us per purchase");
+	}
+
+	/**
+	 * One verification without the caches: decode and parse the key, look up
+	 * a Signature, verify.
+	 */
+	private static boolean verifyCold() throws Exception
+	{
+		PublicKey key = Security.generatePublicKey(licenseKey);
+		Signature verifier = Signature.getInstance("SHA1withRSA");
+		verifier.initVerify(key);
+		verifier.update(purchaseData.getBytes());
+		return verifier.verify(Base64.decode(signature, Base64.DEFAULT));
+	}
+}
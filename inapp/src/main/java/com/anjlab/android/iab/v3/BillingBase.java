@@ -19,8 +19,19 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.preference.PreferenceManager;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 class BillingBase
 {
+	/**
+	 * Background thread for preference I/O and signature checks, so Play Billing
+	 * callbacks (delivered on the main thread) return quickly. A single thread
+	 * keeps cache writes in order.
+	 */
+	private static final ExecutorService ioExecutor =
+			Executors.newSingleThreadExecutor(r -> new Thread(r, "iabv3-io"));
+
 	private Context context;
 
 	BillingBase(Context context)
@@ -33,6 +44,11 @@ class BillingBase
 		return context;
 	}
 
+	static void runOnIoThread(Runnable task)
+	{
+		ioExecutor.execute(task);
+	}
+
 	String getPreferencesBaseKey()
 	{
 		return getContext().getPackageName() + "_preferences";
@@ -50,7 +66,7 @@ class BillingBase
 		{
 			SharedPreferences.Editor spe = sp.edit();
 			spe.putString(key, value);
-			spe.commit();
+			spe.apply();
 			return true;
 		}
 		return false;
@@ -73,7 +89,7 @@ class BillingBase
 		{
 			SharedPreferences.Editor spe = sp.edit();
 			spe.putBoolean(key, value);
-			spe.commit();
+			spe.apply();
 			return true;
 		}
 		return false;
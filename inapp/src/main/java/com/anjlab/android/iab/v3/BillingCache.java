@@ -17,29 +17,117 @@ package com.anjlab.android.iab.v3;
 
 import android.content.Context;
 import android.text.TextUtils;
+import android.util.Log;
 
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 
+/**
+ * Purchase cache for one product type, stored as a JSON-lines file in
+ * files/iabv3/: a header line ({"format", "version"}) followed by one
+ * {"id", "data", "sig"} record per purchase.
+ *
+ * Changes are applied in memory and written behind on the I/O thread; a
+ * burst of changes (or a replaceAll() from a purchase query) becomes a
+ * single write. Each write goes to a temporary file that is synced and
+ * then renamed over the old one, so a crash never leaves a torn cache.
+ * Caches from the old SharedPreferences format are migrated on first load.
+ *
+ * Changes made by other processes (or other instances) are detected through
+ * a generation counter in a small memory-mapped file next to the cache,
+ * which every write bumps. Checking it is a plain memory read, and the
+ * in-memory map is an immutable snapshot behind a volatile field, so
+ * includesProduct() and getDetails() take no lock unless the generation
+ * has moved. A reload only re-parses records whose line has changed.
+ */
 class BillingCache extends BillingBase
 {
-	private static final String ENTRY_DELIMITER = "#####";
-	private static final String LINE_DELIMITER = ">>>>>";
-	private static final String VERSION_KEY = ".version";
+	private static final String LOG_TAG = "iabv3";
+	private static final String LEGACY_ENTRY_DELIMITER = "#####";
+	private static final String LEGACY_LINE_DELIMITER = ">>>>>";
+	private static final String LEGACY_VERSION_KEY = ".version";
+
+	private static final String DIRECTORY = "iabv3";
+	private static final String FILE_FORMAT = "iabv3-cache";
+	private static final int FILE_FORMAT_VERSION = 1;
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * A parsed record together with the line it was read from, so an unchanged
+	 * line can be reused on reload without parsing it again.
+	 */
+	private static final class Record
+	{
+		final String productId;
+		final PurchaseInfo info;
+
+		Record(String productId, PurchaseInfo info)
+		{
+			this.productId = productId;
+			this.info = info;
+		}
+	}
+
+	private final String cacheKey;
+	private final File file;
+	private final File generationFile;
+
+	// Immutable snapshot; replaced (never modified) under the lock
+	private volatile Map<String, PurchaseInfo> data = Collections.emptyMap();
+	// Generation of the file that data reflects
+	private volatile long loadedGeneration = -1;
+	// Shared mapping of generationFile; null if it could not be mapped
+	private MappedByteBuffer generation;
 
-	private HashMap<String, PurchaseInfo> data;
-	private String cacheKey;
-	private String version;
+	// Guarded by this
+	private Map<String, Record> recordsByLine = new HashMap<>();
+	private boolean writePending = false;
+	// Writes queued or running; while > 0 the in-memory data is newer than the file
+	private int writesInFlight = 0;
+	// Generation produced by this instance's last completed write, -1 if none
+	private long ownGeneration = -1;
+	// Legacy preference keys to remove once the migrated cache is safely on disk
+	private boolean legacyKeysPending = false;
 
 	BillingCache(Context context, String key)
 	{
 		super(context);
-		data = new HashMap<>();
 		cacheKey = key;
-		load();
+		File dir = new File(context.getFilesDir(), DIRECTORY);
+		file = new File(dir, "cache" + key + ".jsonl");
+		generationFile = new File(dir, "cache" + key + ".gen");
+		generation = mapGenerationFile();
+		synchronized (this)
+		{
+			if (file.exists())
+			{
+				reload();
+			}
+			else
+			{
+				migrateLegacyCache();
+			}
+		}
 	}
 
 	private String getPreferencesCacheKey()
@@ -47,44 +135,262 @@ class BillingCache extends BillingBase
 		return getPreferencesBaseKey() + cacheKey;
 	}
 
-	private String getPreferencesVersionKey()
+	private MappedByteBuffer mapGenerationFile()
+	{
+		File dir = generationFile.getParentFile();
+		if (dir != null && !dir.exists() && !dir.mkdirs())
+		{
+			Log.e(LOG_TAG, "Failed to create " + dir);
+			return null;
+		}
+		// The mapping stays valid after the channel is closed
+		try (RandomAccessFile raf = new RandomAccessFile(generationFile, "rw"))
+		{
+			return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, 8);
+		}
+		catch (IOException e)
+		{
+			Log.e(LOG_TAG, "Failed to map " + generationFile.getName()
+					+ ", falling back to the file time stamp", e);
+			return null;
+		}
+	}
+
+	private long currentGeneration()
 	{
-		return getPreferencesCacheKey() + VERSION_KEY;
+		MappedByteBuffer buffer = generation;
+		return buffer != null ? buffer.getLong(0) : file.lastModified();
+	}
+
+	/**
+	 * Hot path: one memory read of the generation plus one volatile read.
+	 */
+	private void reloadDataIfNeeded()
+	{
+		if (currentGeneration() == loadedGeneration)
+		{
+			return;
+		}
+		synchronized (this)
+		{
+			// Our own unwritten changes are newer than anything on disk
+			if (writesInFlight == 0 && currentGeneration() != loadedGeneration)
+			{
+				reload();
+			}
+		}
 	}
 
-	private void load()
+	// Holding the lock
+	private void reload()
 	{
-		String[] entries = loadString(getPreferencesCacheKey(), "").split(Pattern.quote(ENTRY_DELIMITER));
-		for (String entry : entries)
+		long fileGeneration = currentGeneration();
+		Map<String, PurchaseInfo> entries = new HashMap<>();
+		Map<String, Record> records = new HashMap<>();
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(new FileInputStream(file), UTF_8)))
+		{
+			String header = reader.readLine();
+			if (header != null)
+			{
+				JSONObject headerJson = new JSONObject(header);
+				if (FILE_FORMAT.equals(headerJson.optString("format"))
+					&& headerJson.optInt("version") == FILE_FORMAT_VERSION)
+				{
+					String line;
+					while ((line = reader.readLine()) != null)
+					{
+						if (line.isEmpty())
+						{
+							continue;
+						}
+						Record record = recordsByLine.get(line);
+						if (record == null)
+						{
+							record = parseRecord(line);
+						}
+						records.put(line, record);
+						entries.put(record.productId, record.info);
+					}
+				}
+				else
+				{
+					Log.e(LOG_TAG, "Unknown cache format in " + file.getName() + ", ignoring it");
+				}
+			}
+		}
+		catch (IOException | JSONException e)
+		{
+			Log.e(LOG_TAG, "Failed to read " + file.getName(), e);
+		}
+		recordsByLine = records;
+		data = Collections.unmodifiableMap(entries);
+		loadedGeneration = fileGeneration;
+	}
+
+	private static Record parseRecord(String line) throws JSONException
+	{
+		JSONObject json = new JSONObject(line);
+		String signature = json.isNull("sig") ? null : json.getString("sig");
+		return new Record(json.getString("id"), new PurchaseInfo(json.getString("data"), signature));
+	}
+
+	/**
+	 * Imports the delimiter-joined SharedPreferences blob used by earlier versions.
+	 */
+	// Holding the lock
+	private void migrateLegacyCache()
+	{
+		loadedGeneration = currentGeneration();
+		String legacy = loadString(getPreferencesCacheKey(), "");
+		if (TextUtils.isEmpty(legacy))
+		{
+			return;
+		}
+		Map<String, PurchaseInfo> entries = new HashMap<>();
+		for (String entry : legacy.split(Pattern.quote(LEGACY_ENTRY_DELIMITER)))
 		{
 			if (!TextUtils.isEmpty(entry))
 			{
-				String[] parts = entry.split(Pattern.quote(LINE_DELIMITER));
+				String[] parts = entry.split(Pattern.quote(LEGACY_LINE_DELIMITER));
 				if (parts.length > 2)
 				{
-					data.put(parts[0], new PurchaseInfo(parts[1], parts[2]));
+					entries.put(parts[0], new PurchaseInfo(parts[1], parts[2]));
 				}
 				else if (parts.length > 1)
 				{
-					data.put(parts[0], new PurchaseInfo(parts[1], null));
+					entries.put(parts[0], new PurchaseInfo(parts[1], null));
 				}
 			}
 		}
-		version = getCurrentVersion();
+		// The legacy keys are only dropped after the first write has landed (see writeFile)
+		legacyKeysPending = true;
+		commit(entries);
+	}
+
+	/**
+	 * Publishes a new snapshot and queues a single write for the current burst
+	 * of changes. Holding the lock.
+	 */
+	private void commit(Map<String, PurchaseInfo> entries)
+	{
+		data = Collections.unmodifiableMap(entries);
+		if (writePending)
+		{
+			return;
+		}
+		writePending = true;
+		writesInFlight++;
+		runOnIoThread(this::writeFile);
 	}
 
-	private void flush()
+	// I/O thread
+	private void writeFile()
 	{
-		ArrayList<String> output = new ArrayList<>();
-		for (String productId : data.keySet())
+		try
+		{
+			writeSnapshot();
+		}
+		finally
 		{
-			PurchaseInfo info = data.get(productId);
-			output.add(productId + LINE_DELIMITER + info.responseData + LINE_DELIMITER +
-					   info.signature);
+			synchronized (this)
+			{
+				writesInFlight--;
+				// Once our last write has landed, memory matches the file, unless
+				// another process has written since; then the next read reloads
+				if (writesInFlight == 0 && ownGeneration >= 0 && currentGeneration() == ownGeneration)
+				{
+					loadedGeneration = ownGeneration;
+				}
+			}
+		}
+	}
+
+	// I/O thread
+	private void writeSnapshot()
+	{
+		final Map<String, PurchaseInfo> snapshot;
+		final boolean dropLegacyKeys;
+		synchronized (this)
+		{
+			writePending = false;
+			snapshot = data;
+			dropLegacyKeys = legacyKeysPending;
+		}
+
+		File tmp = new File(file.getPath() + ".tmp");
+		try (FileOutputStream out = new FileOutputStream(tmp))
+		{
+			BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, UTF_8));
+			JSONObject header = new JSONObject();
+			header.put("format", FILE_FORMAT);
+			header.put("version", FILE_FORMAT_VERSION);
+			writer.write(header.toString());
+			writer.write('\n');
+			for (Map.Entry<String, PurchaseInfo> entry : snapshot.entrySet())
+			{
+				JSONObject record = new JSONObject();
+				record.put("id", entry.getKey());
+				record.put("data", entry.getValue().responseData);
+				record.put("sig", entry.getValue().signature == null
+						? JSONObject.NULL : entry.getValue().signature);
+				writer.write(record.toString());
+				writer.write('\n');
+			}
+			writer.flush();
+			out.getFD().sync();
+		}
+		catch (IOException | JSONException e)
+		{
+			Log.e(LOG_TAG, "Failed to write " + file.getName(), e);
+			tmp.delete();
+			return;
+		}
+		if (!tmp.renameTo(file))
+		{
+			Log.e(LOG_TAG, "Failed to replace " + file.getName());
+			tmp.delete();
+			return;
+		}
+		if (dropLegacyKeys)
+		{
+			saveString(getPreferencesCacheKey(), null);
+			saveString(getPreferencesCacheKey() + LEGACY_VERSION_KEY, null);
+			synchronized (this)
+			{
+				legacyKeysPending = false;
+			}
+		}
+		bumpGeneration();
+	}
+
+	// I/O thread
+	private void bumpGeneration()
+	{
+		long next;
+		if (generation != null)
+		{
+			// The file lock keeps concurrent writers in other processes from losing a bump
+			try (RandomAccessFile raf = new RandomAccessFile(generationFile, "rw");
+				 FileLock ignored = raf.getChannel().lock())
+			{
+				next = generation.getLong(0) + 1;
+				generation.putLong(0, next);
+			}
+			catch (IOException e)
+			{
+				Log.e(LOG_TAG, "Failed to update " + generationFile.getName(), e);
+				return;
+			}
+		}
+		else
+		{
+			next = file.lastModified();
+		}
+		synchronized (this)
+		{
+			ownGeneration = next;
 		}
-		saveString(getPreferencesCacheKey(), TextUtils.join(ENTRY_DELIMITER, output));
-		version = Long.toString(new Date().getTime());
-		saveString(getPreferencesVersionKey(), version);
 	}
 
 	boolean includesProduct(String productId)
@@ -96,52 +402,50 @@ class BillingCache extends BillingBase
 	PurchaseInfo getDetails(String productId)
 	{
 		reloadDataIfNeeded();
-		return data.containsKey(productId) ? data.get(productId) : null;
+		return data.get(productId);
 	}
 
-	void put(String productId, String details, String signature)
+	synchronized void put(String productId, String details, String signature)
 	{
 		reloadDataIfNeeded();
 		if (!data.containsKey(productId))
 		{
-			data.put(productId, new PurchaseInfo(details, signature));
-			flush();
+			Map<String, PurchaseInfo> entries = new HashMap<>(data);
+			entries.put(productId, new PurchaseInfo(details, signature));
+			commit(entries);
 		}
 	}
 
-	void remove(String productId)
+	synchronized void remove(String productId)
 	{
 		reloadDataIfNeeded();
 		if (data.containsKey(productId))
 		{
-			data.remove(productId);
-			flush();
+			Map<String, PurchaseInfo> entries = new HashMap<>(data);
+			entries.remove(productId);
+			commit(entries);
 		}
 	}
 
-	void clear()
+	synchronized void clear()
 	{
-		reloadDataIfNeeded();
-		data.clear();
-		flush();
+		commit(new HashMap<String, PurchaseInfo>());
 	}
 
-	private String getCurrentVersion()
+	/**
+	 * Replaces the whole cache in one transaction (a single write), e.g. with
+	 * the result of a purchase query.
+	 *
+	 * @param entries product id to purchase
+	 */
+	synchronized void replaceAll(Map<String, PurchaseInfo> entries)
 	{
-		return loadString(getPreferencesVersionKey(), "0");
-	}
-
-	private void reloadDataIfNeeded()
-	{
-		if (!version.equalsIgnoreCase(getCurrentVersion()))
-		{
-			data.clear();
-			load();
-		}
+		commit(new HashMap<>(entries));
 	}
 
 	List<String> getContents()
 	{
+		reloadDataIfNeeded();
 		return new ArrayList<>(data.keySet());
 	}
 
@@ -34,16 +34,25 @@ import org.json.JSONObject;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
-import android.os.AsyncTask;
 import android.os.Handler;
 import android.os.Looper;
 import android.text.TextUtils;
@@ -117,6 +126,7 @@ public class BillingProcessor extends BillingBase
 	private String signatureBase64;
 	private BillingCache cachedProducts;
 	private BillingCache cachedSubscriptions;
+	private final SkuDetailsCache skuDetailsCache = new SkuDetailsCache();
 	private IBillingHandler eventHandler;
 	private String developerMerchantId;
 	private boolean isSubsUpdateSupported;
@@ -124,38 +134,66 @@ public class BillingProcessor extends BillingBase
 
 	private Handler handler = new Handler(Looper.getMainLooper());
 
-	private class HistoryInitializationTask extends AsyncTask<Void, Void, Boolean>
+	/**
+	 * Signature checks for bulk loads, a few at a time. Idle threads time out,
+	 * so the pool costs nothing between loads.
+	 */
+	private static final ExecutorService verifyExecutor = createVerifyExecutor();
+
+	private static ExecutorService createVerifyExecutor()
 	{
-		@Override
-		protected Boolean doInBackground(Void... nothing)
-		{
-			if (!isPurchaseHistoryRestored())
-			{
-				loadOwnedPurchasesFromGoogleAsync(null);
-				return true;
-			}
-			return false;
-		}
+		int threads = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30L, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), r -> new Thread(r, "iabv3-verify"));
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
 
-		@Override
-		protected void onPostExecute(Boolean restored)
+	/**
+	 * Restores the purchase history once per install. The preference read runs
+	 * on the I/O thread; the callbacks are posted to the main thread.
+	 * onBillingInitialized() doesn't wait for the restore: cached purchases are
+	 * usable right away, and onPurchaseHistoryRestored() follows once the
+	 * owned purchases have been loaded and cached. A failed restore is retried
+	 * on the next initialization.
+	 */
+	private void initializeHistory()
+	{
+		runOnIoThread(() ->
 		{
+			final boolean restore = !isPurchaseHistoryRestored();
 
-			isHistoryTaskExecuted = true;
-
-			if (restored)
+			handler.post(() ->
 			{
-				setPurchaseHistoryRestored();
+				isHistoryTaskExecuted = true;
 				if (eventHandler != null)
 				{
-					eventHandler.onPurchaseHistoryRestored();
+					eventHandler.onBillingInitialized();
 				}
-			}
-			if (eventHandler != null)
+			});
+
+			if (restore)
 			{
-				eventHandler.onBillingInitialized();
+				loadOwnedPurchasesFromGoogleAsync(new IPurchasesResponseListener()
+				{
+					@Override
+					public void onPurchasesSuccess()
+					{
+						setPurchaseHistoryRestored();
+						if (eventHandler != null)
+						{
+							eventHandler.onPurchaseHistoryRestored();
+						}
+					}
+
+					@Override
+					public void onPurchasesError()
+					{
+						Log.e(LOG_TAG, "Failed to restore purchase history");
+					}
+				});
 			}
-		}
+		});
 	}
 
 	/**
@@ -305,7 +343,7 @@ public class BillingProcessor extends BillingBase
 						//Initialize history of purchases if any exist.
 						if (!isHistoryTaskExecuted)
 						{
-							new HistoryInitializationTask().execute();
+							initializeHistory();
 						}
 					}
 					else
@@ -400,8 +438,19 @@ public class BillingProcessor extends BillingBase
 		return cachedSubscriptions.getContents();
 	}
 
-	private void loadPurchasesByTypeAsync(String type, final BillingCache cacheStorage,
-										  final IPurchasesResponseListener listener)
+	/**
+	 * Fetches owned products and subscriptions from Google Play and replaces both caches.
+	 *
+	 * Both product types are queried concurrently. Once both answers are in, the
+	 * purchase signatures are verified in parallel and both caches are committed
+	 * together in one I/O task, so their writes go out as one batch. The listener
+	 * is called once, when everything has finished.
+	 *
+	 * @param listener invokes method onPurchasesError if either retrieval failed,
+	 *                    onPurchasesSuccess if both succeeded. A type that was
+	 *                    retrieved successfully is cached either way.
+	 */
+	public void loadOwnedPurchasesFromGoogleAsync(final IPurchasesResponseListener listener)
 	{
 		if (!isConnected())
 		{
@@ -410,6 +459,32 @@ public class BillingProcessor extends BillingBase
 			return;
 		}
 
+		final OwnedPurchasesLoad load = new OwnedPurchasesLoad(listener);
+		queryOwnedPurchases(Constants.PRODUCT_TYPE_MANAGED, OwnedPurchasesLoad.PRODUCTS, load);
+		queryOwnedPurchases(Constants.PRODUCT_TYPE_SUBSCRIPTION, OwnedPurchasesLoad.SUBSCRIPTIONS, load);
+	}
+
+	/**
+	 * Collects the two query results of one loadOwnedPurchasesFromGoogleAsync() call.
+	 */
+	private static final class OwnedPurchasesLoad
+	{
+		static final int PRODUCTS = 0;
+		static final int SUBSCRIPTIONS = 1;
+
+		final IPurchasesResponseListener listener;
+		// null for a type whose query failed
+		final AtomicReferenceArray<List<Purchase>> results = new AtomicReferenceArray<>(2);
+		final AtomicInteger pending = new AtomicInteger(2);
+
+		OwnedPurchasesLoad(IPurchasesResponseListener listener)
+		{
+			this.listener = listener;
+		}
+	}
+
+	private void queryOwnedPurchases(String type, final int slot, final OwnedPurchasesLoad load)
+	{
 		billingService.queryPurchasesAsync(type, new PurchasesResponseListener()
 		{
 			@Override
@@ -418,107 +493,129 @@ public class BillingProcessor extends BillingBase
 			{
 				if (billingResult.getResponseCode() == BillingClient.BillingResponseCode.OK)
 				{
-					cacheStorage.clear();
-					for (Purchase purchaseItem : list)
-					{
-						String jsonData = purchaseItem.getOriginalJson();
-						if (!TextUtils.isEmpty(jsonData))
-						{
-							try
-							{
-								/*
-								  This is a replacement for the bundling in the old version
-								  here we query all users' purchases and save it locally
-								  However, it is also recommended to save and verify all purchases
-								  on own server
-								  */
-								JSONObject purchase = new JSONObject(jsonData);
-								cacheStorage.put(
-										purchase.getString(Constants.RESPONSE_PRODUCT_ID),
-										jsonData,
-										purchaseItem.getSignature());
-							}
-							catch (Exception e)
-							{
-								reportBillingError(
-										Constants.BILLING_ERROR_FAILED_LOAD_PURCHASES, e);
-								Log.e(LOG_TAG, "Error in loadPurchasesByType", e);
-								reportPurchasesError(listener);
-							}
-						}
-					}
-
-					reportPurchasesSuccess(listener);
+					load.results.set(slot, list);
 				}
 				else
 				{
-					reportPurchasesError(listener);
+					Log.e(LOG_TAG, "Failed to query " + type + " purchases: "
+							+ billingResult.getDebugMessage());
+				}
+				// The last answer to arrive finishes the load
+				if (load.pending.decrementAndGet() == 0)
+				{
+					runOnIoThread(() -> commitOwnedPurchases(load));
 				}
 			}
 		});
 	}
 
-	/**
-	 * Attempt to fetch purchases from the server and update our cache if successful
-	 *
-	 * @param listener invokes method onPurchasesError if all retrievals are failure,
-	 *                    onPurchasesSuccess if even one retrieval succeeded
-	 */
-	public void loadOwnedPurchasesFromGoogleAsync(final IPurchasesResponseListener listener)
+	// I/O thread
+	private void commitOwnedPurchases(OwnedPurchasesLoad load)
 	{
-		final IPurchasesResponseListener successListener = new IPurchasesResponseListener()
+		List<Purchase> products = load.results.get(OwnedPurchasesLoad.PRODUCTS);
+		List<Purchase> subscriptions = load.results.get(OwnedPurchasesLoad.SUBSCRIPTIONS);
+
+		// Submit every check before waiting on any, so both types verify side by side
+		List<Future<PurchaseInfo>> productChecks = submitVerifications(products);
+		List<Future<PurchaseInfo>> subscriptionChecks = submitVerifications(subscriptions);
+
+		boolean succeeded = products != null && subscriptions != null;
+		Map<String, PurchaseInfo> ownedProducts = new HashMap<>();
+		Map<String, PurchaseInfo> ownedSubscriptions = new HashMap<>();
+		succeeded &= collectVerifications(productChecks, ownedProducts);
+		succeeded &= collectVerifications(subscriptionChecks, ownedSubscriptions);
+
+		// One transaction per cache; queued back to back, the writes go out as one batch
+		if (products != null)
 		{
-			@Override
-			public void onPurchasesSuccess()
-			{
-				reportPurchasesSuccess(listener);
-			}
+			cachedProducts.replaceAll(ownedProducts);
+		}
+		if (subscriptions != null)
+		{
+			cachedSubscriptions.replaceAll(ownedSubscriptions);
+		}
 
-			@Override
-			public void onPurchasesError()
+		if (succeeded)
+		{
+			reportPurchasesSuccess(load.listener);
+		}
+		else
+		{
+			reportPurchasesError(load.listener);
+		}
+	}
+
+	private List<Future<PurchaseInfo>> submitVerifications(@Nullable List<Purchase> purchases)
+	{
+		List<Future<PurchaseInfo>> checks = new ArrayList<>();
+		if (purchases != null)
+		{
+			for (final Purchase purchase : purchases)
 			{
-				reportPurchasesError(listener);
+				checks.add(verifyExecutor.submit(() -> verifyOwnedPurchase(purchase)));
 			}
-		};
+		}
+		return checks;
+	}
 
-		final IPurchasesResponseListener errorListener = new IPurchasesResponseListener()
+	/**
+	 * @return false if a purchase could not be processed
+	 */
+	private boolean collectVerifications(List<Future<PurchaseInfo>> checks,
+										 Map<String, PurchaseInfo> owned)
+	{
+		boolean succeeded = true;
+		for (Future<PurchaseInfo> check : checks)
 		{
-			@Override
-			public void onPurchasesSuccess()
+			try
 			{
-				reportPurchasesError(listener);
+				PurchaseInfo purchaseInfo = check.get();
+				if (purchaseInfo != null)
+				{
+					owned.put(purchaseInfo.purchaseData.productId, purchaseInfo);
+				}
 			}
-
-			@Override
-			public void onPurchasesError()
+			catch (ExecutionException e)
 			{
-				reportPurchasesError(listener);
+				reportBillingError(Constants.BILLING_ERROR_FAILED_LOAD_PURCHASES, e.getCause());
+				Log.e(LOG_TAG, "Error in loadOwnedPurchasesFromGoogleAsync", e.getCause());
+				succeeded = false;
 			}
-		};
-
-		loadPurchasesByTypeAsync(
-				Constants.PRODUCT_TYPE_MANAGED,
-				cachedProducts,
-				new IPurchasesResponseListener()
-				{
-					@Override
-					public void onPurchasesSuccess()
-					{
-						loadPurchasesByTypeAsync(
-								Constants.PRODUCT_TYPE_SUBSCRIPTION,
-								cachedSubscriptions,
-								successListener);
-					}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+		return succeeded;
+	}
 
-					@Override
-					public void onPurchasesError()
-					{
-						loadPurchasesByTypeAsync(
-								Constants.PRODUCT_TYPE_SUBSCRIPTION,
-								cachedSubscriptions,
-								errorListener);
-					}
-				});
+	/**
+	 * Verifier thread.
+	 *
+	 * @return the purchase to cache, or null if it has no data or its signature doesn't match
+	 */
+	private PurchaseInfo verifyOwnedPurchase(Purchase purchase) throws JSONException
+	{
+		String jsonData = purchase.getOriginalJson();
+		if (TextUtils.isEmpty(jsonData))
+		{
+			return null;
+		}
+		/*
+		  This is a replacement for the bundling in the old version
+		  here we query all users' purchases and save it locally
+		  However, it is also recommended to save and verify all purchases
+		  on own server
+		  */
+		String productId = new JSONObject(jsonData).getString(Constants.RESPONSE_PRODUCT_ID);
+		if (!verifyPurchaseSignature(productId, jsonData, purchase.getSignature()))
+		{
+			Log.e(LOG_TAG, "Public key signature doesn't match for " + productId);
+			reportBillingError(Constants.BILLING_ERROR_INVALID_SIGNATURE, null);
+			return null;
+		}
+		return new PurchaseInfo(jsonData, purchase.getSignature());
 	}
 
 	/***
@@ -883,17 +980,39 @@ public class BillingProcessor extends BillingBase
 	private void getSkuDetailsAsync(final ArrayList<String> productIdList, String purchaseType,
 									final ISkuDetailsResponseListener listener)
 	{
-		if (billingService == null || !billingService.isReady())
-		{
-			reportSkuDetailsErrorCaller("Failed to call getSkuDetails. Service may not be connected", listener);
-			return;
-		}
 		if (productIdList == null || productIdList.isEmpty())
 		{
 			reportSkuDetailsErrorCaller("Empty products list", listener);
 			return;
 		}
 
+		// Repeated lookups (e.g. every paywall open) are answered from the cache
+		skuDetailsCache.get(purchaseType, productIdList,
+				(missingIds, callback) -> querySkuDetails(missingIds, purchaseType, callback),
+				new ISkuDetailsResponseListener()
+				{
+					@Override
+					public void onSkuDetailsResponse(@Nullable List<SkuDetails> products)
+					{
+						reportSkuDetailsResponseCaller(products, listener);
+					}
+
+					@Override
+					public void onSkuDetailsError(String error)
+					{
+						reportSkuDetailsErrorCaller(error, listener);
+					}
+				});
+	}
+
+	private void querySkuDetails(final ArrayList<String> productIdList, String purchaseType,
+								 final SkuDetailsCache.QueryCallback callback)
+	{
+		if (billingService == null || !billingService.isReady())
+		{
+			callback.onFailed("Failed to call getSkuDetails. Service may not be connected");
+			return;
+		}
 		try
 		{
 			SkuDetailsParams skuDetailsParams = SkuDetailsParams.newBuilder()
@@ -930,7 +1049,7 @@ public class BillingProcessor extends BillingBase
 									}
 								}
 
-								reportSkuDetailsResponseCaller(productDetails, listener);
+								callback.onLoaded(productDetails);
 							}
 							else
 							{
@@ -940,7 +1059,7 @@ public class BillingProcessor extends BillingBase
 																	productIdList.size(), response);
 								Log.e(LOG_TAG, errorMessage);
 
-								reportSkuDetailsErrorCaller(errorMessage, listener);
+								callback.onFailed(errorMessage);
 							}
 						}
 					});
@@ -950,7 +1069,7 @@ public class BillingProcessor extends BillingBase
 			Log.e(LOG_TAG, "Failed to call getSkuDetails", e);
 			reportBillingError(Constants.BILLING_ERROR_SKUDETAILS_FAILED, e);
 
-			reportSkuDetailsErrorCaller(e.getLocalizedMessage(), listener);
+			callback.onFailed(e.getLocalizedMessage());
 		}
 	}
 
@@ -1145,7 +1264,7 @@ public class BillingProcessor extends BillingBase
 		{
 			if (purchase.isAcknowledged())
 			{
-				verifyAndCachePurchase(purchase);
+				runOnIoThread(() -> verifyAndCachePurchase(purchase));
 			}
 			else
 			{
@@ -1163,7 +1282,7 @@ public class BillingProcessor extends BillingBase
 							{
 								if (billingResult.getResponseCode() == BillingClient.BillingResponseCode.OK)
 								{
-									verifyAndCachePurchase(purchase);
+									runOnIoThread(() -> verifyAndCachePurchase(purchase));
 								}
 								else
 								{
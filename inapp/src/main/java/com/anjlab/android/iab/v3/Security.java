@@ -36,6 +36,11 @@ import java.security.spec.X509EncodedKeySpec;
  * must verify the purchases on the phone, you should obfuscate this code to
  * make it harder for an attacker to replace the code with stubs that treat all
  * purchases as verified.
+ *
+ * The parsed public key is kept for the last license key seen, and each
+ * thread keeps its own Signature instance, so verifying a batch of purchases
+ * (possibly from several threads) doesn't decode the key or look up the
+ * algorithm again for every purchase.
  */
 class Security
 {
@@ -44,6 +49,41 @@ class Security
     private static final String KEY_FACTORY_ALGORITHM = "RSA";
     private static final String SIGNATURE_ALGORITHM = "SHA1withRSA";
 
+    /**
+     * A license key together with its parsed form.
+     */
+    private static final class CachedKey
+    {
+        final String encoded;
+        final PublicKey key;
+
+        CachedKey(String encoded, PublicKey key)
+        {
+            this.encoded = encoded;
+            this.key = key;
+        }
+    }
+
+    private static volatile CachedKey cachedKey;
+
+    // Signature objects aren't thread-safe; one per verifying thread
+    private static final ThreadLocal<Signature> signatures = new ThreadLocal<Signature>()
+    {
+        @Override
+        protected Signature initialValue()
+        {
+            try
+            {
+                return Signature.getInstance(SIGNATURE_ALGORITHM);
+            }
+            catch (NoSuchAlgorithmException e)
+            {
+                Log.e(TAG, "NoSuchAlgorithmException.");
+                return null;
+            }
+        }
+    };
+
     /**
      * Verifies that the data was signed with the given signature, and returns
      * the verified purchase. The data is in JSON format and signed
@@ -76,10 +116,29 @@ class Security
             return false;
         }
 
-        PublicKey key = Security.generatePublicKey(base64PublicKey);
+        PublicKey key = Security.getPublicKey(base64PublicKey);
         return Security.verify(key, signedData, signature);
     }
 
+    /**
+     * Returns the PublicKey for the given Base64-encoded key, parsing it only
+     * when it differs from the previous call's.
+     *
+     * @param encodedPublicKey Base64-encoded public key
+     * @throws IllegalArgumentException if encodedPublicKey is invalid
+     */
+    static PublicKey getPublicKey(String encodedPublicKey)
+    {
+        CachedKey cached = cachedKey;
+        if (cached != null && cached.encoded.equals(encodedPublicKey))
+        {
+            return cached.key;
+        }
+        PublicKey key = generatePublicKey(encodedPublicKey);
+        cachedKey = new CachedKey(encodedPublicKey, key);
+        return key;
+    }
+
     /**
      * Generates a PublicKey instance from a string containing the
      * Base64-encoded public key.
@@ -122,10 +181,14 @@ class Security
      */
     public static boolean verify(PublicKey publicKey, String signedData, String signature)
     {
-        Signature sig;
+        Signature sig = signatures.get();
+        if (sig == null)
+        {
+            return false;
+        }
         try
         {
-            sig = Signature.getInstance(SIGNATURE_ALGORITHM);
+            // initVerify() also resets anything left over from a failed verification
             sig.initVerify(publicKey);
             sig.update(signedData.getBytes());
             if (!sig.verify(Base64.decode(signature, Base64.DEFAULT)))
@@ -135,10 +198,6 @@ class Security
             }
             return true;
         }
-        catch (NoSuchAlgorithmException e)
-        {
-            Log.e(TAG, "NoSuchAlgorithmException.");
-        }
         catch (InvalidKeyException e)
         {
             Log.e(TAG, "Invalid key specification.");
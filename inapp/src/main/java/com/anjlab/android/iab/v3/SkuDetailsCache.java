@@ -0,0 +1,248 @@
+/**
+ * Copyright 2014 AnjLab
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.anjlab.android.iab.v3;
+
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory cache of product details, keyed by product type and product id.
+ *
+ * Details are kept for an hour. Ids the store returned nothing for are
+ * remembered for five minutes, so a misconfigured id isn't queried on every
+ * request. Failed queries are not cached. A request only queries the ids
+ * that are neither cached nor already being fetched; ids another request is
+ * already fetching are waited for instead of queried twice.
+ */
+class SkuDetailsCache
+{
+	private static final long TTL_MILLISECONDS = 1000L * 60L * 60L;
+	private static final long NEGATIVE_TTL_MILLISECONDS = 1000L * 60L * 5L;
+
+	/**
+	 * Runs one store query for the given ids and reports exactly once.
+	 */
+	interface Query
+	{
+		void run(ArrayList<String> productIds, QueryCallback callback);
+	}
+
+	interface QueryCallback
+	{
+		void onLoaded(List<SkuDetails> details);
+
+		void onFailed(String error);
+	}
+
+	private static final class Entry
+	{
+		final SkuDetails details; // null: the store doesn't know this id
+		final long expiresAt;     // SystemClock.elapsedRealtime()
+
+		Entry(SkuDetails details, long expiresAt)
+		{
+			this.details = details;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	/**
+	 * One get() call waiting for some of its ids.
+	 */
+	private static final class Request
+	{
+		final List<String> keys;
+		final BillingProcessor.ISkuDetailsResponseListener listener;
+		final Map<String, SkuDetails> found = new HashMap<>();
+		int remaining;
+		String error;
+
+		Request(List<String> keys, BillingProcessor.ISkuDetailsResponseListener listener)
+		{
+			this.keys = keys;
+			this.listener = listener;
+		}
+
+		void finish()
+		{
+			if (error != null)
+			{
+				listener.onSkuDetailsError(error);
+				return;
+			}
+			List<SkuDetails> details = new ArrayList<>();
+			for (String key : keys)
+			{
+				SkuDetails skuDetails = found.get(key);
+				if (skuDetails != null)
+				{
+					details.add(skuDetails);
+				}
+			}
+			listener.onSkuDetailsResponse(details);
+		}
+	}
+
+	// Guarded by this
+	private final Map<String, Entry> entries = new HashMap<>();
+	private final Map<String, List<Request>> inFlight = new HashMap<>();
+
+	private static String key(String type, String productId)
+	{
+		return type + ":" + productId;
+	}
+
+	/**
+	 * Reports the details of the given products, querying only what isn't
+	 * cached or in flight. The listener is called exactly once, on the thread
+	 * that completes the last query it depends on (or this one).
+	 */
+	void get(String type, List<String> productIds, Query query,
+			 BillingProcessor.ISkuDetailsResponseListener listener)
+	{
+		List<String> keys = new ArrayList<>();
+		for (String productId : productIds)
+		{
+			keys.add(key(type, productId));
+		}
+		Request request = new Request(keys, listener);
+		ArrayList<String> toQuery = new ArrayList<>();
+		boolean allCached;
+
+		synchronized (this)
+		{
+			long now = SystemClock.elapsedRealtime();
+			for (int i = 0; i < keys.size(); i++)
+			{
+				String key = keys.get(i);
+				Entry entry = entries.get(key);
+				if (entry != null && now < entry.expiresAt)
+				{
+					if (entry.details != null)
+					{
+						request.found.put(key, entry.details);
+					}
+					continue;
+				}
+				entries.remove(key);
+
+				List<Request> waiting = inFlight.get(key);
+				if (waiting == null)
+				{
+					waiting = new ArrayList<>();
+					inFlight.put(key, waiting);
+					toQuery.add(productIds.get(i));
+				}
+				if (!waiting.contains(request))
+				{
+					waiting.add(request);
+					request.remaining++;
+				}
+			}
+			allCached = request.remaining == 0;
+		}
+
+		if (allCached)
+		{
+			request.finish();
+			return;
+		}
+		if (toQuery.isEmpty())
+		{
+			return;
+		}
+
+		final List<String> queriedKeys = new ArrayList<>();
+		for (String productId : toQuery)
+		{
+			queriedKeys.add(key(type, productId));
+		}
+		query.run(toQuery, new QueryCallback()
+		{
+			@Override
+			public void onLoaded(List<SkuDetails> details)
+			{
+				Map<String, SkuDetails> byKey = new HashMap<>();
+				for (SkuDetails skuDetails : details)
+				{
+					byKey.put(key(type, skuDetails.productId), skuDetails);
+				}
+				long now = SystemClock.elapsedRealtime();
+				synchronized (SkuDetailsCache.this)
+				{
+					for (String key : queriedKeys)
+					{
+						SkuDetails skuDetails = byKey.get(key);
+						entries.put(key, new Entry(skuDetails, now + (skuDetails != null
+								? TTL_MILLISECONDS : NEGATIVE_TTL_MILLISECONDS)));
+					}
+				}
+				resolve(queriedKeys, byKey, null);
+			}
+
+			@Override
+			public void onFailed(String error)
+			{
+				resolve(queriedKeys, null, error);
+			}
+		});
+	}
+
+	private void resolve(List<String> keys, Map<String, SkuDetails> details, String error)
+	{
+		List<Request> finished = new ArrayList<>();
+		synchronized (this)
+		{
+			for (String key : keys)
+			{
+				List<Request> waiting = inFlight.remove(key);
+				if (waiting == null)
+				{
+					continue;
+				}
+				for (Request request : waiting)
+				{
+					SkuDetails skuDetails = details != null ? details.get(key) : null;
+					if (skuDetails != null)
+					{
+						request.found.put(key, skuDetails);
+					}
+					if (error != null && request.error == null)
+					{
+						request.error = error;
+					}
+					if (--request.remaining == 0)
+					{
+						finished.add(request);
+					}
+				}
+			}
+		}
+		for (Request request : finished)
+		{
+			request.finish();
+		}
+	}
+
+	synchronized void clear()
+	{
+		entries.clear();
+	}
+}